@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+import com.google.common.io.ByteStreams;
+
+import io.grpc.Attributes;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.MethodDescriptor.Marshaller;
+import io.grpc.MethodDescriptor.MethodType;
+import io.grpc.ServerCall;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * A simple echo service that is used by the benchmarks. It uses raw byte arrays as messages, so that the benchmarks
+ * only measure the overhead of the library and not the serialization of the messages.
+ */
+public final class EchoService {
+
+    /**
+     * The name of the echo service.
+     */
+    public static final String SERVICE_NAME = "benchmark.Echo";
+
+    /**
+     * A marshaller that passes the bytes through as is.
+     */
+    public static final Marshaller<byte[]> BYTES_MARSHALLER = new Marshaller<byte[]>() {
+
+        @Override
+        public InputStream stream(final byte[] value) {
+            return new ByteArrayInputStream(value);
+        }
+
+        @Override
+        public byte[] parse(final InputStream stream) {
+            try {
+                return ByteStreams.toByteArray(stream);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+    };
+
+    /**
+     * The unary method that returns the request.
+     */
+    public static final MethodDescriptor<byte[], byte[]> UNARY = MethodDescriptor.<byte[], byte[]>newBuilder()
+            .setType(MethodType.UNARY)
+            .setFullMethodName(MethodDescriptor.generateFullMethodName(SERVICE_NAME, "Unary"))
+            .setRequestMarshaller(BYTES_MARSHALLER)
+            .setResponseMarshaller(BYTES_MARSHALLER)
+            .build();
+
+    /**
+     * The number of responses sent by the {@link #SERVER_STREAMING server streaming} method.
+     */
+    public static final int STREAM_RESPONSES = 10;
+
+    /**
+     * The server streaming method that returns the request {@link #STREAM_RESPONSES} times.
+     */
+    public static final MethodDescriptor<byte[], byte[]> SERVER_STREAMING = MethodDescriptor.<byte[], byte[]>newBuilder()
+            .setType(MethodType.SERVER_STREAMING)
+            .setFullMethodName(MethodDescriptor.generateFullMethodName(SERVICE_NAME, "ServerStreaming"))
+            .setRequestMarshaller(BYTES_MARSHALLER)
+            .setResponseMarshaller(BYTES_MARSHALLER)
+            .build();
+
+    private EchoService() {}
+
+    /**
+     * Creates a new service definition for the echo service.
+     *
+     * @return The newly created service definition.
+     */
+    public static ServerServiceDefinition bindService() {
+        return ServerServiceDefinition.builder(SERVICE_NAME)
+                .addMethod(UNARY, ServerCalls.asyncUnaryCall(EchoService::echo))
+                .addMethod(SERVER_STREAMING, ServerCalls.asyncServerStreamingCall(EchoService::echoStream))
+                .build();
+    }
+
+    private static void echo(final byte[] request, final StreamObserver<byte[]> responseObserver) {
+        responseObserver.onNext(request);
+        responseObserver.onCompleted();
+    }
+
+    private static void echoStream(final byte[] request, final StreamObserver<byte[]> responseObserver) {
+        for (int i = 0; i < STREAM_RESPONSES; i++) {
+            responseObserver.onNext(request);
+        }
+        responseObserver.onCompleted();
+    }
+
+    /**
+     * A server call that discards everything. Used to benchmark the interceptors without any transport.
+     *
+     * @param <ReqT> The type of the request.
+     * @param <RespT> The type of the response.
+     */
+    public static final class NoopServerCall<ReqT, RespT> extends ServerCall<ReqT, RespT> {
+
+        private final MethodDescriptor<ReqT, RespT> method;
+
+        /**
+         * Creates a new NoopServerCall for the given method.
+         *
+         * @param method The method of the call.
+         */
+        public NoopServerCall(final MethodDescriptor<ReqT, RespT> method) {
+            this.method = method;
+        }
+
+        @Override
+        public void request(final int numMessages) {
+            // Noop
+        }
+
+        @Override
+        public void sendHeaders(final Metadata headers) {
+            // Noop
+        }
+
+        @Override
+        public void sendMessage(final RespT message) {
+            // Noop
+        }
+
+        @Override
+        public void close(final Status status, final Metadata trailers) {
+            // Noop
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public Attributes getAttributes() {
+            return Attributes.EMPTY;
+        }
+
+        @Override
+        public MethodDescriptor<ReqT, RespT> getMethodDescriptor() {
+            return this.method;
+        }
+
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.benchmark;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import io.grpc.CallOptions;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerCall.Listener;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ClientCalls;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.devh.boot.grpc.benchmark.EchoService.NoopServerCall;
+import net.devh.boot.grpc.server.interceptor.FusedServerInterceptor;
+import net.devh.boot.grpc.server.metric.MetricCollectingServerInterceptor;
+import net.devh.boot.grpc.server.scope.GrpcRequestScope;
+import net.devh.boot.grpc.server.security.interceptors.ExceptionTranslatingServerInterceptor;
+
+/**
+ * Compares the nested built-in server interceptors with the {@link FusedServerInterceptor}. Use the {@code gc} profiler
+ * to compare the allocations per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FusedServerInterceptorBenchmark {
+
+    private static final byte[] PAYLOAD = new byte[16];
+
+    @Param({"nested", "fused"})
+    public String pipeline;
+
+    private ServerCallHandler<byte[], byte[]> handler;
+    private Server server;
+    private ManagedChannel channel;
+
+    @Setup
+    public void setup() throws IOException {
+        List<ServerInterceptor> interceptors = Arrays.asList(
+                new GrpcRequestScope(),
+                new MetricCollectingServerInterceptor(new SimpleMeterRegistry()),
+                new ExceptionTranslatingServerInterceptor());
+        if ("fused".equals(this.pipeline)) {
+            interceptors = FusedServerInterceptor.fuse(interceptors);
+        }
+        final ServerServiceDefinition service =
+                ServerInterceptors.interceptForward(EchoService.bindService(), interceptors);
+        this.handler = lookupHandler(service);
+
+        final String name = UUID.randomUUID().toString();
+        this.server = InProcessServerBuilder.forName(name).directExecutor().addService(service).build().start();
+        this.channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ServerCallHandler<byte[], byte[]> lookupHandler(final ServerServiceDefinition service) {
+        return (ServerCallHandler<byte[], byte[]>) service.getMethod(EchoService.UNARY.getFullMethodName())
+                .getServerCallHandler();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        this.channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        this.server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Invokes the interceptors and the service directly, without any transport.
+     *
+     * @return The listener of the call.
+     */
+    @Benchmark
+    public Listener<byte[]> interceptorsOnly() {
+        final Listener<byte[]> listener =
+                this.handler.startCall(new NoopServerCall<>(EchoService.UNARY), new Metadata());
+        listener.onMessage(PAYLOAD);
+        listener.onHalfClose();
+        listener.onComplete();
+        return listener;
+    }
+
+    /**
+     * Performs a full unary call using the in-process transport.
+     *
+     * @return The response of the call.
+     */
+    @Benchmark
+    public byte[] inProcessUnaryCall() {
+        return ClientCalls.blockingUnaryCall(this.channel, EchoService.UNARY, CallOptions.DEFAULT, PAYLOAD);
+    }
+
+}
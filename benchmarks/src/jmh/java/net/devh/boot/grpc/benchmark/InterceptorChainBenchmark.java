@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.benchmark;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.security.access.AccessDecisionManager;
+import org.springframework.security.access.vote.UnanimousBased;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientInterceptors;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.stub.ClientCalls;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.devh.boot.grpc.client.metric.MetricCollectingClientInterceptor;
+import net.devh.boot.grpc.client.security.CallCredentialsHelper;
+import net.devh.boot.grpc.server.metric.MetricCollectingServerInterceptor;
+import net.devh.boot.grpc.server.scope.GrpcRequestScope;
+import net.devh.boot.grpc.server.security.authentication.BasicGrpcAuthenticationReader;
+import net.devh.boot.grpc.server.security.check.AccessPredicate;
+import net.devh.boot.grpc.server.security.check.AccessPredicateVoter;
+import net.devh.boot.grpc.server.security.check.ManualGrpcSecurityMetadataSource;
+import net.devh.boot.grpc.server.security.interceptors.AuthorizationCheckingServerInterceptor;
+import net.devh.boot.grpc.server.security.interceptors.DefaultAuthenticatingServerInterceptor;
+import net.devh.boot.grpc.server.security.interceptors.ExceptionTranslatingServerInterceptor;
+
+/**
+ * Measures the per call overhead of the built-in server and client interceptors for unary and server streaming calls
+ * over the in-process and the (shaded) netty transport. Each interceptor can be toggled individually, so that
+ * regressions can be attributed to a single interceptor. Use the {@link Mode#SampleTime sample time} results for the
+ * percentiles (e.g. p99) and the {@code gc} profiler for the allocations per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InterceptorChainBenchmark {
+
+    private static final byte[] PAYLOAD = new byte[64];
+
+    /**
+     * The server interceptors to use.
+     */
+    public enum Interceptors {
+
+        /**
+         * No interceptors at all (baseline).
+         */
+        NONE,
+
+        /**
+         * Only the {@link GrpcRequestScope}.
+         */
+        SCOPE,
+
+        /**
+         * Only the {@link MetricCollectingServerInterceptor}.
+         */
+        METRICS,
+
+        /**
+         * The {@link ExceptionTranslatingServerInterceptor} and the {@link DefaultAuthenticatingServerInterceptor}.
+         */
+        AUTHENTICATION,
+
+        /**
+         * The {@link ExceptionTranslatingServerInterceptor}, {@link DefaultAuthenticatingServerInterceptor} and the
+         * {@link AuthorizationCheckingServerInterceptor}.
+         */
+        AUTHORIZATION,
+
+        /**
+         * All built-in interceptors.
+         */
+        ALL;
+
+    }
+
+    @Param({"inprocess", "netty"})
+    public String transport;
+
+    @Param
+    public Interceptors serverInterceptors;
+
+    @Param({"false", "true"})
+    public boolean clientMetrics;
+
+    private Server server;
+    private ManagedChannel managedChannel;
+    private Channel channel;
+    private CallOptions callOptions;
+
+    @Setup
+    public void setup() throws IOException {
+        final List<ServerInterceptor> interceptors = newServerInterceptors(this.serverInterceptors);
+        final String name = UUID.randomUUID().toString();
+        if ("inprocess".equals(this.transport)) {
+            this.server = InProcessServerBuilder.forName(name)
+                    .directExecutor()
+                    .addService(ServerInterceptors.interceptForward(EchoService.bindService(), interceptors))
+                    .build()
+                    .start();
+            this.managedChannel = InProcessChannelBuilder.forName(name)
+                    .directExecutor()
+                    .build();
+        } else {
+            this.server = NettyServerBuilder.forAddress(new InetSocketAddress("127.0.0.1", 0))
+                    .addService(ServerInterceptors.interceptForward(EchoService.bindService(), interceptors))
+                    .build()
+                    .start();
+            this.managedChannel = NettyChannelBuilder.forAddress("127.0.0.1", this.server.getPort())
+                    .usePlaintext()
+                    .build();
+        }
+        this.channel = this.clientMetrics
+                ? ClientInterceptors.intercept(this.managedChannel,
+                        new MetricCollectingClientInterceptor(new SimpleMeterRegistry()))
+                : this.managedChannel;
+        this.callOptions = this.serverInterceptors == Interceptors.NONE
+                ? CallOptions.DEFAULT
+                : CallOptions.DEFAULT.withCallCredentials(CallCredentialsHelper.basicAuth("user", "password"));
+    }
+
+    private static List<ServerInterceptor> newServerInterceptors(final Interceptors selected) {
+        final List<ServerInterceptor> interceptors = new ArrayList<>();
+        switch (selected) {
+            case NONE:
+                return Collections.emptyList();
+            case SCOPE:
+                interceptors.add(new GrpcRequestScope());
+                break;
+            case METRICS:
+                interceptors.add(new MetricCollectingServerInterceptor(new SimpleMeterRegistry()));
+                break;
+            case AUTHENTICATION:
+                interceptors.add(new ExceptionTranslatingServerInterceptor());
+                interceptors.add(newAuthenticatingInterceptor());
+                break;
+            case AUTHORIZATION:
+                interceptors.add(new ExceptionTranslatingServerInterceptor());
+                interceptors.add(newAuthenticatingInterceptor());
+                interceptors.add(newAuthorizationCheckingInterceptor());
+                break;
+            case ALL:
+                // Same order as in a spring application
+                interceptors.add(new GrpcRequestScope());
+                interceptors.add(new MetricCollectingServerInterceptor(new SimpleMeterRegistry()));
+                interceptors.add(new ExceptionTranslatingServerInterceptor());
+                interceptors.add(newAuthenticatingInterceptor());
+                interceptors.add(newAuthorizationCheckingInterceptor());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown interceptors: " + selected);
+        }
+        return interceptors;
+    }
+
+    private static DefaultAuthenticatingServerInterceptor newAuthenticatingInterceptor() {
+        final AuthenticationManager authenticationManager = authentication -> new UsernamePasswordAuthenticationToken(
+                authentication.getName(), null, AuthorityUtils.createAuthorityList("ROLE_USER"));
+        return new DefaultAuthenticatingServerInterceptor(authenticationManager, new BasicGrpcAuthenticationReader());
+    }
+
+    private static AuthorizationCheckingServerInterceptor newAuthorizationCheckingInterceptor() {
+        final AccessDecisionManager accessDecisionManager =
+                new UnanimousBased(Collections.singletonList(new AccessPredicateVoter()));
+        final ManualGrpcSecurityMetadataSource securityMetadataSource = new ManualGrpcSecurityMetadataSource();
+        securityMetadataSource.setDefault(AccessPredicate.hasRole("ROLE_USER"));
+        return new AuthorizationCheckingServerInterceptor(accessDecisionManager, securityMetadataSource);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        this.managedChannel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        this.server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Performs a single unary call.
+     *
+     * @return The response of the call.
+     */
+    @Benchmark
+    public byte[] unaryCall() {
+        return ClientCalls.blockingUnaryCall(this.channel, EchoService.UNARY, this.callOptions, PAYLOAD);
+    }
+
+    /**
+     * Performs a single server streaming call and receives all {@link EchoService#STREAM_RESPONSES responses}.
+     *
+     * @param blackhole The blackhole used to consume the responses.
+     */
+    @Benchmark
+    public void serverStreamingCall(final Blackhole blackhole) {
+        final Iterator<byte[]> responses =
+                ClientCalls.blockingServerStreamingCall(this.channel, EchoService.SERVER_STREAMING, this.callOptions,
+                        PAYLOAD);
+        while (responses.hasNext()) {
+            blackhole.consume(responses.next());
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.BytesValue;
+import com.google.protobuf.ListValue;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Value;
+
+import io.grpc.MethodDescriptor.Marshaller;
+import io.grpc.MethodDescriptor.PrototypeMarshaller;
+import io.grpc.internal.ReadableBuffers;
+import io.grpc.protobuf.lite.ProtoLiteUtils;
+import net.devh.boot.grpc.common.protobuf.ZeroCopyProtoMarshaller;
+
+/**
+ * Compares gRPC's default protobuf marshaller with the {@link ZeroCopyProtoMarshaller} when parsing messages received
+ * from a transport. Use the {@code gc} profiler to compare the allocations per message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ZeroCopyMarshallerBenchmark {
+
+    @Param({"1024", "1048576", "8388608"})
+    public int size;
+
+    /**
+     * The message to parse: {@code bytes} is a single {@code bytes} field that can share the parse buffer when aliased,
+     * {@code strings} is a list of short strings that have to be copied regardless of the strategy.
+     */
+    @Param({"bytes", "strings"})
+    public String message;
+
+    /**
+     * The marshaller to use: {@code default} uses gRPC's marshaller, {@code zero-copy} uses the
+     * {@link ZeroCopyProtoMarshaller} with its default thresholds, {@code aliased} and {@code pooled} force the
+     * respective strategy for all message sizes.
+     */
+    @Param({"default", "zero-copy", "aliased", "pooled"})
+    public String marshaller;
+
+    private Marshaller<MessageLite> messageMarshaller;
+    private byte[] serialized;
+
+    @Setup
+    public void setup() {
+        final MessageLite prototype = createMessage();
+        final PrototypeMarshaller<MessageLite> defaultMarshaller =
+                (PrototypeMarshaller<MessageLite>) ProtoLiteUtils.marshaller(prototype.getDefaultInstanceForType());
+        switch (this.marshaller) {
+            case "default":
+                this.messageMarshaller = defaultMarshaller;
+                break;
+            case "zero-copy":
+                this.messageMarshaller = new ZeroCopyProtoMarshaller<>(defaultMarshaller);
+                break;
+            case "aliased":
+                this.messageMarshaller = new ZeroCopyProtoMarshaller<>(defaultMarshaller, 0, 0);
+                break;
+            case "pooled":
+                this.messageMarshaller = new ZeroCopyProtoMarshaller<>(defaultMarshaller, 0, Integer.MAX_VALUE);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown marshaller: " + this.marshaller);
+        }
+        this.serialized = prototype.toByteArray();
+    }
+
+    private MessageLite createMessage() {
+        final Random random = new Random(0);
+        switch (this.message) {
+            case "bytes":
+                final byte[] payload = new byte[this.size];
+                random.nextBytes(payload);
+                return BytesValue.newBuilder().setValue(ByteString.copyFrom(payload)).build();
+            case "strings":
+                final ListValue.Builder builder = ListValue.newBuilder();
+                final char[] chars = new char[64];
+                for (int length = 0; length < this.size; length += chars.length) {
+                    for (int i = 0; i < chars.length; i++) {
+                        chars[i] = (char) ('a' + random.nextInt(26));
+                    }
+                    builder.addValues(Value.newBuilder().setStringValue(new String(chars)));
+                }
+                return builder.build();
+            default:
+                throw new IllegalArgumentException("Unknown message: " + this.message);
+        }
+    }
+
+    /**
+     * Parses a message from the same kind of stream that the transports pass to the marshallers.
+     *
+     * @return The parsed message.
+     */
+    @Benchmark
+    public MessageLite parse() {
+        return this.messageMarshaller.parse(ReadableBuffers.openStream(ReadableBuffers.wrap(this.serialized), true));
+    }
+
+}
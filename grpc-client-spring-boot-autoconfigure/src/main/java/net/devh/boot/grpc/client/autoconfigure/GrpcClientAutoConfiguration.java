@@ -28,6 +28,7 @@
 import net.devh.boot.grpc.client.channelfactory.NettyChannelFactory;
 import net.devh.boot.grpc.client.channelfactory.ShadedNettyChannelFactory;
 import net.devh.boot.grpc.client.config.GrpcChannelsProperties;
+import net.devh.boot.grpc.client.executor.GrpcChannelExecutorRegistry;
 import net.devh.boot.grpc.client.inject.GrpcClientBeanPostProcessor;
 import net.devh.boot.grpc.client.interceptor.AnnotationGlobalClientInterceptorConfigurer;
 import net.devh.boot.grpc.client.interceptor.GlobalClientInterceptorRegistry;
@@ -140,6 +141,31 @@ GrpcChannelConfigurer decompressionChannelConfigurer(final DecompressorRegistry
         return (builder, name) -> builder.decompressorRegistry(registry);
     }
 
+    /**
+     * 创建 Channel 共享的线程池注册中心
+     * Creates the registry that owns the executors that are shared by the channels.
+     *
+     * @param properties The properties used to configure the executors.
+     * @return The newly created executor registry bean.
+     */
+    @ConditionalOnMissingBean
+    @Bean
+    GrpcChannelExecutorRegistry grpcChannelExecutorRegistry(final GrpcChannelsProperties properties) {
+        return new GrpcChannelExecutorRegistry(properties);
+    }
+
+    /**
+     * 为 Channel 配置共享的线程池
+     * Configures the shared executors for the channels.
+     *
+     * @param executorRegistry The registry that owns the executors.
+     * @return The channel configurer that configures the executors.
+     */
+    @Bean
+    GrpcChannelConfigurer executorChannelConfigurer(final GrpcChannelExecutorRegistry executorRegistry) {
+        return executorRegistry::configure;
+    }
+
     /**
      * 默认channel 配置
      *
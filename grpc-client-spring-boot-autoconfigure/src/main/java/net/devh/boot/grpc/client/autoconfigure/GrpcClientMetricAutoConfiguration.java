@@ -18,16 +18,36 @@
 package net.devh.boot.grpc.client.autoconfigure;
 
 import io.grpc.ClientInterceptor;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import net.devh.boot.grpc.client.channelfactory.GrpcChannelFactory;
+import net.devh.boot.grpc.client.config.GrpcChannelsProperties;
+import net.devh.boot.grpc.client.executor.GrpcChannelExecutorRegistry;
+import net.devh.boot.grpc.client.metric.BackendMetricsChannelConfigurer;
 import net.devh.boot.grpc.client.metric.MetricCollectingClientInterceptor;
+import net.devh.boot.grpc.client.metric.MetricCollectingClientStreamTracerInterceptor;
+import net.devh.boot.grpc.common.metric.GrpcActiveCallsEndpoint;
+import net.devh.boot.grpc.common.metric.GrpcMetricsProperties;
+import net.devh.boot.grpc.common.metric.GrpcMetricsProperties.BackendProperties;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
 import org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import static net.devh.boot.grpc.client.channelfactory.AbstractChannelFactory.STRIPE_SEPARATOR;
+import static net.devh.boot.grpc.client.config.GrpcChannelsProperties.GLOBAL_PROPERTIES_KEY;
+
 /**
  * 配置 Client 端监控
  * Auto configuration class for Spring-Boot. This allows zero config client metrics for gRPC services.
@@ -38,18 +58,119 @@
 @AutoConfigureAfter(CompositeMeterRegistryAutoConfiguration.class)
 @AutoConfigureBefore(GrpcClientAutoConfiguration.class)
 @ConditionalOnBean(MeterRegistry.class)
+@EnableConfigurationProperties(GrpcMetricsProperties.class)
 public class GrpcClientMetricAutoConfiguration {
 
     /**
      * Creates a {@link ClientInterceptor} that collects metrics about incoming and outgoing requests and responses.
      *
-     * @param registry The registry used to create the metrics.
+     * @param registry          The registry used to create the metrics.
+     * @param metricsProperties The properties used to configure the timers.
      * @return The newly created MetricCollectingClientInterceptor bean.
      */
     @Bean
     @ConditionalOnMissingBean
-    public MetricCollectingClientInterceptor metricCollectingClientInterceptor(final MeterRegistry registry) {
-        return new MetricCollectingClientInterceptor(registry);
+    public MetricCollectingClientInterceptor metricCollectingClientInterceptor(final MeterRegistry registry,
+                                                                               final GrpcMetricsProperties metricsProperties) {
+        final MetricCollectingClientInterceptor metricCollector = new MetricCollectingClientInterceptor(registry);
+        metricCollector.setMethodTimerCustomizer(metricsProperties::customizeTimer);
+        metricCollector.setMethodSampler(metricsProperties::newSampler);
+        return metricCollector;
+    }
+
+    /**
+     * 记录发送和接收的消息大小
+     * Creates a {@link ClientInterceptor} that records the wire and uncompressed sizes of the sent and received
+     * messages.
+     *
+     * @param registry The registry used to create the metrics.
+     * @return The newly created MetricCollectingClientStreamTracerInterceptor bean.
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public MetricCollectingClientStreamTracerInterceptor metricCollectingClientStreamTracerInterceptor(
+            final MeterRegistry registry) {
+        return new MetricCollectingClientStreamTracerInterceptor(registry);
+    }
+
+    /**
+     * 按后端地址记录调用耗时
+     * Creates a channel configurer that records the duration of the calls per client and backend address. This has to
+     * be enabled explicitly, because the number of addresses might be large.
+     *
+     * @param registry          The registry used to create the metrics.
+     * @param metricsProperties The properties used to configure the timers and the limits.
+     * @return The newly created BackendMetricsChannelConfigurer bean.
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "grpc.metrics.backend", name = "enabled")
+    public BackendMetricsChannelConfigurer backendMetricsChannelConfigurer(final MeterRegistry registry,
+                                                                           final GrpcMetricsProperties metricsProperties) {
+        final BackendProperties backend = metricsProperties.getBackend();
+        return new BackendMetricsChannelConfigurer(registry,
+                builder -> {
+                    metricsProperties.getTimer().applyTo(builder);
+                    return builder;
+                },
+                backend.getMaxAddresses(), backend.getIdleTimeout());
+    }
+
+    /**
+     * 展示正在进行的调用数的 Endpoint
+     * Creates an actuator endpoint that shows the number of calls that are currently in flight.
+     *
+     * @param beanFactory The bean factory used to find the metric collecting interceptors.
+     * @return The newly created GrpcActiveCallsEndpoint bean.
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnAvailableEndpoint
+    public GrpcActiveCallsEndpoint grpcActiveCallsEndpoint(final ListableBeanFactory beanFactory) {
+        return new GrpcActiveCallsEndpoint(beanFactory);
+    }
+
+    /**
+     * Creates a {@link MeterBinder} that monitors the executors that are shared by the channels.
+     *
+     * @param executorRegistry The registry that owns the executors.
+     * @return The newly created MeterBinder bean.
+     */
+    @Bean
+    MeterBinder grpcChannelExecutorMetrics(final ObjectProvider<GrpcChannelExecutorRegistry> executorRegistry) {
+        return registry -> executorRegistry.ifAvailable(executors -> executors.addCreationListener(
+                (name, executor) -> new ExecutorServiceMetrics(executor, name, Tags.empty()).bindTo(registry)));
+    }
+
+    /**
+     * 监控连接池中每个 Channel 上活跃的调用数
+     * Creates a {@link MeterBinder} that monitors the number of active calls on each stripe of the connection pools of
+     * the explicitly configured clients.
+     *
+     * @param properties     The properties used to determine the size of the connection pools.
+     * @param channelFactory The channel factory that owns the connection pools.
+     * @return The newly created MeterBinder bean.
+     */
+    @Bean
+    MeterBinder grpcChannelPoolMetrics(final ObjectProvider<GrpcChannelsProperties> properties,
+                                       final ObjectProvider<GrpcChannelFactory> channelFactory) {
+        return registry -> properties.ifAvailable(channels -> {
+            for (final String name : channels.getClient().keySet()) {
+                final int poolSize = channels.getChannel(name).getConnectionPoolSize();
+                if (GLOBAL_PROPERTIES_KEY.equals(name) || poolSize <= 1) {
+                    continue;
+                }
+                for (int i = 0; i < poolSize; i++) {
+                    final String stripe = name + STRIPE_SEPARATOR + i;
+                    Gauge.builder("grpc.client.pool.calls.active", channelFactory,
+                            factory -> factory.getObject().getActiveCalls().getOrDefault(stripe, 0))
+                            .description("The number of active calls on the pooled channel")
+                            .tag("client", name)
+                            .tag("stripe", Integer.toString(i))
+                            .register(registry);
+                }
+            }
+        });
     }
 
 }
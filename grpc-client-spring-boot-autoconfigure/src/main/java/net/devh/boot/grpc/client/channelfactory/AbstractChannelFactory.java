@@ -25,6 +25,7 @@
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
 import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.client.config.ConnectionPoolStrategy;
 import net.devh.boot.grpc.client.config.GrpcChannelProperties;
 import net.devh.boot.grpc.client.config.GrpcChannelProperties.Security;
 import net.devh.boot.grpc.client.config.GrpcChannelsProperties;
@@ -35,6 +36,7 @@
 import javax.annotation.PreDestroy;
 import javax.annotation.concurrent.GuardedBy;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -56,6 +58,12 @@
 @Slf4j
 public abstract class AbstractChannelFactory<T extends ManagedChannelBuilder<T>> implements GrpcChannelFactory {
 
+    /**
+     * 连接池中 Channel 名称与序号的分隔符
+     * The separator between the client name and the index of a stripe of a connection pool.
+     */
+    public static final String STRIPE_SEPARATOR = "#";
+
     private final GrpcChannelsProperties properties;
     protected final GlobalClientInterceptorRegistry globalClientInterceptorRegistry;
     protected final List<GrpcChannelConfigurer> channelConfigurers;
@@ -66,7 +74,9 @@
     @GuardedBy("this")
     private final Map<String, ManagedChannel> channels = new ConcurrentHashMap<>();
     private final Map<String, ConnectivityState> channelStates = new ConcurrentHashMap<>();
-    private boolean shutdown = false;
+    private volatile InterceptedChannelCache interceptedChannels = new InterceptedChannelCache(null);
+    private final Map<String, ClientInterceptor> zeroCopyMarshallerInterceptors = new ConcurrentHashMap<>();
+    private volatile boolean shutdown = false;
 
     /**
      * 使用初始化的引用创建新的AbstractChannelFactory
@@ -90,13 +100,45 @@ public final Channel createChannel(final String name) {
     }
 
     /**
-     * 指定服务名称，拦截器和是否排序创建 Channel
+     * 指定服务名称，拦截器和是否排序创建 Channel，已创建的 Channel 会被缓存，直到全局拦截器发生变化
      */
     @Override
     public Channel createChannel(final String name,
                                  final List<ClientInterceptor> customInterceptors,
                                  final boolean sortInterceptors) {
-        final Channel channel;
+        if (this.shutdown) {
+            throw new IllegalStateException("GrpcChannelFactory is already closed!");
+        }
+        // 获取缓存的 Channel，全局拦截器变化后缓存失效
+        final List<ClientInterceptor> globalInterceptors = this.globalClientInterceptorRegistry.getClientInterceptors();
+        InterceptedChannelCache cache = this.interceptedChannels;
+        if (!cache.isFor(globalInterceptors)) {
+            cache = new InterceptedChannelCache(globalInterceptors);
+            this.interceptedChannels = cache;
+        }
+        final Channel cached = cache.get(name, customInterceptors, sortInterceptors);
+        if (cached != null) {
+            return cached;
+        }
+        return cache.put(name, customInterceptors, sortInterceptors,
+                newInterceptedChannel(name, globalInterceptors, customInterceptors, sortInterceptors));
+    }
+
+    /**
+     * 创建封装了拦截器的 Channel
+     * Creates a new channel for the given name that uses the given interceptors.
+     *
+     * @param name               The name of the channel.
+     * @param globalInterceptors The global interceptors to use.
+     * @param customInterceptors The custom interceptors to append.
+     * @param sortInterceptors   Whether the interceptors (both global and custom) should be sorted.
+     * @return The newly created intercepted channel.
+     */
+    private Channel newInterceptedChannel(final String name,
+                                          final List<ClientInterceptor> globalInterceptors,
+                                          final List<ClientInterceptor> customInterceptors,
+                                          final boolean sortInterceptors) {
+        Channel channel;
         synchronized (this) {
             if (this.shutdown) {
                 throw new IllegalStateException("GrpcChannelFactory is already closed!");
@@ -104,8 +146,17 @@ public Channel createChannel(final String name,
             // 创建channel
             channel = this.channels.computeIfAbsent(name, this::newManagedChannel);
         }
+        // 零拷贝编组器必须是最内层的拦截器
+        // The zero copy marshaller has to be the innermost interceptor
+        final GrpcChannelProperties properties = getPropertiesFor(name);
+        if (properties.isZeroCopyMarshaller()) {
+            channel = ClientInterceptors.intercept(channel, this.zeroCopyMarshallerInterceptors.computeIfAbsent(name,
+                    key -> new ZeroCopyMarshallerClientInterceptor(
+                            (int) properties.getZeroCopyAliasingThreshold().toBytes(),
+                            (int) properties.getZeroCopyMaxPooledSize().toBytes())));
+        }
         // 获取全局拦截器，并将 GrpcClient 指定的拦截器添加到其中，排序
-        final List<ClientInterceptor> interceptors = Lists.newArrayList(this.globalClientInterceptorRegistry.getClientInterceptors());
+        final List<ClientInterceptor> interceptors = Lists.newArrayList(globalInterceptors);
         interceptors.addAll(customInterceptors);
         if (sortInterceptors) {
             this.globalClientInterceptorRegistry.sortInterceptors(interceptors);
@@ -136,6 +187,11 @@ public Channel createChannel(final String name,
      * @see #configure(ManagedChannelBuilder, String)
      */
     protected ManagedChannel newManagedChannel(final String name) {
+        final GrpcChannelProperties properties = getPropertiesFor(name);
+        final int poolSize = properties.getConnectionPoolSize();
+        if (poolSize > 1) {
+            return newStripedManagedChannel(name, poolSize, properties.getConnectionPoolStrategy());
+        }
         // 创建 ManagedChannelBuilder
         final T builder = newChannelBuilder(name);
         // 添加配置
@@ -146,6 +202,32 @@ protected ManagedChannel newManagedChannel(final String name) {
         return channel;
     }
 
+    /**
+     * 根据所给的服务名称，创建包含多个 ManagedChannel 的连接池
+     * Creates a new {@link StripedManagedChannel} for the given client name, that distributes the calls across the given
+     * number of independently configured channels. The state of the individual stripes will be available using
+     * {@link #getConnectivityState()} as {@code name#index}.
+     *
+     * @param name     The name to create the channel for.
+     * @param poolSize The number of channels to create.
+     * @param strategy The strategy used to distribute the calls.
+     * @return The newly created channel.
+     */
+    protected ManagedChannel newStripedManagedChannel(final String name, final int poolSize,
+                                                      final ConnectionPoolStrategy strategy) {
+        final ManagedChannel[] stripes = new ManagedChannel[poolSize];
+        for (int i = 0; i < poolSize; i++) {
+            final T builder = newChannelBuilder(name);
+            configure(builder, name);
+            stripes[i] = builder.build();
+            watchConnectivityState(name + STRIPE_SEPARATOR + i, stripes[i]);
+        }
+        final StripedManagedChannel channel = new StripedManagedChannel(stripes, strategy);
+        watchConnectivityState(name, channel);
+        log.debug("Created connection pool with {} channels for '{}'", poolSize, name);
+        return channel;
+    }
+
     /**
      * 根据服务名称获取属性
      * Gets the channel properties for the given client name.
@@ -166,6 +248,8 @@ protected final GrpcChannelProperties getPropertiesFor(final String name) {
      * @param name    The name of the client to configure.
      */
     protected void configure(final T builder, final String name) {
+        // 配置传输层，如 EventLoopGroup
+        configureTransport(builder, name);
         // 配置 KeepAlive
         configureKeepAlive(builder, name);
         // 配置安全属性
@@ -180,6 +264,18 @@ protected void configure(final T builder, final String name) {
         }
     }
 
+    /**
+     * 配置传输层属性，默认不做任何处理
+     * Configures the transport specific options such as the event loop group and channel type used by the channel. By
+     * default this does nothing.
+     *
+     * @param builder The channel builder to configure.
+     * @param name    The name of the client to configure.
+     */
+    protected void configureTransport(final T builder, final String name) {
+        // Nothing to do here
+    }
+
     /**
      * 配置指定 ManagedChannelBuilder 的 keep alive
      * Configures the keep alive options that should be used by the channel.
@@ -260,6 +356,21 @@ public Map<String, ConnectivityState> getConnectivityState() {
         return Collections.unmodifiableMap(this.channelStates);
     }
 
+    @Override
+    public Map<String, Integer> getActiveCalls() {
+        final Map<String, Integer> activeCalls = new LinkedHashMap<>();
+        for (final Map.Entry<String, ManagedChannel> entry : this.channels.entrySet()) {
+            final ManagedChannel channel = entry.getValue();
+            if (channel instanceof StripedManagedChannel) {
+                final StripedManagedChannel striped = (StripedManagedChannel) channel;
+                for (int i = 0; i < striped.getStripeCount(); i++) {
+                    activeCalls.put(entry.getKey() + STRIPE_SEPARATOR + i, striped.getActiveCalls(i));
+                }
+            }
+        }
+        return Collections.unmodifiableMap(activeCalls);
+    }
+
     /**
      * 监视给定 channel 的连接变化
      * Watch the given channel for connectivity changes.
@@ -289,6 +400,7 @@ public synchronized void close() {
             return;
         }
         this.shutdown = true;
+        this.interceptedChannels = new InterceptedChannelCache(null);
         for (final ManagedChannel channel : this.channels.values()) {
             channel.shutdown();
         }
@@ -106,6 +106,18 @@ default Map<String, ConnectivityState> getConnectivityState() {
         return Collections.emptyMap();
     }
 
+    /**
+     * 获取连接池中每个 Channel 上活跃的调用数
+     * Gets an unmodifiable map that contains the names of the pooled channel stripes ({@code name#index}) with the number
+     * of calls that are currently active on them. This method will return an empty map, if the feature is not supported
+     * or no connection pools are in use.
+     *
+     * @return A map with the stripe names and their number of active calls.
+     */
+    default Map<String, Integer> getActiveCalls() {
+        return Collections.emptyMap();
+    }
+
     @Override
     void close();
 
@@ -106,6 +106,14 @@ public Map<String, ConnectivityState> getConnectivityState() {
                 .build();
     }
 
+    @Override
+    public Map<String, Integer> getActiveCalls() {
+        return ImmutableMap.<String, Integer>builder()
+                .putAll(inProcessChannelFactory.getActiveCalls())
+                .putAll(alternativeChannelFactory.getActiveCalls())
+                .build();
+    }
+
     @Override
     public void close() {
         try {
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.client.channelfactory;
+
+import io.grpc.Channel;
+import io.grpc.ClientInterceptor;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 缓存已封装拦截器的 Channel
+ * A cache for the intercepted {@link Channel}s of a single set of global interceptors. The custom interceptors are
+ * compared by identity, because they usually are singleton beans that are reused by all injection points. The lookups
+ * don't allocate, because the channels with custom interceptors are stored in small arrays per channel name.
+ *
+ * <p>
+ * <b>Note:</b> A new cache must be used once the global interceptors change.
+ * </p>
+ */
+final class InterceptedChannelCache {
+
+    /**
+     * The maximum number of cached channels with custom interceptors. Prevents unlimited growth, if the application
+     * creates new interceptor instances for every channel.
+     */
+    static final int MAX_CUSTOM_ENTRIES = 1024;
+
+    private final List<ClientInterceptor> globalInterceptors;
+    private final Map<String, Channel> plainChannels = new ConcurrentHashMap<>();
+    private final Map<String, CustomEntry[]> customChannels = new ConcurrentHashMap<>();
+    // Guarded by customChannels
+    private int customEntries = 0;
+
+    /**
+     * 使用给定的全局拦截器创建新的缓存
+     * Creates a new cache for the given global interceptors.
+     *
+     * @param globalInterceptors The global interceptors used by the cached channels.
+     */
+    InterceptedChannelCache(final List<ClientInterceptor> globalInterceptors) {
+        this.globalInterceptors = globalInterceptors;
+    }
+
+    /**
+     * 检查此缓存是否属于所给的全局拦截器
+     * Checks whether this cache belongs to the given (immutable) list of global interceptors.
+     *
+     * @param globalInterceptors The current global interceptors.
+     * @return True, if this cache can be used for the given interceptors. False otherwise.
+     */
+    boolean isFor(final List<ClientInterceptor> globalInterceptors) {
+        return this.globalInterceptors == globalInterceptors;
+    }
+
+    /**
+     * 获取缓存的 Channel
+     * Gets the cached channel for the given parameters. This method does not allocate.
+     *
+     * @param name               The name of the channel.
+     * @param customInterceptors The custom interceptors of the channel.
+     * @param sortInterceptors   Whether the interceptors are sorted.
+     * @return The cached channel or null, if there is none.
+     */
+    Channel get(final String name, final List<ClientInterceptor> customInterceptors, final boolean sortInterceptors) {
+        if (customInterceptors.isEmpty()) {
+            return this.plainChannels.get(name);
+        }
+        final CustomEntry[] entries = this.customChannels.get(name);
+        if (entries != null) {
+            for (final CustomEntry entry : entries) {
+                if (entry.matches(customInterceptors, sortInterceptors)) {
+                    return entry.channel;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 缓存 Channel
+     * Stores the given channel in the cache, if there is no other channel for these parameters yet.
+     *
+     * @param name               The name of the channel.
+     * @param customInterceptors The custom interceptors of the channel.
+     * @param sortInterceptors   Whether the interceptors are sorted.
+     * @param channel            The channel to cache.
+     * @return The channel that should be used.
+     */
+    Channel put(final String name, final List<ClientInterceptor> customInterceptors, final boolean sortInterceptors,
+                final Channel channel) {
+        if (customInterceptors.isEmpty()) {
+            // The global interceptors are already sorted
+            final Channel existing = this.plainChannels.putIfAbsent(name, channel);
+            return existing == null ? channel : existing;
+        }
+        // Only called on cache misses, so the lock doesn't affect the lookups
+        synchronized (this.customChannels) {
+            final Channel existing = get(name, customInterceptors, sortInterceptors);
+            if (existing != null) {
+                return existing;
+            }
+            if (this.customEntries >= MAX_CUSTOM_ENTRIES) {
+                return channel;
+            }
+            final CustomEntry[] entries = this.customChannels.get(name);
+            final CustomEntry entry = new CustomEntry(customInterceptors, sortInterceptors, channel);
+            if (entries == null) {
+                this.customChannels.put(name, new CustomEntry[] {entry});
+            } else {
+                final CustomEntry[] newEntries = Arrays.copyOf(entries, entries.length + 1);
+                newEntries[entries.length] = entry;
+                this.customChannels.put(name, newEntries);
+            }
+            this.customEntries++;
+            return channel;
+        }
+    }
+
+    /**
+     * 带有自定义拦截器的缓存 Channel
+     * A cached channel with custom interceptors.
+     */
+    private static final class CustomEntry {
+
+        private final ClientInterceptor[] interceptors;
+        private final boolean sorted;
+        private final Channel channel;
+
+        CustomEntry(final List<ClientInterceptor> interceptors, final boolean sorted, final Channel channel) {
+            this.interceptors = interceptors.toArray(new ClientInterceptor[0]);
+            this.sorted = sorted;
+            this.channel = channel;
+        }
+
+        /**
+         * 检查此条目是否属于所给的拦截器
+         * Checks whether this entry belongs to the given interceptors (compared by identity).
+         *
+         * @param interceptors The custom interceptors of the channel.
+         * @param sorted       Whether the interceptors are sorted.
+         * @return True, if the interceptors are the same. False otherwise.
+         */
+        boolean matches(final List<ClientInterceptor> interceptors, final boolean sorted) {
+            if (this.sorted != sorted || this.interceptors.length != interceptors.size()) {
+                return false;
+            }
+            for (int i = 0; i < this.interceptors.length; i++) {
+                if (this.interceptors[i] != interceptors.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+}
@@ -19,12 +19,16 @@
 
 import io.grpc.netty.GrpcSslContexts;
 import io.grpc.netty.NettyChannelBuilder;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
 import io.netty.handler.ssl.SslContextBuilder;
 import net.devh.boot.grpc.client.config.GrpcChannelProperties;
 import net.devh.boot.grpc.client.config.GrpcChannelProperties.Security;
 import net.devh.boot.grpc.client.config.GrpcChannelsProperties;
 import net.devh.boot.grpc.client.config.NegotiationType;
 import net.devh.boot.grpc.client.interceptor.GlobalClientInterceptorRegistry;
+import net.devh.boot.grpc.common.netty.NettyTransport;
+import net.devh.boot.grpc.common.netty.NettyTransportType;
 import org.springframework.core.io.Resource;
 
 import javax.net.ssl.SSLException;
@@ -32,6 +36,8 @@
 import java.io.InputStream;
 import java.net.URI;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static java.util.Objects.requireNonNull;
 
@@ -50,6 +56,12 @@
 // Keep this file in sync with ShadedNettyChannelFactory
 public class NettyChannelFactory extends AbstractChannelFactory<NettyChannelBuilder> {
 
+    /**
+     * 按传输类型和线程数共享的 EventLoopGroup
+     * The event loop groups shared by the channels using the same transport and number of threads.
+     */
+    private final Map<String, EventLoopGroup> eventLoopGroups = new ConcurrentHashMap<>();
+
     /**
      * 根据所给的属性创建新的 GrpcChannelFactory
      * Creates a new GrpcChannelFactory for netty with the given options.
@@ -98,11 +110,51 @@ protected NettyChannelBuilder newChannelBuilder(final String name) {
         if (address == null) {
             address = URI.create(name);
         }
+        // Unix domain socket 地址不经过名称解析，直接连接
+        // Unix domain socket addresses bypass the name resolution and connect directly
+        if (NettyTransport.isDomainSocketAddress(address.toString())) {
+            final NettyTransport transport =
+                    NettyTransport.resolveForDomainSockets(NettyTransport.NETTY_PACKAGE_PREFIX);
+            return NettyChannelBuilder.forAddress(
+                    transport.newDomainSocketAddress(NettyTransport.extractDomainSocketPath(address.toString())));
+        }
         // 使用服务地址和默认的负载均衡策略创建 Builder
         return NettyChannelBuilder.forTarget(address.toString())
                                   .defaultLoadBalancingPolicy(properties.getDefaultLoadBalancingPolicy());
     }
 
+    /**
+     * 配置传输层，如 EventLoopGroup 和 Channel 类型
+     * Configures the event loop group and channel type of the channel, if a transport is configured.
+     *
+     * @param builder The channel builder to configure.
+     * @param name    The name of the client to configure.
+     */
+    @Override
+    protected void configureTransport(final NettyChannelBuilder builder, final String name) {
+        final GrpcChannelProperties properties = getPropertiesFor(name);
+        final NettyTransportType type = properties.getTransport();
+        final URI address = properties.getAddress();
+        final boolean domainSocket = address != null && NettyTransport.isDomainSocketAddress(address.toString());
+        if (type == null && !domainSocket) {
+            return;
+        }
+        // Unix domain socket 必须使用 EPOLL 传输
+        // Unix domain sockets always require the EPOLL transport
+        final NettyTransport transport = domainSocket
+                ? NettyTransport.resolveForDomainSockets(NettyTransport.NETTY_PACKAGE_PREFIX)
+                : NettyTransport.resolve(type, NettyTransport.NETTY_PACKAGE_PREFIX);
+        final int threads = properties.getEventLoopThreads();
+        // 相同传输类型和线程数的 Channel 共享 EventLoopGroup
+        final EventLoopGroup eventLoopGroup = this.eventLoopGroups.computeIfAbsent(
+                transport.getType() + "-" + threads,
+                key -> transport.newEventLoopGroup(EventLoopGroup.class, threads, "grpc-client-" + key.toLowerCase()));
+        builder.eventLoopGroup(eventLoopGroup)
+               .channelType(domainSocket
+                       ? transport.getDomainSocketChannelType(Channel.class)
+                       : transport.getChannelType(Channel.class));
+    }
+
     /**
      * 配置安全属性
      *
@@ -164,4 +216,17 @@ protected void configureSecurity(final NettyChannelBuilder builder, final String
         }
     }
 
+    /**
+     * 关闭所有 Channel 之后关闭共享的 EventLoopGroup
+     * Closes this channel factory and shuts down the shared event loop groups once all channels are closed.
+     */
+    @Override
+    public synchronized void close() {
+        super.close();
+        for (final EventLoopGroup eventLoopGroup : this.eventLoopGroups.values()) {
+            eventLoopGroup.shutdownGracefully();
+        }
+        this.eventLoopGroups.clear();
+    }
+
 }
@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.client.channelfactory;
+
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ConnectivityState;
+import io.grpc.ForwardingClientCall.SimpleForwardingClientCall;
+import io.grpc.ForwardingClientCallListener.SimpleForwardingClientCallListener;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import net.devh.boot.grpc.client.config.ConnectionPoolStrategy;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * 将新的调用分散到多个 Channel 上的 ManagedChannel
+ * A {@link ManagedChannel} that stripes new calls across multiple underlying channels (stripes). Each stripe uses its
+ * own connection(s), so that the calls are not limited by the max concurrent streams or the event loop of a single
+ * HTTP/2 connection.
+ *
+ * <p>
+ * <b>Note:</b> The lifecycle methods such as {@link #shutdown()} will be applied to all stripes.
+ * </p>
+ */
+public class StripedManagedChannel extends ManagedChannel {
+
+    private final ManagedChannel[] stripes;
+    private final ConnectionPoolStrategy strategy;
+    private final AtomicIntegerArray activeCalls;
+    private final AtomicInteger nextStripe = new AtomicInteger();
+
+    /**
+     * 根据所给的 Channel 和策略创建新的 StripedManagedChannel
+     * Creates a new StripedManagedChannel using the given channels as stripes.
+     *
+     * @param stripes  The underlying channels to distribute the calls across.
+     * @param strategy The strategy used to select the stripe for new calls.
+     */
+    public StripedManagedChannel(final ManagedChannel[] stripes, final ConnectionPoolStrategy strategy) {
+        requireNonNull(stripes, "stripes");
+        if (stripes.length == 0) {
+            throw new IllegalArgumentException("At least one stripe is required");
+        }
+        this.stripes = stripes.clone();
+        this.strategy = requireNonNull(strategy, "strategy");
+        this.activeCalls = new AtomicIntegerArray(stripes.length);
+    }
+
+    /**
+     * 获取 Channel 的数量
+     * Gets the number of stripes of this channel.
+     *
+     * @return The number of stripes.
+     */
+    public int getStripeCount() {
+        return this.stripes.length;
+    }
+
+    /**
+     * 获取指定的 Channel
+     * Gets the stripe with the given index.
+     *
+     * @param index The index of the stripe.
+     * @return The stripe with the given index.
+     */
+    public ManagedChannel getStripe(final int index) {
+        return this.stripes[index];
+    }
+
+    /**
+     * 获取指定 Channel 上活跃的调用数
+     * Gets the number of calls that have been created but not yet completed on the given stripe.
+     *
+     * @param index The index of the stripe.
+     * @return The number of active calls.
+     */
+    public int getActiveCalls(final int index) {
+        return this.activeCalls.get(index);
+    }
+
+    /**
+     * 选择下一个调用使用的 Channel
+     * Selects the stripe that should be used for the next call.
+     *
+     * @return The index of the selected stripe.
+     */
+    protected int selectStripe() {
+        final int length = this.stripes.length;
+        final int offset = Math.floorMod(this.nextStripe.getAndIncrement(), length);
+        if (this.strategy == ConnectionPoolStrategy.ROUND_ROBIN) {
+            return offset;
+        }
+        int selected = offset;
+        int selectedCalls = this.activeCalls.get(offset);
+        for (int i = 1; i < length && selectedCalls > 0; i++) {
+            final int index = (offset + i) % length;
+            final int calls = this.activeCalls.get(index);
+            if (calls < selectedCalls) {
+                selected = index;
+                selectedCalls = calls;
+            }
+        }
+        return selected;
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(final MethodDescriptor<ReqT, RespT> methodDescriptor,
+                                                         final CallOptions callOptions) {
+        final int index = selectStripe();
+        this.activeCalls.incrementAndGet(index);
+        try {
+            return new ActiveCallTrackingClientCall<>(this.stripes[index].newCall(methodDescriptor, callOptions), index);
+        } catch (final RuntimeException e) {
+            this.activeCalls.decrementAndGet(index);
+            throw e;
+        }
+    }
+
+    @Override
+    public String authority() {
+        return this.stripes[0].authority();
+    }
+
+    /**
+     * 获取所有 Channel 中最好的连接状态
+     * Gets the best state of all stripes. E.g. if any of the stripes is {@link ConnectivityState#READY READY}, then this
+     * channel will be reported as {@code READY} as well.
+     */
+    @Override
+    public ConnectivityState getState(final boolean requestConnection) {
+        ConnectivityState best = ConnectivityState.SHUTDOWN;
+        for (final ManagedChannel stripe : this.stripes) {
+            final ConnectivityState state = stripe.getState(requestConnection);
+            if (rank(state) < rank(best)) {
+                best = state;
+            }
+        }
+        return best;
+    }
+
+    private static int rank(final ConnectivityState state) {
+        switch (state) {
+            case READY:
+                return 0;
+            case CONNECTING:
+                return 1;
+            case IDLE:
+                return 2;
+            case TRANSIENT_FAILURE:
+                return 3;
+            default:
+                return 4;
+        }
+    }
+
+    @Override
+    public void notifyWhenStateChanged(final ConnectivityState source, final Runnable callback) {
+        requireNonNull(callback, "callback");
+        if (getState(false) != source) {
+            callback.run();
+            return;
+        }
+        final AtomicBoolean notified = new AtomicBoolean();
+        for (final ManagedChannel stripe : this.stripes) {
+            watchStripe(stripe, source, callback, notified);
+        }
+    }
+
+    private void watchStripe(final ManagedChannel stripe, final ConnectivityState source, final Runnable callback,
+                             final AtomicBoolean notified) {
+        final ConnectivityState stripeState = stripe.getState(false);
+        if (stripeState == ConnectivityState.SHUTDOWN) {
+            return;
+        }
+        stripe.notifyWhenStateChanged(stripeState, () -> {
+            if (notified.get()) {
+                return;
+            }
+            if (getState(false) != source) {
+                if (notified.compareAndSet(false, true)) {
+                    callback.run();
+                }
+            } else {
+                watchStripe(stripe, source, callback, notified);
+            }
+        });
+    }
+
+    @Override
+    public void resetConnectBackoff() {
+        for (final ManagedChannel stripe : this.stripes) {
+            stripe.resetConnectBackoff();
+        }
+    }
+
+    @Override
+    public void enterIdle() {
+        for (final ManagedChannel stripe : this.stripes) {
+            stripe.enterIdle();
+        }
+    }
+
+    @Override
+    public ManagedChannel shutdown() {
+        for (final ManagedChannel stripe : this.stripes) {
+            stripe.shutdown();
+        }
+        return this;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        for (final ManagedChannel stripe : this.stripes) {
+            if (!stripe.isShutdown()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        for (final ManagedChannel stripe : this.stripes) {
+            if (!stripe.isTerminated()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public ManagedChannel shutdownNow() {
+        for (final ManagedChannel stripe : this.stripes) {
+            stripe.shutdownNow();
+        }
+        return this;
+    }
+
+    @Override
+    public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (final ManagedChannel stripe : this.stripes) {
+            final long remaining = deadline - System.nanoTime();
+            if (!stripe.awaitTermination(Math.max(0, remaining), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "StripedManagedChannel [strategy=" + this.strategy + ", stripes=" + this.stripes.length + ", authority="
+                + authority() + "]";
+    }
+
+    /**
+     * 跟踪活跃调用数的 ClientCall
+     * A client call that decrements the number of active calls of its stripe once it completes.
+     *
+     * @param <ReqT>  The type of the request.
+     * @param <RespT> The type of the response.
+     */
+    private class ActiveCallTrackingClientCall<ReqT, RespT> extends SimpleForwardingClientCall<ReqT, RespT> {
+
+        private final int index;
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private volatile boolean started = false;
+
+        ActiveCallTrackingClientCall(final ClientCall<ReqT, RespT> delegate, final int index) {
+            super(delegate);
+            this.index = index;
+        }
+
+        @Override
+        public void start(final Listener<RespT> responseListener, final Metadata headers) {
+            this.started = true;
+            try {
+                super.start(new SimpleForwardingClientCallListener<RespT>(responseListener) {
+
+                    @Override
+                    public void onClose(final Status status, final Metadata trailers) {
+                        complete();
+                        super.onClose(status, trailers);
+                    }
+
+                }, headers);
+            } catch (final RuntimeException e) {
+                complete();
+                throw e;
+            }
+        }
+
+        @Override
+        public void cancel(final String message, final Throwable cause) {
+            if (!this.started) {
+                // The listener will never be called
+                complete();
+            }
+            super.cancel(message, cause);
+        }
+
+        private void complete() {
+            if (this.completed.compareAndSet(false, true)) {
+                StripedManagedChannel.this.activeCalls.decrementAndGet(this.index);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.client.channelfactory;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.MethodDescriptor;
+import net.devh.boot.grpc.common.protobuf.ZeroCopyProtoMarshaller;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 使用零拷贝编组器解析响应的拦截器
+ * A client interceptor that replaces the protobuf marshallers of the called methods with
+ * {@link ZeroCopyProtoMarshaller}s. It has to be the innermost interceptor, so that the other interceptors still see
+ * the original method descriptors.
+ */
+final class ZeroCopyMarshallerClientInterceptor implements ClientInterceptor {
+
+    /**
+     * The maximum number of cached method descriptors. Prevents unlimited growth, if the application creates new
+     * method descriptors for every call.
+     */
+    static final int MAX_CACHED_METHODS = 1024;
+
+    private final Map<MethodDescriptor<?, ?>, MethodDescriptor<?, ?>> methods = new ConcurrentHashMap<>();
+    private final int aliasingThreshold;
+    private final int maxPooledSize;
+
+    /**
+     * 创建使用给定阈值的拦截器
+     * Creates a new interceptor that uses zero copy marshallers with the given thresholds.
+     *
+     * @param aliasingThreshold The size in bytes above which messages are parsed with aliasing.
+     * @param maxPooledSize     The size in bytes of the largest message that is parsed using a pooled buffer.
+     */
+    ZeroCopyMarshallerClientInterceptor(final int aliasingThreshold, final int maxPooledSize) {
+        this.aliasingThreshold = aliasingThreshold;
+        this.maxPooledSize = maxPooledSize;
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(final MethodDescriptor<ReqT, RespT> method,
+                                                               final CallOptions callOptions, final Channel next) {
+        return next.newCall(wrap(method), callOptions);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <ReqT, RespT> MethodDescriptor<ReqT, RespT> wrap(final MethodDescriptor<ReqT, RespT> method) {
+        final MethodDescriptor<ReqT, RespT> cached = (MethodDescriptor<ReqT, RespT>) this.methods.get(method);
+        if (cached != null) {
+            return cached;
+        }
+        final MethodDescriptor<ReqT, RespT> wrapped =
+                ZeroCopyProtoMarshaller.wrap(method, this.aliasingThreshold, this.maxPooledSize);
+        if (this.methods.size() < MAX_CACHED_METHODS) {
+            this.methods.put(method, wrapped);
+        }
+        return wrapped;
+    }
+
+}
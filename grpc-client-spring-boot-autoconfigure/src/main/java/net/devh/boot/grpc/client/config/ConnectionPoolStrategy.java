@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.client.config;
+
+/**
+ * 连接池中选择连接的策略
+ * Identifies the strategy used to select the channel of a connection pool for new calls.
+ *
+ * @see GrpcChannelProperties#setConnectionPoolSize(Integer)
+ */
+public enum ConnectionPoolStrategy {
+
+    /**
+     * Distribute the calls evenly across all channels of the pool.
+     */
+    ROUND_ROBIN,
+
+    /**
+     * Use the channel with the least number of active calls. Ties are resolved using round robin. This strategy is
+     * better suited for workloads with long running (streaming) calls.
+     */
+    LEAST_ACTIVE_CALLS;
+
+}
@@ -26,6 +26,8 @@
 import io.grpc.netty.shaded.io.netty.handler.ssl.SslContextBuilder;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
+import net.devh.boot.grpc.common.netty.NettyTransportType;
+import net.devh.boot.grpc.common.protobuf.ZeroCopyProtoMarshaller;
 import org.springframework.boot.convert.DataSizeUnit;
 import org.springframework.boot.convert.DurationUnit;
 import org.springframework.core.io.Resource;
@@ -104,6 +106,8 @@ public void setAddress(final URI address) {
      * <li>{@code dns:///example.com:9090}</li>
      * <li>{@code discovery:/foo-service}</li>
      * <li>{@code discovery:///foo-service}</li>
+     * <li>{@code unix:/run/foo-service.sock} (connects to a unix domain socket, requires the {@code EPOLL} transport
+     * and thus Linux)</li>
      * </ul>
      *
      * @param address The string representation of an uri to use as target address or null to use a fallback.
@@ -321,6 +325,93 @@ public void setFullStreamDecompression(final Boolean fullStreamDecompression) {
 
     // --------------------------------------------------
 
+    private Boolean zeroCopyMarshaller;
+    private static final boolean DEFAULT_ZERO_COPY_MARSHALLER = false;
+
+    /**
+     * Gets whether the protobuf responses should be parsed using a zero copy marshaller.
+     *
+     * @return True, if the zero copy marshaller should be used. False otherwise.
+     * @see #setZeroCopyMarshaller(Boolean)
+     */
+    public boolean isZeroCopyMarshaller() {
+        return this.zeroCopyMarshaller == null ? DEFAULT_ZERO_COPY_MARSHALLER : this.zeroCopyMarshaller;
+    }
+
+    /**
+     * Sets whether the protobuf responses should be parsed using a {@link ZeroCopyProtoMarshaller}, which avoids
+     * copying the received data more than once and reduces the allocations for large messages. This affects all stubs
+     * that use this channel. Defaults to {@code false}.
+     *
+     * @param zeroCopyMarshaller Whether the zero copy marshaller should be used or null to use the fallback.
+     */
+    public void setZeroCopyMarshaller(final Boolean zeroCopyMarshaller) {
+        this.zeroCopyMarshaller = zeroCopyMarshaller;
+    }
+
+    // --------------------------------------------------
+
+    @DataSizeUnit(DataUnit.BYTES)
+    private DataSize zeroCopyAliasingThreshold;
+    private static final DataSize DEFAULT_ZERO_COPY_ALIASING_THRESHOLD =
+            DataSize.ofBytes(ZeroCopyProtoMarshaller.DEFAULT_ALIASING_THRESHOLD);
+
+    /**
+     * Gets the size of the responses above which the zero copy marshaller parses them with aliasing.
+     *
+     * @return The size above which responses are parsed with aliasing.
+     * @see #setZeroCopyAliasingThreshold(DataSize)
+     */
+    public DataSize getZeroCopyAliasingThreshold() {
+        return this.zeroCopyAliasingThreshold == null ? DEFAULT_ZERO_COPY_ALIASING_THRESHOLD
+                : this.zeroCopyAliasingThreshold;
+    }
+
+    /**
+     * Sets the size of the responses above which the zero copy marshaller parses them with aliasing, instead of
+     * passing them to gRPC's marshaller. Defaults to {@code 4MB}, which is the largest size for which gRPC's
+     * marshaller reuses its buffer.
+     *
+     * @param zeroCopyAliasingThreshold The size above which responses are parsed with aliasing or null to use the
+     *                                  fallback.
+     * @see ZeroCopyProtoMarshaller#getAliasingThreshold()
+     */
+    public void setZeroCopyAliasingThreshold(final DataSize zeroCopyAliasingThreshold) {
+        this.zeroCopyAliasingThreshold = zeroCopyAliasingThreshold;
+    }
+
+    // --------------------------------------------------
+
+    @DataSizeUnit(DataUnit.BYTES)
+    private DataSize zeroCopyMaxPooledSize;
+    private static final DataSize DEFAULT_ZERO_COPY_MAX_POOLED_SIZE =
+            DataSize.ofBytes(ZeroCopyProtoMarshaller.DEFAULT_MAX_POOLED_SIZE);
+
+    /**
+     * Gets the size of the largest response that the zero copy marshaller parses using a pooled buffer.
+     *
+     * @return The size of the largest response that is parsed using a pooled buffer.
+     * @see #setZeroCopyMaxPooledSize(DataSize)
+     */
+    public DataSize getZeroCopyMaxPooledSize() {
+        return this.zeroCopyMaxPooledSize == null ? DEFAULT_ZERO_COPY_MAX_POOLED_SIZE : this.zeroCopyMaxPooledSize;
+    }
+
+    /**
+     * Sets the size of the largest response that the zero copy marshaller parses using a buffer that is reused by each
+     * thread, instead of aliasing. This only pays off for large responses without large {@code bytes} fields. Defaults
+     * to {@code 0}, which disables the pooling.
+     *
+     * @param zeroCopyMaxPooledSize The size of the largest response that is parsed using a pooled buffer or null to
+     *                              use the fallback.
+     * @see ZeroCopyProtoMarshaller#getMaxPooledSize()
+     */
+    public void setZeroCopyMaxPooledSize(final DataSize zeroCopyMaxPooledSize) {
+        this.zeroCopyMaxPooledSize = zeroCopyMaxPooledSize;
+    }
+
+    // --------------------------------------------------
+
     private NegotiationType negotiationType;
     private static final NegotiationType DEFAULT_NEGOTIATION_TYPE = NegotiationType.TLS;
 
@@ -345,6 +436,176 @@ public void setNegotiationType(final NegotiationType negotiationType) {
         this.negotiationType = negotiationType;
     }
 
+    // --------------------------------------------------
+    // Connection Pool
+    // --------------------------------------------------
+
+    private Integer connectionPoolSize;
+    private static final int DEFAULT_CONNECTION_POOL_SIZE = 1;
+
+    /**
+     * Gets the number of underlying channels (and thus connections per backend) that will be used for this channel.
+     *
+     * @return The number of underlying channels.
+     * @see #setConnectionPoolSize(Integer)
+     */
+    public int getConnectionPoolSize() {
+        return this.connectionPoolSize == null ? DEFAULT_CONNECTION_POOL_SIZE : this.connectionPoolSize;
+    }
+
+    /**
+     * Sets the number of underlying channels that will be used for this channel. Each of these channels will use its
+     * own connection(s) to the backend(s). New calls will be distributed across the channels according to the
+     * {@link #setConnectionPoolStrategy(ConnectionPoolStrategy) strategy}. This helps if the calls to a single backend
+     * are limited by the max concurrent streams of a single HTTP/2 connection or its event loop. Defaults to {@code 1}.
+     *
+     * @param connectionPoolSize The number of underlying channels or null to use the fallback.
+     */
+    public void setConnectionPoolSize(final Integer connectionPoolSize) {
+        if (connectionPoolSize != null && connectionPoolSize < 1) {
+            throw new IllegalArgumentException("Unsupported connectionPoolSize: " + connectionPoolSize);
+        }
+        this.connectionPoolSize = connectionPoolSize;
+    }
+
+    // --------------------------------------------------
+
+    private ConnectionPoolStrategy connectionPoolStrategy;
+    private static final ConnectionPoolStrategy DEFAULT_CONNECTION_POOL_STRATEGY = ConnectionPoolStrategy.ROUND_ROBIN;
+
+    /**
+     * Gets the strategy used to select the underlying channel for new calls.
+     *
+     * @return The strategy used to select the underlying channel.
+     * @see #setConnectionPoolStrategy(ConnectionPoolStrategy)
+     */
+    public ConnectionPoolStrategy getConnectionPoolStrategy() {
+        return this.connectionPoolStrategy == null ? DEFAULT_CONNECTION_POOL_STRATEGY : this.connectionPoolStrategy;
+    }
+
+    /**
+     * Sets the strategy used to select the underlying channel for new calls, if a
+     * {@link #setConnectionPoolSize(Integer) connection pool} is used. Either of
+     * {@link ConnectionPoolStrategy#ROUND_ROBIN ROUND_ROBIN} or
+     * {@link ConnectionPoolStrategy#LEAST_ACTIVE_CALLS LEAST_ACTIVE_CALLS}. Defaults to {@code ROUND_ROBIN}.
+     *
+     * @param connectionPoolStrategy The strategy to use or null to use the fallback.
+     */
+    public void setConnectionPoolStrategy(final ConnectionPoolStrategy connectionPoolStrategy) {
+        this.connectionPoolStrategy = connectionPoolStrategy;
+    }
+
+    // --------------------------------------------------
+    // Executors
+    // --------------------------------------------------
+
+    private Integer executorThreads;
+    private static final int DEFAULT_EXECUTOR_THREADS = 0;
+
+    /**
+     * Gets the number of threads of the shared pool that executes the callbacks of this channel.
+     *
+     * @return The number of threads or 0, if gRPC's default executor should be used.
+     * @see #setExecutorThreads(Integer)
+     */
+    public int getExecutorThreads() {
+        return this.executorThreads == null ? DEFAULT_EXECUTOR_THREADS : this.executorThreads;
+    }
+
+    /**
+     * Sets the number of threads of the pool that executes the callbacks of this channel. Channels using the same number
+     * of threads will share the same pool. Defaults to {@code 0}, which uses gRPC's default (unbounded cached) executor.
+     *
+     * @param executorThreads The number of threads to use or null to use the fallback.
+     * @see ManagedChannelBuilder#executor(java.util.concurrent.Executor)
+     */
+    public void setExecutorThreads(final Integer executorThreads) {
+        this.executorThreads = executorThreads;
+    }
+
+    // --------------------------------------------------
+
+    private Integer offloadExecutorThreads;
+    private static final int DEFAULT_OFFLOAD_EXECUTOR_THREADS = 0;
+
+    /**
+     * Gets the number of threads of the shared pool that is used for offloaded work of this channel.
+     *
+     * @return The number of threads or 0, if gRPC's default executor should be used.
+     * @see #setOffloadExecutorThreads(Integer)
+     */
+    public int getOffloadExecutorThreads() {
+        return this.offloadExecutorThreads == null ? DEFAULT_OFFLOAD_EXECUTOR_THREADS : this.offloadExecutorThreads;
+    }
+
+    /**
+     * Sets the number of threads of the pool that is used for offloaded (potentially blocking) work of this channel,
+     * such as name resolution and load balancing. Channels using the same number of threads will share the same pool.
+     * Defaults to {@code 0}, which uses gRPC's default (unbounded cached) executor.
+     *
+     * @param offloadExecutorThreads The number of threads to use or null to use the fallback.
+     * @see ManagedChannelBuilder#offloadExecutor(java.util.concurrent.Executor)
+     */
+    public void setOffloadExecutorThreads(final Integer offloadExecutorThreads) {
+        this.offloadExecutorThreads = offloadExecutorThreads;
+    }
+
+    // --------------------------------------------------
+    // Transport
+    // --------------------------------------------------
+
+    private NettyTransportType transport;
+
+    /**
+     * Gets the netty transport that should be used by this channel.
+     *
+     * @return The netty transport to use or null, if gRPC's default should be used.
+     * @see #setTransport(NettyTransportType)
+     */
+    public NettyTransportType getTransport() {
+        return this.transport;
+    }
+
+    /**
+     * Sets the netty transport that should be used by this channel. Either of {@link NettyTransportType#AUTO AUTO},
+     * {@link NettyTransportType#NIO NIO}, {@link NettyTransportType#EPOLL EPOLL} or
+     * {@link NettyTransportType#IO_URING IO_URING}. If the requested transport is not available, then it will fall
+     * back to the next best transport. If nothing is configured, then gRPC's default (NIO) transport and its shared
+     * event loop group will be used. Only used by the netty based channels.
+     *
+     * @param transport The netty transport to use or null to use the fallback.
+     */
+    public void setTransport(final NettyTransportType transport) {
+        this.transport = transport;
+    }
+
+    // --------------------------------------------------
+
+    private Integer eventLoopThreads;
+    private static final int DEFAULT_EVENT_LOOP_THREADS = 0;
+
+    /**
+     * Gets the number of threads of the event loop group used by this channel.
+     *
+     * @return The number of threads or 0, if netty's default should be used.
+     * @see #setEventLoopThreads(Integer)
+     */
+    public int getEventLoopThreads() {
+        return this.eventLoopThreads == null ? DEFAULT_EVENT_LOOP_THREADS : this.eventLoopThreads;
+    }
+
+    /**
+     * Sets the number of threads of the event loop group used by this channel. Channels using the same transport and
+     * number of threads will share the same event loop group. Defaults to {@code 0}, which uses netty's default
+     * ({@code 2 * availableProcessors}). Only used if a {@link #setTransport(NettyTransportType) transport} is
+     * configured.
+     *
+     * @param eventLoopThreads The number of threads to use or null to use the fallback.
+     */
+    public void setEventLoopThreads(final Integer eventLoopThreads) {
+        this.eventLoopThreads = eventLoopThreads;
+    }
+
     // --------------------------------------------------
 
     private final Security security = new Security();
@@ -392,9 +653,36 @@ public void copyDefaultsFrom(final GrpcChannelProperties config) {
         if (this.fullStreamDecompression == null) {
             this.fullStreamDecompression = config.fullStreamDecompression;
         }
+        if (this.zeroCopyMarshaller == null) {
+            this.zeroCopyMarshaller = config.zeroCopyMarshaller;
+        }
+        if (this.zeroCopyAliasingThreshold == null) {
+            this.zeroCopyAliasingThreshold = config.zeroCopyAliasingThreshold;
+        }
+        if (this.zeroCopyMaxPooledSize == null) {
+            this.zeroCopyMaxPooledSize = config.zeroCopyMaxPooledSize;
+        }
         if (this.negotiationType == null) {
             this.negotiationType = config.negotiationType;
         }
+        if (this.connectionPoolSize == null) {
+            this.connectionPoolSize = config.connectionPoolSize;
+        }
+        if (this.connectionPoolStrategy == null) {
+            this.connectionPoolStrategy = config.connectionPoolStrategy;
+        }
+        if (this.executorThreads == null) {
+            this.executorThreads = config.executorThreads;
+        }
+        if (this.offloadExecutorThreads == null) {
+            this.offloadExecutorThreads = config.offloadExecutorThreads;
+        }
+        if (this.transport == null) {
+            this.transport = config.transport;
+        }
+        if (this.eventLoopThreads == null) {
+            this.eventLoopThreads = config.eventLoopThreads;
+        }
         this.security.copyDefaultsFrom(config.security);
     }
 
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.client.executor;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.grpc.ManagedChannelBuilder;
+import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.client.config.GrpcChannelProperties;
+import net.devh.boot.grpc.client.config.GrpcChannelsProperties;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * 管理 Channel 使用的共享线程池
+ * Creates and owns the thread pools that are used as {@link ManagedChannelBuilder#executor(java.util.concurrent.Executor)
+ * executor} and {@link ManagedChannelBuilder#offloadExecutor(java.util.concurrent.Executor) offloadExecutor} by the
+ * channels. Channels that are configured with the same number of threads share the same pool, so that applications with
+ * many channels don't end up with a separate pool per channel. All pools will be shutdown once this registry is
+ * destroyed.
+ */
+@Slf4j
+public class GrpcChannelExecutorRegistry implements DisposableBean {
+
+    /**
+     * The name prefix of the pools used to execute the callbacks of the calls.
+     */
+    public static final String EXECUTOR_NAME_PREFIX = "grpc-client-executor-";
+
+    /**
+     * The name prefix of the pools used for offloaded work such as name resolution and load balancing.
+     */
+    public static final String OFFLOAD_EXECUTOR_NAME_PREFIX = "grpc-client-offload-";
+
+    private final GrpcChannelsProperties properties;
+    private final Map<String, ExecutorService> executors = new ConcurrentHashMap<>();
+    private final List<BiConsumer<String, ExecutorService>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 根据所给的属性创建新的线程池注册中心
+     * Creates a new channel executor registry using the given properties.
+     *
+     * @param properties The properties used to configure the executors.
+     */
+    public GrpcChannelExecutorRegistry(final GrpcChannelsProperties properties) {
+        this.properties = requireNonNull(properties, "properties");
+    }
+
+    /**
+     * 为所给的 Channel 配置线程池
+     * Configures the executors of the given channel builder, if the channel is configured to use them.
+     *
+     * @param builder The channel builder to configure.
+     * @param name    The name of the client to configure.
+     */
+    public void configure(final ManagedChannelBuilder<?> builder, final String name) {
+        final GrpcChannelProperties channelProperties = this.properties.getChannel(name);
+        final int executorThreads = channelProperties.getExecutorThreads();
+        if (executorThreads > 0) {
+            builder.executor(getOrCreate(EXECUTOR_NAME_PREFIX + executorThreads, executorThreads));
+        }
+        final int offloadExecutorThreads = channelProperties.getOffloadExecutorThreads();
+        if (offloadExecutorThreads > 0) {
+            builder.offloadExecutor(getOrCreate(OFFLOAD_EXECUTOR_NAME_PREFIX + offloadExecutorThreads,
+                    offloadExecutorThreads));
+        }
+    }
+
+    /**
+     * 获取或创建指定名称的线程池
+     * Gets or creates the shared pool with the given name.
+     *
+     * @param name    The name of the pool.
+     * @param threads The number of threads of the pool.
+     * @return The shared pool with the given name.
+     */
+    protected ExecutorService getOrCreate(final String name, final int threads) {
+        return this.executors.computeIfAbsent(name, key -> {
+            final ExecutorService executor = newFixedThreadPool(key, threads);
+            log.debug("Created shared channel executor: {}", key);
+            for (final BiConsumer<String, ExecutorService> listener : this.listeners) {
+                listener.accept(key, executor);
+            }
+            return executor;
+        });
+    }
+
+    private static ExecutorService newFixedThreadPool(final String name, final int threads) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder()
+                        .setNameFormat(name + "-%d")
+                        .setDaemon(true)
+                        .build());
+    }
+
+    /**
+     * 添加线程池创建的监听器，已经存在的线程池也会通知
+     * Adds a listener that will be notified about all pools that have been and will be created, for example to
+     * monitor them.
+     *
+     * @param listener The listener to notify with the name of the pool and the pool itself.
+     */
+    public void addCreationListener(final BiConsumer<String, ExecutorService> listener) {
+        requireNonNull(listener, "listener");
+        this.listeners.add(listener);
+        this.executors.forEach(listener);
+    }
+
+    /**
+     * 获取所有已创建的线程池
+     * Gets all pools that have been created by this registry.
+     *
+     * @return An unmodifiable map containing the names of the pools and the pools themselves.
+     */
+    public Map<String, ExecutorService> getExecutors() {
+        return Collections.unmodifiableMap(this.executors);
+    }
+
+    @Override
+    public void destroy() {
+        for (final ExecutorService executor : this.executors.values()) {
+            executor.shutdown();
+        }
+        this.executors.clear();
+    }
+
+}
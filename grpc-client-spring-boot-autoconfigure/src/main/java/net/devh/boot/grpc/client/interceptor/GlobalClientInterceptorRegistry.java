@@ -80,7 +80,8 @@ public GlobalClientInterceptorRegistry addClientInterceptors(final ClientInterce
 
     /**
      * 获取全局拦截器
-     * Gets the immutable and sorted list of global server interceptors.
+     * Gets the immutable and sorted list of global server interceptors. The same instance will be returned until the
+     * interceptors are changed, so callers can use the identity of the list to detect changes.
      *
      * @return The list of globally registered server interceptors.
      */
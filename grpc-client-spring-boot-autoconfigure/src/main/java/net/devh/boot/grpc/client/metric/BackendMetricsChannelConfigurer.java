@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.client.metric;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ClientStreamTracer;
+import io.grpc.Grpc;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.grpc.Status.Code;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.client.channelfactory.GrpcChannelConfigurer;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.UnaryOperator;
+
+import static java.util.Objects.requireNonNull;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_CLIENT_BACKEND_DURATION;
+import static net.devh.boot.grpc.common.metric.MetricConstants.TAG_ADDRESS;
+import static net.devh.boot.grpc.common.metric.MetricConstants.TAG_CLIENT_NAME;
+import static net.devh.boot.grpc.common.metric.MetricConstants.TAG_STATUS_CODE;
+
+/**
+ * 按后端地址统计的客户端监控
+ * A channel configurer that records the duration of the calls per client and remote address that served the call. The
+ * address is taken from the transport attributes of the stream, so these metrics show which of the resolved addresses
+ * of a client, e.g. from the {@code DiscoveryClientNameResolver}, are slow or fail. Each attempt of a call, including
+ * retries, is recorded for the address it was sent to.
+ *
+ * <p>
+ * The number of addresses is limited to avoid unbounded growth of the registry when the backends change. Once a new
+ * address is seen, the meters of all addresses that haven't been used for the idle timeout, e.g. because the name
+ * resolver dropped them, are removed. If the limit is still reached, the least recently used address is removed.
+ * Calls that were still running on a removed address are recorded using new meters for that address.
+ * </p>
+ */
+@Slf4j
+public class BackendMetricsChannelConfigurer implements GrpcChannelConfigurer {
+
+    private static final String UNKNOWN_ADDRESS = "unknown";
+
+    private final Map<String, AddressMetrics> metricsForAddresses = new ConcurrentHashMap<>();
+
+    private final MeterRegistry registry;
+    private final Clock clock;
+    private final UnaryOperator<Timer.Builder> timerCustomizer;
+    private final int maxAddresses;
+    private final long idleTimeoutNanos;
+
+    /**
+     * 创建按后端地址统计的客户端监控
+     * Creates a new backend metrics channel configurer.
+     *
+     * @param registry        The registry to create the meters in.
+     * @param timerCustomizer The unary function that can be used to customize the created timers.
+     * @param maxAddresses    The maximum number of addresses that get their own meters.
+     * @param idleTimeout     The time after which the meters of an unused address are considered stale.
+     */
+    public BackendMetricsChannelConfigurer(final MeterRegistry registry,
+                                           final UnaryOperator<Timer.Builder> timerCustomizer,
+                                           final int maxAddresses, final Duration idleTimeout) {
+        if (maxAddresses < 1) {
+            throw new IllegalArgumentException("maxAddresses must be positive: " + maxAddresses);
+        }
+        this.registry = requireNonNull(registry, "registry");
+        this.clock = registry.config().clock();
+        this.timerCustomizer = requireNonNull(timerCustomizer, "timerCustomizer");
+        this.maxAddresses = maxAddresses;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+    }
+
+    @Override
+    public void accept(final ManagedChannelBuilder<?> builder, final String name) {
+        builder.intercept(new BackendMetricsInterceptor(name));
+    }
+
+    /**
+     * 获取指定客户端和地址的监控指标
+     * Gets or creates the meters for the given client and address. This might remove the meters of stale addresses.
+     *
+     * @param clientName The name of the client.
+     * @param address    The remote address that served the call.
+     * @return The meters for the given client and address.
+     */
+    AddressMetrics metricsFor(final String clientName, final String address) {
+        final String key = clientName + '@' + address;
+        final AddressMetrics metrics = this.metricsForAddresses.get(key);
+        if (metrics != null) {
+            return metrics;
+        }
+        synchronized (this) {
+            final AddressMetrics existing = this.metricsForAddresses.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            evictStaleAddresses();
+            final AddressMetrics created = new AddressMetrics(clientName, address);
+            this.metricsForAddresses.put(key, created);
+            return created;
+        }
+    }
+
+    // Guarded by this
+    private void evictStaleAddresses() {
+        final long now = this.clock.monotonicTime();
+        String leastRecentlyUsed = null;
+        long leastRecentlyUsedTime = Long.MAX_VALUE;
+        for (final Entry<String, AddressMetrics> entry : this.metricsForAddresses.entrySet()) {
+            final long lastUsed = entry.getValue().lastUsed;
+            if (now - lastUsed > this.idleTimeoutNanos) {
+                evict(entry.getKey());
+            } else if (lastUsed < leastRecentlyUsedTime) {
+                leastRecentlyUsed = entry.getKey();
+                leastRecentlyUsedTime = lastUsed;
+            }
+        }
+        if (this.metricsForAddresses.size() >= this.maxAddresses && leastRecentlyUsed != null) {
+            log.debug("Reached the limit of {} backend addresses", this.maxAddresses);
+            evict(leastRecentlyUsed);
+        }
+    }
+
+    private void evict(final String key) {
+        final AddressMetrics metrics = this.metricsForAddresses.remove(key);
+        if (metrics != null) {
+            log.debug("Removing backend metrics for {}", key);
+            metrics.remove();
+        }
+    }
+
+    private static String toAddressTag(final SocketAddress address) {
+        if (address == null) {
+            return UNKNOWN_ADDRESS;
+        }
+        if (address instanceof InetSocketAddress) {
+            final InetSocketAddress inetAddress = (InetSocketAddress) address;
+            return inetAddress.getHostString() + ":" + inetAddress.getPort();
+        }
+        return address.toString();
+    }
+
+    /**
+     * 单个客户端和地址的监控指标
+     * The meters of a single client and address. The timers are created lazily per status code.
+     */
+    final class AddressMetrics {
+
+        private final String clientName;
+        private final String address;
+        private final AtomicReferenceArray<Timer> timers = new AtomicReferenceArray<>(Code.values().length);
+        // Only used to find stale addresses, so races don't matter
+        private volatile long lastUsed;
+        // Guarded by this for writes
+        private volatile boolean removed = false;
+
+        AddressMetrics(final String clientName, final String address) {
+            this.clientName = clientName;
+            this.address = address;
+            this.lastUsed = BackendMetricsChannelConfigurer.this.clock.monotonicTime();
+        }
+
+        /**
+         * 记录一次调用
+         * Records the duration of a call that has been completed with the given status code, unless these meters have
+         * already been removed.
+         *
+         * @param code  The status code of the call.
+         * @param nanos The duration of the call in nanoseconds.
+         * @param now   The current monotonic time.
+         * @return True, if the call has been recorded. False, if these meters have been removed.
+         */
+        boolean record(final Code code, final long nanos, final long now) {
+            final Timer timer = timerFor(code);
+            if (timer == null) {
+                return false;
+            }
+            this.lastUsed = now;
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+            return true;
+        }
+
+        private Timer timerFor(final Code code) {
+            if (this.removed) {
+                return null;
+            }
+            final int index = code.ordinal();
+            final Timer timer = this.timers.get(index);
+            if (timer != null) {
+                return timer;
+            }
+            synchronized (this) {
+                // Don't register timers that would no longer be removed
+                if (this.removed) {
+                    return null;
+                }
+                final Timer existing = this.timers.get(index);
+                if (existing != null) {
+                    return existing;
+                }
+                final Timer created = BackendMetricsChannelConfigurer.this.timerCustomizer.apply(
+                        Timer.builder(METRIC_NAME_CLIENT_BACKEND_DURATION)
+                                .description("The total time taken by the backend address to complete the call")
+                                .tag(TAG_CLIENT_NAME, this.clientName)
+                                .tag(TAG_ADDRESS, this.address)
+                                .tag(TAG_STATUS_CODE, code.name()))
+                        .register(BackendMetricsChannelConfigurer.this.registry);
+                this.timers.set(index, created);
+                return created;
+            }
+        }
+
+        synchronized void remove() {
+            this.removed = true;
+            for (int i = 0; i < this.timers.length(); i++) {
+                final Timer timer = this.timers.get(i);
+                if (timer != null) {
+                    BackendMetricsChannelConfigurer.this.registry.remove(timer);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * 为每个调用添加 Tracer 的拦截器
+     * The interceptor that attaches the stream tracer for a specific client to each call.
+     */
+    private final class BackendMetricsInterceptor implements ClientInterceptor {
+
+        private final BackendMetricsTracerFactory tracerFactory;
+
+        BackendMetricsInterceptor(final String clientName) {
+            this.tracerFactory = new BackendMetricsTracerFactory(clientName);
+        }
+
+        @Override
+        public <Q, A> ClientCall<Q, A> interceptCall(final MethodDescriptor<Q, A> methodDescriptor,
+                                                     final CallOptions callOptions,
+                                                     final Channel channel) {
+            return channel.newCall(methodDescriptor, callOptions.withStreamTracerFactory(this.tracerFactory));
+        }
+
+    }
+
+    /**
+     * 为每个流（包括重试）创建 Tracer
+     * Creates a new tracer for each stream, including retries, once the transport and thus the address is known.
+     */
+    private final class BackendMetricsTracerFactory extends ClientStreamTracer.Factory {
+
+        private final String clientName;
+
+        BackendMetricsTracerFactory(final String clientName) {
+            this.clientName = clientName;
+        }
+
+        @Override
+        public ClientStreamTracer newClientStreamTracer(final ClientStreamTracer.StreamInfo info,
+                                                        final Metadata headers) {
+            final String address = toAddressTag(info.getTransportAttrs().get(Grpc.TRANSPORT_ATTR_REMOTE_ADDR));
+            return new BackendMetricsTracer(metricsFor(this.clientName, address));
+        }
+
+    }
+
+    private final class BackendMetricsTracer extends ClientStreamTracer {
+
+        private final AddressMetrics metrics;
+        private final long startTime;
+
+        BackendMetricsTracer(final AddressMetrics metrics) {
+            this.metrics = metrics;
+            this.startTime = BackendMetricsChannelConfigurer.this.clock.monotonicTime();
+        }
+
+        @Override
+        public void streamClosed(final Status status) {
+            final long now = BackendMetricsChannelConfigurer.this.clock.monotonicTime();
+            final long nanos = now - this.startTime;
+            if (!this.metrics.record(status.getCode(), nanos, now)) {
+                // The address has been evicted while the stream was active, so use the current meters instead
+                metricsFor(this.metrics.clientName, this.metrics.address).record(status.getCode(), nanos, now);
+            }
+        }
+
+    }
+
+}
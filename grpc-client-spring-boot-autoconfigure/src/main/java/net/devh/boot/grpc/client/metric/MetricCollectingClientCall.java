@@ -20,12 +20,14 @@
 import io.grpc.ClientCall;
 import io.grpc.ForwardingClientCall.SimpleForwardingClientCall;
 import io.grpc.Metadata;
-import io.grpc.Status.Code;
+import io.micrometer.core.instrument.Clock;
 import io.micrometer.core.instrument.Counter;
-import io.micrometer.core.instrument.MeterRegistry;
-import io.micrometer.core.instrument.Timer;
+import net.devh.boot.grpc.common.metric.AbstractMetricCollectingInterceptor.MetricSet;
+import net.devh.boot.grpc.common.metric.AbstractMetricCollectingInterceptor.StreamMetricSet;
+import net.devh.boot.grpc.common.metric.CallSampler;
+import net.devh.boot.grpc.common.metric.AbstractMetricCollectingInterceptor.StreamTimer;
 
-import java.util.function.Function;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 用于收集监控信息的转发客户端
@@ -37,46 +39,78 @@
  */
 class MetricCollectingClientCall<Q, A> extends SimpleForwardingClientCall<Q, A> {
 
-    private final MeterRegistry registry;
+    private final MetricSet metrics;
     private final Counter requestCounter;
     private final Counter responseCounter;
-    private final Function<Code, Timer> timerFunction;
+    private final LongAdder activeCalls;
+    private final StreamMetricSet streamMetrics;
+    private final CallSampler sampler;
+    private final Clock clock;
+    private StreamTimer streamTimer;
+    private double weight;
 
     /**
      * 创建 ClientCall的代理，用于封装和收集监控指标
      * Creates a new delegating ClientCall that will wrap the given client call to collect metrics.
      *
      * @param delegate        The original call to wrap.
-     * @param registry        The registry to save the metrics to.
+     * @param metrics         The metrics used to record the result of the call.
      * @param requestCounter  The counter for outgoing requests.
      * @param responseCounter The counter for incoming responses.
-     * @param timerFunction   A function that will return a timer for a given status code.
+     * @param activeCalls     The number of active calls, that will be incremented once the call is started.
+     * @param streamMetrics   The timers for the stream specific timings or null, if the method does not stream.
+     * @param sampler         The sampler that decides whether the call is recorded.
+     * @param clock           The clock used to measure the durations.
      */
-    public MetricCollectingClientCall(final ClientCall<Q, A> delegate, final MeterRegistry registry,
+    public MetricCollectingClientCall(final ClientCall<Q, A> delegate, final MetricSet metrics,
                                       final Counter requestCounter, final Counter responseCounter,
-                                      final Function<Code, Timer> timerFunction) {
+                                      final LongAdder activeCalls,
+                                      final StreamMetricSet streamMetrics, final CallSampler sampler,
+                                      final Clock clock) {
         super(delegate);
-        this.registry = registry;
+        this.metrics = metrics;
         this.requestCounter = requestCounter;
         this.responseCounter = responseCounter;
-        this.timerFunction = timerFunction;
+        this.activeCalls = activeCalls;
+        this.streamMetrics = streamMetrics;
+        this.sampler = sampler;
+        this.clock = clock;
     }
 
     @Override
     public void start(final ClientCall.Listener<A> responseListener, final Metadata metadata) {
         // 创建一个调用监听器
-        super.start(
-                new MetricCollectingClientCallListener<>(responseListener,
-                        this.registry,
-                        this.responseCounter,
-                        this.timerFunction),
-                metadata);
+        this.activeCalls.increment();
+        this.weight = this.sampler.sample();
+        if (this.streamMetrics != null && this.weight != 0) {
+            this.streamTimer = this.streamMetrics.start(this.clock);
+        }
+        try {
+            super.start(
+                    new MetricCollectingClientCallListener<>(responseListener,
+                            this.clock,
+                            this.metrics,
+                            this.responseCounter,
+                            this.activeCalls,
+                            this.streamTimer,
+                            this.weight),
+                    metadata);
+        } catch (final RuntimeException e) {
+            // onClose won't be called
+            this.activeCalls.decrement();
+            throw e;
+        }
     }
 
     @Override
     public void sendMessage(final Q requestMessage) {
         //计数器增加
-        this.requestCounter.increment();
+        if (this.weight != 0) {
+            this.requestCounter.increment(this.weight);
+        }
+        if (this.streamTimer != null) {
+            this.streamTimer.onRequest();
+        }
         // 调用相应的方法
         super.sendMessage(requestMessage);
     }
@@ -21,12 +21,12 @@
 import io.grpc.ForwardingClientCallListener.SimpleForwardingClientCallListener;
 import io.grpc.Metadata;
 import io.grpc.Status;
-import io.grpc.Status.Code;
+import io.micrometer.core.instrument.Clock;
 import io.micrometer.core.instrument.Counter;
-import io.micrometer.core.instrument.MeterRegistry;
-import io.micrometer.core.instrument.Timer;
+import net.devh.boot.grpc.common.metric.AbstractMetricCollectingInterceptor.MetricSet;
+import net.devh.boot.grpc.common.metric.AbstractMetricCollectingInterceptor.StreamTimer;
 
-import java.util.function.Function;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 用于收集监控信息的客户端调用监听器
@@ -37,28 +37,45 @@
  */
 class MetricCollectingClientCallListener<A> extends SimpleForwardingClientCallListener<A> {
 
-    private final Timer.Sample timerSample;
+    private final Clock clock;
+    private final long startTime;
+    private final MetricSet metrics;
     private final Counter responseCounter;
-    private final Function<Code, Timer> timerFunction;
+    private final LongAdder activeCalls;
+    private final StreamTimer streamTimer;
+    private final double weight;
+    // Only accessed from the serialized listener callbacks
+    private boolean closed;
 
     /**
      * 根据所给的参数封装用于收集监控信息的监听器
      * Creates a new delegating ClientCallListener that will wrap the given client call listener to collect metrics.
+     * Calls that aren't sampled are only recorded if they fail.
      *
      * @param delegate        The original call to wrap.
-     * @param registry        The registry to save the metrics to.
+     * @param clock           The clock used to measure the duration of the call.
+     * @param metrics         The metrics used to record the result of the call.
      * @param responseCounter The counter for incoming responses.
-     * @param timerFunction   A function that will return a timer for a given status code.
+     * @param activeCalls     The number of active calls, that will be decremented once the call is closed.
+     * @param streamTimer     The timer for the stream specific timings or null, if the method does not stream.
+     * @param weight          The number of calls this call represents or 0, if the call is not sampled.
      */
     public MetricCollectingClientCallListener(
             final ClientCall.Listener<A> delegate,
-            final MeterRegistry registry,
+            final Clock clock,
+            final MetricSet metrics,
             final Counter responseCounter,
-            final Function<Code, Timer> timerFunction) {
+            final LongAdder activeCalls,
+            final StreamTimer streamTimer,
+            final double weight) {
         super(delegate);
+        this.metrics = metrics;
         this.responseCounter = responseCounter;
-        this.timerFunction = timerFunction;
-        this.timerSample = Timer.start(registry);
+        this.activeCalls = activeCalls;
+        this.streamTimer = streamTimer;
+        this.weight = weight;
+        this.clock = clock;
+        this.startTime = clock.monotonicTime();
     }
 
     /**
@@ -69,7 +86,14 @@ public MetricCollectingClientCallListener(
      */
     @Override
     public void onClose(final Status status, final Metadata metadata) {
-        this.timerSample.stop(this.timerFunction.apply(status.getCode()));
+        if (!this.closed) {
+            this.closed = true;
+            this.activeCalls.decrement();
+            if (this.streamTimer != null) {
+                this.streamTimer.onClose();
+            }
+        }
+        this.metrics.recordCall(status.getCode(), this.clock.monotonicTime() - this.startTime, this.weight);
         super.onClose(status, metadata);
     }
 
@@ -80,7 +104,12 @@ public void onClose(final Status status, final Metadata metadata) {
      */
     @Override
     public void onMessage(final A responseMessage) {
-        this.responseCounter.increment();
+        if (this.weight != 0) {
+            this.responseCounter.increment(this.weight);
+        }
+        if (this.streamTimer != null) {
+            this.streamTimer.onResponse();
+        }
         super.onMessage(responseMessage);
     }
 
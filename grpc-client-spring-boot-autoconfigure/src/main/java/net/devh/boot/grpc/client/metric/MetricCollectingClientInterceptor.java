@@ -22,6 +22,7 @@
 import io.grpc.ClientCall;
 import io.grpc.ClientInterceptor;
 import io.grpc.MethodDescriptor;
+import io.grpc.MethodDescriptor.MethodType;
 import io.grpc.Status.Code;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
@@ -32,13 +33,23 @@
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.annotation.Order;
 
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 import java.util.function.UnaryOperator;
 
+import static net.devh.boot.grpc.common.metric.MessageSizeMetrics.INBOUND;
+import static net.devh.boot.grpc.common.metric.MessageSizeMetrics.OUTBOUND;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_CLIENT_CALLS_ACTIVE;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_CLIENT_CALLS_COMPLETED;
 import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_CLIENT_PROCESSING_DURATION;
 import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_CLIENT_REQUESTS_SENT;
 import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_CLIENT_RESPONSES_RECEIVED;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_CLIENT_STREAM_DURATION;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_CLIENT_STREAM_FIRST_RESPONSE;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_CLIENT_STREAM_MESSAGE_INTERVAL;
+import static net.devh.boot.grpc.common.metric.MetricConstants.TAG_DIRECTION;
 import static net.devh.boot.grpc.common.metric.MetricUtils.prepareCounterFor;
+import static net.devh.boot.grpc.common.metric.MetricUtils.prepareGaugeFor;
 import static net.devh.boot.grpc.common.metric.MetricUtils.prepareTimerFor;
 
 /**
@@ -111,7 +122,58 @@ protected Counter newResponseCounterFor(final MethodDescriptor<?, ?> method) {
      */
     @Override
     protected Function<Code, Timer> newTimerFunction(final MethodDescriptor<?, ?> method) {
-        return asTimerFunction(() -> this.timerCustomizer.apply(prepareTimerFor(method, METRIC_NAME_CLIENT_PROCESSING_DURATION, "The total time taken for the client to complete the call, including network delay")));
+        return asTimerFunction(() -> customizeTimer(method, prepareTimerFor(method, METRIC_NAME_CLIENT_PROCESSING_DURATION, "The total time taken for the client to complete the call, including network delay")));
+    }
+
+    /**
+     * 按状态码统计的调用计数器，仅用于采样的方法
+     *
+     * @param method The method to create the counters for.
+     * @return The newly created function that returns a counter for a given code.
+     */
+    @Override
+    protected Function<Code, Counter> newCallCounterFunction(final MethodDescriptor<?, ?> method) {
+        return asCounterFunction(() -> this.counterCustomizer.apply(prepareCounterFor(method, METRIC_NAME_CLIENT_CALLS_COMPLETED, "The estimated total number of calls completed by the client")
+                                                                            .baseUnit("calls")));
+    }
+
+    @Override
+    protected StreamMetricSet newStreamMetricsFor(final MethodDescriptor<?, ?> method) {
+        final MethodType type = method.getType();
+        if (type == MethodType.UNARY) {
+            return null;
+        }
+        final boolean clientStreaming = !type.clientSendsOneMessage();
+        final boolean serverStreaming = !type.serverSendsOneMessage();
+        return new StreamMetricSet(
+                serverStreaming ? newStreamTimer(method, METRIC_NAME_CLIENT_STREAM_FIRST_RESPONSE, "The time from the start of the stream until the client received the first response", null) : null,
+                clientStreaming ? newStreamTimer(method, METRIC_NAME_CLIENT_STREAM_MESSAGE_INTERVAL, "The time between two consecutive messages of the stream", OUTBOUND) : null,
+                serverStreaming ? newStreamTimer(method, METRIC_NAME_CLIENT_STREAM_MESSAGE_INTERVAL, "The time between two consecutive messages of the stream", INBOUND) : null,
+                newStreamTimer(method, METRIC_NAME_CLIENT_STREAM_DURATION, "The total lifetime of the stream on the client", null));
+    }
+
+    /**
+     * 创建流式调用的 Timer
+     *
+     * @param method      The method to create the timer for.
+     * @param name        The name of the timer.
+     * @param description The description of the timer.
+     * @param direction   The direction of the messages or null.
+     * @return The newly created timer.
+     */
+    private Timer newStreamTimer(final MethodDescriptor<?, ?> method, final String name, final String description,
+                                 final String direction) {
+        final Timer.Builder builder = prepareTimerFor(method, name, description);
+        if (direction != null) {
+            builder.tag(TAG_DIRECTION, direction);
+        }
+        return customizeTimer(method, builder).register(this.registry);
+    }
+
+    @Override
+    protected void newActiveCallsGaugeFor(final MethodDescriptor<?, ?> method, final LongAdder activeCalls) {
+        prepareGaugeFor(method, METRIC_NAME_CLIENT_CALLS_ACTIVE, "The number of calls that have been started by the client and are not yet completed", activeCalls)
+                .register(this.registry);
     }
 
     /**
@@ -134,10 +196,13 @@ public <Q, A> ClientCall<Q, A> interceptCall(final MethodDescriptor<Q, A> method
         // 封装拦截器 用于代理
         return new MetricCollectingClientCall<>(
                 channel.newCall(methodDescriptor, callOptions),
-                this.registry,
+                metrics,
                 metrics.getRequestCounter(),
                 metrics.getResponseCounter(),
-                metrics.getTimerFunction());
+                metrics.getActiveCalls(),
+                metrics.getStreamMetrics(),
+                metrics.getSampler(),
+                getClock());
     }
 
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.client.metric;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ClientStreamTracer;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.devh.boot.grpc.client.interceptor.GrpcGlobalClientInterceptor;
+import net.devh.boot.grpc.common.metric.MessageSizeMetrics;
+import net.devh.boot.grpc.common.metric.MessageSizeMetrics.MethodMetrics;
+import net.devh.boot.grpc.common.metric.MessageSizeMetrics.StreamRecorder;
+import net.devh.boot.grpc.common.util.InterceptorOrder;
+import org.springframework.core.annotation.Order;
+
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_CLIENT_MESSAGE_COMPRESSION_RATIO;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_CLIENT_MESSAGE_UNCOMPRESSED_SIZE;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_CLIENT_MESSAGE_WIRE_SIZE;
+
+/**
+ * gRPC Client 消息大小监控
+ * A gRPC client interceptor that attaches a {@link ClientStreamTracer} to each call, which records the wire and
+ * uncompressed sizes of the sent and received messages per method. Client stream tracers don't know the method they
+ * are called for, so they have to be attached using the {@link CallOptions}.
+ */
+@GrpcGlobalClientInterceptor
+@Order(InterceptorOrder.ORDER_TRACING_METRICS)
+public class MetricCollectingClientStreamTracerInterceptor implements ClientInterceptor {
+
+    private final MessageSizeMetrics metrics;
+
+    /**
+     * 根据给定的 MeterRegistry 创建新的拦截器
+     * Creates a new gRPC client interceptor that will record the message sizes into the given registry.
+     *
+     * @param registry The registry to use.
+     */
+    public MetricCollectingClientStreamTracerInterceptor(final MeterRegistry registry) {
+        this.metrics = new MessageSizeMetrics(registry,
+                METRIC_NAME_CLIENT_MESSAGE_WIRE_SIZE,
+                METRIC_NAME_CLIENT_MESSAGE_UNCOMPRESSED_SIZE,
+                METRIC_NAME_CLIENT_MESSAGE_COMPRESSION_RATIO);
+    }
+
+    @Override
+    public <Q, A> ClientCall<Q, A> interceptCall(final MethodDescriptor<Q, A> methodDescriptor,
+                                                 final CallOptions callOptions,
+                                                 final Channel channel) {
+        final MethodMetrics methodMetrics = this.metrics.forMethod(methodDescriptor.getFullMethodName());
+        return channel.newCall(methodDescriptor,
+                callOptions.withStreamTracerFactory(new MetricCollectingClientStreamTracerFactory(methodMetrics)));
+    }
+
+    /**
+     * 为每个流（包括重试）创建 Tracer
+     * Creates a new tracer for each stream, including retries.
+     */
+    private static final class MetricCollectingClientStreamTracerFactory extends ClientStreamTracer.Factory {
+
+        private final MethodMetrics metrics;
+
+        MetricCollectingClientStreamTracerFactory(final MethodMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public ClientStreamTracer newClientStreamTracer(final ClientStreamTracer.StreamInfo info,
+                                                        final Metadata headers) {
+            return new MetricCollectingClientStreamTracer(this.metrics.newStreamRecorder());
+        }
+
+    }
+
+    private static final class MetricCollectingClientStreamTracer extends ClientStreamTracer {
+
+        private final StreamRecorder recorder;
+
+        MetricCollectingClientStreamTracer(final StreamRecorder recorder) {
+            this.recorder = recorder;
+        }
+
+        @Override
+        public void outboundMessageSent(final int seqNo, final long optionalWireSize,
+                                        final long optionalUncompressedSize) {
+            this.recorder.outboundMessageSent(optionalWireSize, optionalUncompressedSize);
+        }
+
+        @Override
+        public void inboundMessageRead(final int seqNo, final long optionalWireSize,
+                                       final long optionalUncompressedSize) {
+            this.recorder.inboundMessageRead(optionalWireSize);
+        }
+
+        @Override
+        public void inboundUncompressedSize(final long bytes) {
+            this.recorder.inboundUncompressedSize(bytes);
+        }
+
+        @Override
+        public void streamClosed(final Status status) {
+            this.recorder.streamClosed();
+        }
+
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.client.channelfactory;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.MethodDescriptor;
+import net.devh.boot.grpc.client.config.GrpcChannelsProperties;
+import net.devh.boot.grpc.client.interceptor.GlobalClientInterceptorRegistry;
+
+/**
+ * Tests whether the {@link AbstractChannelFactory} caches the intercepted channels.
+ */
+class InterceptedChannelCacheTest {
+
+    private final ClientInterceptor first = newInterceptor();
+    private final ClientInterceptor second = newInterceptor();
+
+    @Test
+    void testCachedChannels() {
+        final GlobalClientInterceptorRegistry registry = new GlobalClientInterceptorRegistry();
+        try (InProcessChannelFactory factory = new InProcessChannelFactory(new GrpcChannelsProperties(), registry)) {
+            final Channel plain = factory.createChannel("test");
+            assertSame(plain, factory.createChannel("test"));
+            assertSame(plain, factory.createChannel("test", Collections.emptyList(), true));
+            assertNotSame(plain, factory.createChannel("other"));
+
+            final Channel custom = factory.createChannel("test", Arrays.asList(this.first, this.second));
+            assertSame(custom, factory.createChannel("test", Arrays.asList(this.first, this.second)));
+            assertNotSame(custom, factory.createChannel("test", Arrays.asList(this.second, this.first)));
+            assertNotSame(custom, factory.createChannel("test", Arrays.asList(this.first, this.second), true));
+
+            // Changing the global interceptors invalidates the cache
+            registry.addClientInterceptors(newInterceptor());
+            assertNotSame(plain, factory.createChannel("test"));
+            assertNotSame(custom, factory.createChannel("test", Arrays.asList(this.first, this.second)));
+
+            factory.close();
+            final List<ClientInterceptor> none = Collections.emptyList();
+            assertThrows(IllegalStateException.class, () -> factory.createChannel("test", none));
+        }
+    }
+
+    @Test
+    void testMaxCustomEntries() {
+        final InterceptedChannelCache cache = new InterceptedChannelCache(Collections.emptyList());
+        final List<ClientInterceptor> cached = Arrays.asList(this.first, this.second);
+        final Channel channel = newChannel();
+        assertSame(channel, cache.put("test", cached, false, channel));
+        assertSame(channel, cache.put("test", Arrays.asList(this.first, this.second), false, newChannel()));
+        for (int i = 1; i < InterceptedChannelCache.MAX_CUSTOM_ENTRIES; i++) {
+            cache.put("test", Collections.singletonList(newInterceptor()), false, newChannel());
+        }
+
+        // Full caches still return the existing channels, but don't cache new ones
+        final List<ClientInterceptor> uncached = Collections.singletonList(newInterceptor());
+        final Channel other = newChannel();
+        assertSame(other, cache.put("test", uncached, false, other));
+        assertNull(cache.get("test", uncached, false));
+        assertSame(channel, cache.get("test", cached, false));
+        assertNull(cache.get("test", cached, true));
+        assertNull(cache.get("other", cached, false));
+    }
+
+    private static Channel newChannel() {
+        return new Channel() {
+
+            @Override
+            public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(final MethodDescriptor<ReqT, RespT> method,
+                    final CallOptions callOptions) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public String authority() {
+                return "test";
+            }
+
+        };
+    }
+
+    private static ClientInterceptor newInterceptor() {
+        return new ClientInterceptor() {
+
+            @Override
+            public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(final MethodDescriptor<ReqT, RespT> method,
+                    final CallOptions callOptions, final Channel next) {
+                return next.newCall(method, callOptions);
+            }
+
+        };
+    }
+
+}
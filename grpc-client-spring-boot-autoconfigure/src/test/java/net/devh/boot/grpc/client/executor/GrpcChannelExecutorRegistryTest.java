@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.client.executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.jupiter.api.Test;
+
+import net.devh.boot.grpc.client.config.GrpcChannelsProperties;
+
+/**
+ * Tests whether the {@link GrpcChannelExecutorRegistry} shares the executors between the channels.
+ */
+class GrpcChannelExecutorRegistryTest {
+
+    @Test
+    void testSharedExecutors() {
+        final GrpcChannelExecutorRegistry registry = new GrpcChannelExecutorRegistry(new GrpcChannelsProperties());
+        final List<String> created = new ArrayList<>();
+        registry.addCreationListener((name, executor) -> created.add(name));
+
+        final ExecutorService first = registry.getOrCreate("grpc-client-executor-4", 4);
+        final ExecutorService second = registry.getOrCreate("grpc-client-executor-4", 4);
+        final ExecutorService other = registry.getOrCreate("grpc-client-executor-8", 8);
+
+        assertSame(first, second);
+        assertNotSame(first, other);
+        assertEquals(2, registry.getExecutors().size());
+        assertEquals(2, created.size());
+
+        final List<String> late = new ArrayList<>();
+        registry.addCreationListener((name, executor) -> late.add(name));
+        assertEquals(2, late.size());
+
+        registry.destroy();
+        assertTrue(first.isShutdown());
+        assertTrue(other.isShutdown());
+    }
+
+}
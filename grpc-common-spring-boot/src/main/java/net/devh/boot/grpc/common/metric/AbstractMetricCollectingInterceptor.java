@@ -18,21 +18,30 @@
 package net.devh.boot.grpc.common.metric;
 
 import io.grpc.MethodDescriptor;
+import io.grpc.MethodDescriptor.Marshaller;
+import io.grpc.MethodDescriptor.MethodType;
 import io.grpc.ServiceDescriptor;
 import io.grpc.Status.Code;
+import io.micrometer.core.instrument.Clock;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.EnumMap;
+import java.io.InputStream;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
 
+import static java.util.Objects.requireNonNull;
 import static net.devh.boot.grpc.common.metric.MetricConstants.TAG_STATUS_CODE;
 
 /**
@@ -44,13 +53,37 @@
 @Slf4j
 public abstract class AbstractMetricCollectingInterceptor {
 
-    private final Map<MethodDescriptor<?, ?>, MetricSet> metricsForMethods = new ConcurrentHashMap<>();
+    /**
+     * 默认最多为多少个方法创建指标
+     * The default maximum number of distinct methods that get their own meters.
+     */
+    public static final int DEFAULT_MAX_METHODS = 1000;
+
+    /**
+     * 超出限制的方法使用的服务名和方法名
+     * The service and method name used for the shared meters of all methods that exceed the limit.
+     */
+    public static final String OVERFLOW_NAME = "other";
+
+    private static final MethodDescriptor<Object, Object> OVERFLOW_METHOD = MethodDescriptor.newBuilder()
+            .setType(MethodType.UNKNOWN)
+            .setFullMethodName(MethodDescriptor.generateFullMethodName(OVERFLOW_NAME, OVERFLOW_NAME))
+            .setRequestMarshaller(UnsupportedMarshaller.INSTANCE)
+            .setResponseMarshaller(UnsupportedMarshaller.INSTANCE)
+            .build();
+
+    private final Map<String, MetricSet> metricsForMethods = new ConcurrentHashMap<>();
+    private volatile MetricSet overflowMetrics;
+    private volatile int maxMethods = DEFAULT_MAX_METHODS;
 
     protected final MeterRegistry registry;
 
     protected final UnaryOperator<Counter.Builder> counterCustomizer;
     protected final UnaryOperator<Timer.Builder> timerCustomizer;
     protected final Code[] eagerInitializedCodes;
+    private BiFunction<MethodDescriptor<?, ?>, Timer.Builder, Timer.Builder> methodTimerCustomizer =
+            (method, builder) -> builder;
+    private Function<MethodDescriptor<?, ?>, CallSampler> methodSampler = method -> CallSampler.ALWAYS;
 
     /**
      * Creates a new gRPC interceptor that will collect metrics into the given {@link MeterRegistry}. This method won't
@@ -99,19 +132,110 @@ public void preregisterService(final ServiceDescriptor service) {
      * @param method The method to initialize the meters for.
      */
     public void preregisterMethod(final MethodDescriptor<?, ?> method) {
-        metricsFor(method);
+        // Known methods are not subject to the limit
+        this.metricsForMethods.computeIfAbsent(method.getFullMethodName(), name -> newMetricsFor(method));
+    }
+
+    /**
+     * 设置最多为多少个方法创建指标
+     * Sets the maximum number of distinct methods that get their own meters. All methods exceeding this limit share a
+     * single set of meters with {@link #OVERFLOW_NAME} as service and method name. This prevents that unknown methods,
+     * e.g. from fallback handlers or misbehaving clients, blow up the meter registry. Pre-registered methods are not
+     * affected by this limit.
+     *
+     * @param maxMethods The maximum number of methods. Defaults to {@link #DEFAULT_MAX_METHODS}.
+     */
+    public void setMaxMethods(final int maxMethods) {
+        if (maxMethods < 0) {
+            throw new IllegalArgumentException("maxMethods cannot be negative");
+        }
+        this.maxMethods = maxMethods;
     }
 
     /**
      * Gets or creates a {@link MetricSet} for the given gRPC method. This will initialize all default counters and
-     * timers for that method.
+     * timers for that method. If the {@link #setMaxMethods(int) limit} has been reached, then the shared overflow
+     * metrics will be returned for new methods.
      *
      * @param method The method to get the metric set for.
      * @return The metric set for the given method.
      * @see #newMetricsFor(MethodDescriptor)
      */
-    protected final MetricSet metricsFor(final MethodDescriptor<?, ?> method) {
-        return this.metricsForMethods.computeIfAbsent(method, this::newMetricsFor);
+    public final MetricSet metricsFor(final MethodDescriptor<?, ?> method) {
+        final String name = method.getFullMethodName();
+        // Avoid the locking of computeIfAbsent on the hot path
+        final MetricSet metrics = this.metricsForMethods.get(name);
+        if (metrics != null) {
+            return metrics;
+        }
+        if (this.metricsForMethods.size() >= this.maxMethods) {
+            return getOverflowMetrics(name);
+        }
+        return this.metricsForMethods.computeIfAbsent(name, key -> newMetricsFor(method));
+    }
+
+    private MetricSet getOverflowMetrics(final String name) {
+        MetricSet metrics = this.overflowMetrics;
+        if (metrics == null) {
+            synchronized (this) {
+                metrics = this.overflowMetrics;
+                if (metrics == null) {
+                    log.warn("Reached the limit of {} methods with metrics, recording '{}' and all following methods as"
+                            + " '{}'", this.maxMethods, name, OVERFLOW_NAME);
+                    metrics = newMetricsFor(OVERFLOW_METHOD);
+                    this.overflowMetrics = metrics;
+                }
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * 设置按方法定制 Timer 的函数
+     * Sets the function that is used to customize the timers of a specific method, e.g. to configure the histogram or
+     * percentiles per service or method. It is applied before the {@link #timerCustomizer}, so that customizations in
+     * code take precedence. This has to be set before any method is (pre-)registered.
+     *
+     * @param methodTimerCustomizer The function used to customize the timers for the given method.
+     * @see GrpcMetricsProperties#customizeTimer(MethodDescriptor, Timer.Builder)
+     */
+    public void setMethodTimerCustomizer(
+            final BiFunction<MethodDescriptor<?, ?>, Timer.Builder, Timer.Builder> methodTimerCustomizer) {
+        this.methodTimerCustomizer = requireNonNull(methodTimerCustomizer, "methodTimerCustomizer");
+    }
+
+    /**
+     * 设置按方法创建采样器的函数
+     * Sets the function that is used to create the sampler of a specific method. By default all calls are recorded.
+     * This has to be set before any method is (pre-)registered.
+     *
+     * @param methodSampler The function used to create the sampler for the given method.
+     * @see GrpcMetricsProperties#newSampler(MethodDescriptor)
+     */
+    public void setMethodSampler(final Function<MethodDescriptor<?, ?>, CallSampler> methodSampler) {
+        this.methodSampler = requireNonNull(methodSampler, "methodSampler");
+    }
+
+    /**
+     * 定制指定方法的 Timer
+     * Applies all customizations to the given timer builder of the given method.
+     *
+     * @param method  The method the timer is created for.
+     * @param builder The timer builder to customize.
+     * @return The customized timer builder.
+     */
+    protected Timer.Builder customizeTimer(final MethodDescriptor<?, ?> method, final Timer.Builder builder) {
+        return this.timerCustomizer.apply(this.methodTimerCustomizer.apply(method, builder));
+    }
+
+    /**
+     * 获取用于计时的时钟
+     * Gets the clock of the registry that should be used to measure the duration of the calls.
+     *
+     * @return The clock used to measure the durations.
+     */
+    public final Clock getClock() {
+        return this.registry.config().clock();
     }
 
     /**
@@ -123,7 +247,69 @@ protected final MetricSet metricsFor(final MethodDescriptor<?, ?> method) {
      */
     protected MetricSet newMetricsFor(final MethodDescriptor<?, ?> method) {
         log.debug("Creating new metrics for {}", method.getFullMethodName());
-        return new MetricSet(newRequestCounterFor(method), newResponseCounterFor(method), newTimerFunction(method));
+        final LongAdder activeCalls = new LongAdder();
+        newActiveCallsGaugeFor(method, activeCalls);
+        final CallSampler sampler = this.methodSampler.apply(method);
+        // The timers count every call if the method isn't sampled
+        final Function<Code, Counter> callCounterFunction =
+                sampler == CallSampler.ALWAYS ? null : newCallCounterFunction(method);
+        return new MetricSet(newRequestCounterFor(method), newResponseCounterFor(method), newTimerFunction(method),
+                method.getType(), activeCalls, newStreamMetricsFor(method), sampler, callCounterFunction);
+    }
+
+    /**
+     * 为采样的方法创建按状态码统计的调用计数器
+     * Creates the function that returns the counter for the estimated number of completed calls per status code. This
+     * is only used for sampled methods, because the timers of those methods don't count the calls that weren't sampled.
+     * By default no counters will be created.
+     *
+     * @param method The method to create the counters for.
+     * @return The newly created function that returns a counter for a given code or null, if the calls shouldn't be
+     *         counted.
+     * @see #asCounterFunction(Supplier)
+     */
+    protected Function<Code, Counter> newCallCounterFunction(final MethodDescriptor<?, ?> method) {
+        return null;
+    }
+
+    /**
+     * 为流式方法创建额外的 Timer
+     * Creates the additional timers for the given streaming method. By default no stream metrics will be created.
+     *
+     * @param method The method to create the timers for.
+     * @return The newly created stream metrics or null, if the method does not stream or stream metrics aren't
+     *         supported.
+     */
+    protected StreamMetricSet newStreamMetricsFor(final MethodDescriptor<?, ?> method) {
+        return null;
+    }
+
+    /**
+     * 获取所有方法的监控指标
+     * Gets the metrics of all methods, that have been registered so far, including the shared metrics of the methods
+     * exceeding the {@link #setMaxMethods(int) limit}.
+     *
+     * @return A newly created map containing the full method names and their metrics.
+     */
+    public Map<String, MetricSet> getMethodMetrics() {
+        final Map<String, MetricSet> result = new TreeMap<>(this.metricsForMethods);
+        final MetricSet overflow = this.overflowMetrics;
+        if (overflow != null) {
+            result.put(OVERFLOW_METHOD.getFullMethodName(), overflow);
+        }
+        return result;
+    }
+
+    /**
+     * 创建正在进行的调用数的 Gauge
+     * Registers a gauge that reports the number of calls of the given method, that are currently in flight. By default
+     * no gauge will be registered.
+     *
+     * @param method      The method to create the gauge for.
+     * @param activeCalls The number of active calls, that should be reported by the gauge.
+     */
+    protected void newActiveCallsGaugeFor(final MethodDescriptor<?, ?> method, final LongAdder activeCalls) {
+        // Nothing to do
     }
 
     /**
@@ -149,16 +335,34 @@ protected MetricSet newMetricsFor(final MethodDescriptor<?, ?> method) {
      * @return The newly created function that returns a timer for a given code.
      */
     protected Function<Code, Timer> asTimerFunction(final Supplier<Timer.Builder> timerTemplate) {
-        final Map<Code, Timer> cache = new EnumMap<>(Code.class);
         final Function<Code, Timer> creator = code -> timerTemplate.get()
                                                                    .tag(TAG_STATUS_CODE, code.name())
                                                                    .register(this.registry);
-        final Function<Code, Timer> cacheResolver = code -> cache.computeIfAbsent(code, creator);
+        final CodeMeterTable<Timer> timers = new CodeMeterTable<>(creator);
         // Eager initialize
         for (final Code code : this.eagerInitializedCodes) {
-            cacheResolver.apply(code);
+            timers.apply(code);
         }
-        return cacheResolver;
+        return timers;
+    }
+
+    /**
+     * 根据模板创建按状态码区分的计数器
+     * Creates a new counter function using the given template. This method initializes the default counters.
+     *
+     * @param counterTemplate The template to create the instances from.
+     * @return The newly created function that returns a counter for a given code.
+     */
+    protected Function<Code, Counter> asCounterFunction(final Supplier<Counter.Builder> counterTemplate) {
+        final Function<Code, Counter> creator = code -> counterTemplate.get()
+                                                                       .tag(TAG_STATUS_CODE, code.name())
+                                                                       .register(this.registry);
+        final CodeMeterTable<Counter> counters = new CodeMeterTable<>(creator);
+        // Eager initialize
+        for (final Code code : this.eagerInitializedCodes) {
+            counters.apply(code);
+        }
+        return counters;
     }
 
     /**
@@ -169,16 +373,74 @@ protected Function<Code, Timer> asTimerFunction(final Supplier<Timer.Builder> ti
      */
     protected abstract Function<Code, Timer> newTimerFunction(final MethodDescriptor<?, ?> method);
 
+    /**
+     * 按状态码缓存指标的无锁表
+     * A lock-free table that lazily creates and caches the meters for each status code. The meters are indexed by
+     * {@link Code#ordinal()}, so the lookup doesn't require any hashing or locking.
+     *
+     * @param <M> The type of the cached meters.
+     */
+    private static final class CodeMeterTable<M> implements Function<Code, M> {
+
+        private static final int CODE_COUNT = Code.values().length;
+
+        private final AtomicReferenceArray<M> meters = new AtomicReferenceArray<>(CODE_COUNT);
+        private final Function<Code, M> creator;
+
+        CodeMeterTable(final Function<Code, M> creator) {
+            this.creator = creator;
+        }
+
+        @Override
+        public M apply(final Code code) {
+            final int index = code.ordinal();
+            final M meter = this.meters.get(index);
+            if (meter != null) {
+                return meter;
+            }
+            // The registry returns the existing meter if it has already been registered concurrently
+            final M created = this.creator.apply(code);
+            return this.meters.compareAndSet(index, null, created) ? created : this.meters.get(index);
+        }
+
+    }
+
+    /**
+     * 不支持序列化的 Marshaller
+     * A marshaller that does not support any operation. Only used for the {@link #OVERFLOW_METHOD}.
+     */
+    private enum UnsupportedMarshaller implements Marshaller<Object> {
+
+        INSTANCE;
+
+        @Override
+        public InputStream stream(final Object value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object parse(final InputStream stream) {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
     /**
      * Container for all metrics of a certain call. Used instead of 3 maps to improve performance.
      */
     @Getter
-    protected static class MetricSet {
+    public static class MetricSet {
 
         private final Counter requestCounter;
         private final Counter responseCounter;
         private final Function<Code, Timer> timerFunction;
 
+        private final MethodType methodType;
+        private final LongAdder activeCalls;
+        private final StreamMetricSet streamMetrics;
+        private final CallSampler sampler;
+        private final Function<Code, Counter> callCounterFunction;
+
         /**
          * Creates a new metric set with the given meter instances.
          *
@@ -188,9 +450,215 @@ protected static class MetricSet {
          */
         public MetricSet(final Counter requestCounter, final Counter responseCounter,
                          final Function<Code, Timer> timerFunction) {
+            this(requestCounter, responseCounter, timerFunction, MethodType.UNKNOWN, new LongAdder());
+        }
+
+        /**
+         * Creates a new metric set with the given meter instances.
+         *
+         * @param requestCounter  The request counter to use.
+         * @param responseCounter The response counter to use.
+         * @param timerFunction   The timer function to use.
+         * @param methodType      The type of the method.
+         * @param activeCalls     The number of calls that are currently in flight.
+         */
+        public MetricSet(final Counter requestCounter, final Counter responseCounter,
+                         final Function<Code, Timer> timerFunction, final MethodType methodType,
+                         final LongAdder activeCalls) {
+            this(requestCounter, responseCounter, timerFunction, methodType, activeCalls, null);
+        }
+
+        /**
+         * Creates a new metric set with the given meter instances.
+         *
+         * @param requestCounter  The request counter to use.
+         * @param responseCounter The response counter to use.
+         * @param timerFunction   The timer function to use.
+         * @param methodType      The type of the method.
+         * @param activeCalls     The number of calls that are currently in flight.
+         * @param streamMetrics   The additional timers for streaming methods or null.
+         */
+        public MetricSet(final Counter requestCounter, final Counter responseCounter,
+                         final Function<Code, Timer> timerFunction, final MethodType methodType,
+                         final LongAdder activeCalls, final StreamMetricSet streamMetrics) {
+            this(requestCounter, responseCounter, timerFunction, methodType, activeCalls, streamMetrics,
+                    CallSampler.ALWAYS);
+        }
+
+        /**
+         * Creates a new metric set with the given meter instances.
+         *
+         * @param requestCounter  The request counter to use.
+         * @param responseCounter The response counter to use.
+         * @param timerFunction   The timer function to use.
+         * @param methodType      The type of the method.
+         * @param activeCalls     The number of calls that are currently in flight.
+         * @param streamMetrics   The additional timers for streaming methods or null.
+         * @param sampler         The sampler that decides which calls are recorded.
+         */
+        public MetricSet(final Counter requestCounter, final Counter responseCounter,
+                         final Function<Code, Timer> timerFunction, final MethodType methodType,
+                         final LongAdder activeCalls, final StreamMetricSet streamMetrics,
+                         final CallSampler sampler) {
+            this(requestCounter, responseCounter, timerFunction, methodType, activeCalls, streamMetrics, sampler,
+                    null);
+        }
+
+        /**
+         * Creates a new metric set with the given meter instances.
+         *
+         * @param requestCounter      The request counter to use.
+         * @param responseCounter     The response counter to use.
+         * @param timerFunction       The timer function to use.
+         * @param methodType          The type of the method.
+         * @param activeCalls         The number of calls that are currently in flight.
+         * @param streamMetrics       The additional timers for streaming methods or null.
+         * @param sampler             The sampler that decides which calls are recorded.
+         * @param callCounterFunction The function for the weighted call counters per status code or null.
+         */
+        public MetricSet(final Counter requestCounter, final Counter responseCounter,
+                         final Function<Code, Timer> timerFunction, final MethodType methodType,
+                         final LongAdder activeCalls, final StreamMetricSet streamMetrics,
+                         final CallSampler sampler, final Function<Code, Counter> callCounterFunction) {
             this.requestCounter = requestCounter;
             this.responseCounter = responseCounter;
             this.timerFunction = timerFunction;
+            this.methodType = requireNonNull(methodType, "methodType");
+            this.activeCalls = requireNonNull(activeCalls, "activeCalls");
+            this.streamMetrics = streamMetrics;
+            this.sampler = requireNonNull(sampler, "sampler");
+            this.callCounterFunction = callCounterFunction;
+        }
+
+        /**
+         * 记录已完成的调用
+         * Records the result of a completed call. Failed calls are always timed and counted once, while successful
+         * calls are only timed if they were sampled and are counted with their weight. So the timers contain the exact
+         * number of failed calls, but only the sampled successful calls, and the call counters estimate the total
+         * number of calls per status code.
+         *
+         * @param code   The status code the call completed with.
+         * @param nanos  The duration of the call in nanoseconds.
+         * @param weight The number of calls the call represents or 0, if the call wasn't sampled.
+         */
+        public void recordCall(final Code code, final long nanos, final double weight) {
+            if (weight == 0 && code == Code.OK) {
+                return;
+            }
+            this.timerFunction.apply(code).record(nanos, TimeUnit.NANOSECONDS);
+            if (this.callCounterFunction != null) {
+                this.callCounterFunction.apply(code).increment(code == Code.OK ? weight : 1);
+            }
+        }
+
+    }
+
+    /**
+     * 流式调用的额外 Timer
+     * Container for the additional timers of streaming calls. Timers that don't apply to the method, e.g. the time
+     * between requests if the client only sends a single request, are null.
+     */
+    @Getter
+    public static class StreamMetricSet {
+
+        private final Timer firstResponseTimer;
+        private final Timer requestIntervalTimer;
+        private final Timer responseIntervalTimer;
+        private final Timer durationTimer;
+
+        /**
+         * Creates a new stream metric set with the given timers.
+         *
+         * @param firstResponseTimer    The timer for the time until the first response or null.
+         * @param requestIntervalTimer  The timer for the time between requests or null.
+         * @param responseIntervalTimer The timer for the time between responses or null.
+         * @param durationTimer         The timer for the total lifetime of the stream.
+         */
+        public StreamMetricSet(final Timer firstResponseTimer, final Timer requestIntervalTimer,
+                               final Timer responseIntervalTimer, final Timer durationTimer) {
+            this.firstResponseTimer = firstResponseTimer;
+            this.requestIntervalTimer = requestIntervalTimer;
+            this.responseIntervalTimer = responseIntervalTimer;
+            this.durationTimer = requireNonNull(durationTimer, "durationTimer");
+        }
+
+        /**
+         * 开始记录一个流式调用
+         * Starts recording the timings of a new stream.
+         *
+         * @param clock The clock used to measure the time.
+         * @return The newly created stream timer.
+         */
+        public StreamTimer start(final Clock clock) {
+            return new StreamTimer(this, clock);
+        }
+
+    }
+
+    /**
+     * 记录单个流式调用的时间
+     * Records the timings of a single stream. Requests and responses may be reported from different threads, but each
+     * of them has to be reported sequentially, as it is the case for gRPC's calls and listeners. This class doesn't
+     * allocate anything per message.
+     */
+    public static final class StreamTimer {
+
+        private final StreamMetricSet metrics;
+        private final Clock clock;
+        private final long startTime;
+        // Only accessed by the request side
+        private boolean requested;
+        private long lastRequestTime;
+        // Only accessed by the response side
+        private boolean responded;
+        private long lastResponseTime;
+
+        StreamTimer(final StreamMetricSet metrics, final Clock clock) {
+            this.metrics = metrics;
+            this.clock = clock;
+            this.startTime = clock.monotonicTime();
+        }
+
+        /**
+         * 发送或收到一个请求
+         * Records a request message that has been sent or received.
+         */
+        public void onRequest() {
+            final long now = this.clock.monotonicTime();
+            if (this.requested) {
+                record(this.metrics.requestIntervalTimer, now - this.lastRequestTime);
+            }
+            this.requested = true;
+            this.lastRequestTime = now;
+        }
+
+        /**
+         * 发送或收到一个响应
+         * Records a response message that has been sent or received.
+         */
+        public void onResponse() {
+            final long now = this.clock.monotonicTime();
+            if (this.responded) {
+                record(this.metrics.responseIntervalTimer, now - this.lastResponseTime);
+            } else {
+                record(this.metrics.firstResponseTimer, now - this.startTime);
+            }
+            this.responded = true;
+            this.lastResponseTime = now;
+        }
+
+        /**
+         * 流已关闭
+         * Records the total lifetime of the stream.
+         */
+        public void onClose() {
+            record(this.metrics.durationTimer, this.clock.monotonicTime() - this.startTime);
+        }
+
+        private static void record(final Timer timer, final long nanos) {
+            if (timer != null) {
+                timer.record(nanos, TimeUnit.NANOSECONDS);
+            }
         }
 
     }
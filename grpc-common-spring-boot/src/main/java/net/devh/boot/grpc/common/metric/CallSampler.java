@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.common.metric;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 调用采样器
+ * Decides which calls are fully recorded by the metric collecting interceptors. Sampled calls are timed and their
+ * messages are counted with the weight returned by {@link #sample()}, so that the counters still estimate the total
+ * number of messages. Calls that aren't sampled are only recorded if they fail, so that the number of errors per
+ * status code stays exact.
+ *
+ * @see AbstractMetricCollectingInterceptor.MetricSet#recordCall(io.grpc.Status.Code, long, double)
+ */
+public abstract class CallSampler {
+
+    /**
+     * 记录所有调用
+     * A sampler that records every call with a weight of {@code 1}.
+     */
+    public static final CallSampler ALWAYS = new CallSampler() {
+
+        @Override
+        public double sample() {
+            return 1;
+        }
+
+        @Override
+        public String toString() {
+            return "CallSampler.ALWAYS";
+        }
+
+    };
+
+    /**
+     * 每 N 个调用记录一个
+     * Creates a new sampler that deterministically records every n-th call. This requires a shared counter per method,
+     * use {@link #probabilistic(double)} for methods with a very high call rate to avoid the contention.
+     *
+     * @param n The interval of the sampled calls, 1 samples every call.
+     * @return The newly created sampler.
+     */
+    public static CallSampler everyNth(final int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be positive: " + n);
+        }
+        return n == 1 ? ALWAYS : new EveryNthSampler(n);
+    }
+
+    /**
+     * 按概率记录调用
+     * Creates a new sampler that records each call with the given probability.
+     *
+     * @param probability The probability for each call to be sampled, in the range {@code (0, 1]}.
+     * @return The newly created sampler.
+     */
+    public static CallSampler probabilistic(final double probability) {
+        if (!(probability > 0 && probability <= 1)) {
+            throw new IllegalArgumentException("probability must be in the range (0, 1]: " + probability);
+        }
+        return probability == 1 ? ALWAYS : new ProbabilisticSampler(probability);
+    }
+
+    /**
+     * 决定是否记录当前调用
+     * Decides whether the current call should be sampled.
+     *
+     * @return The number of calls the current call represents or {@code 0}, if the call should not be sampled.
+     */
+    public abstract double sample();
+
+    private static final class EveryNthSampler extends CallSampler {
+
+        private final AtomicLong counter = new AtomicLong();
+        private final int n;
+
+        EveryNthSampler(final int n) {
+            this.n = n;
+        }
+
+        @Override
+        public double sample() {
+            return this.counter.getAndIncrement() % this.n == 0 ? this.n : 0;
+        }
+
+        @Override
+        public String toString() {
+            return "CallSampler.everyNth(" + this.n + ")";
+        }
+
+    }
+
+    private static final class ProbabilisticSampler extends CallSampler {
+
+        private final double probability;
+        private final double weight;
+
+        ProbabilisticSampler(final double probability) {
+            this.probability = probability;
+            this.weight = 1 / probability;
+        }
+
+        @Override
+        public double sample() {
+            return ThreadLocalRandom.current().nextDouble() < this.probability ? this.weight : 0;
+        }
+
+        @Override
+        public String toString() {
+            return "CallSampler.probabilistic(" + this.probability + ")";
+        }
+
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.common.metric;
+
+import io.grpc.MethodDescriptor.MethodType;
+import net.devh.boot.grpc.common.metric.AbstractMetricCollectingInterceptor.MetricSet;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * 展示正在进行的 gRPC 调用数的 Endpoint
+ * An actuator endpoint that shows the number of gRPC calls that are currently in flight. The calls are grouped by the
+ * metric collecting interceptor beans (usually one for the server and one for the client) and split into unary and
+ * streaming calls.
+ */
+@Endpoint(id = GrpcActiveCallsEndpoint.ENDPOINT_ID)
+public class GrpcActiveCallsEndpoint {
+
+    /**
+     * The id of the endpoint.
+     */
+    public static final String ENDPOINT_ID = "grpccalls";
+
+    private final ListableBeanFactory beanFactory;
+
+    /**
+     * 创建新的 Endpoint
+     * Creates a new endpoint that will show the active calls of all metric collecting interceptors in the given bean
+     * factory. The interceptors are looked up on each request, so this won't cause any dependency cycles.
+     *
+     * @param beanFactory The bean factory to get the interceptors from.
+     */
+    public GrpcActiveCallsEndpoint(final ListableBeanFactory beanFactory) {
+        this.beanFactory = requireNonNull(beanFactory, "beanFactory");
+    }
+
+    /**
+     * 获取正在进行的调用数
+     * Gets the number of active calls per interceptor and method.
+     *
+     * @return The number of active calls.
+     */
+    @ReadOperation
+    public Map<String, Object> activeCalls() {
+        final Map<String, Object> result = new TreeMap<>();
+        final Map<String, AbstractMetricCollectingInterceptor> interceptors =
+                this.beanFactory.getBeansOfType(AbstractMetricCollectingInterceptor.class);
+        for (final Entry<String, AbstractMetricCollectingInterceptor> entry : interceptors.entrySet()) {
+            result.put(entry.getKey(), describe(entry.getValue().getMethodMetrics()));
+        }
+        return result;
+    }
+
+    private Map<String, Object> describe(final Map<String, MetricSet> methodMetrics) {
+        long unary = 0;
+        long streaming = 0;
+        final Map<String, Long> methods = new LinkedHashMap<>();
+        for (final Entry<String, MetricSet> entry : methodMetrics.entrySet()) {
+            final MetricSet metrics = entry.getValue();
+            final long active = metrics.getActiveCalls().sum();
+            if (metrics.getMethodType() == MethodType.UNARY) {
+                unary += active;
+            } else {
+                streaming += active;
+            }
+            methods.put(entry.getKey(), active);
+        }
+        final Map<String, Object> result = new LinkedHashMap<>();
+        result.put("unary", unary);
+        result.put("streaming", streaming);
+        result.put("methods", methods);
+        return result;
+    }
+
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.common.metric;
+
+import io.grpc.MethodDescriptor;
+import io.micrometer.core.instrument.Timer;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static net.devh.boot.grpc.common.util.GrpcUtils.extractServiceName;
+
+/**
+ * gRPC 监控指标的配置
+ * The properties used to configure the metrics of the gRPC clients and servers. The timer settings can be configured
+ * globally using {@code grpc.metrics.timer.*} and overwritten per service or method using
+ * {@code grpc.metrics.timers[<service>].*} or {@code grpc.metrics.timers[<service>/<method>].*}. The same applies to
+ * the sampling rate using {@code grpc.metrics.sampling.*}.
+ */
+@Data
+@ConfigurationProperties("grpc.metrics")
+public class GrpcMetricsProperties {
+
+    /**
+     * The timer settings that will be applied to the timers of all methods.
+     *
+     * @param timer The timer settings for all methods.
+     * @return The timer settings for all methods.
+     */
+    private TimerProperties timer = new TimerProperties();
+
+    /**
+     * The timer settings for specific services or methods. The key is either the full service name (e.g.
+     * {@code my.package.MyService}) or the full method name (e.g. {@code my.package.MyService/myMethod}). Method
+     * settings take precedence over service settings, which take precedence over the global settings.
+     *
+     * @param timers The timer settings for specific services or methods.
+     * @return The timer settings for specific services or methods.
+     */
+    private Map<String, TimerProperties> timers = new LinkedHashMap<>();
+
+    /**
+     * The settings used to sample the calls, that are recorded by the metric collecting interceptors.
+     *
+     * @param sampling The sampling settings.
+     * @return The sampling settings.
+     */
+    private SamplingProperties sampling = new SamplingProperties();
+
+    /**
+     * The settings of the opt-in client metrics per backend address.
+     *
+     * @param backend The settings of the backend metrics.
+     * @return The settings of the backend metrics.
+     */
+    private BackendProperties backend = new BackendProperties();
+
+    /**
+     * 根据配置定制指定方法的 Timer
+     * Applies the configured timer settings for the given method to the given timer builder. This is only called
+     * once per method and timer, so it doesn't affect the performance of the calls.
+     *
+     * @param method  The method the timer will be created for.
+     * @param builder The timer builder to customize.
+     * @return The customized timer builder.
+     */
+    public Timer.Builder customizeTimer(final MethodDescriptor<?, ?> method, final Timer.Builder builder) {
+        this.timer.applyTo(builder);
+        final TimerProperties service = this.timers.get(extractServiceName(method));
+        if (service != null) {
+            service.applyTo(builder);
+        }
+        final TimerProperties specific = this.timers.get(method.getFullMethodName());
+        if (specific != null) {
+            specific.applyTo(builder);
+        }
+        return builder;
+    }
+
+    /**
+     * 根据配置创建指定方法的采样器
+     * Creates the sampler for the given method based on the configured sampling mode and rate. This is only called
+     * once per method.
+     *
+     * @param method The method to create the sampler for.
+     * @return The newly created sampler.
+     */
+    public CallSampler newSampler(final MethodDescriptor<?, ?> method) {
+        if (this.sampling.mode == SamplingMode.NONE) {
+            return CallSampler.ALWAYS;
+        }
+        Double rate = this.sampling.rates.get(method.getFullMethodName());
+        if (rate == null) {
+            rate = this.sampling.rates.get(extractServiceName(method));
+        }
+        if (rate == null) {
+            rate = this.sampling.rate;
+        }
+        if (!(rate > 0 && rate <= 1)) {
+            throw new IllegalArgumentException(
+                    "The sampling rate for " + method.getFullMethodName() + " must be in the range (0, 1]: " + rate);
+        }
+        switch (this.sampling.mode) {
+            case EVERY_NTH:
+                return CallSampler.everyNth((int) Math.min(Integer.MAX_VALUE, Math.round(1 / rate)));
+            case PROBABILISTIC:
+                return CallSampler.probabilistic(rate);
+            default:
+                throw new IllegalArgumentException("Unsupported SamplingMode: " + this.sampling.mode);
+        }
+    }
+
+    /**
+     * 采样模式
+     * The different ways to sample the calls.
+     */
+    public enum SamplingMode {
+
+        /**
+         * Record every call.
+         */
+        NONE,
+
+        /**
+         * Record every n-th call, where n is the inverse of the sampling rate.
+         */
+        EVERY_NTH,
+
+        /**
+         * Record each call with the sampling rate as probability.
+         */
+        PROBABILISTIC;
+
+    }
+
+    /**
+     * 采样的配置
+     * The sampling settings of the metric collecting interceptors. Sampled calls are timed and their messages are
+     * counted with a weight of {@code 1 / rate}. Calls that aren't sampled are only recorded if they fail, so the number
+     * of errors stays exact. The estimated total number of calls per status code is recorded by the
+     * {@code calls.completed} counters.
+     */
+    @Data
+    public static class SamplingProperties {
+
+        /**
+         * The sampling mode to use. Defaults to {@link SamplingMode#NONE}, which records every call.
+         *
+         * @param mode The sampling mode to use.
+         * @return The sampling mode to use.
+         */
+        private SamplingMode mode = SamplingMode.NONE;
+
+        /**
+         * The fraction of calls that should be sampled, in the range {@code (0, 1]}. Defaults to {@code 1}.
+         *
+         * @param rate The fraction of sampled calls.
+         * @return The fraction of sampled calls.
+         */
+        private double rate = 1;
+
+        /**
+         * The sampling rates for specific services or methods. The key is either the full service name or the full
+         * method name. Method settings take precedence over service settings.
+         *
+         * @param rates The sampling rates for specific services or methods.
+         * @return The sampling rates for specific services or methods.
+         */
+        private Map<String, Double> rates = new LinkedHashMap<>();
+
+    }
+
+    /**
+     * 按后端地址统计的客户端监控配置
+     * The settings of the client metrics per backend address. These metrics show which of the resolved addresses of a
+     * client served the calls and how long they took, e.g. to find a single slow replica.
+     */
+    @Data
+    public static class BackendProperties {
+
+        /**
+         * Whether the client metrics per backend address should be recorded. Defaults to {@code false}.
+         *
+         * @param enabled Whether the backend metrics are enabled.
+         * @return True, if the backend metrics are enabled. False otherwise.
+         */
+        private boolean enabled = false;
+
+        /**
+         * The maximum number of backend addresses across all clients that get their own meters. If the limit is
+         * reached, the meters of the least recently used address will be removed. Defaults to {@code 100}.
+         *
+         * @param maxAddresses The maximum number of backend addresses.
+         * @return The maximum number of backend addresses.
+         */
+        private int maxAddresses = 100;
+
+        /**
+         * The time after which the meters of an unused backend address are considered stale, e.g. because the name
+         * resolver dropped the address. Stale addresses are removed once a new address is seen. Defaults to
+         * {@code 10m}.
+         *
+         * @param idleTimeout The time after which unused addresses are removed.
+         * @return The time after which unused addresses are removed.
+         */
+        private Duration idleTimeout = Duration.ofMinutes(10);
+
+    }
+
+    /**
+     * Timer 直方图和百分位数的配置
+     * The histogram and percentile settings of a timer. Unset values won't be applied and thus keep the defaults of
+     * the meter registry.
+     */
+    @Data
+    public static class TimerProperties {
+
+        /**
+         * The percentiles that should be computed in the application, e.g. {@code 0.5, 0.95, 0.99}. These percentiles
+         * can't be aggregated across instances. Use {@link #percentileHistogram} for that instead.
+         *
+         * @param percentiles The percentiles to publish.
+         * @return The percentiles to publish.
+         */
+        private double[] percentiles;
+
+        /**
+         * The number of digits of precision used for the percentiles computed in the application. Higher values are
+         * more accurate, but require more memory. Defaults to {@code 1}.
+         *
+         * @param percentilePrecision The precision of the percentiles.
+         * @return The precision of the percentiles.
+         */
+        private Integer percentilePrecision;
+
+        /**
+         * Whether a histogram that can be used to compute aggregable percentiles in the monitoring system should be
+         * published.
+         *
+         * @param percentileHistogram Whether a percentile histogram should be published.
+         * @return True, if a percentile histogram should be published. False or null otherwise.
+         */
+        private Boolean percentileHistogram;
+
+        /**
+         * The service level objectives, which will be published as additional histogram buckets, e.g.
+         * {@code 10ms, 100ms, 1s}.
+         *
+         * @param serviceLevelObjectives The service level objective boundaries.
+         * @return The service level objective boundaries.
+         */
+        private Duration[] serviceLevelObjectives;
+
+        /**
+         * The minimum value the timer is expected to observe. Limits the buckets of the percentile histogram.
+         *
+         * @param minimumExpectedValue The minimum expected duration.
+         * @return The minimum expected duration.
+         */
+        private Duration minimumExpectedValue;
+
+        /**
+         * The maximum value the timer is expected to observe. Limits the buckets of the percentile histogram.
+         *
+         * @param maximumExpectedValue The maximum expected duration.
+         * @return The maximum expected duration.
+         */
+        private Duration maximumExpectedValue;
+
+        /**
+         * 将配置应用到 Timer
+         * Applies all set values to the given timer builder.
+         *
+         * @param builder The builder to configure.
+         */
+        public void applyTo(final Timer.Builder builder) {
+            if (this.percentiles != null) {
+                builder.publishPercentiles(this.percentiles);
+            }
+            if (this.percentilePrecision != null) {
+                builder.percentilePrecision(this.percentilePrecision);
+            }
+            if (this.percentileHistogram != null) {
+                builder.publishPercentileHistogram(this.percentileHistogram);
+            }
+            if (this.serviceLevelObjectives != null) {
+                builder.sla(this.serviceLevelObjectives);
+            }
+            if (this.minimumExpectedValue != null) {
+                builder.minimumExpectedValue(this.minimumExpectedValue);
+            }
+            if (this.maximumExpectedValue != null) {
+                builder.maximumExpectedValue(this.maximumExpectedValue);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,375 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.common.metric;
+
+import io.grpc.MethodDescriptor;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Objects.requireNonNull;
+import static net.devh.boot.grpc.common.metric.AbstractMetricCollectingInterceptor.DEFAULT_MAX_METHODS;
+import static net.devh.boot.grpc.common.metric.AbstractMetricCollectingInterceptor.OVERFLOW_NAME;
+import static net.devh.boot.grpc.common.metric.MetricConstants.TAG_DIRECTION;
+import static net.devh.boot.grpc.common.metric.MetricConstants.TAG_METHOD_NAME;
+import static net.devh.boot.grpc.common.metric.MetricConstants.TAG_SERVICE_NAME;
+
+/**
+ * 消息大小的监控指标
+ * Creates and caches the meters that record the sizes of the messages per method. The meters are usually fed by a
+ * stream tracer, so that the actual wire size of the messages can be recorded. The compression ratio is only recorded
+ * for messages that were actually compressed.
+ */
+@Slf4j
+public class MessageSizeMetrics {
+
+    /**
+     * The direction tag value for received messages.
+     */
+    public static final String INBOUND = "inbound";
+
+    /**
+     * The direction tag value for sent messages.
+     */
+    public static final String OUTBOUND = "outbound";
+
+    private final Map<String, MethodMetrics> metricsForMethods = new ConcurrentHashMap<>();
+    private volatile MethodMetrics overflowMetrics;
+    private volatile boolean reachedLimit = false;
+
+    private final MeterRegistry registry;
+    private final String wireSizeName;
+    private final String uncompressedSizeName;
+    private final String compressionRatioName;
+    private final int maxMethods;
+
+    /**
+     * 创建消息大小的监控指标
+     * Creates a new message size metrics instance with the given meter names.
+     *
+     * @param registry             The registry to create the meters in.
+     * @param wireSizeName         The name of the wire size meter.
+     * @param uncompressedSizeName The name of the uncompressed size meter.
+     * @param compressionRatioName The name of the compression ratio meter.
+     */
+    public MessageSizeMetrics(final MeterRegistry registry, final String wireSizeName,
+                              final String uncompressedSizeName, final String compressionRatioName) {
+        this(registry, wireSizeName, uncompressedSizeName, compressionRatioName, DEFAULT_MAX_METHODS);
+    }
+
+    /**
+     * 创建消息大小的监控指标
+     * Creates a new message size metrics instance with the given meter names.
+     *
+     * @param registry             The registry to create the meters in.
+     * @param wireSizeName         The name of the wire size meter.
+     * @param uncompressedSizeName The name of the uncompressed size meter.
+     * @param compressionRatioName The name of the compression ratio meter.
+     * @param maxMethods           The maximum number of methods that get their own meters. All other methods share the
+     *                             meters of {@link AbstractMetricCollectingInterceptor#OVERFLOW_NAME}.
+     */
+    public MessageSizeMetrics(final MeterRegistry registry, final String wireSizeName,
+                              final String uncompressedSizeName, final String compressionRatioName,
+                              final int maxMethods) {
+        this.registry = requireNonNull(registry, "registry");
+        this.wireSizeName = requireNonNull(wireSizeName, "wireSizeName");
+        this.uncompressedSizeName = requireNonNull(uncompressedSizeName, "uncompressedSizeName");
+        this.compressionRatioName = requireNonNull(compressionRatioName, "compressionRatioName");
+        this.maxMethods = maxMethods;
+    }
+
+    /**
+     * 获取指定方法的监控指标
+     * Gets or creates the meters for the given method. The method should be known to be served, e.g. because it has
+     * been taken from a {@link MethodDescriptor}. Invalid method names share the meters of
+     * {@link AbstractMetricCollectingInterceptor#OVERFLOW_NAME}.
+     *
+     * @param fullMethodName The full name of the method.
+     * @return The meters for the given method.
+     */
+    public MethodMetrics forMethod(final String fullMethodName) {
+        final MethodMetrics metrics = this.metricsForMethods.get(fullMethodName);
+        if (metrics != null) {
+            return metrics;
+        }
+        if (MethodDescriptor.extractFullServiceName(fullMethodName) == null) {
+            return forUnknownMethod();
+        }
+        if (this.metricsForMethods.size() >= this.maxMethods) {
+            if (!this.reachedLimit) {
+                this.reachedLimit = true;
+                log.warn("Reached the limit of {} methods with message size metrics, recording all following"
+                        + " methods as '{}'", this.maxMethods, OVERFLOW_NAME);
+            }
+            return forUnknownMethod();
+        }
+        return this.metricsForMethods.computeIfAbsent(fullMethodName, this::newMethodMetrics);
+    }
+
+    /**
+     * 获取未知方法的监控指标
+     * Gets the meters that are shared by all methods that don't get their own meters, e.g. methods that aren't served
+     * or that exceed the limit of methods.
+     *
+     * @return The meters of {@link AbstractMetricCollectingInterceptor#OVERFLOW_NAME}.
+     */
+    public MethodMetrics forUnknownMethod() {
+        MethodMetrics metrics = this.overflowMetrics;
+        if (metrics == null) {
+            synchronized (this) {
+                metrics = this.overflowMetrics;
+                if (metrics == null) {
+                    metrics = newMethodMetrics(MethodDescriptor.generateFullMethodName(OVERFLOW_NAME, OVERFLOW_NAME));
+                    this.overflowMetrics = metrics;
+                }
+            }
+        }
+        return metrics;
+    }
+
+    private MethodMetrics newMethodMetrics(final String fullMethodName) {
+        final String serviceName = MethodDescriptor.extractFullServiceName(fullMethodName);
+        final String methodName = fullMethodName.substring(fullMethodName.lastIndexOf('/') + 1);
+        return new MethodMetrics(
+                new DirectionMetrics(serviceName, methodName, INBOUND),
+                new DirectionMetrics(serviceName, methodName, OUTBOUND));
+    }
+
+    /**
+     * 为单个流创建记录器
+     * Creates a new recorder for a single stream of the given method. The recorder is intended to be called from the
+     * callbacks of a stream tracer.
+     *
+     * @param fullMethodName The full name of the method.
+     * @return The newly created recorder for the stream.
+     * @see #forMethod(String)
+     */
+    public StreamRecorder newStreamRecorder(final String fullMethodName) {
+        return forMethod(fullMethodName).newStreamRecorder();
+    }
+
+    /**
+     * 为方法未知的单个流创建记录器
+     * Creates a new recorder for a single stream, whose method hasn't been looked up yet. The sizes are recorded for
+     * {@link AbstractMetricCollectingInterceptor#OVERFLOW_NAME} until the method is
+     * {@link StreamRecorder#resolveMethod(String) resolved}, so that methods that aren't served don't create any
+     * meters.
+     *
+     * @return The newly created recorder for the stream.
+     */
+    public StreamRecorder newUnresolvedStreamRecorder() {
+        return new StreamRecorder(null, this);
+    }
+
+    /**
+     * 单个流的消息大小记录器
+     * Records the message sizes of a single stream. gRPC reports the uncompressed size of received messages only
+     * while they are being parsed, which might happen on a different thread, so the sizes of a received message are
+     * recorded once the next message is read or the stream has been closed.
+     */
+    public static final class StreamRecorder {
+
+        private final MessageSizeMetrics owner;
+        private volatile MethodMetrics metrics;
+        // Guarded by this
+        private long pendingInboundWireSize = -1;
+        private long pendingInboundUncompressedSize = -1;
+
+        StreamRecorder(final MethodMetrics metrics, final MessageSizeMetrics owner) {
+            this.metrics = metrics;
+            this.owner = owner;
+        }
+
+        /**
+         * 确定流的方法
+         * Sets the method of an {@link MessageSizeMetrics#newUnresolvedStreamRecorder() unresolved} stream, once the
+         * server has found it. All following sizes are recorded for that method.
+         *
+         * @param fullMethodName The full name of the served method.
+         */
+        public void resolveMethod(final String fullMethodName) {
+            this.metrics = this.owner.forMethod(fullMethodName);
+        }
+
+        private MethodMetrics metrics() {
+            final MethodMetrics resolved = this.metrics;
+            return resolved != null ? resolved : this.owner.forUnknownMethod();
+        }
+
+        /**
+         * 发送了一条消息
+         * Records a message that has been sent.
+         *
+         * @param wireSize         The size of the message on the wire or -1 if unknown.
+         * @param uncompressedSize The size of the message before compression or -1 if unknown.
+         */
+        public void outboundMessageSent(final long wireSize, final long uncompressedSize) {
+            metrics().recordOutbound(wireSize, uncompressedSize);
+        }
+
+        /**
+         * 读取了一条消息
+         * Records a message that has been read from the wire.
+         *
+         * @param wireSize The size of the message on the wire or -1 if unknown.
+         */
+        public synchronized void inboundMessageRead(final long wireSize) {
+            flushInbound();
+            this.pendingInboundWireSize = wireSize;
+        }
+
+        /**
+         * 解析消息时读取的未压缩字节数
+         * Records the number of uncompressed bytes that were read while parsing the last received message.
+         *
+         * @param bytes The number of uncompressed bytes.
+         */
+        public synchronized void inboundUncompressedSize(final long bytes) {
+            this.pendingInboundUncompressedSize = Math.max(this.pendingInboundUncompressedSize, 0) + bytes;
+        }
+
+        /**
+         * 流已关闭
+         * Records the remaining sizes once the stream has been closed.
+         */
+        public synchronized void streamClosed() {
+            flushInbound();
+        }
+
+        private void flushInbound() {
+            if (this.pendingInboundWireSize >= 0 || this.pendingInboundUncompressedSize >= 0) {
+                metrics().recordInbound(this.pendingInboundWireSize, this.pendingInboundUncompressedSize);
+                this.pendingInboundWireSize = -1;
+                this.pendingInboundUncompressedSize = -1;
+            }
+        }
+
+    }
+
+    /**
+     * 单个方法的消息大小监控指标
+     * The message size meters of a single method.
+     */
+    public static final class MethodMetrics {
+
+        private final DirectionMetrics inbound;
+        private final DirectionMetrics outbound;
+
+        MethodMetrics(final DirectionMetrics inbound, final DirectionMetrics outbound) {
+            this.inbound = inbound;
+            this.outbound = outbound;
+        }
+
+        /**
+         * 为单个流创建记录器
+         * Creates a new recorder for a single stream of this method.
+         *
+         * @return The newly created recorder for the stream.
+         */
+        public StreamRecorder newStreamRecorder() {
+            return new StreamRecorder(this, null);
+        }
+
+        /**
+         * 记录接收到的消息大小
+         * Records the size of a received message.
+         *
+         * @param wireSize         The size of the message on the wire or -1 if unknown.
+         * @param uncompressedSize The size of the message before compression or -1 if unknown.
+         */
+        public void recordInbound(final long wireSize, final long uncompressedSize) {
+            this.inbound.record(wireSize, uncompressedSize);
+        }
+
+        /**
+         * 记录发送的消息大小
+         * Records the size of a sent message.
+         *
+         * @param wireSize         The size of the message on the wire or -1 if unknown.
+         * @param uncompressedSize The size of the message before compression or -1 if unknown.
+         */
+        public void recordOutbound(final long wireSize, final long uncompressedSize) {
+            this.outbound.record(wireSize, uncompressedSize);
+        }
+
+    }
+
+    private final class DirectionMetrics {
+
+        private final String serviceName;
+        private final String methodName;
+        private final String direction;
+        private final DistributionSummary wireSize;
+        private final DistributionSummary uncompressedSize;
+        // Only created once the first compressed message has been seen
+        private volatile DistributionSummary compressionRatio;
+
+        DirectionMetrics(final String serviceName, final String methodName, final String direction) {
+            this.serviceName = serviceName;
+            this.methodName = methodName;
+            this.direction = direction;
+            this.wireSize = newSizeSummary(MessageSizeMetrics.this.wireSizeName,
+                    "The size of the messages as transmitted over the wire");
+            this.uncompressedSize = newSizeSummary(MessageSizeMetrics.this.uncompressedSizeName,
+                    "The size of the messages before compression");
+        }
+
+        private DistributionSummary newSizeSummary(final String name, final String description) {
+            return DistributionSummary.builder(name)
+                    .description(description)
+                    .baseUnit("bytes")
+                    .tag(TAG_SERVICE_NAME, this.serviceName)
+                    .tag(TAG_METHOD_NAME, this.methodName)
+                    .tag(TAG_DIRECTION, this.direction)
+                    .register(MessageSizeMetrics.this.registry);
+        }
+
+        void record(final long wireSize, final long uncompressedSize) {
+            if (wireSize >= 0) {
+                this.wireSize.record(wireSize);
+            }
+            if (uncompressedSize >= 0) {
+                this.uncompressedSize.record(uncompressedSize);
+            }
+            if (wireSize > 0 && uncompressedSize >= 0 && wireSize != uncompressedSize) {
+                getCompressionRatio().record((double) uncompressedSize / wireSize);
+            }
+        }
+
+        private DistributionSummary getCompressionRatio() {
+            DistributionSummary summary = this.compressionRatio;
+            if (summary == null) {
+                // The registry returns the same instance if it has already been registered concurrently
+                summary = DistributionSummary.builder(MessageSizeMetrics.this.compressionRatioName)
+                        .description("The ratio between the uncompressed and the wire size of the compressed messages")
+                        .tag(TAG_SERVICE_NAME, this.serviceName)
+                        .tag(TAG_METHOD_NAME, this.methodName)
+                        .tag(TAG_DIRECTION, this.direction)
+                        .register(MessageSizeMetrics.this.registry);
+                this.compressionRatio = summary;
+            }
+            return summary;
+        }
+
+    }
+
+}
@@ -37,6 +37,58 @@ public final class MetricConstants {
      * The total time taken for the server to complete the call.
      */
     public static final String METRIC_NAME_SERVER_PROCESSING_DURATION = "grpc.server.processing.duration";
+    /**
+     * The estimated total number of calls completed by the server, only used if the calls are sampled
+     */
+    public static final String METRIC_NAME_SERVER_CALLS_COMPLETED = "grpc.server.calls.completed";
+    /**
+     * The time from the start of a streaming call until the server sent the first response
+     */
+    public static final String METRIC_NAME_SERVER_STREAM_FIRST_RESPONSE = "grpc.server.stream.first.response";
+    /**
+     * The time between two consecutive messages of a streaming call on the server
+     */
+    public static final String METRIC_NAME_SERVER_STREAM_MESSAGE_INTERVAL = "grpc.server.stream.message.interval";
+    /**
+     * The total lifetime of a streaming call on the server
+     */
+    public static final String METRIC_NAME_SERVER_STREAM_DURATION = "grpc.server.stream.duration";
+    /**
+     * The number of calls that are currently being processed by the server
+     */
+    public static final String METRIC_NAME_SERVER_CALLS_ACTIVE = "grpc.server.calls.active";
+    /**
+     * The size of the messages received or sent by the server as transmitted over the wire
+     */
+    public static final String METRIC_NAME_SERVER_MESSAGE_WIRE_SIZE = "grpc.server.message.wire.size";
+    /**
+     * The size of the messages received or sent by the server before compression
+     */
+    public static final String METRIC_NAME_SERVER_MESSAGE_UNCOMPRESSED_SIZE = "grpc.server.message.uncompressed.size";
+    /**
+     * The ratio between the uncompressed and the wire size of the compressed messages of the server
+     */
+    public static final String METRIC_NAME_SERVER_MESSAGE_COMPRESSION_RATIO = "grpc.server.message.compression.ratio";
+    /**
+     * The current concurrency limit of the server
+     */
+    public static final String METRIC_NAME_SERVER_LIMIT = "grpc.server.limit";
+    /**
+     * The number of calls counted against the concurrency limit of the server
+     */
+    public static final String METRIC_NAME_SERVER_LIMIT_IN_FLIGHT = "grpc.server.limit.inflight";
+    /**
+     * The total number of calls rejected due to the concurrency limit of the server
+     */
+    public static final String METRIC_NAME_SERVER_LIMIT_REJECTED = "grpc.server.limit.rejected";
+    /**
+     * The total number of calls rejected because their deadline has (almost) expired
+     */
+    public static final String METRIC_NAME_SERVER_DEADLINE_REJECTED = "grpc.server.deadline.rejected";
+    /**
+     * The time taken to create and bind a lazy service during its first call
+     */
+    public static final String METRIC_NAME_SERVER_LAZY_INITIALIZATION = "grpc.server.service.initialization";
 
     /**
      * The total number of requests sent
@@ -50,6 +102,42 @@ public final class MetricConstants {
      * The total time taken for the client to complete the call, including network delay
      */
     public static final String METRIC_NAME_CLIENT_PROCESSING_DURATION = "grpc.client.processing.duration";
+    /**
+     * The estimated total number of calls completed by the client, only used if the calls are sampled
+     */
+    public static final String METRIC_NAME_CLIENT_CALLS_COMPLETED = "grpc.client.calls.completed";
+    /**
+     * The time from the start of a streaming call until the client received the first response
+     */
+    public static final String METRIC_NAME_CLIENT_STREAM_FIRST_RESPONSE = "grpc.client.stream.first.response";
+    /**
+     * The time between two consecutive messages of a streaming call on the client
+     */
+    public static final String METRIC_NAME_CLIENT_STREAM_MESSAGE_INTERVAL = "grpc.client.stream.message.interval";
+    /**
+     * The total lifetime of a streaming call on the client
+     */
+    public static final String METRIC_NAME_CLIENT_STREAM_DURATION = "grpc.client.stream.duration";
+    /**
+     * The number of calls that have been started by the client and are not yet completed
+     */
+    public static final String METRIC_NAME_CLIENT_CALLS_ACTIVE = "grpc.client.calls.active";
+    /**
+     * The size of the messages sent or received by the client as transmitted over the wire
+     */
+    public static final String METRIC_NAME_CLIENT_MESSAGE_WIRE_SIZE = "grpc.client.message.wire.size";
+    /**
+     * The size of the messages sent or received by the client before compression
+     */
+    public static final String METRIC_NAME_CLIENT_MESSAGE_UNCOMPRESSED_SIZE = "grpc.client.message.uncompressed.size";
+    /**
+     * The ratio between the uncompressed and the wire size of the compressed messages of the client
+     */
+    public static final String METRIC_NAME_CLIENT_MESSAGE_COMPRESSION_RATIO = "grpc.client.message.compression.ratio";
+    /**
+     * The time taken by a specific backend address to complete the calls of the client
+     */
+    public static final String METRIC_NAME_CLIENT_BACKEND_DURATION = "grpc.client.backend.processing.duration";
 
     /**
      * The metrics tag key that belongs to the called service name.
@@ -67,6 +155,18 @@ public final class MetricConstants {
      * The metrics tag key that belongs to the result status code.
      */
     public static final String TAG_STATUS_CODE = "statusCode";
+    /**
+     * The metrics tag key that belongs to the direction of the message, either {@code inbound} or {@code outbound}.
+     */
+    public static final String TAG_DIRECTION = "direction";
+    /**
+     * The metrics tag key that belongs to the name of the client (channel) that made the call.
+     */
+    public static final String TAG_CLIENT_NAME = "client";
+    /**
+     * The metrics tag key that belongs to the remote address that served the call.
+     */
+    public static final String TAG_ADDRESS = "address";
 
     private MetricConstants() {
     }
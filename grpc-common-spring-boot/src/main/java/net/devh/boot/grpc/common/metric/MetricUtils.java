@@ -19,6 +19,7 @@
 
 import io.grpc.MethodDescriptor;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.Timer;
 
@@ -72,6 +73,28 @@ public static Timer.Builder prepareTimerFor(final MethodDescriptor<?, ?> method,
                     .tag(TAG_METHOD_TYPE, method.getType().name());
     }
 
+    /**
+     * 根据所给的方法创建 Gauge
+     * Creates a new gauge builder for the given method that reports the current value of the given number.
+     *
+     * @param <T>         The type of the number.
+     * @param method      The method the gauge will be created for.
+     * @param name        The name of the gauge to use.
+     * @param description The description of the gauge to use.
+     * @param number      The number that should be reported by the gauge.
+     * @return The newly created gauge builder.
+     */
+    public static <T extends Number> Gauge.Builder<T> prepareGaugeFor(final MethodDescriptor<?, ?> method,
+                                                                      final String name, final String description,
+                                                                      final T number) {
+        return Gauge.builder(name, number, Number::doubleValue)
+                    .description(description)
+                    .strongReference(true)
+                    .tag(TAG_SERVICE_NAME, extractServiceName(method))
+                    .tag(TAG_METHOD_NAME, extractMethodName(method))
+                    .tag(TAG_METHOD_TYPE, method.getType().name());
+    }
+
     private MetricUtils() {
     }
 
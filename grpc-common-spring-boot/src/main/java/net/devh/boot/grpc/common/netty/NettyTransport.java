@@ -0,0 +1,380 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.common.netty;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Constructor;
+import java.net.SocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * 已解析的 Netty 传输
+ * A resolved netty transport that can be used to create the event loop groups and to get the channel types that belong
+ * to it. The classes are loaded reflectively, so that this class can be used for both the normal and the shaded netty
+ * variants and without having the native transports on the classpath.
+ *
+ * <p>
+ * All returned types must be cast to the netty (or shaded netty) type that belongs to the package prefix the transport
+ * was resolved with.
+ * </p>
+ */
+@Slf4j
+public final class NettyTransport {
+
+    /**
+     * The package prefix for the normal netty classes.
+     */
+    public static final String NETTY_PACKAGE_PREFIX = "";
+
+    /**
+     * The package prefix for the shaded netty classes from {@code grpc-netty-shaded}.
+     */
+    public static final String SHADED_NETTY_PACKAGE_PREFIX = "io.grpc.netty.shaded.";
+
+    /**
+     * The prefix of addresses that refer to unix domain sockets, e.g. {@code unix:/run/my-service.sock}.
+     */
+    public static final String DOMAIN_SOCKET_ADDRESS_PREFIX = "unix:";
+
+    private final NettyTransportType type;
+    private final ClassLoader classLoader;
+    private final String packagePrefix;
+    private final Class<?> eventLoopGroupType;
+    private final Class<?> serverChannelType;
+    private final Class<?> channelType;
+    private final Object reusePortOption;
+    private final Class<?> serverDomainSocketChannelType;
+    private final Class<?> domainSocketChannelType;
+
+    private NettyTransport(final NettyTransportType type, final ClassLoader classLoader, final String packagePrefix,
+                           final Class<?> eventLoopGroupType, final Class<?> serverChannelType,
+                           final Class<?> channelType, final Object reusePortOption,
+                           final Class<?> serverDomainSocketChannelType, final Class<?> domainSocketChannelType) {
+        this.type = type;
+        this.classLoader = classLoader;
+        this.packagePrefix = packagePrefix;
+        this.eventLoopGroupType = eventLoopGroupType;
+        this.serverChannelType = serverChannelType;
+        this.channelType = channelType;
+        this.reusePortOption = reusePortOption;
+        this.serverDomainSocketChannelType = serverDomainSocketChannelType;
+        this.domainSocketChannelType = domainSocketChannelType;
+    }
+
+    /**
+     * 解析所请求的传输，如果不可用则回退到下一个最佳的传输
+     * Resolves the requested transport. If the requested transport isn't available, then this method will fall back to
+     * the next best transport.
+     *
+     * @param requested     The requested transport type.
+     * @param packagePrefix The prefix of the netty packages to use. Either {@link #NETTY_PACKAGE_PREFIX} or
+     *                      {@link #SHADED_NETTY_PACKAGE_PREFIX}.
+     * @return The resolved transport.
+     * @throws IllegalStateException If no transport is available at all, e.g. because netty is missing.
+     */
+    public static NettyTransport resolve(final NettyTransportType requested, final String packagePrefix) {
+        requireNonNull(requested, "requested");
+        requireNonNull(packagePrefix, "packagePrefix");
+        final ClassLoader classLoader = NettyTransport.class.getClassLoader();
+        for (final NettyTransportType candidate : candidatesFor(requested)) {
+            final NettyTransport transport = tryLoad(candidate, classLoader, packagePrefix);
+            if (transport != null) {
+                if (requested != NettyTransportType.AUTO && requested != candidate) {
+                    log.warn("Netty transport {} is not available, falling back to {}", requested, candidate);
+                }
+                log.debug("Using netty transport {} ({}io.netty)", candidate, packagePrefix);
+                return transport;
+            }
+        }
+        throw new IllegalStateException("No netty transport available for: " + packagePrefix + "io.netty");
+    }
+
+    /**
+     * 解析支持 unix domain socket 的传输
+     * Resolves a transport that supports unix domain sockets. Currently only the {@link NettyTransportType#EPOLL EPOLL}
+     * transport supports them, so there is no fallback.
+     *
+     * @param packagePrefix The prefix of the netty packages to use. Either {@link #NETTY_PACKAGE_PREFIX} or
+     *                      {@link #SHADED_NETTY_PACKAGE_PREFIX}.
+     * @return The resolved transport.
+     * @throws IllegalStateException If no transport with unix domain socket support is available.
+     */
+    public static NettyTransport resolveForDomainSockets(final String packagePrefix) {
+        requireNonNull(packagePrefix, "packagePrefix");
+        final NettyTransport transport =
+                tryLoad(NettyTransportType.EPOLL, NettyTransport.class.getClassLoader(), packagePrefix);
+        if (transport == null) {
+            throw new IllegalStateException("Unix domain sockets require the EPOLL transport, which is not available"
+                    + " for: " + packagePrefix + "io.netty");
+        }
+        return transport;
+    }
+
+    /**
+     * 检查地址是否为 unix domain socket 地址
+     * Checks whether the given address refers to a unix domain socket.
+     *
+     * @param address The address to check.
+     * @return True, if the address starts with {@link #DOMAIN_SOCKET_ADDRESS_PREFIX}. False otherwise.
+     */
+    public static boolean isDomainSocketAddress(final String address) {
+        return address != null && address.startsWith(DOMAIN_SOCKET_ADDRESS_PREFIX);
+    }
+
+    /**
+     * 提取 unix domain socket 的路径
+     * Extracts the path of the socket file from the given unix domain socket address. Both {@code unix:/path} and
+     * {@code unix:///path} refer to the absolute path {@code /path}, while {@code unix:path} refers to a relative path.
+     *
+     * @param address The unix domain socket address.
+     * @return The path of the socket file.
+     * @throws IllegalArgumentException If the given address is not a unix domain socket address or has no path.
+     */
+    public static String extractDomainSocketPath(final String address) {
+        if (!isDomainSocketAddress(address)) {
+            throw new IllegalArgumentException("Not a unix domain socket address: " + address);
+        }
+        String path = address.substring(DOMAIN_SOCKET_ADDRESS_PREFIX.length());
+        if (path.startsWith("//")) {
+            path = path.substring(2);
+        }
+        if (path.isEmpty()) {
+            throw new IllegalArgumentException("Missing path for unix domain socket address: " + address);
+        }
+        return path;
+    }
+
+    private static List<NettyTransportType> candidatesFor(final NettyTransportType requested) {
+        switch (requested) {
+            case AUTO:
+            case EPOLL:
+                return Arrays.asList(NettyTransportType.EPOLL, NettyTransportType.NIO);
+            case IO_URING:
+                return Arrays.asList(NettyTransportType.IO_URING, NettyTransportType.EPOLL, NettyTransportType.NIO);
+            case NIO:
+                return Collections.singletonList(NettyTransportType.NIO);
+            default:
+                throw new IllegalArgumentException("Unsupported NettyTransportType: " + requested);
+        }
+    }
+
+    private static NettyTransport tryLoad(final NettyTransportType type, final ClassLoader classLoader,
+                                          final String prefix) {
+        try {
+            switch (type) {
+                case NIO:
+                    return new NettyTransport(type, classLoader, prefix,
+                            load(classLoader, prefix, "io.netty.channel.nio.NioEventLoopGroup"),
+                            load(classLoader, prefix, "io.netty.channel.socket.nio.NioServerSocketChannel"),
+                            load(classLoader, prefix, "io.netty.channel.socket.nio.NioSocketChannel"),
+                            null, null, null);
+                case EPOLL:
+                    if (!isAvailable(classLoader, prefix, "io.netty.channel.epoll.Epoll")) {
+                        return null;
+                    }
+                    return new NettyTransport(type, classLoader, prefix,
+                            load(classLoader, prefix, "io.netty.channel.epoll.EpollEventLoopGroup"),
+                            load(classLoader, prefix, "io.netty.channel.epoll.EpollServerSocketChannel"),
+                            load(classLoader, prefix, "io.netty.channel.epoll.EpollSocketChannel"),
+                            load(classLoader, prefix, "io.netty.channel.epoll.EpollChannelOption")
+                                    .getField("SO_REUSEPORT").get(null),
+                            load(classLoader, prefix, "io.netty.channel.epoll.EpollServerDomainSocketChannel"),
+                            load(classLoader, prefix, "io.netty.channel.epoll.EpollDomainSocketChannel"));
+                case IO_URING:
+                    if (!isAvailable(classLoader, prefix, "io.netty.incubator.channel.uring.IOUring")) {
+                        return null;
+                    }
+                    return new NettyTransport(type, classLoader, prefix,
+                            load(classLoader, prefix, "io.netty.incubator.channel.uring.IOUringEventLoopGroup"),
+                            load(classLoader, prefix, "io.netty.incubator.channel.uring.IOUringServerSocketChannel"),
+                            load(classLoader, prefix, "io.netty.incubator.channel.uring.IOUringSocketChannel"),
+                            load(classLoader, prefix, "io.netty.incubator.channel.uring.IOUringChannelOption")
+                                    .getField("SO_REUSEPORT").get(null),
+                            null, null);
+                default:
+                    throw new IllegalArgumentException("Unsupported NettyTransportType: " + type);
+            }
+        } catch (final ReflectiveOperationException | LinkageError e) {
+            log.debug("Netty transport {} is not available ({}io.netty)", type, prefix, e);
+            return null;
+        }
+    }
+
+    private static boolean isAvailable(final ClassLoader classLoader, final String prefix, final String className)
+            throws ReflectiveOperationException {
+        final Class<?> clazz = load(classLoader, prefix, className);
+        if ((Boolean) clazz.getMethod("isAvailable").invoke(null)) {
+            return true;
+        }
+        final Object cause = clazz.getMethod("unavailabilityCause").invoke(null);
+        log.debug("Netty transport {} is not available: {}", className, cause);
+        return false;
+    }
+
+    private static Class<?> load(final ClassLoader classLoader, final String prefix, final String className)
+            throws ClassNotFoundException {
+        return ClassUtils.forName(prefix + className, classLoader);
+    }
+
+    /**
+     * 获取传输类型
+     * Gets the type of this transport.
+     *
+     * @return The type of the transport. Never {@link NettyTransportType#AUTO AUTO}.
+     */
+    public NettyTransportType getType() {
+        return this.type;
+    }
+
+    /**
+     * 创建新的 EventLoopGroup
+     * Creates a new event loop group for this transport. The caller is responsible for shutting down the group.
+     *
+     * @param <G>        The type of the event loop group.
+     * @param groupType  The (shaded) {@code EventLoopGroup} class to cast the result to.
+     * @param threads    The number of threads to use or 0 to use netty's default.
+     * @param threadName The prefix for the names of the threads.
+     * @return The newly created event loop group.
+     */
+    public <G> G newEventLoopGroup(final Class<G> groupType, final int threads, final String threadName) {
+        try {
+            final ThreadFactory threadFactory = (ThreadFactory) load(this.classLoader, this.packagePrefix,
+                    "io.netty.util.concurrent.DefaultThreadFactory")
+                            .getConstructor(String.class, boolean.class)
+                            .newInstance(threadName, true);
+            final Constructor<?> constructor =
+                    this.eventLoopGroupType.getConstructor(int.class, ThreadFactory.class);
+            return groupType.cast(constructor.newInstance(threads, threadFactory));
+        } catch (final ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to create event loop group for " + this.type, e);
+        }
+    }
+
+    /**
+     * 获取服务端 Channel 类型
+     * Gets the server channel type that belongs to this transport.
+     *
+     * @param <C>      The type of the channel.
+     * @param baseType The (shaded) {@code ServerChannel} class.
+     * @return The server channel type.
+     */
+    public <C> Class<? extends C> getServerChannelType(final Class<C> baseType) {
+        return this.serverChannelType.asSubclass(baseType);
+    }
+
+    /**
+     * 获取客户端 Channel 类型
+     * Gets the client channel type that belongs to this transport.
+     *
+     * @param <C>      The type of the channel.
+     * @param baseType The (shaded) {@code Channel} class.
+     * @return The client channel type.
+     */
+    public <C> Class<? extends C> getChannelType(final Class<C> baseType) {
+        return this.channelType.asSubclass(baseType);
+    }
+
+    /**
+     * 获取 SO_REUSEPORT 选项
+     * Gets the {@code SO_REUSEPORT} channel option of this transport.
+     *
+     * @param <O>        The type of the channel option.
+     * @param optionType The (shaded) {@code ChannelOption} class.
+     * @return The channel option or null, if this transport does not support {@code SO_REUSEPORT}.
+     */
+    public <O> O getReusePortOption(final Class<O> optionType) {
+        return this.reusePortOption == null ? null : optionType.cast(this.reusePortOption);
+    }
+
+    /**
+     * 是否支持 unix domain socket
+     * Checks whether this transport supports unix domain sockets.
+     *
+     * @return True, if this transport supports unix domain sockets. False otherwise.
+     */
+    public boolean supportsDomainSockets() {
+        return this.domainSocketChannelType != null;
+    }
+
+    /**
+     * 获取服务端 unix domain socket Channel 类型
+     * Gets the server channel type for unix domain sockets that belongs to this transport.
+     *
+     * @param <C>      The type of the channel.
+     * @param baseType The (shaded) {@code ServerChannel} class.
+     * @return The server channel type.
+     * @throws IllegalStateException If this transport does not support unix domain sockets.
+     */
+    public <C> Class<? extends C> getServerDomainSocketChannelType(final Class<C> baseType) {
+        checkDomainSocketSupport();
+        return this.serverDomainSocketChannelType.asSubclass(baseType);
+    }
+
+    /**
+     * 获取客户端 unix domain socket Channel 类型
+     * Gets the client channel type for unix domain sockets that belongs to this transport.
+     *
+     * @param <C>      The type of the channel.
+     * @param baseType The (shaded) {@code Channel} class.
+     * @return The client channel type.
+     * @throws IllegalStateException If this transport does not support unix domain sockets.
+     */
+    public <C> Class<? extends C> getDomainSocketChannelType(final Class<C> baseType) {
+        checkDomainSocketSupport();
+        return this.domainSocketChannelType.asSubclass(baseType);
+    }
+
+    /**
+     * 创建 unix domain socket 地址
+     * Creates a new (shaded) {@code DomainSocketAddress} for the given socket file.
+     *
+     * @param path The path of the socket file.
+     * @return The newly created socket address.
+     * @throws IllegalStateException If this transport does not support unix domain sockets.
+     */
+    public SocketAddress newDomainSocketAddress(final String path) {
+        checkDomainSocketSupport();
+        try {
+            final Class<?> addressType =
+                    load(this.classLoader, this.packagePrefix, "io.netty.channel.unix.DomainSocketAddress");
+            return (SocketAddress) addressType.getConstructor(String.class).newInstance(path);
+        } catch (final ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to create domain socket address for " + this.type, e);
+        }
+    }
+
+    private void checkDomainSocketSupport() {
+        if (!supportsDomainSockets()) {
+            throw new IllegalStateException("Netty transport " + this.type + " does not support unix domain sockets");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "NettyTransport [type=" + this.type + ", packagePrefix=" + this.packagePrefix + "]";
+    }
+
+}
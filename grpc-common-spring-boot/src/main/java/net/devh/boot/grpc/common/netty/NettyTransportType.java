@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.common.netty;
+
+/**
+ * 可用的 Netty 传输类型
+ * The netty transports that can be used by the servers and channels.
+ *
+ * <p>
+ * If the requested transport is not available on the current platform or classpath, then it will automatically fall
+ * back to the next best transport ({@code IO_URING} -&gt; {@code EPOLL} -&gt; {@code NIO}).
+ * </p>
+ */
+public enum NettyTransportType {
+
+    /**
+     * Use the best transport that is available, {@link #EPOLL} if possible and {@link #NIO} otherwise.
+     */
+    AUTO,
+
+    /**
+     * Use the java NIO based transport. This transport is available on all platforms.
+     */
+    NIO,
+
+    /**
+     * Use the native epoll based transport. This transport is only available on linux and requires the
+     * {@code netty-transport-native-epoll} library (already included in {@code grpc-netty-shaded}).
+     */
+    EPOLL,
+
+    /**
+     * Use the native io_uring based transport. This transport is only available on recent linux kernels and requires
+     * the {@code netty-incubator-transport-native-io_uring} library. It is not available for {@code grpc-netty-shaded}.
+     */
+    IO_URING;
+
+}
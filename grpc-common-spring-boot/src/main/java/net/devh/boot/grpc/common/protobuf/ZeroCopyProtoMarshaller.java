@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.common.protobuf;
+
+import com.google.common.io.ByteStreams;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+import com.google.protobuf.UnsafeByteOperations;
+import io.grpc.Drainable;
+import io.grpc.KnownLength;
+import io.grpc.MethodDescriptor;
+import io.grpc.MethodDescriptor.Marshaller;
+import io.grpc.MethodDescriptor.PrototypeMarshaller;
+import io.grpc.Status;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * 零拷贝的 protobuf 编组器
+ * A protobuf marshaller that avoids copying large messages more than once. It wraps gRPC's default protobuf marshaller
+ * and only replaces the parsing of large messages received from a transport, whose size is known in advance.
+ *
+ * <ul>
+ * <li>Messages up to the {@link #getAliasingThreshold() aliasing threshold} are parsed by the wrapped marshaller,
+ * which reads them into a buffer that is reused by each thread. By default the threshold matches the largest message
+ * size for which gRPC reuses its buffer (4 MiB), so ordinary messages don't allocate anything additionally.</li>
+ * <li>Larger messages are read into an array of their size and parsed with aliasing enabled. All {@code bytes} fields
+ * share that array instead of copying their part of it. gRPC's marshaller would parse them from a stream instead, which
+ * copies their data in small chunks.</li>
+ * <li>Larger messages up to the {@link #getMaxPooledSize() max pooled size} are read into a buffer that is reused by
+ * each thread and parsed without aliasing instead. This avoids allocating an array of their size for every message,
+ * which only pays off for large messages without large {@code bytes} fields. Disabled by default.</li>
+ * </ul>
+ *
+ * <p>
+ * The reused buffers are only weakly referenced, so they don't keep a large amount of memory alive after a burst of
+ * large messages.
+ * </p>
+ *
+ * <p>
+ * <b>Note:</b> The transport's own buffers are released once the message has been parsed, so the data has to be
+ * copied from them once. Messages that don't come from a transport, e.g. from the in-process transport, are passed to
+ * the wrapped marshaller, which returns them without any copies.
+ * </p>
+ *
+ * @param <T> The type of the message.
+ */
+public class ZeroCopyProtoMarshaller<T extends MessageLite> implements PrototypeMarshaller<T> {
+
+    /**
+     * The default size in bytes above which messages are parsed with aliasing (4 MiB). Smaller messages are parsed by
+     * the wrapped marshaller, which reuses a buffer of up to this size per thread.
+     */
+    public static final int DEFAULT_ALIASING_THRESHOLD = 4 * 1024 * 1024;
+
+    /**
+     * The default size in bytes of the largest message that will be parsed using a pooled buffer (0, disabled).
+     */
+    public static final int DEFAULT_MAX_POOLED_SIZE = 0;
+
+    private static final ThreadLocal<Reference<byte[]>> POOLED_BUFFERS = new ThreadLocal<>();
+
+    private final PrototypeMarshaller<T> delegate;
+    private final Parser<T> parser;
+    private final int aliasingThreshold;
+    private final int maxPooledSize;
+
+    /**
+     * 使用默认阈值创建零拷贝编组器
+     * Creates a new zero copy marshaller that wraps the given marshaller and uses the default thresholds.
+     *
+     * @param delegate The protobuf marshaller to wrap.
+     */
+    public ZeroCopyProtoMarshaller(final PrototypeMarshaller<T> delegate) {
+        this(delegate, DEFAULT_ALIASING_THRESHOLD, DEFAULT_MAX_POOLED_SIZE);
+    }
+
+    /**
+     * 创建零拷贝编组器
+     * Creates a new zero copy marshaller that wraps the given marshaller.
+     *
+     * @param delegate          The protobuf marshaller to wrap.
+     * @param aliasingThreshold The size in bytes above which messages are parsed by this marshaller instead of the
+     *                          wrapped one.
+     * @param maxPooledSize     The size in bytes of the largest message that will be parsed using a pooled buffer
+     *                          instead of aliasing or 0 to always use aliasing.
+     */
+    @SuppressWarnings("unchecked")
+    public ZeroCopyProtoMarshaller(final PrototypeMarshaller<T> delegate, final int aliasingThreshold,
+                                   final int maxPooledSize) {
+        if (aliasingThreshold < 0) {
+            throw new IllegalArgumentException("aliasingThreshold cannot be negative: " + aliasingThreshold);
+        }
+        if (maxPooledSize < 0) {
+            throw new IllegalArgumentException("maxPooledSize cannot be negative: " + maxPooledSize);
+        }
+        this.delegate = requireNonNull(delegate, "delegate");
+        this.parser = (Parser<T>) requireNonNull(delegate.getMessagePrototype(), "messagePrototype")
+                .getParserForType();
+        this.aliasingThreshold = aliasingThreshold;
+        this.maxPooledSize = maxPooledSize;
+    }
+
+    /**
+     * 如果可能，用零拷贝编组器替换给定的编组器
+     * Wraps the given marshaller with a zero copy marshaller using the default thresholds, if it is a protobuf
+     * marshaller.
+     *
+     * @param <T>        The type of the message.
+     * @param marshaller The marshaller to wrap.
+     * @return The wrapped marshaller or the given marshaller, if it can't be wrapped.
+     */
+    public static <T> Marshaller<T> wrap(final Marshaller<T> marshaller) {
+        return wrap(marshaller, DEFAULT_ALIASING_THRESHOLD, DEFAULT_MAX_POOLED_SIZE);
+    }
+
+    /**
+     * 如果可能，用使用给定阈值的零拷贝编组器替换给定的编组器
+     * Wraps the given marshaller with a zero copy marshaller using the given thresholds, if it is a protobuf
+     * marshaller. Marshallers that are already zero copy marshallers are returned as is.
+     *
+     * @param <T>               The type of the message.
+     * @param marshaller        The marshaller to wrap.
+     * @param aliasingThreshold The size in bytes above which messages are parsed with aliasing.
+     * @param maxPooledSize     The size in bytes of the largest message that will be parsed using a pooled buffer.
+     * @return The wrapped marshaller or the given marshaller, if it can't be wrapped.
+     * @see #ZeroCopyProtoMarshaller(PrototypeMarshaller, int, int)
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static <T> Marshaller<T> wrap(final Marshaller<T> marshaller, final int aliasingThreshold,
+                                         final int maxPooledSize) {
+        if (marshaller instanceof ZeroCopyProtoMarshaller || !(marshaller instanceof PrototypeMarshaller)) {
+            return marshaller;
+        }
+        final PrototypeMarshaller<T> prototypeMarshaller = (PrototypeMarshaller<T>) marshaller;
+        if (!(prototypeMarshaller.getMessagePrototype() instanceof MessageLite)) {
+            return marshaller;
+        }
+        return new ZeroCopyProtoMarshaller(prototypeMarshaller, aliasingThreshold, maxPooledSize);
+    }
+
+    /**
+     * 用零拷贝编组器替换方法的请求和响应编组器
+     * Creates a copy of the given method that uses zero copy marshallers with the default thresholds for its protobuf
+     * requests and responses.
+     *
+     * @param <ReqT>  The type of the request.
+     * @param <RespT> The type of the response.
+     * @param method  The method to wrap.
+     * @return The wrapped method or the given method, if it doesn't use protobuf marshallers.
+     */
+    public static <ReqT, RespT> MethodDescriptor<ReqT, RespT> wrap(final MethodDescriptor<ReqT, RespT> method) {
+        return wrap(method, DEFAULT_ALIASING_THRESHOLD, DEFAULT_MAX_POOLED_SIZE);
+    }
+
+    /**
+     * 用使用给定阈值的零拷贝编组器替换方法的请求和响应编组器
+     * Creates a copy of the given method that uses zero copy marshallers with the given thresholds for its protobuf
+     * requests and responses.
+     *
+     * @param <ReqT>            The type of the request.
+     * @param <RespT>           The type of the response.
+     * @param method            The method to wrap.
+     * @param aliasingThreshold The size in bytes above which messages are parsed with aliasing.
+     * @param maxPooledSize     The size in bytes of the largest message that will be parsed using a pooled buffer.
+     * @return The wrapped method or the given method, if it doesn't use protobuf marshallers.
+     */
+    public static <ReqT, RespT> MethodDescriptor<ReqT, RespT> wrap(final MethodDescriptor<ReqT, RespT> method,
+                                                                   final int aliasingThreshold,
+                                                                   final int maxPooledSize) {
+        final Marshaller<ReqT> requestMarshaller =
+                wrap(method.getRequestMarshaller(), aliasingThreshold, maxPooledSize);
+        final Marshaller<RespT> responseMarshaller =
+                wrap(method.getResponseMarshaller(), aliasingThreshold, maxPooledSize);
+        if (requestMarshaller == method.getRequestMarshaller()
+                && responseMarshaller == method.getResponseMarshaller()) {
+            return method;
+        }
+        return method.toBuilder(requestMarshaller, responseMarshaller).build();
+    }
+
+    /**
+     * 获取启用别名解析的消息大小阈值
+     * Gets the size in bytes above which messages are parsed by this marshaller instead of the wrapped one.
+     *
+     * @return The aliasing threshold.
+     */
+    public int getAliasingThreshold() {
+        return this.aliasingThreshold;
+    }
+
+    /**
+     * 获取使用池化缓冲区的最大消息大小
+     * Gets the size in bytes of the largest message that will be parsed using a pooled buffer instead of aliasing.
+     *
+     * @return The max pooled size or 0, if pooling is disabled.
+     */
+    public int getMaxPooledSize() {
+        return this.maxPooledSize;
+    }
+
+    @Override
+    public Class<T> getMessageClass() {
+        return this.delegate.getMessageClass();
+    }
+
+    @Override
+    public T getMessagePrototype() {
+        return this.delegate.getMessagePrototype();
+    }
+
+    @Override
+    public InputStream stream(final T value) {
+        return this.delegate.stream(value);
+    }
+
+    @Override
+    public T parse(final InputStream stream) {
+        // Drainable streams usually wrap the message itself, which the default marshaller returns without a copy
+        if (!(stream instanceof KnownLength) || stream instanceof Drainable) {
+            return this.delegate.parse(stream);
+        }
+        try {
+            final int size = stream.available();
+            // The wrapped marshaller reuses its own buffer for these
+            if (size <= this.aliasingThreshold) {
+                return this.delegate.parse(stream);
+            }
+            if (size <= this.maxPooledSize) {
+                return parsePooled(stream, size);
+            }
+            return parseAliased(stream, size);
+        } catch (final IOException e) {
+            throw Status.INTERNAL.withDescription("Invalid protobuf byte sequence")
+                    .withCause(e)
+                    .asRuntimeException();
+        }
+    }
+
+    /**
+     * 读取到独立的数组中并启用别名解析
+     * Reads the message into a new array and parses it with aliasing enabled, so that the {@code bytes} fields don't
+     * have to be copied again.
+     */
+    private T parseAliased(final InputStream stream, final int size) throws IOException {
+        final byte[] buffer = new byte[size];
+        ByteStreams.readFully(stream, buffer);
+        // The array is never modified after this point, so it can be shared with the parsed message
+        final CodedInputStream input = UnsafeByteOperations.unsafeWrap(buffer).newCodedInput();
+        input.enableAliasing(true);
+        return parseFrom(input);
+    }
+
+    /**
+     * 读取到线程池化的缓冲区中解析，不能启用别名，因为缓冲区会被复用
+     * Reads the message into the pooled buffer of the current thread and parses it. Aliasing must not be used here,
+     * because the buffer will be reused for the next message.
+     */
+    private T parsePooled(final InputStream stream, final int size) throws IOException {
+        final Reference<byte[]> reference = POOLED_BUFFERS.get();
+        byte[] buffer = reference == null ? null : reference.get();
+        if (buffer == null || buffer.length < size) {
+            buffer = new byte[size];
+            POOLED_BUFFERS.set(new WeakReference<>(buffer));
+        }
+        ByteStreams.readFully(stream, buffer, 0, size);
+        return parseFrom(CodedInputStream.newInstance(buffer, 0, size));
+    }
+
+    private T parseFrom(final CodedInputStream input) throws InvalidProtocolBufferException {
+        input.setSizeLimit(Integer.MAX_VALUE);
+        final T message = this.parser.parseFrom(input, ExtensionRegistryLite.getEmptyRegistry());
+        try {
+            input.checkLastTagWas(0);
+        } catch (final InvalidProtocolBufferException e) {
+            e.setUnfinishedMessage(message);
+            throw e;
+        }
+        return message;
+    }
+
+}
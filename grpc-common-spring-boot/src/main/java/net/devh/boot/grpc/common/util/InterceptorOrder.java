@@ -41,6 +41,17 @@ public final class InterceptorOrder {
      * The order value for global exception handling interceptors.
      */
     public static final int ORDER_GLOBAL_EXCEPTION_HANDLING = 0;
+    /**
+     * 截止时间检查拦截器的顺序
+     * The order value for interceptors that reject calls whose deadline has (almost) expired, before any other work is
+     * done for them.
+     */
+    public static final int ORDER_DEADLINE_CHECK = 500;
+    /**
+     * 并发限制拦截器的顺序
+     * The order value for interceptors that shed load by rejecting calls, before any expensive work is done for them.
+     */
+    public static final int ORDER_CONCURRENCY_LIMIT = 1000;
     /**
      * 追踪和监控拦截器顺序
      * The order value for tracing and metrics collecting interceptors.
@@ -56,6 +67,12 @@ public final class InterceptorOrder {
      * The order value for security interceptors related to authentication.
      */
     public static final int ORDER_SECURITY_AUTHENTICATION = 5100;
+    /**
+     * 限流拦截器顺序
+     * The order value for rate limiting interceptors. They are executed after the authentication, so that the rate
+     * limits can depend on the authenticated principal.
+     */
+    public static final int ORDER_RATE_LIMIT = 5150;
     /**
      * 安全认证检查拦截器顺序
      * The order value for security interceptors related to authorization checks.
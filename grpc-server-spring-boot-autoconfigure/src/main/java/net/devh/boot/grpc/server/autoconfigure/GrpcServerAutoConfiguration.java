@@ -24,6 +24,7 @@
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -35,8 +36,13 @@
 import io.grpc.services.HealthStatusManager;
 import net.devh.boot.grpc.common.autoconfigure.GrpcCommonCodecAutoConfiguration;
 import net.devh.boot.grpc.server.config.GrpcServerProperties;
+import net.devh.boot.grpc.server.executor.GrpcServerExecutorRegistry;
 import net.devh.boot.grpc.server.interceptor.AnnotationGlobalServerInterceptorConfigurer;
 import net.devh.boot.grpc.server.interceptor.GlobalServerInterceptorRegistry;
+import net.devh.boot.grpc.server.limit.ConcurrencyLimit;
+import net.devh.boot.grpc.server.limit.ConcurrencyLimitingServerInterceptor;
+import net.devh.boot.grpc.server.limit.DeadlineCheckingServerInterceptor;
+import net.devh.boot.grpc.server.limit.RateLimitingServerInterceptor;
 import net.devh.boot.grpc.server.nameresolver.SelfNameResolverFactory;
 import net.devh.boot.grpc.server.scope.GrpcRequestScope;
 import net.devh.boot.grpc.server.serverfactory.GrpcServerConfigurer;
@@ -44,6 +50,7 @@
 import net.devh.boot.grpc.server.serverfactory.GrpcServerLifecycle;
 import net.devh.boot.grpc.server.service.AnnotationGrpcServiceDiscoverer;
 import net.devh.boot.grpc.server.service.GrpcServiceDiscoverer;
+import net.devh.boot.grpc.server.service.GrpcServiceRegistry;
 
 /**
  * The auto configuration used by Spring-Boot that contains all beans to run a grpc server/service.
@@ -104,12 +111,73 @@ public GrpcServiceDiscoverer defaultGrpcServiceDiscoverer() {
         return new AnnotationGrpcServiceDiscoverer();
     }
 
+    /**
+     * Creates the executors that will be used to run the grpc services.
+     *
+     * @param properties The properties used to configure the executors.
+     * @return The newly created executor registry bean.
+     */
+    @ConditionalOnMissingBean
+    @Bean
+    public GrpcServerExecutorRegistry grpcServerExecutorRegistry(final GrpcServerProperties properties) {
+        return new GrpcServerExecutorRegistry(properties);
+    }
+
+    /**
+     * Creates the interceptor that rejects calls whose deadline has (almost) expired.
+     *
+     * @param properties The properties used to configure the deadline check.
+     * @return The newly created deadline checking interceptor bean.
+     */
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "grpc.server.deadline-check", name = "enabled")
+    @Bean
+    public DeadlineCheckingServerInterceptor deadlineCheckingServerInterceptor(final GrpcServerProperties properties) {
+        return new DeadlineCheckingServerInterceptor(properties.getDeadlineCheck());
+    }
+
+    /**
+     * Creates the interceptor that limits the number of concurrent calls and sheds excess load.
+     *
+     * @param properties The properties used to configure the limits.
+     * @return The newly created concurrency limiting interceptor bean.
+     */
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "grpc.server.concurrency-limit", name = "enabled")
+    @Bean
+    public ConcurrencyLimitingServerInterceptor concurrencyLimitingServerInterceptor(
+            final GrpcServerProperties properties) {
+        final GrpcServerProperties.ConcurrencyLimit config = properties.getConcurrencyLimit();
+        return new ConcurrencyLimitingServerInterceptor(() -> ConcurrencyLimit.create(config), config.isPerMethod());
+    }
+
+    /**
+     * Creates the interceptor that limits the rate of calls per method and optionally per principal.
+     *
+     * @param properties The properties used to configure the rate limits.
+     * @return The newly created rate limiting interceptor bean.
+     */
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "grpc.server.rate-limit", name = "enabled")
+    @Bean
+    public RateLimitingServerInterceptor rateLimitingServerInterceptor(final GrpcServerProperties properties) {
+        return new RateLimitingServerInterceptor(properties.getRateLimit());
+    }
+
     @ConditionalOnMissingBean
     @Bean
     public HealthStatusManager healthStatusManager() {
         return new HealthStatusManager();
     }
 
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "grpc.server", name = "mutable-services")
+    @Bean
+    public GrpcServiceRegistry grpcServiceRegistry(final HealthStatusManager healthStatusManager,
+            final GrpcServiceDiscoverer serviceDiscoverer) {
+        return new GrpcServiceRegistry(healthStatusManager, serviceDiscoverer);
+    }
+
     @ConditionalOnBean(CompressorRegistry.class)
     @Bean
     public GrpcServerConfigurer compressionServerConfigurer(final CompressorRegistry registry) {
@@ -131,8 +199,9 @@ public List<GrpcServerConfigurer> defaultServerConfigurers() {
     @ConditionalOnMissingBean
     @ConditionalOnBean(GrpcServerFactory.class)
     @Bean
-    public GrpcServerLifecycle grpcServerLifecycle(final GrpcServerFactory factory) {
-        return new GrpcServerLifecycle(factory);
+    public GrpcServerLifecycle grpcServerLifecycle(final GrpcServerFactory factory,
+            final GrpcServerProperties properties, final HealthStatusManager healthStatusManager) {
+        return new GrpcServerLifecycle(factory, properties.getShutdown(), healthStatusManager);
     }
 
 }
@@ -17,8 +17,16 @@
 
 package net.devh.boot.grpc.server.autoconfigure;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
 
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
@@ -28,11 +36,14 @@
 import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
 
+import io.grpc.services.HealthStatusManager;
 import net.devh.boot.grpc.server.condition.ConditionalOnInterprocessServer;
 import net.devh.boot.grpc.server.config.GrpcServerProperties;
+import net.devh.boot.grpc.server.serverfactory.AbstractGrpcServerFactory;
 import net.devh.boot.grpc.server.serverfactory.GrpcServerConfigurer;
 import net.devh.boot.grpc.server.serverfactory.GrpcServerFactory;
 import net.devh.boot.grpc.server.serverfactory.GrpcServerLifecycle;
+import net.devh.boot.grpc.server.serverfactory.GrpcServerListenersLifecycle;
 import net.devh.boot.grpc.server.serverfactory.InProcessGrpcServerFactory;
 import net.devh.boot.grpc.server.serverfactory.NettyGrpcServerFactory;
 import net.devh.boot.grpc.server.serverfactory.ShadedNettyGrpcServerFactory;
@@ -67,7 +78,9 @@ public ShadedNettyGrpcServerFactory shadedNettyGrpcServerFactory(final GrpcServe
             final GrpcServiceDiscoverer serviceDiscoverer, final List<GrpcServerConfigurer> serverConfigurers) {
         final ShadedNettyGrpcServerFactory factory = new ShadedNettyGrpcServerFactory(properties, serverConfigurers);
         for (final GrpcServiceDefinition service : serviceDiscoverer.findGrpcServices()) {
-            factory.addService(service);
+            if (findListener(properties, service) == null) {
+                factory.addService(service);
+            }
         }
         return factory;
     }
@@ -76,12 +89,34 @@ public ShadedNettyGrpcServerFactory shadedNettyGrpcServerFactory(final GrpcServe
      * The server lifecycle bean for a shaded netty based server.
      *
      * @param factory The factory used to create the lifecycle.
+     * @param properties The properties used to configure the shutdown.
+     * @param healthStatusManager The health status manager used to drain the server.
      * @return The inter-process server lifecycle bean.
      */
     @ConditionalOnBean(ShadedNettyGrpcServerFactory.class)
     @Bean
-    public GrpcServerLifecycle shadedNettyGrpcServerLifecycle(ShadedNettyGrpcServerFactory factory) {
-        return new GrpcServerLifecycle(factory);
+    public GrpcServerLifecycle shadedNettyGrpcServerLifecycle(final ShadedNettyGrpcServerFactory factory,
+            final GrpcServerProperties properties, final HealthStatusManager healthStatusManager) {
+        return new GrpcServerLifecycle(factory, properties.getShutdown(), healthStatusManager);
+    }
+
+    /**
+     * The server lifecycle bean for the additional listeners using shaded netty.
+     *
+     * @param properties The properties used to configure the servers.
+     * @param serviceDiscoverer The discoverer used to identify the services that should be served.
+     * @param serverConfigurers The server configurers that contain additional configuration for the servers.
+     * @param healthStatusManager The health status manager used to drain the servers.
+     * @param beanFactory The bean factory used to inject the dependencies of the server factories.
+     * @return The lifecycle bean for the additional listeners.
+     */
+    @ConditionalOnBean(ShadedNettyGrpcServerFactory.class)
+    @Bean
+    public GrpcServerListenersLifecycle shadedNettyGrpcServerListenersLifecycle(final GrpcServerProperties properties,
+            final GrpcServiceDiscoverer serviceDiscoverer, final List<GrpcServerConfigurer> serverConfigurers,
+            final HealthStatusManager healthStatusManager, final AutowireCapableBeanFactory beanFactory) {
+        return createListenersLifecycle(properties, serviceDiscoverer, healthStatusManager, beanFactory,
+                () -> new ShadedNettyGrpcServerFactory(properties, serverConfigurers));
     }
 
     // Then try the normal netty server
@@ -101,7 +136,9 @@ public NettyGrpcServerFactory nettyGrpcServerFactory(final GrpcServerProperties
             final GrpcServiceDiscoverer serviceDiscoverer, final List<GrpcServerConfigurer> serverConfigurers) {
         final NettyGrpcServerFactory factory = new NettyGrpcServerFactory(properties, serverConfigurers);
         for (final GrpcServiceDefinition service : serviceDiscoverer.findGrpcServices()) {
-            factory.addService(service);
+            if (findListener(properties, service) == null) {
+                factory.addService(service);
+            }
         }
         return factory;
     }
@@ -110,12 +147,34 @@ public NettyGrpcServerFactory nettyGrpcServerFactory(final GrpcServerProperties
      * The server lifecycle bean for netty based server.
      *
      * @param factory The factory used to create the lifecycle.
+     * @param properties The properties used to configure the shutdown.
+     * @param healthStatusManager The health status manager used to drain the server.
      * @return The inter-process server lifecycle bean.
      */
     @ConditionalOnBean(NettyGrpcServerFactory.class)
     @Bean
-    public GrpcServerLifecycle nettyGrpcServerLifecycle(final NettyGrpcServerFactory factory) {
-        return new GrpcServerLifecycle(factory);
+    public GrpcServerLifecycle nettyGrpcServerLifecycle(final NettyGrpcServerFactory factory,
+            final GrpcServerProperties properties, final HealthStatusManager healthStatusManager) {
+        return new GrpcServerLifecycle(factory, properties.getShutdown(), healthStatusManager);
+    }
+
+    /**
+     * The server lifecycle bean for the additional listeners using netty.
+     *
+     * @param properties The properties used to configure the servers.
+     * @param serviceDiscoverer The discoverer used to identify the services that should be served.
+     * @param serverConfigurers The server configurers that contain additional configuration for the servers.
+     * @param healthStatusManager The health status manager used to drain the servers.
+     * @param beanFactory The bean factory used to inject the dependencies of the server factories.
+     * @return The lifecycle bean for the additional listeners.
+     */
+    @ConditionalOnBean(NettyGrpcServerFactory.class)
+    @Bean
+    public GrpcServerListenersLifecycle nettyGrpcServerListenersLifecycle(final GrpcServerProperties properties,
+            final GrpcServiceDiscoverer serviceDiscoverer, final List<GrpcServerConfigurer> serverConfigurers,
+            final HealthStatusManager healthStatusManager, final AutowireCapableBeanFactory beanFactory) {
+        return createListenersLifecycle(properties, serviceDiscoverer, healthStatusManager, beanFactory,
+                () -> new NettyGrpcServerFactory(properties, serverConfigurers));
     }
 
     /**
@@ -140,12 +199,97 @@ public InProcessGrpcServerFactory inProcessGrpcServerFactory(final GrpcServerPro
      * The server lifecycle bean for the in-process-server.
      *
      * @param factory The factory used to create the lifecycle.
+     * @param properties The properties used to configure the shutdown.
+     * @param healthStatusManager The health status manager used to drain the server.
      * @return The in-process server lifecycle bean.
      */
     @ConditionalOnBean(InProcessGrpcServerFactory.class)
     @Bean
-    public GrpcServerLifecycle inProcessGrpcServerLifecycle(final InProcessGrpcServerFactory factory) {
-        return new GrpcServerLifecycle(factory);
+    public GrpcServerLifecycle inProcessGrpcServerLifecycle(final InProcessGrpcServerFactory factory,
+            final GrpcServerProperties properties, final HealthStatusManager healthStatusManager) {
+        return new GrpcServerLifecycle(factory, properties.getShutdown(), healthStatusManager);
+    }
+
+    /**
+     * Creates the lifecycle for the servers of the additional listeners.
+     *
+     * @param properties The properties used to configure the servers.
+     * @param serviceDiscoverer The discoverer used to identify the services that should be served.
+     * @param healthStatusManager The health status manager used to drain the servers.
+     * @param beanFactory The bean factory used to inject the dependencies of the server factories.
+     * @param factorySupplier The supplier used to create a new server factory for each listener.
+     * @return The newly created lifecycle.
+     * @throws IllegalStateException If a listener contains an unknown service or a service is assigned to multiple
+     *         listeners.
+     */
+    protected GrpcServerListenersLifecycle createListenersLifecycle(final GrpcServerProperties properties,
+            final GrpcServiceDiscoverer serviceDiscoverer, final HealthStatusManager healthStatusManager,
+            final AutowireCapableBeanFactory beanFactory,
+            final Supplier<? extends AbstractGrpcServerFactory<?>> factorySupplier) {
+        validateListeners(properties, serviceDiscoverer);
+        final Map<String, GrpcServerFactory> factories = new LinkedHashMap<>();
+        for (final Entry<String, GrpcServerProperties.Listener> entry : properties.getListeners().entrySet()) {
+            final String name = entry.getKey();
+            final AbstractGrpcServerFactory<?> factory = factorySupplier.get();
+            beanFactory.autowireBean(factory);
+            factory.setListener(name, entry.getValue());
+            for (final GrpcServiceDefinition service : serviceDiscoverer.findGrpcServices()) {
+                if (name.equals(findListener(properties, service))) {
+                    factory.addService(service);
+                }
+            }
+            factories.put(name, factory);
+        }
+        return new GrpcServerListenersLifecycle(factories, properties.getShutdown(), healthStatusManager);
+    }
+
+    /**
+     * Checks that the services of the additional listeners exist and are only assigned to a single listener, because
+     * they would otherwise silently be served by a different server than configured.
+     *
+     * @param properties The properties containing the listeners.
+     * @param serviceDiscoverer The discoverer used to identify the services that should be served.
+     * @throws IllegalStateException If a listener contains an unknown service or a service is assigned to multiple
+     *         listeners.
+     */
+    private static void validateListeners(final GrpcServerProperties properties,
+            final GrpcServiceDiscoverer serviceDiscoverer) {
+        final Set<String> knownServices = new TreeSet<>();
+        for (final GrpcServiceDefinition service : serviceDiscoverer.findGrpcServices()) {
+            knownServices.add(service.getDefinition().getServiceDescriptor().getName());
+        }
+        final Map<String, String> assignedListeners = new HashMap<>();
+        for (final Entry<String, GrpcServerProperties.Listener> entry : properties.getListeners().entrySet()) {
+            final String name = entry.getKey();
+            for (final String serviceName : entry.getValue().getServices()) {
+                if (!knownServices.contains(serviceName)) {
+                    throw new IllegalStateException("The listener '" + name + "' contains the unknown service '"
+                            + serviceName + "', known services: " + knownServices);
+                }
+                final String previous = assignedListeners.putIfAbsent(serviceName, name);
+                if (previous != null && !previous.equals(name)) {
+                    throw new IllegalStateException("The service '" + serviceName
+                            + "' is assigned to multiple listeners: '" + previous + "' and '" + name + "'");
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the name of the additional listener the given service is assigned to.
+     *
+     * @param properties The properties containing the listeners.
+     * @param service The service to find the listener for.
+     * @return The name of the listener or null, if the service should be served by the default server.
+     */
+    private static String findListener(final GrpcServerProperties properties, final GrpcServiceDefinition service) {
+        final String serviceName = service.getDefinition().getServiceDescriptor().getName();
+        for (final Entry<String, GrpcServerProperties.Listener> entry : properties.getListeners().entrySet()) {
+            if (entry.getValue().getServices().contains(serviceName)) {
+                return entry.getKey();
+            }
+        }
+        return null;
     }
 
 }
@@ -17,6 +17,13 @@
 
 package net.devh.boot.grpc.server.autoconfigure;
 
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_DEADLINE_REJECTED;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_LAZY_INITIALIZATION;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_LIMIT;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_LIMIT_IN_FLIGHT;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_LIMIT_REJECTED;
+import static net.devh.boot.grpc.common.metric.MetricConstants.TAG_METHOD_NAME;
+import static net.devh.boot.grpc.common.metric.MetricConstants.TAG_SERVICE_NAME;
 import static net.devh.boot.grpc.common.util.GrpcUtils.extractMethodName;
 
 import java.util.ArrayList;
@@ -24,8 +31,15 @@
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.LongSupplier;
 
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
 import org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration;
 import org.springframework.boot.actuate.info.InfoContributor;
 import org.springframework.boot.actuate.info.SimpleInfoContributor;
@@ -33,19 +47,36 @@
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
 
-import io.grpc.BindableService;
 import io.grpc.MethodDescriptor;
 import io.grpc.ServiceDescriptor;
 import io.grpc.protobuf.services.ProtoReflectionService;
 import io.grpc.services.HealthStatusManager;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
 import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.common.metric.GrpcActiveCallsEndpoint;
+import net.devh.boot.grpc.common.metric.GrpcMetricsProperties;
 import net.devh.boot.grpc.server.config.GrpcServerProperties;
+import net.devh.boot.grpc.server.executor.GrpcServerExecutorRegistry;
+import net.devh.boot.grpc.server.limit.ConcurrencyLimiter;
+import net.devh.boot.grpc.server.limit.ConcurrencyLimitingServerInterceptor;
+import net.devh.boot.grpc.server.limit.DeadlineCheckingServerInterceptor;
 import net.devh.boot.grpc.server.metric.MetricCollectingServerInterceptor;
+import net.devh.boot.grpc.server.metric.MetricCollectingServerStreamTracerFactory;
+import net.devh.boot.grpc.server.serverfactory.GrpcServerConfigurer;
+import net.devh.boot.grpc.server.service.AnnotationGrpcServiceDiscoverer;
+import net.devh.boot.grpc.server.service.GrpcServiceDefinition;
+import net.devh.boot.grpc.server.service.GrpcServiceDiscoverer;
 
 /**
  * Auto configuration class for Spring-Boot. This allows zero config server metrics for gRPC services.
@@ -57,45 +88,182 @@
 @AutoConfigureAfter(CompositeMeterRegistryAutoConfiguration.class)
 @AutoConfigureBefore(GrpcServerAutoConfiguration.class)
 @ConditionalOnBean(MeterRegistry.class)
+@EnableConfigurationProperties(GrpcMetricsProperties.class)
 public class GrpcServerMetricAutoConfiguration {
 
     @Bean
     @ConditionalOnMissingBean
     public MetricCollectingServerInterceptor metricCollectingServerInterceptor(final MeterRegistry registry,
-            final Collection<BindableService> services) {
+            final GrpcMetricsProperties metricsProperties) {
         final MetricCollectingServerInterceptor metricCollector = new MetricCollectingServerInterceptor(registry);
-        log.debug("Pre-Registering service metrics");
-        for (final BindableService service : services) {
-            log.debug("- {}", service);
-            metricCollector.preregisterService(service);
-        }
+        metricCollector.setMethodTimerCustomizer(metricsProperties::customizeTimer);
+        metricCollector.setMethodSampler(metricsProperties::newSampler);
         return metricCollector;
     }
 
+    /**
+     * Pre-registers the metrics of all services, once they have been discovered. This reuses the service definitions of
+     * the {@link GrpcServiceDiscoverer} instead of binding the services again. This can't be done during the creation
+     * of the interceptor, because the services are bound using the interceptor.
+     *
+     * @param metricCollector The interceptor to pre-register the metrics with.
+     * @param serviceDiscoverer The discoverer used to find the services.
+     * @return The newly created SmartInitializingSingleton bean.
+     */
+    @Bean
+    SmartInitializingSingleton grpcServerMetricPreregistration(
+            final ObjectProvider<MetricCollectingServerInterceptor> metricCollector,
+            final ObjectProvider<GrpcServiceDiscoverer> serviceDiscoverer) {
+        return () -> metricCollector.ifAvailable(collector -> serviceDiscoverer.ifAvailable(discoverer -> {
+            log.debug("Pre-Registering service metrics");
+            for (final GrpcServiceDefinition service : discoverer.findGrpcServices()) {
+                log.debug("- {}", service.getBeanName());
+                collector.preregisterService(service.getDefinition().getServiceDescriptor());
+            }
+        }));
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public MetricCollectingServerStreamTracerFactory metricCollectingServerStreamTracerFactory(
+            final MeterRegistry registry) {
+        return new MetricCollectingServerStreamTracerFactory(registry);
+    }
+
+    @Bean
+    GrpcServerConfigurer metricCollectingServerStreamTracerConfigurer(
+            final MetricCollectingServerStreamTracerFactory streamTracerFactory) {
+        return builder -> builder.addStreamTracerFactory(streamTracerFactory);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnAvailableEndpoint
+    public GrpcActiveCallsEndpoint grpcActiveCallsEndpoint(final ListableBeanFactory beanFactory) {
+        return new GrpcActiveCallsEndpoint(beanFactory);
+    }
+
+    @Bean
+    MeterBinder grpcServerExecutorMetrics(final ObjectProvider<GrpcServerExecutorRegistry> executorRegistry) {
+        return registry -> executorRegistry.ifAvailable(executors -> {
+            for (final Entry<String, ExecutorService> entry : executors.getManagedExecutors().entrySet()) {
+                new ExecutorServiceMetrics(entry.getValue(), entry.getKey(), Tags.empty()).bindTo(registry);
+            }
+        });
+    }
+
+    /**
+     * Creates a {@link MeterBinder} that monitors the limits, the calls in flight and the rejected calls of the
+     * concurrency limiting interceptor, if enabled.
+     *
+     * @param limitingInterceptor The interceptor owning the concurrency limiters.
+     * @return The newly created MeterBinder bean.
+     */
+    @Bean
+    MeterBinder grpcServerConcurrencyLimitMetrics(
+            final ObjectProvider<ConcurrencyLimitingServerInterceptor> limitingInterceptor) {
+        return registry -> limitingInterceptor.ifAvailable(interceptor -> interceptor.addCreationListener(
+                (name, limiter) -> bindLimiterMetrics(registry, name, limiter)));
+    }
+
+    /**
+     * Creates a {@link MeterBinder} that counts the calls that have been rejected by the deadline checking interceptor,
+     * if enabled.
+     *
+     * @param deadlineInterceptor The interceptor that rejects the calls.
+     * @return The newly created MeterBinder bean.
+     */
+    @Bean
+    MeterBinder grpcServerDeadlineCheckMetrics(
+            final ObjectProvider<DeadlineCheckingServerInterceptor> deadlineInterceptor) {
+        return registry -> deadlineInterceptor.ifAvailable(interceptor -> interceptor.addCreationListener(
+                (method, rejected) -> FunctionCounter
+                        .builder(METRIC_NAME_SERVER_DEADLINE_REJECTED, rejected, LongSupplier::getAsLong)
+                        .description("The total number of calls rejected because their deadline has (almost) expired")
+                        .baseUnit("calls")
+                        .tag(TAG_SERVICE_NAME, method.getServiceName())
+                        .tag(TAG_METHOD_NAME, extractMethodName(method))
+                        .register(registry)));
+    }
+
+    /**
+     * Creates a {@link MeterBinder} that records the time taken to initialize the lazy services during their first
+     * call.
+     *
+     * @param serviceDiscoverer The discoverer that creates the lazy services.
+     * @return The newly created MeterBinder bean.
+     */
+    @Bean
+    MeterBinder grpcServerLazyServiceMetrics(final ObjectProvider<GrpcServiceDiscoverer> serviceDiscoverer) {
+        return registry -> serviceDiscoverer.ifAvailable(discoverer -> {
+            if (discoverer instanceof AnnotationGrpcServiceDiscoverer) {
+                ((AnnotationGrpcServiceDiscoverer) discoverer).addLazyInitializationListener(
+                        (serviceName, duration) -> Timer.builder(METRIC_NAME_SERVER_LAZY_INITIALIZATION)
+                                .description("The time taken to create and bind a lazy service during its first call")
+                                .tag(TAG_SERVICE_NAME, serviceName)
+                                .register(registry)
+                                .record(duration));
+            }
+        });
+    }
+
+    private static void bindLimiterMetrics(final MeterRegistry registry, final String name,
+            final ConcurrencyLimiter limiter) {
+        final int separator = name.indexOf('/');
+        final Tags tags = separator < 0
+                ? Tags.of(TAG_SERVICE_NAME, name)
+                : Tags.of(TAG_SERVICE_NAME, name.substring(0, separator),
+                        TAG_METHOD_NAME, name.substring(separator + 1));
+        Gauge.builder(METRIC_NAME_SERVER_LIMIT, limiter, ConcurrencyLimiter::getLimit)
+                .description("The current concurrency limit")
+                .baseUnit("calls")
+                .tags(tags)
+                .register(registry);
+        Gauge.builder(METRIC_NAME_SERVER_LIMIT_IN_FLIGHT, limiter, ConcurrencyLimiter::getInFlight)
+                .description("The number of calls counted against the concurrency limit")
+                .baseUnit("calls")
+                .tags(tags)
+                .register(registry);
+        FunctionCounter.builder(METRIC_NAME_SERVER_LIMIT_REJECTED, limiter, ConcurrencyLimiter::getRejected)
+                .description("The total number of calls rejected due to the concurrency limit")
+                .baseUnit("calls")
+                .tags(tags)
+                .register(registry);
+    }
+
     @Bean
     @Lazy
     InfoContributor grpcInfoContributor(final GrpcServerProperties properties,
-            final Collection<BindableService> grpcServices, final HealthStatusManager healthStatusManager) {
+            final GrpcServiceDiscoverer serviceDiscoverer, final HealthStatusManager healthStatusManager) {
         final Map<String, Object> details = new LinkedHashMap<>();
         details.put("port", properties.getPort());
+        final Collection<GrpcServiceDefinition> grpcServices = serviceDiscoverer.findGrpcServices();
 
         if (properties.isReflectionServiceEnabled()) {
             // Only expose services via web-info if we do the same via grpc.
             final Map<String, List<String>> services = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
             details.put("services", services);
-            final List<BindableService> mutableGrpcServiceList = new ArrayList<>(grpcServices);
-            mutableGrpcServiceList.add(ProtoReflectionService.newInstance());
+            final List<ServiceDescriptor> serviceDescriptors = new ArrayList<>();
+            for (final GrpcServiceDefinition grpcService : grpcServices) {
+                serviceDescriptors.add(grpcService.getDefinition().getServiceDescriptor());
+            }
+            serviceDescriptors.add(ProtoReflectionService.newInstance().bindService().getServiceDescriptor());
             if (properties.isHealthServiceEnabled()) {
-                mutableGrpcServiceList.add(healthStatusManager.getHealthService());
+                serviceDescriptors.add(healthStatusManager.getHealthService().bindService().getServiceDescriptor());
             }
-            for (final BindableService grpcService : mutableGrpcServiceList) {
-                final ServiceDescriptor serviceDescriptor = grpcService.bindService().getServiceDescriptor();
-
+            for (final ServiceDescriptor serviceDescriptor : serviceDescriptors) {
                 final List<String> methods = collectMethodNamesForService(serviceDescriptor);
                 services.put(serviceDescriptor.getName(), methods);
             }
         }
 
+        final Map<String, Long> startupTimes = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        details.put("startupTimes", startupTimes);
+        for (final GrpcServiceDefinition grpcService : grpcServices) {
+            startupTimes.put(grpcService.getDefinition().getServiceDescriptor().getName(),
+                    grpcService.getStartupTime().toMillis());
+        }
+
         return new SimpleInfoContributor("grpc.server", details);
     }
 
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.server.config;
+
+/**
+ * The algorithms that can be used to adapt the concurrency limit of the gRPC server.
+ */
+public enum ConcurrencyLimitAlgorithm {
+
+    /**
+     * Additive increase, multiplicative decrease. Increases the limit by one for each successful call while the limit
+     * is in use and decreases it by the backoff ratio for each call that timed out or failed due to an overload.
+     */
+    AIMD,
+
+    /**
+     * Adjusts the limit based on the ratio between the long term and the current latency, so the limit decreases as
+     * soon as calls start queuing up, even before they fail.
+     */
+    GRADIENT;
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.devh.boot.grpc.server.config;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import io.grpc.ServerBuilder;
+
+/**
+ * The different kinds of executors that can be used to run the gRPC service implementations.
+ */
+public enum ExecutorType {
+
+    /**
+     * Use gRPC's default executor, an unbounded cached thread pool.
+     */
+    DEFAULT,
+
+    /**
+     * Use a {@link ThreadPoolExecutor} with a fixed number of threads.
+     */
+    FIXED,
+
+    /**
+     * Use a work-stealing {@link ForkJoinPool}.
+     */
+    WORK_STEALING,
+
+    /**
+     * Run the service implementations directly on the transport threads. Only use this if your services never block.
+     *
+     * @see ServerBuilder#directExecutor()
+     */
+    DIRECT,
+
+    /**
+     * Run every call on a new virtual thread. Requires Java 21 or later.
+     */
+    VIRTUAL;
+
+}
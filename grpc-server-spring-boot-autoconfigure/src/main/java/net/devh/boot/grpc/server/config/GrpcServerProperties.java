@@ -21,8 +21,11 @@
 import java.io.InputStream;
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -39,6 +42,8 @@
 import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
 import io.grpc.netty.shaded.io.netty.handler.ssl.SslContextBuilder;
 import lombok.Data;
+import net.devh.boot.grpc.common.netty.NettyTransportType;
+import net.devh.boot.grpc.common.protobuf.ZeroCopyProtoMarshaller;
 
 /**
  * The properties for the gRPC server that will be started as part of the application.
@@ -69,6 +74,8 @@ public class GrpcServerProperties {
     /**
      * Bind address for the server. Defaults to {@link #ANY_IP_ADDRESS "*"}. Alternatively you can restrict this to
      * {@link #ANY_IPv4_ADDRESS "0.0.0.0"} or {@link #ANY_IPv6_ADDRESS "::"}. Or restrict it to exactly one IP address.
+     * The netty based servers can also listen on a unix domain socket such as {@code unix:/run/my-service.sock}
+     * instead, in which case the port is ignored. This requires the {@code EPOLL} transport.
      *
      * @param address The address to bind to.
      * @return The address the server should bind to.
@@ -151,6 +158,46 @@ public class GrpcServerProperties {
     @DurationUnit(ChronoUnit.SECONDS)
     private boolean permitKeepAliveWithoutCalls = false;
 
+    /**
+     * The maximum time a connection can stay idle (without any outstanding calls) before it will be gracefully closed.
+     * If not set ({@code null}) then idle connections will never be closed. Default unit {@link ChronoUnit#SECONDS
+     * SECONDS}.
+     *
+     * @see NettyServerBuilder#maxConnectionIdle(long, TimeUnit)
+     *
+     * @param maxConnectionIdle The maximum time a connection can stay idle.
+     * @return The maximum time a connection can stay idle or null.
+     */
+    @DurationUnit(ChronoUnit.SECONDS)
+    private Duration maxConnectionIdle = null;
+
+    /**
+     * The maximum time a connection may exist before it will be gracefully closed. A random jitter of +/-10% will be
+     * added to the value. Limiting the age of connections forces the clients to reconnect regularly, which helps to
+     * spread long-lived connections across all replicas after scaling. If not set ({@code null}) then the connections
+     * will never be closed because of their age. Default unit {@link ChronoUnit#SECONDS SECONDS}.
+     *
+     * @see NettyServerBuilder#maxConnectionAge(long, TimeUnit)
+     *
+     * @param maxConnectionAge The maximum age of a connection.
+     * @return The maximum age of a connection or null.
+     */
+    @DurationUnit(ChronoUnit.SECONDS)
+    private Duration maxConnectionAge = null;
+
+    /**
+     * The grace time after the {@link #maxConnectionAge} has been reached, during which the outstanding calls can
+     * still complete before the connection will be forcefully closed. If not set ({@code null}) then the outstanding
+     * calls will never be cancelled. Default unit {@link ChronoUnit#SECONDS SECONDS}.
+     *
+     * @see NettyServerBuilder#maxConnectionAgeGrace(long, TimeUnit)
+     *
+     * @param maxConnectionAgeGrace The grace time for outstanding calls.
+     * @return The grace time for outstanding calls or null.
+     */
+    @DurationUnit(ChronoUnit.SECONDS)
+    private Duration maxConnectionAgeGrace = null;
+
     /**
      * The maximum message size allowed to be received by the server. If not set ({@code null}) then
      * {@link GrpcUtil#DEFAULT_MAX_MESSAGE_SIZE gRPC's default} should be used.
@@ -160,6 +207,59 @@ public class GrpcServerProperties {
     @DataSizeUnit(DataUnit.BYTES)
     private DataSize maxInboundMessageSize = null;
 
+    /**
+     * The maximum size of the headers (metadata) that are allowed to be received by the server. If not set
+     * ({@code null}) then {@link GrpcUtil#DEFAULT_MAX_HEADER_LIST_SIZE gRPC's default} should be used.
+     *
+     * @see NettyServerBuilder#maxInboundMetadataSize(int)
+     *
+     * @param maxHeaderListSize The maximum size of the headers.
+     * @return The maximum size of the headers or null.
+     */
+    @DataSizeUnit(DataUnit.BYTES)
+    private DataSize maxHeaderListSize = null;
+
+    /**
+     * The maximum number of concurrent calls that are permitted per incoming connection. If not set ({@code null})
+     * then the number of calls is unlimited.
+     *
+     * @see NettyServerBuilder#maxConcurrentCallsPerConnection(int)
+     *
+     * @param maxConcurrentCallsPerConnection The maximum number of concurrent calls per connection.
+     * @return The maximum number of concurrent calls per connection or null.
+     */
+    private Integer maxConcurrentCallsPerConnection = null;
+
+    /**
+     * The initial HTTP/2 flow control window size for the connections and streams. Larger windows allow higher
+     * throughput for streaming calls on connections with a high bandwidth-delay-product, at the cost of more memory per
+     * stream. If not set ({@code null}) then {@link NettyServerBuilder#DEFAULT_FLOW_CONTROL_WINDOW gRPC's default}
+     * (1MiB) should be used.
+     *
+     * @see NettyServerBuilder#flowControlWindow(int)
+     *
+     * @param flowControlWindow The initial flow control window size.
+     * @return The initial flow control window size or null.
+     */
+    @DataSizeUnit(DataUnit.BYTES)
+    private DataSize flowControlWindow = null;
+
+    /**
+     * Whether the flow control window should be automatically adjusted based on the measured bandwidth-delay-product
+     * (BDP). The {@link #flowControlWindow} will be used as the initial window. Defaults to {@code false}.
+     *
+     * <p>
+     * <b>Note:</b> The version of grpc-java used by this library only supports enabling this globally. Enabling it
+     * will change process-wide settings that also apply to all netty based client channels of the same netty variant
+     * (shaded or not) in the JVM, including those that are not managed by this library. Once enabled, it stays enabled
+     * until the JVM exits, even if the server is stopped.
+     * </p>
+     *
+     * @param flowControlAutoTuning Whether BDP based flow control window auto-tuning should be enabled.
+     * @return True, if BDP based flow control window auto-tuning is enabled. False otherwise.
+     */
+    private boolean flowControlAutoTuning = false;
+
     /**
      * Whether gRPC health service is enabled or not. Defaults to {@code true}.
      *
@@ -176,6 +276,65 @@ public class GrpcServerProperties {
      */
     private boolean reflectionServiceEnabled = true;
 
+    /**
+     * Whether the services should be served from a {@link net.devh.boot.grpc.server.service.GrpcServiceRegistry
+     * GrpcServiceRegistry} that allows adding, replacing and removing services while the server is running. If
+     * disabled, the services are added to the server once and can only be changed by restarting the server. Defaults
+     * to {@code false}.
+     *
+     * @param mutableServices Whether the services can be changed at runtime.
+     * @return True, if the services can be changed at runtime. False otherwise.
+     */
+    private boolean mutableServices = false;
+
+    /**
+     * Whether adjacent built-in interceptors (request scope, metrics and security exception translation) should be fused
+     * into a single interceptor, that only creates one call and one listener wrapper per call. This does not change the
+     * behavior of the interceptors, but reduces the per call overhead. The request scope will also be fused, if the
+     * deadline check or the concurrency limit are enabled, but any other interceptor in between the built-in ones, such
+     * as the tracing interceptor, prevents fusing the interceptors on either side of it. Defaults to {@code false}.
+     *
+     * @param fuseInterceptors Whether the built-in interceptors should be fused.
+     * @return True, if the built-in interceptors should be fused. False otherwise.
+     * @see net.devh.boot.grpc.server.interceptor.FusedServerInterceptor
+     */
+    private boolean fuseInterceptors = false;
+
+    /**
+     * Whether all services should parse their protobuf requests using a
+     * {@link net.devh.boot.grpc.common.protobuf.ZeroCopyProtoMarshaller ZeroCopyProtoMarshaller}, which avoids copying
+     * the received data more than once and reduces the allocations for large messages. Individual services can opt in
+     * using {@link net.devh.boot.grpc.server.service.GrpcService#zeroCopyMarshaller()}. Defaults to {@code false}.
+     *
+     * @param zeroCopyMarshaller Whether all services should use the zero copy marshaller.
+     * @return True, if all services should use the zero copy marshaller. False otherwise.
+     */
+    private boolean zeroCopyMarshaller = false;
+
+    /**
+     * The size of the messages above which the zero copy marshaller parses them with aliasing, instead of passing them
+     * to gRPC's marshaller. Defaults to {@code 4MB}, which is the largest size for which gRPC's marshaller reuses its
+     * buffer.
+     *
+     * @param zeroCopyAliasingThreshold The size above which messages are parsed with aliasing.
+     * @return The size above which messages are parsed with aliasing.
+     * @see net.devh.boot.grpc.common.protobuf.ZeroCopyProtoMarshaller#getAliasingThreshold()
+     */
+    @DataSizeUnit(DataUnit.BYTES)
+    private DataSize zeroCopyAliasingThreshold = DataSize.ofBytes(ZeroCopyProtoMarshaller.DEFAULT_ALIASING_THRESHOLD);
+
+    /**
+     * The size of the largest message that the zero copy marshaller parses using a buffer that is reused by each
+     * thread, instead of aliasing. This only pays off for large messages without large {@code bytes} fields. Defaults
+     * to {@code 0}, which disables the pooling.
+     *
+     * @param zeroCopyMaxPooledSize The size of the largest message that is parsed using a pooled buffer.
+     * @return The size of the largest message that is parsed using a pooled buffer.
+     * @see net.devh.boot.grpc.common.protobuf.ZeroCopyProtoMarshaller#getMaxPooledSize()
+     */
+    @DataSizeUnit(DataUnit.BYTES)
+    private DataSize zeroCopyMaxPooledSize = DataSize.ofBytes(ZeroCopyProtoMarshaller.DEFAULT_MAX_POOLED_SIZE);
+
     /**
      * Security options for transport security. Defaults to disabled. We strongly recommend to enable this though.
      *
@@ -183,6 +342,67 @@ public class GrpcServerProperties {
      */
     private final Security security = new Security();
 
+    /**
+     * The executor that will be used to run the service implementations. Defaults to gRPC's default executor.
+     *
+     * @return The executor options for the server.
+     */
+    private final Executor executor = new Executor();
+
+    /**
+     * Additional named executors that can be selected on a per service basis using
+     * {@link net.devh.boot.grpc.server.service.GrpcService#executor() GrpcService#executor()}.
+     *
+     * @return The named executor options.
+     */
+    private final Map<String, Executor> executors = new LinkedHashMap<>();
+
+    /**
+     * Additional named listeners, that each get their own server serving a subset of the services. Services that are
+     * assigned to a listener are no longer served by the default server. This can be used to separate internal admin
+     * services from the public traffic. All options that aren't part of the listener options are shared with the
+     * default server.
+     *
+     * @return The named listener options.
+     */
+    private final Map<String, Listener> listeners = new LinkedHashMap<>();
+
+    /**
+     * The adaptive concurrency limit that protects the services from overload. Defaults to disabled.
+     *
+     * @return The concurrency limit options.
+     */
+    private final ConcurrencyLimit concurrencyLimit = new ConcurrencyLimit();
+
+    /**
+     * The rate limits for the individual services and methods. Defaults to disabled.
+     *
+     * @return The rate limit options.
+     */
+    private final RateLimit rateLimit = new RateLimit();
+
+    /**
+     * The options for the early rejection of calls whose deadline has (almost) expired. Defaults to disabled.
+     *
+     * @return The deadline check options.
+     */
+    private final DeadlineCheck deadlineCheck = new DeadlineCheck();
+
+    /**
+     * The options for the shutdown of the server, such as whether in-flight calls should be drained first.
+     *
+     * @return The shutdown options.
+     */
+    private final Shutdown shutdown = new Shutdown();
+
+    /**
+     * The netty specific options, such as the transport and the event loop sizes. These options are only used by the
+     * netty based servers.
+     *
+     * @return The netty specific options.
+     */
+    private final Netty netty = new Netty();
+
     /**
      * The security configuration for the gRPC server.
      */
@@ -278,6 +498,390 @@ public void setProtocols(final String protocols) {
 
     }
 
+    /**
+     * The configuration of an additional listener of the gRPC server.
+     */
+    @Data
+    public static class Listener {
+
+        /**
+         * Bind address for the listener. Defaults to the
+         * {@link GrpcServerProperties#getAddress() address of the default server}.
+         *
+         * @param address The address the listener should bind to.
+         * @return The address the listener should bind to or null, if the default server's address should be used.
+         */
+        private String address = null;
+
+        /**
+         * Server port to listen on. This is required. If set to {@code 0} a random available port will be selected and
+         * used.
+         *
+         * @param port The port the listener should listen on.
+         */
+        private int port = 0;
+
+        /**
+         * The names of the services that should be served by this listener. Each service can only be assigned to a
+         * single listener.
+         *
+         * @param services The names of the services, e.g. {@code my.package.MyService}.
+         * @return The names of the services that should be served by this listener.
+         */
+        private List<String> services = new ArrayList<>();
+
+        /**
+         * The maximum message size allowed to be received by this listener. Defaults to the
+         * {@link GrpcServerProperties#getMaxInboundMessageSize() maximum of the default server}.
+         *
+         * @return The maximum message size allowed or null, if the default server's maximum should be used.
+         */
+        @DataSizeUnit(DataUnit.BYTES)
+        private DataSize maxInboundMessageSize = null;
+
+        /**
+         * Security options for the transport security of this listener. Defaults to disabled. This does not inherit
+         * the security options of the default server.
+         *
+         * @return The security options for transport security.
+         */
+        private final Security security = new Security();
+
+        /**
+         * The executor that will be used to run the services of this listener. Defaults to the
+         * {@link GrpcServerProperties#getExecutor() executor of the default server}.
+         *
+         * @return The executor options for the listener.
+         */
+        private final Executor executor = new Executor();
+
+        /**
+         * Gets the port the listener should listen on. If set to {@code 0} a random available port will be selected and
+         * used.
+         *
+         * @return The port to listen to.
+         */
+        public int getPort() {
+            if (this.port == 0) {
+                this.port = SocketUtils.findAvailableTcpPort();
+            }
+            return this.port;
+        }
+
+        /**
+         * Sets the maximum message size allowed to be received by this listener. If set to {@code -1} then it will use
+         * the highest possible limit (not recommended).
+         *
+         * @param maxInboundMessageSize The new maximum size allowed for incoming messages. {@code -1} for max
+         *        possible. Null to use the default server's maximum.
+         */
+        public void setMaxInboundMessageSize(final DataSize maxInboundMessageSize) {
+            if (maxInboundMessageSize == null || maxInboundMessageSize.toBytes() >= 0) {
+                this.maxInboundMessageSize = maxInboundMessageSize;
+            } else if (maxInboundMessageSize.toBytes() == -1) {
+                this.maxInboundMessageSize = DataSize.ofBytes(Integer.MAX_VALUE);
+            } else {
+                throw new IllegalArgumentException("Unsupported maxInboundMessageSize: " + maxInboundMessageSize);
+            }
+        }
+
+    }
+
+    /**
+     * The executor configuration for the gRPC server.
+     */
+    @Data
+    public static class Executor {
+
+        /**
+         * The type of executor to use. Defaults to {@link ExecutorType#DEFAULT DEFAULT}.
+         *
+         * @param type The type of executor to use.
+         * @return The type of executor to use.
+         */
+        private ExecutorType type = ExecutorType.DEFAULT;
+
+        /**
+         * The number of threads for {@link ExecutorType#FIXED FIXED} pools or the parallelism for
+         * {@link ExecutorType#WORK_STEALING WORK_STEALING} pools. Defaults to the number of available processors.
+         *
+         * @param threads The number of threads to use.
+         * @return The number of threads to use.
+         */
+        private int threads = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * The maximum number of calls that may wait for a thread of a {@link ExecutorType#FIXED FIXED} pool. Defaults
+         * to {@code -1} (unbounded). Calls that exceed this limit will be rejected.
+         *
+         * @param queueCapacity The maximum number of queued calls or {@code -1} for unbounded.
+         * @return The maximum number of queued calls or {@code -1} for unbounded.
+         */
+        private int queueCapacity = -1;
+
+        /**
+         * The prefix for the names of the threads created by this executor. Defaults to {@code grpc-server-}
+         * followed by the name of the executor.
+         *
+         * @param threadNamePrefix The prefix for the thread names.
+         * @return The prefix for the thread names or null, to use the default.
+         */
+        private String threadNamePrefix = null;
+
+    }
+
+    /**
+     * The adaptive concurrency limit configuration for the gRPC server. Calls that exceed the current limit are
+     * rejected with {@code RESOURCE_EXHAUSTED}.
+     */
+    @Data
+    public static class ConcurrencyLimit {
+
+        /**
+         * Whether the concurrency limit is enabled. Defaults to {@code false}.
+         *
+         * @param enabled Whether the concurrency limit should be enabled.
+         * @return True, if the concurrency limit should be enabled. False otherwise.
+         */
+        private boolean enabled = false;
+
+        /**
+         * The algorithm used to adjust the limit. Defaults to {@link ConcurrencyLimitAlgorithm#GRADIENT GRADIENT}.
+         *
+         * @param algorithm The algorithm used to adjust the limit.
+         * @return The algorithm used to adjust the limit.
+         */
+        private ConcurrencyLimitAlgorithm algorithm = ConcurrencyLimitAlgorithm.GRADIENT;
+
+        /**
+         * Whether each method should have its own limit. Defaults to {@code false}, which uses one limit per service.
+         *
+         * @param perMethod Whether each method should have its own limit.
+         * @return True, if each method has its own limit. False, if the methods of a service share a limit.
+         */
+        private boolean perMethod = false;
+
+        /**
+         * The limit that is used until enough calls have been observed. Defaults to {@code 20}.
+         *
+         * @param initialLimit The initial limit.
+         * @return The initial limit.
+         */
+        private int initialLimit = 20;
+
+        /**
+         * The lower bound of the limit. Defaults to {@code 1}.
+         *
+         * @param minLimit The minimum limit.
+         * @return The minimum limit.
+         */
+        private int minLimit = 1;
+
+        /**
+         * The upper bound of the limit. Defaults to {@code 1000}.
+         *
+         * @param maxLimit The maximum limit.
+         * @return The maximum limit.
+         */
+        private int maxLimit = 1000;
+
+        /**
+         * The factor the limit is multiplied with if an overload has been detected. Only used by
+         * {@link ConcurrencyLimitAlgorithm#AIMD AIMD}. Defaults to {@code 0.9}.
+         *
+         * @param backoffRatio The factor used to decrease the limit.
+         * @return The factor used to decrease the limit.
+         */
+        private double backoffRatio = 0.9;
+
+        /**
+         * The duration after which a call is considered to be affected by an overload. Only used by
+         * {@link ConcurrencyLimitAlgorithm#AIMD AIMD}. Defaults to {@code 5s}. Default unit
+         * {@link ChronoUnit#MILLIS MILLIS}.
+         *
+         * @param timeout The duration after which a call indicates an overload.
+         * @return The duration after which a call indicates an overload.
+         */
+        private Duration timeout = Duration.ofSeconds(5);
+
+        /**
+         * The factor by which the current latency may exceed the long term latency, before the limit will be
+         * decreased. Only used by {@link ConcurrencyLimitAlgorithm#GRADIENT GRADIENT}. Defaults to {@code 1.5}.
+         *
+         * @param tolerance The tolerated increase of the latency.
+         * @return The tolerated increase of the latency.
+         */
+        private double tolerance = 1.5;
+
+        /**
+         * The weight of each new limit estimate, used to smooth the changes of the limit. Only used by
+         * {@link ConcurrencyLimitAlgorithm#GRADIENT GRADIENT}. Defaults to {@code 0.2}.
+         *
+         * @param smoothing The weight of each new limit estimate.
+         * @return The weight of each new limit estimate.
+         */
+        private double smoothing = 0.2;
+
+    }
+
+    /**
+     * The rate limit configuration for the gRPC server. Calls that exceed the rate limit are rejected with
+     * {@code RESOURCE_EXHAUSTED} before their request messages are read.
+     */
+    @Data
+    public static class RateLimit {
+
+        /**
+         * Whether the rate limits are enabled. Defaults to {@code false}.
+         *
+         * @param enabled Whether the rate limits should be enabled.
+         * @return True, if the rate limits should be enabled. False otherwise.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Whether each authenticated principal should have its own rate limit. Defaults to {@code false}, which uses a
+         * single rate limit for all callers. Unauthenticated calls share a single rate limit.
+         *
+         * @param perPrincipal Whether each principal should have its own rate limit.
+         * @return True, if each principal has its own rate limit. False, if all callers share a rate limit.
+         */
+        private boolean perPrincipal = false;
+
+        /**
+         * The rate limits keyed by the full method name (e.g. {@code my.package.MyService/myMethod}) or the service
+         * name (e.g. {@code my.package.MyService}). Method specific rate limits take precedence. Methods without a
+         * matching entry are not limited.
+         *
+         * @return The rate limits by method or service name.
+         */
+        private final Map<String, Bucket> methods = new LinkedHashMap<>();
+
+        /**
+         * The maximum number of rate limits that are tracked at the same time. If this limit is reached, then new
+         * principals share the rate limit of the method until some of the rate limits have been evicted. Defaults to
+         * {@code 10000}.
+         *
+         * @param maxKeys The maximum number of tracked rate limits.
+         * @return The maximum number of tracked rate limits.
+         */
+        private int maxKeys = 10000;
+
+        /**
+         * The interval in which rate limits that haven't been used for some time are evicted. Defaults to {@code 1m}.
+         * Default unit {@link ChronoUnit#MILLIS MILLIS}.
+         *
+         * @param evictionInterval The interval in which idle rate limits are evicted.
+         * @return The interval in which idle rate limits are evicted.
+         */
+        private Duration evictionInterval = Duration.ofMinutes(1);
+
+        /**
+         * A single rate limit, implemented as token bucket.
+         */
+        @Data
+        public static class Bucket {
+
+            /**
+             * The number of calls per second that are permitted on average.
+             *
+             * @param permitsPerSecond The average number of permitted calls per second.
+             * @return The average number of permitted calls per second.
+             */
+            private double permitsPerSecond;
+
+            /**
+             * The number of calls that may be processed in a single burst. Defaults to {@code 0}, which uses the
+             * number of permits per second, but at least one.
+             *
+             * @param burst The number of calls that may be processed in a single burst.
+             * @return The number of calls that may be processed in a single burst.
+             */
+            private int burst = 0;
+
+        }
+
+    }
+
+    /**
+     * The configuration for the early rejection of calls whose deadline has (almost) expired. Such calls are rejected
+     * with {@code DEADLINE_EXCEEDED} before any other work is done for them.
+     */
+    @Data
+    public static class DeadlineCheck {
+
+        /**
+         * Whether the deadline check is enabled. Defaults to {@code false}.
+         *
+         * @param enabled Whether the deadline check should be enabled.
+         * @return True, if the deadline check should be enabled. False otherwise.
+         */
+        private boolean enabled = false;
+
+        /**
+         * The minimum time that has to remain until the deadline of a call expires, for the call to be processed.
+         * Defaults to {@code 0}, which only rejects calls whose deadline has already expired. Default unit
+         * {@link ChronoUnit#MILLIS MILLIS}.
+         *
+         * @param minRemaining The minimum remaining time until the deadline.
+         * @return The minimum remaining time until the deadline.
+         */
+        private Duration minRemaining = Duration.ZERO;
+
+        /**
+         * The minimum remaining times keyed by the full method name (e.g. {@code my.package.MyService/myMethod}) or
+         * the service name (e.g. {@code my.package.MyService}). Method specific entries take precedence over service
+         * specific ones, which take precedence over {@link #getMinRemaining() minRemaining}.
+         *
+         * @return The minimum remaining times by method or service name.
+         */
+        private final Map<String, Duration> methods = new LinkedHashMap<>();
+
+    }
+
+    /**
+     * The shutdown configuration for the gRPC server.
+     */
+    @Data
+    public static class Shutdown {
+
+        /**
+         * Whether the server should be shutdown gracefully. If enabled, then all services will be marked as
+         * {@code NOT_SERVING} first and the server waits for the {@link #getPropagationDelay() propagation delay},
+         * before it stops accepting new calls and waits for the in-flight calls to complete. Calls that haven't been
+         * completed after the {@link #getTimeout() timeout} will be cancelled. Defaults to {@code false}, which stops
+         * accepting new calls immediately without waiting for the in-flight calls.
+         *
+         * @param graceful Whether the server should be shutdown gracefully.
+         * @return True, if the server should be shutdown gracefully. False otherwise.
+         */
+        private boolean graceful = false;
+
+        /**
+         * The time to wait after marking the services as {@code NOT_SERVING}, so that the health status can propagate
+         * to the clients and load balancers. Defaults to {@code 5s}. Default unit {@link ChronoUnit#MILLIS MILLIS}.
+         *
+         * @param propagationDelay The time to wait for the health status to propagate.
+         * @return The time to wait for the health status to propagate.
+         */
+        private Duration propagationDelay = Duration.ofSeconds(5);
+
+        /**
+         * The maximum time to wait for the in-flight calls to complete. Defaults to {@code 20s}. Default unit
+         * {@link ChronoUnit#MILLIS MILLIS}.
+         *
+         * <p>
+         * <b>Note:</b> The sum of the propagation delay and this timeout should be less than spring's
+         * {@code spring.lifecycle.timeout-per-shutdown-phase} (defaults to {@code 30s}).
+         * </p>
+         *
+         * @param timeout The maximum time to wait for the in-flight calls.
+         * @return The maximum time to wait for the in-flight calls.
+         */
+        private Duration timeout = Duration.ofSeconds(20);
+
+    }
+
     /**
      * Gets the port the server should listen on. Defaults to {@code 9090}. If set to {@code 0} a random available port
      * will be selected and used.
@@ -313,4 +917,72 @@ public void setMaxInboundMessageSize(final DataSize maxInboundMessageSize) {
         }
     }
 
+    /**
+     * The netty specific options of the server.
+     */
+    @Data
+    public static class Netty {
+
+        /**
+         * The netty transport to use. If not set ({@code null}), then gRPC's default (NIO) transport and its shared
+         * event loop groups will be used, unless one of the other options of this class requires dedicated event loop
+         * groups. If the requested transport is not available, then it will fall back to the next best transport.
+         *
+         * @param transport The netty transport to use.
+         * @return The netty transport to use or null, to use gRPC's default.
+         */
+        private NettyTransportType transport = null;
+
+        /**
+         * The number of threads used to accept new connections. Defaults to {@code 0}, which uses gRPC's shared boss
+         * event loop group (a single thread), unless one of the other options requires dedicated event loop groups, in
+         * which case a single thread will be used as well. If multiple {@link #listeners} are used, then at least one
+         * thread per listener will be used.
+         *
+         * @param bossThreads The number of threads used to accept new connections.
+         * @return The number of threads used to accept new connections or 0 to use the default.
+         */
+        private int bossThreads = 0;
+
+        /**
+         * The number of threads used to handle the connections. Defaults to {@code 0}, which uses netty's default
+         * ({@code 2 * availableProcessors}).
+         *
+         * @param workerThreads The number of threads used to handle the connections.
+         * @return The number of threads used to handle the connections.
+         */
+        private int workerThreads = 0;
+
+        /**
+         * Whether the {@code SO_REUSEPORT} socket option should be set on the listening sockets. This allows multiple
+         * {@link #listeners} (or processes) to listen on the same port, while the kernel load balances the new
+         * connections between them. Requires the {@code EPOLL} or {@code IO_URING} transport. Defaults to
+         * {@code false}.
+         *
+         * @param reusePort Whether {@code SO_REUSEPORT} should be used.
+         * @return True, if {@code SO_REUSEPORT} should be used. False otherwise.
+         */
+        private boolean reusePort = false;
+
+        /**
+         * The number of listening sockets that will be bound to the server's address. Values greater than {@code 1}
+         * require {@link #reusePort} and a fixed port. Defaults to {@code 1}.
+         *
+         * @param listeners The number of listening sockets.
+         * @return The number of listening sockets.
+         */
+        private int listeners = 1;
+
+        /**
+         * Checks whether dedicated event loop groups are required for these options.
+         *
+         * @return True, if dedicated event loop groups are required. False, if gRPC's default can be used.
+         */
+        public boolean requiresCustomEventLoops() {
+            return this.transport != null || this.bossThreads > 0 || this.workerThreads > 0 || this.reusePort
+                    || this.listeners > 1;
+        }
+
+    }
+
 }
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.devh.boot.grpc.server.executor;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+import io.grpc.Context;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCall.Listener;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerMethodDefinition;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.internal.SerializingExecutor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A server call handler that moves the execution of the call, including all interceptors and listener callbacks, from
+ * the server's executor to the given executor. The callbacks of a single call will never be executed concurrently and
+ * always in the order they were received.
+ *
+ * <p>
+ * If the executor rejects the call (e.g. because the queue of a bounded pool is full), then the call will be closed
+ * with {@link Status#RESOURCE_EXHAUSTED RESOURCE_EXHAUSTED}. The terminal events ({@link Listener#onCancel() onCancel}
+ * and {@link Listener#onComplete() onComplete}) are never dropped, if they are rejected, they are executed on the
+ * calling thread instead, so that the interceptors can always release their resources.
+ * </p>
+ *
+ * @param <ReqT> The type of the request.
+ * @param <RespT> The type of the response.
+ */
+@Slf4j
+public class ExecutorSwitchingServerCallHandler<ReqT, RespT> implements ServerCallHandler<ReqT, RespT> {
+
+    private final ServerCallHandler<ReqT, RespT> delegate;
+    private final Executor executor;
+
+    /**
+     * Creates a new ExecutorSwitchingServerCallHandler that executes the given handler using the given executor.
+     *
+     * @param delegate The call handler to delegate to.
+     * @param executor The executor that should be used to execute the call.
+     */
+    public ExecutorSwitchingServerCallHandler(final ServerCallHandler<ReqT, RespT> delegate,
+            final Executor executor) {
+        this.delegate = requireNonNull(delegate, "delegate");
+        this.executor = requireNonNull(executor, "executor");
+    }
+
+    /**
+     * Creates a copy of the given service definition where all methods will be executed using the given executor.
+     *
+     * @param serviceDefinition The service definition to wrap.
+     * @param executor The executor to use.
+     * @return The newly created service definition.
+     */
+    public static ServerServiceDefinition bindExecutor(final ServerServiceDefinition serviceDefinition,
+            final Executor executor) {
+        final ServerServiceDefinition.Builder builder =
+                ServerServiceDefinition.builder(serviceDefinition.getServiceDescriptor());
+        for (final ServerMethodDefinition<?, ?> method : serviceDefinition.getMethods()) {
+            builder.addMethod(bindExecutor(method, executor));
+        }
+        return builder.build();
+    }
+
+    private static <ReqT, RespT> ServerMethodDefinition<ReqT, RespT> bindExecutor(
+            final ServerMethodDefinition<ReqT, RespT> method, final Executor executor) {
+        return method.withServerCallHandler(
+                new ExecutorSwitchingServerCallHandler<>(method.getServerCallHandler(), executor));
+    }
+
+    @Override
+    public Listener<ReqT> startCall(final ServerCall<ReqT, RespT> call, final Metadata headers) {
+        final ExecutorSwitchingListener<ReqT, RespT> listener =
+                new ExecutorSwitchingListener<>(call, new SerializingExecutor(this.executor));
+        listener.start(this.delegate, headers);
+        return listener;
+    }
+
+    /**
+     * A listener that forwards all events to the actual listener using a serializing executor.
+     *
+     * @param <ReqT> The type of the request.
+     * @param <RespT> The type of the response.
+     */
+    private static final class ExecutorSwitchingListener<ReqT, RespT> extends Listener<ReqT> {
+
+        private final ServerCall<ReqT, RespT> call;
+        private final Executor serializingExecutor;
+        // Only accessed from within the serializing executor or after it rejected a terminal event
+        private volatile Listener<ReqT> delegate;
+        private volatile boolean rejected;
+
+        ExecutorSwitchingListener(final ServerCall<ReqT, RespT> call, final Executor serializingExecutor) {
+            this.call = call;
+            this.serializingExecutor = serializingExecutor;
+        }
+
+        void start(final ServerCallHandler<ReqT, RespT> handler, final Metadata headers) {
+            final Context context = Context.current();
+            try {
+                this.serializingExecutor.execute(() -> {
+                    final Context previous = context.attach();
+                    try {
+                        this.delegate = handler.startCall(this.call, headers);
+                    } catch (final RuntimeException e) {
+                        closeCall(e);
+                    } finally {
+                        context.detach(previous);
+                    }
+                });
+            } catch (final RejectedExecutionException e) {
+                rejectCall(e);
+            }
+        }
+
+        @Override
+        public void onMessage(final ReqT message) {
+            dispatch(listener -> listener.onMessage(message), false);
+        }
+
+        @Override
+        public void onHalfClose() {
+            dispatch(Listener::onHalfClose, false);
+        }
+
+        @Override
+        public void onCancel() {
+            dispatch(Listener::onCancel, true);
+        }
+
+        @Override
+        public void onComplete() {
+            dispatch(Listener::onComplete, true);
+        }
+
+        @Override
+        public void onReady() {
+            dispatch(Listener::onReady, false);
+        }
+
+        private void dispatch(final Consumer<Listener<ReqT>> event, final boolean terminal) {
+            if (!terminal && this.rejected) {
+                return; // Call has already been closed
+            }
+            final Context context = Context.current();
+            final Runnable task = () -> {
+                final Listener<ReqT> listener = this.delegate;
+                if (listener == null) {
+                    return; // Call failed to start
+                }
+                final Context previous = context.attach();
+                try {
+                    event.accept(listener);
+                } catch (final RuntimeException e) {
+                    closeCall(e);
+                } finally {
+                    context.detach(previous);
+                }
+            };
+            try {
+                this.serializingExecutor.execute(task);
+            } catch (final RejectedExecutionException e) {
+                if (terminal) {
+                    // The serializing executor is idle if it rejects a task and the transport never delivers events
+                    // concurrently, so running it here still preserves the order of the callbacks
+                    task.run();
+                } else {
+                    rejectCall(e);
+                }
+            }
+        }
+
+        private void rejectCall(final RejectedExecutionException e) {
+            this.rejected = true;
+            log.debug("Executor rejected call: {}", this.call.getMethodDescriptor().getFullMethodName(), e);
+            try {
+                this.call.close(Status.RESOURCE_EXHAUSTED.withDescription("The executor of the call is overloaded")
+                        .withCause(e), new Metadata());
+            } catch (final IllegalStateException ignored) {
+                // Call was already closed
+            }
+        }
+
+        private void closeCall(final RuntimeException e) {
+            log.warn("Exception while executing call: {}", this.call.getMethodDescriptor().getFullMethodName(), e);
+            try {
+                this.call.close(Status.fromThrowable(e), new Metadata());
+            } catch (final IllegalStateException ignored) {
+                // Call was already closed
+            }
+        }
+
+    }
+
+}
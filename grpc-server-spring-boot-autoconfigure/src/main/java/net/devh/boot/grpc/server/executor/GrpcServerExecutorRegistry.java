@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.devh.boot.grpc.server.executor;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.DisposableBean;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.server.config.ExecutorType;
+import net.devh.boot.grpc.server.config.GrpcServerProperties;
+import net.devh.boot.grpc.server.service.GrpcService;
+
+/**
+ * Creates and owns the executors that are used to run the gRPC services. This includes the executor used by the server
+ * itself and the named executors that can be selected by the individual services using {@link GrpcService#executor()}.
+ * All executors are created eagerly and will be shutdown once this registry is destroyed.
+ */
+@Slf4j
+public class GrpcServerExecutorRegistry implements DisposableBean {
+
+    /**
+     * The name of the executor that is used by the server itself.
+     */
+    public static final String SERVER_EXECUTOR_NAME = "grpc-server";
+
+    private final Executor serverExecutor;
+    private final Map<String, Executor> namedExecutors = new LinkedHashMap<>();
+    private final Map<String, Executor> listenerExecutors = new LinkedHashMap<>();
+    private final Map<String, ExecutorService> managedExecutors = new LinkedHashMap<>();
+
+    /**
+     * Creates a new executor registry and all executors configured in the given properties.
+     *
+     * @param properties The properties used to configure the executors.
+     */
+    public GrpcServerExecutorRegistry(final GrpcServerProperties properties) {
+        requireNonNull(properties, "properties");
+        this.serverExecutor = createExecutor(SERVER_EXECUTOR_NAME, properties.getExecutor());
+        for (final Entry<String, GrpcServerProperties.Executor> entry : properties.getExecutors().entrySet()) {
+            final String name = entry.getKey();
+            this.namedExecutors.put(name, createExecutor(SERVER_EXECUTOR_NAME + "-" + name, entry.getValue()));
+        }
+        for (final Entry<String, GrpcServerProperties.Listener> entry : properties.getListeners().entrySet()) {
+            final String name = entry.getKey();
+            final Executor executor =
+                    createExecutor(SERVER_EXECUTOR_NAME + "-listener-" + name, entry.getValue().getExecutor());
+            if (executor != null) {
+                this.listenerExecutors.put(name, executor);
+            }
+        }
+    }
+
+    /**
+     * Gets the executor that should be used by the server.
+     *
+     * @return The executor to use or null, if gRPC's default executor should be used.
+     */
+    public Executor getServerExecutor() {
+        return this.serverExecutor;
+    }
+
+    /**
+     * Gets the named executor with the given name.
+     *
+     * @param name The name of the executor.
+     * @return The executor with the given name or null, if the server's executor should be used.
+     * @throws IllegalArgumentException If there is no executor configured with the given name.
+     */
+    public Executor getExecutor(final String name) {
+        if (!this.namedExecutors.containsKey(name)) {
+            throw new IllegalArgumentException("No executor configured with name: " + name);
+        }
+        return this.namedExecutors.get(name);
+    }
+
+    /**
+     * Gets the executor that should be used by the server of the listener with the given name.
+     *
+     * @param listenerName The name of the listener.
+     * @return The executor to use or null, if the executor of the default server should be used.
+     */
+    public Executor getListenerExecutor(final String listenerName) {
+        return this.listenerExecutors.get(listenerName);
+    }
+
+    /**
+     * Gets all executors that have been created and are managed by this registry, for example to monitor them.
+     *
+     * @return An unmodifiable map containing the names of the executors and the executors themselves.
+     */
+    public Map<String, ExecutorService> getManagedExecutors() {
+        return Collections.unmodifiableMap(this.managedExecutors);
+    }
+
+    /**
+     * Creates a new executor for the given configuration.
+     *
+     * @param name The name of the executor to create.
+     * @param config The configuration for the executor.
+     * @return The newly created executor or null, if gRPC's default should be used.
+     */
+    protected Executor createExecutor(final String name, final GrpcServerProperties.Executor config) {
+        final ExecutorType type = config.getType();
+        final String threadNamePrefix =
+                config.getThreadNamePrefix() == null ? name + "-" : config.getThreadNamePrefix();
+        final ExecutorService executor;
+        switch (type) {
+            case DEFAULT:
+                return null;
+            case DIRECT:
+                return MoreExecutors.directExecutor();
+            case FIXED:
+                executor = newFixedThreadPool(config.getThreads(), config.getQueueCapacity(), threadNamePrefix);
+                break;
+            case WORK_STEALING:
+                executor = newWorkStealingPool(config.getThreads(), threadNamePrefix);
+                break;
+            case VIRTUAL:
+                executor = newVirtualThreadPerTaskExecutor();
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported ExecutorType: " + type);
+        }
+        log.debug("Created {} executor: {}", type, name);
+        this.managedExecutors.put(name, executor);
+        return executor;
+    }
+
+    private static ExecutorService newFixedThreadPool(final int threads, final int queueCapacity,
+            final String threadNamePrefix) {
+        final BlockingQueue<Runnable> queue =
+                queueCapacity < 0 ? new LinkedBlockingQueue<>() : new ArrayBlockingQueue<>(queueCapacity);
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, queue,
+                new ThreadFactoryBuilder()
+                        .setNameFormat(threadNamePrefix + "%d")
+                        .setDaemon(true)
+                        .build());
+    }
+
+    private static ExecutorService newWorkStealingPool(final int parallelism, final String threadNamePrefix) {
+        final AtomicInteger threadCounter = new AtomicInteger();
+        final ForkJoinWorkerThreadFactory threadFactory = pool -> {
+            final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(threadNamePrefix + threadCounter.getAndIncrement());
+            return thread;
+        };
+        return new ForkJoinPool(parallelism, threadFactory, null, true);
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            // Use reflection to stay compatible with Java 8
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (final ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads are not supported by this JVM (requires Java 21+)", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        for (final ExecutorService executor : this.managedExecutors.values()) {
+            executor.shutdown();
+        }
+        this.managedExecutors.clear();
+    }
+
+}
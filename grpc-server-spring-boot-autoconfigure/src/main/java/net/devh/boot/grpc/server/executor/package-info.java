@@ -0,0 +1,5 @@
+/**
+ * Classes related to the executors that run the gRPC services.
+ */
+
+package net.devh.boot.grpc.server.executor;
@@ -0,0 +1,411 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.server.interceptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.grpc.Context;
+import io.grpc.ForwardingServerCall.SimpleForwardingServerCall;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCall.Listener;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Counter;
+import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.common.metric.AbstractMetricCollectingInterceptor.MetricSet;
+import net.devh.boot.grpc.common.metric.AbstractMetricCollectingInterceptor.StreamMetricSet;
+import net.devh.boot.grpc.common.metric.AbstractMetricCollectingInterceptor.StreamTimer;
+import net.devh.boot.grpc.server.limit.ConcurrencyLimitingServerInterceptor;
+import net.devh.boot.grpc.server.limit.DeadlineCheckingServerInterceptor;
+import net.devh.boot.grpc.server.metric.MetricCollectingServerInterceptor;
+import net.devh.boot.grpc.server.scope.GrpcRequestScope;
+import net.devh.boot.grpc.server.security.interceptors.ExceptionTranslatingServerInterceptor;
+
+/**
+ * A server interceptor that combines the built-in {@link GrpcRequestScope}, {@link MetricCollectingServerInterceptor} and
+ * {@link ExceptionTranslatingServerInterceptor} into a single interceptor. Instead of creating a forwarding call and/or
+ * listener per interceptor, this interceptor only creates a single call and listener wrapper per call, that contain the
+ * state of all combined interceptors. The behavior is the same as if the interceptors were applied in the order
+ * scope, metrics and exception translation.
+ *
+ * <p>
+ * <b>Note:</b> Only instances of the exact built-in classes will be fused, because subclasses might alter their
+ * behavior. The interceptors also have to be adjacent, so any other interceptor in between prevents fusing the
+ * interceptors on either side of it. This will be logged. The only exceptions are the built-in
+ * {@link DeadlineCheckingServerInterceptor} and {@link ConcurrencyLimitingServerInterceptor}, which neither use nor
+ * affect the request scope. So the request scope will be moved past them to fuse it with the metric interceptor.
+ * </p>
+ *
+ * @see #fuse(List)
+ */
+@Slf4j
+public class FusedServerInterceptor implements ServerInterceptor {
+
+    private final GrpcRequestScope requestScope;
+    private final MetricCollectingServerInterceptor metricCollector;
+    private final ExceptionTranslatingServerInterceptor exceptionTranslator;
+
+    /**
+     * Creates a new FusedServerInterceptor that combines the given interceptors. All of them are optional.
+     *
+     * @param requestScope The request scope to start for each call or null.
+     * @param metricCollector The interceptor whose metrics should be recorded or null.
+     * @param exceptionTranslator The interceptor that translates the security exceptions or null.
+     */
+    public FusedServerInterceptor(final GrpcRequestScope requestScope,
+            final MetricCollectingServerInterceptor metricCollector,
+            final ExceptionTranslatingServerInterceptor exceptionTranslator) {
+        this.requestScope = requestScope;
+        this.metricCollector = metricCollector;
+        this.exceptionTranslator = exceptionTranslator;
+    }
+
+    /**
+     * Replaces all adjacent fusible interceptors in the given list with a single {@link FusedServerInterceptor}. The
+     * interceptors will only be fused, if their relative order is the same as in the fused interceptor. All other
+     * interceptors stay unchanged, but the request scope might be moved past the deadline check and the concurrency
+     * limit interceptors.
+     *
+     * @param interceptors The interceptors to fuse.
+     * @return A new list with the fused interceptors.
+     */
+    public static List<ServerInterceptor> fuse(final List<? extends ServerInterceptor> interceptors) {
+        final List<ServerInterceptor> result = new ArrayList<>(interceptors.size());
+        final List<ServerInterceptor> run = new ArrayList<>(3);
+        final List<ServerInterceptor> unfused = new ArrayList<>(3);
+        int fusible = 0;
+        int lastStage = -1;
+        for (final ServerInterceptor interceptor : moveRequestScope(interceptors)) {
+            final int stage = stageOf(interceptor);
+            if (stage < 0 || stage <= lastStage) {
+                flush(run, result, unfused);
+                lastStage = -1;
+            }
+            if (stage < 0) {
+                result.add(interceptor);
+            } else {
+                run.add(interceptor);
+                lastStage = stage;
+                fusible++;
+            }
+        }
+        flush(run, result, unfused);
+        if (fusible > 1 && !unfused.isEmpty()) {
+            log.info("Could not fuse the server interceptors {}, because they aren't adjacent to the other built-in "
+                    + "interceptors or not in their default order. Interceptors: {}", namesOf(unfused),
+                    namesOf(interceptors));
+        }
+        return result;
+    }
+
+    /**
+     * Moves the built-in request scope past the directly following built-in deadline check and concurrency limit
+     * interceptors, if it would then be adjacent to another fusible interceptor. Those interceptors neither use nor
+     * affect the request scope, so this does not change the behavior of the call.
+     *
+     * @param interceptors The interceptors to reorder.
+     * @return A new list with the reordered interceptors.
+     */
+    private static List<ServerInterceptor> moveRequestScope(final List<? extends ServerInterceptor> interceptors) {
+        final List<ServerInterceptor> result = new ArrayList<>(interceptors);
+        for (int i = 0; i < result.size(); i++) {
+            if (stageOf(result.get(i)) != 0) {
+                continue;
+            }
+            int next = i + 1;
+            while (next < result.size() && isScopeIndependent(result.get(next))) {
+                next++;
+            }
+            if (next > i + 1 && next < result.size() && stageOf(result.get(next)) > 0) {
+                result.add(next - 1, result.remove(i));
+                i = next - 1;
+            }
+        }
+        return result;
+    }
+
+    private static boolean isScopeIndependent(final ServerInterceptor interceptor) {
+        final Class<?> type = interceptor.getClass();
+        return type == DeadlineCheckingServerInterceptor.class || type == ConcurrencyLimitingServerInterceptor.class;
+    }
+
+    private static List<String> namesOf(final List<? extends ServerInterceptor> interceptors) {
+        final List<String> names = new ArrayList<>(interceptors.size());
+        for (final ServerInterceptor interceptor : interceptors) {
+            names.add(interceptor.getClass().getName());
+        }
+        return names;
+    }
+
+    private static int stageOf(final ServerInterceptor interceptor) {
+        final Class<?> type = interceptor.getClass();
+        if (type == GrpcRequestScope.class) {
+            return 0;
+        } else if (type == MetricCollectingServerInterceptor.class) {
+            return 1;
+        } else if (type == ExceptionTranslatingServerInterceptor.class) {
+            return 2;
+        }
+        return -1;
+    }
+
+    private static void flush(final List<ServerInterceptor> run, final List<ServerInterceptor> result,
+            final List<ServerInterceptor> unfused) {
+        if (run.size() == 1) {
+            result.add(run.get(0));
+            unfused.add(run.get(0));
+        } else if (!run.isEmpty()) {
+            GrpcRequestScope requestScope = null;
+            MetricCollectingServerInterceptor metricCollector = null;
+            ExceptionTranslatingServerInterceptor exceptionTranslator = null;
+            for (final ServerInterceptor interceptor : run) {
+                if (interceptor instanceof GrpcRequestScope) {
+                    requestScope = (GrpcRequestScope) interceptor;
+                } else if (interceptor instanceof MetricCollectingServerInterceptor) {
+                    metricCollector = (MetricCollectingServerInterceptor) interceptor;
+                } else {
+                    exceptionTranslator = (ExceptionTranslatingServerInterceptor) interceptor;
+                }
+            }
+            result.add(new FusedServerInterceptor(requestScope, metricCollector, exceptionTranslator));
+        }
+        run.clear();
+    }
+
+    @Override
+    public <ReqT, RespT> Listener<ReqT> interceptCall(final ServerCall<ReqT, RespT> call, final Metadata headers,
+            final ServerCallHandler<ReqT, RespT> next) {
+        final Context context =
+                this.requestScope == null ? null : this.requestScope.newRequestContext(Context.current());
+        final ServerCall<ReqT, RespT> fusedCall;
+        final Counter requestCounter;
+        final LongAdder activeCalls;
+        final StreamTimer streamTimer;
+        final double weight;
+        if (this.metricCollector == null) {
+            fusedCall = call;
+            requestCounter = null;
+            activeCalls = null;
+            streamTimer = null;
+            weight = 0;
+        } else {
+            final MetricSet metrics = this.metricCollector.metricsFor(call.getMethodDescriptor());
+            final Clock clock = this.metricCollector.getClock();
+            weight = metrics.getSampler().sample();
+            final StreamMetricSet streamMetrics = metrics.getStreamMetrics();
+            streamTimer = streamMetrics == null || weight == 0 ? null : streamMetrics.start(clock);
+            fusedCall = new FusedServerCall<>(call, metrics, clock, streamTimer, weight);
+            requestCounter = metrics.getRequestCounter();
+            activeCalls = metrics.getActiveCalls();
+            activeCalls.increment();
+        }
+        final Context previous = context == null ? null : context.attach();
+        Listener<ReqT> delegate;
+        try {
+            delegate = next.startCall(fusedCall, headers);
+        } catch (final RuntimeException e) {
+            if (this.exceptionTranslator == null || !this.exceptionTranslator.translateException(fusedCall, e)) {
+                if (activeCalls != null) {
+                    activeCalls.decrement();
+                }
+                throw e;
+            }
+            delegate = new Listener<ReqT>() {};
+        } finally {
+            if (context != null) {
+                context.detach(previous);
+            }
+        }
+        return new FusedServerCallListener<>(delegate, fusedCall, context, requestCounter, activeCalls,
+                streamTimer, weight, this.exceptionTranslator);
+    }
+
+    @Override
+    public String toString() {
+        return "FusedServerInterceptor [requestScope=" + (this.requestScope != null)
+                + ", metricCollector=" + (this.metricCollector != null)
+                + ", exceptionTranslator=" + (this.exceptionTranslator != null) + "]";
+    }
+
+    /**
+     * The server call that records the outgoing metrics of the call.
+     *
+     * @param <ReqT> The type of the request.
+     * @param <RespT> The type of the response.
+     */
+    private static final class FusedServerCall<ReqT, RespT> extends SimpleForwardingServerCall<ReqT, RespT> {
+
+        private final MetricSet metrics;
+        private final Clock clock;
+        private final long startTime;
+        private final StreamTimer streamTimer;
+        private final double weight;
+
+        FusedServerCall(final ServerCall<ReqT, RespT> delegate, final MetricSet metrics, final Clock clock,
+                final StreamTimer streamTimer, final double weight) {
+            super(delegate);
+            this.metrics = metrics;
+            this.clock = clock;
+            this.startTime = clock.monotonicTime();
+            this.streamTimer = streamTimer;
+            this.weight = weight;
+        }
+
+        @Override
+        public void sendMessage(final RespT message) {
+            if (this.weight != 0) {
+                this.metrics.getResponseCounter().increment(this.weight);
+            }
+            if (this.streamTimer != null) {
+                this.streamTimer.onResponse();
+            }
+            super.sendMessage(message);
+        }
+
+        @Override
+        public void close(final Status status, final Metadata trailers) {
+            // Failed calls are always recorded, so the number of errors stays exact
+            this.metrics.recordCall(status.getCode(), this.clock.monotonicTime() - this.startTime, this.weight);
+            super.close(status, trailers);
+        }
+
+    }
+
+    /**
+     * The listener that attaches the request context, records the incoming metrics and translates the exceptions of the
+     * call.
+     *
+     * @param <ReqT> The type of the request.
+     */
+    private static final class FusedServerCallListener<ReqT> extends Listener<ReqT> {
+
+        private final Listener<ReqT> delegate;
+        private final ServerCall<?, ?> call;
+        private final Context context;
+        private final Counter requestCounter;
+        private final LongAdder activeCalls;
+        private final StreamTimer streamTimer;
+        private final double weight;
+        private final ExceptionTranslatingServerInterceptor exceptionTranslator;
+        // Only accessed from the serialized listener callbacks
+        private boolean done;
+
+        FusedServerCallListener(final Listener<ReqT> delegate, final ServerCall<?, ?> call, final Context context,
+                final Counter requestCounter, final LongAdder activeCalls, final StreamTimer streamTimer,
+                final double weight, final ExceptionTranslatingServerInterceptor exceptionTranslator) {
+            this.delegate = delegate;
+            this.call = call;
+            this.context = context;
+            this.requestCounter = requestCounter;
+            this.activeCalls = activeCalls;
+            this.streamTimer = streamTimer;
+            this.weight = weight;
+            this.exceptionTranslator = exceptionTranslator;
+        }
+
+        @Override
+        public void onMessage(final ReqT message) {
+            final Context previous = attach();
+            try {
+                if (this.weight != 0) {
+                    this.requestCounter.increment(this.weight);
+                }
+                if (this.streamTimer != null) {
+                    this.streamTimer.onRequest();
+                }
+                this.delegate.onMessage(message);
+            } finally {
+                detach(previous);
+            }
+        }
+
+        @Override
+        public void onHalfClose() {
+            final Context previous = attach();
+            try {
+                this.delegate.onHalfClose();
+            } catch (final RuntimeException e) {
+                if (this.exceptionTranslator == null || !this.exceptionTranslator.translateException(this.call, e)) {
+                    throw e;
+                }
+            } finally {
+                detach(previous);
+            }
+        }
+
+        @Override
+        public void onCancel() {
+            finish();
+            final Context previous = attach();
+            try {
+                this.delegate.onCancel();
+            } finally {
+                detach(previous);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            finish();
+            final Context previous = attach();
+            try {
+                this.delegate.onComplete();
+            } finally {
+                detach(previous);
+            }
+        }
+
+        @Override
+        public void onReady() {
+            final Context previous = attach();
+            try {
+                this.delegate.onReady();
+            } finally {
+                detach(previous);
+            }
+        }
+
+        private void finish() {
+            if (this.activeCalls != null && !this.done) {
+                this.done = true;
+                this.activeCalls.decrement();
+                if (this.streamTimer != null) {
+                    this.streamTimer.onClose();
+                }
+            }
+        }
+
+        private Context attach() {
+            return this.context == null ? null : this.context.attach();
+        }
+
+        private void detach(final Context previous) {
+            if (this.context != null) {
+                this.context.detach(previous);
+            }
+        }
+
+    }
+
+}
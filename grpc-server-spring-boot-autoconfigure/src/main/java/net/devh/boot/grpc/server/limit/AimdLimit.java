@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.server.limit;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.devh.boot.grpc.server.config.ConcurrencyLimitAlgorithm;
+
+/**
+ * A concurrency limit using additive increase and multiplicative decrease. The limit is increased by one for each
+ * successful call as long as at least half of the limit is in use, and multiplied with the backoff ratio for each call
+ * that took longer than the timeout or failed due to an overload.
+ *
+ * @see ConcurrencyLimitAlgorithm#AIMD
+ */
+public class AimdLimit extends ConcurrencyLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long timeoutNanos;
+    private final AtomicInteger limit;
+
+    /**
+     * Creates a new AIMD limit.
+     *
+     * @param initialLimit The limit to start with.
+     * @param minLimit The lower bound of the limit.
+     * @param maxLimit The upper bound of the limit.
+     * @param backoffRatio The factor the limit is multiplied with if an overload has been detected.
+     * @param timeout The duration after which a call is considered to be affected by an overload.
+     */
+    public AimdLimit(final int initialLimit, final int minLimit, final int maxLimit, final double backoffRatio,
+            final Duration timeout) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid limit bounds: " + minLimit + " - " + maxLimit);
+        }
+        if (!(backoffRatio > 0 && backoffRatio < 1)) {
+            throw new IllegalArgumentException("backoffRatio must be in the range (0, 1): " + backoffRatio);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.timeoutNanos = requireNonNull(timeout, "timeout").toNanos();
+        this.limit = new AtomicInteger(Math.max(minLimit, Math.min(maxLimit, initialLimit)));
+    }
+
+    @Override
+    public int getLimit() {
+        return this.limit.get();
+    }
+
+    @Override
+    public void onSample(final long rttNanos, final int inFlight, final boolean overloaded) {
+        final boolean backoff = overloaded || rttNanos > this.timeoutNanos;
+        int current;
+        int updated;
+        do {
+            current = this.limit.get();
+            if (backoff) {
+                updated = Math.max(this.minLimit, (int) (current * this.backoffRatio));
+            } else if (inFlight * 2 >= current) {
+                // Only grow if the limit is actually in use
+                updated = Math.min(this.maxLimit, current + 1);
+            } else {
+                return;
+            }
+            if (updated == current) {
+                return; // Avoid contention once the limit reached its bounds
+            }
+        } while (!this.limit.compareAndSet(current, updated));
+    }
+
+    @Override
+    public String toString() {
+        return "AimdLimit [limit=" + this.limit.get() + "]";
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.server.limit;
+
+import net.devh.boot.grpc.server.config.ConcurrencyLimitAlgorithm;
+import net.devh.boot.grpc.server.config.GrpcServerProperties;
+
+/**
+ * An algorithm that adapts the number of calls that may be processed concurrently based on the observed latencies and
+ * failures. Implementations have to be thread-safe.
+ */
+public abstract class ConcurrencyLimit {
+
+    /**
+     * Gets the current limit. This method is called for every call and thus has to be fast.
+     *
+     * @return The current limit.
+     */
+    public abstract int getLimit();
+
+    /**
+     * Updates the limit after a call has been completed. This method is called for every completed call and thus should
+     * avoid locking.
+     *
+     * @param rttNanos The duration of the call in nanoseconds.
+     * @param inFlight The number of calls that were in flight when the call completed, including the call itself.
+     * @param overloaded Whether the call failed due to an overload, e.g. because it exceeded its deadline.
+     */
+    public abstract void onSample(long rttNanos, int inFlight, boolean overloaded);
+
+    /**
+     * Creates a new concurrency limit using the given configuration.
+     *
+     * @param config The configuration for the limit.
+     * @return The newly created concurrency limit.
+     */
+    public static ConcurrencyLimit create(final GrpcServerProperties.ConcurrencyLimit config) {
+        final ConcurrencyLimitAlgorithm algorithm = config.getAlgorithm();
+        switch (algorithm) {
+            case AIMD:
+                return new AimdLimit(config.getInitialLimit(), config.getMinLimit(), config.getMaxLimit(),
+                        config.getBackoffRatio(), config.getTimeout());
+            case GRADIENT:
+                return new GradientLimit(config.getInitialLimit(), config.getMinLimit(), config.getMaxLimit(),
+                        config.getTolerance(), config.getSmoothing());
+            default:
+                throw new IllegalArgumentException("Unsupported ConcurrencyLimitAlgorithm: " + algorithm);
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.server.limit;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks the calls in flight for a single service or method and rejects new calls once the current
+ * {@link ConcurrencyLimit limit} has been reached.
+ */
+public class ConcurrencyLimiter {
+
+    private final String name;
+    private final ConcurrencyLimit limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Creates a new concurrency limiter.
+     *
+     * @param name The name of the service or method that is limited.
+     * @param limit The algorithm used to determine the limit.
+     */
+    public ConcurrencyLimiter(final String name, final ConcurrencyLimit limit) {
+        this.name = requireNonNull(name, "name");
+        this.limit = requireNonNull(limit, "limit");
+    }
+
+    /**
+     * Tries to acquire a permit for a new call. If successful, then the permit has to be released using
+     * {@link #release(long, boolean)} or {@link #releaseWithoutSample()} once the call has been completed.
+     *
+     * @return True, if the call may be processed. False, if it should be rejected.
+     */
+    public boolean tryAcquire() {
+        final int currentLimit = this.limit.getLimit();
+        int current;
+        do {
+            current = this.inFlight.get();
+            if (current >= currentLimit) {
+                this.rejected.increment();
+                return false;
+            }
+        } while (!this.inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Releases the permit of a completed call and updates the limit.
+     *
+     * @param rttNanos The duration of the call in nanoseconds.
+     * @param overloaded Whether the call failed due to an overload.
+     */
+    public void release(final long rttNanos, final boolean overloaded) {
+        final int current = this.inFlight.getAndDecrement();
+        this.limit.onSample(rttNanos, current, overloaded);
+    }
+
+    /**
+     * Releases the permit of a call without updating the limit, e.g. because it has been cancelled by the client.
+     */
+    public void releaseWithoutSample() {
+        this.inFlight.decrementAndGet();
+    }
+
+    /**
+     * Gets the name of the service or method that is limited.
+     *
+     * @return The name of the limited service or method.
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Gets the current limit.
+     *
+     * @return The current limit.
+     */
+    public int getLimit() {
+        return this.limit.getLimit();
+    }
+
+    /**
+     * Gets the number of calls that are currently in flight.
+     *
+     * @return The number of calls in flight.
+     */
+    public int getInFlight() {
+        return this.inFlight.get();
+    }
+
+    /**
+     * Gets the total number of calls that have been rejected.
+     *
+     * @return The number of rejected calls.
+     */
+    public long getRejected() {
+        return this.rejected.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrencyLimiter [name=" + this.name + ", limit=" + getLimit() + ", inFlight=" + getInFlight()
+                + "]";
+    }
+
+}
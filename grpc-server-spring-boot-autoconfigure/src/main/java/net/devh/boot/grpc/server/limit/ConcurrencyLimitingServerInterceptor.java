@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.server.limit;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import org.springframework.core.annotation.Order;
+
+import io.grpc.ForwardingServerCall.SimpleForwardingServerCall;
+import io.grpc.ForwardingServerCallListener.SimpleForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.MethodDescriptor.MethodType;
+import io.grpc.ServerCall;
+import io.grpc.ServerCall.Listener;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.grpc.Status.Code;
+import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.common.util.InterceptorOrder;
+import net.devh.boot.grpc.server.config.GrpcServerProperties;
+import net.devh.boot.grpc.server.interceptor.GrpcGlobalServerInterceptor;
+
+/**
+ * A server interceptor that limits the number of concurrent calls per service or method and rejects all calls
+ * exceeding the limit with {@link Status#RESOURCE_EXHAUSTED RESOURCE_EXHAUSTED}, before any other work is done for
+ * them. The limit adapts to the observed latencies and failures, so that excess calls are shed if a service or one of
+ * its dependencies slows down, instead of increasing the latency of all calls.
+ *
+ * <p>
+ * Calls that fail with {@code DEADLINE_EXCEEDED}, {@code RESOURCE_EXHAUSTED} or {@code UNAVAILABLE} are considered to
+ * be affected by an overload. Cancelled calls don't affect the limit. Streaming calls count against the limit, but
+ * don't update it either, because their lifetime doesn't indicate the latency of the server.
+ * </p>
+ *
+ * @see GrpcServerProperties#getConcurrencyLimit()
+ */
+@Slf4j
+@GrpcGlobalServerInterceptor
+@Order(InterceptorOrder.ORDER_CONCURRENCY_LIMIT)
+public class ConcurrencyLimitingServerInterceptor implements ServerInterceptor {
+
+    private final Map<String, ConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+    private final List<BiConsumer<String, ConcurrencyLimiter>> listeners = new CopyOnWriteArrayList<>();
+    private final Supplier<ConcurrencyLimit> limitFactory;
+    private final boolean perMethod;
+
+    /**
+     * Creates a new concurrency limiting server interceptor.
+     *
+     * @param limitFactory The factory used to create the limit for each service or method.
+     * @param perMethod Whether each method should have its own limit, instead of one limit per service.
+     */
+    public ConcurrencyLimitingServerInterceptor(final Supplier<ConcurrencyLimit> limitFactory,
+            final boolean perMethod) {
+        this.limitFactory = requireNonNull(limitFactory, "limitFactory");
+        this.perMethod = perMethod;
+    }
+
+    /**
+     * Adds a listener that will be notified about all limiters that have been and will be created, e.g. to monitor
+     * them.
+     *
+     * @param listener The listener to add.
+     */
+    public void addCreationListener(final BiConsumer<String, ConcurrencyLimiter> listener) {
+        requireNonNull(listener, "listener");
+        this.listeners.add(listener);
+        this.limiters.forEach(listener);
+    }
+
+    /**
+     * Gets all limiters that have been created so far.
+     *
+     * @return An unmodifiable map containing the names of the services or methods and their limiters.
+     */
+    public Map<String, ConcurrencyLimiter> getLimiters() {
+        return Collections.unmodifiableMap(this.limiters);
+    }
+
+    /**
+     * Gets or creates the limiter for the given method.
+     *
+     * @param method The method to get the limiter for.
+     * @return The limiter for the given method.
+     */
+    protected ConcurrencyLimiter limiterFor(final MethodDescriptor<?, ?> method) {
+        final String name = this.perMethod ? method.getFullMethodName() : method.getServiceName();
+        final ConcurrencyLimiter limiter = this.limiters.get(name);
+        if (limiter != null) {
+            return limiter;
+        }
+        return this.limiters.computeIfAbsent(name, key -> {
+            final ConcurrencyLimiter created = new ConcurrencyLimiter(key, this.limitFactory.get());
+            log.debug("Created concurrency limiter for {}: {}", key, created);
+            for (final BiConsumer<String, ConcurrencyLimiter> listener : this.listeners) {
+                listener.accept(key, created);
+            }
+            return created;
+        });
+    }
+
+    @Override
+    public <ReqT, RespT> Listener<ReqT> interceptCall(final ServerCall<ReqT, RespT> call, final Metadata headers,
+            final ServerCallHandler<ReqT, RespT> next) {
+        final ConcurrencyLimiter limiter = limiterFor(call.getMethodDescriptor());
+        if (!limiter.tryAcquire()) {
+            call.close(Status.RESOURCE_EXHAUSTED.withDescription("Concurrency limit reached"), new Metadata());
+            return new Listener<ReqT>() {};
+        }
+        final LimitedServerCall<ReqT, RespT> limitedCall = new LimitedServerCall<>(call, limiter);
+        final Listener<ReqT> listener;
+        try {
+            listener = next.startCall(limitedCall, headers);
+        } catch (final RuntimeException e) {
+            limitedCall.releaseWithoutSample();
+            throw e;
+        }
+        return new LimitedServerCallListener<>(listener, limitedCall);
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrencyLimitingServerInterceptor [perMethod=" + this.perMethod + ", limiters=" + this.limiters
+                + "]";
+    }
+
+    /**
+     * Checks whether the given status code indicates that the call was affected by an overload.
+     *
+     * @param code The code to check.
+     * @return True, if the code indicates an overload. False otherwise.
+     */
+    protected static boolean isOverloaded(final Code code) {
+        return code == Code.DEADLINE_EXCEEDED || code == Code.RESOURCE_EXHAUSTED || code == Code.UNAVAILABLE;
+    }
+
+    /**
+     * The server call that releases the permit once the call has been closed.
+     *
+     * @param <ReqT> The type of the request.
+     * @param <RespT> The type of the response.
+     */
+    private static final class LimitedServerCall<ReqT, RespT> extends SimpleForwardingServerCall<ReqT, RespT> {
+
+        private final ConcurrencyLimiter limiter;
+        private final boolean sampled;
+        private final long startTime = System.nanoTime();
+        // Closing and cancellation might happen concurrently
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        LimitedServerCall(final ServerCall<ReqT, RespT> delegate, final ConcurrencyLimiter limiter) {
+            super(delegate);
+            this.limiter = limiter;
+            // The lifetime of a stream isn't a round trip time
+            this.sampled = delegate.getMethodDescriptor().getType() == MethodType.UNARY;
+        }
+
+        @Override
+        public void close(final Status status, final Metadata trailers) {
+            if (this.released.compareAndSet(false, true)) {
+                if (this.sampled) {
+                    this.limiter.release(System.nanoTime() - this.startTime, isOverloaded(status.getCode()));
+                } else {
+                    this.limiter.releaseWithoutSample();
+                }
+            }
+            super.close(status, trailers);
+        }
+
+        void releaseWithoutSample() {
+            if (this.released.compareAndSet(false, true)) {
+                this.limiter.releaseWithoutSample();
+            }
+        }
+
+    }
+
+    /**
+     * The listener that releases the permit if the call has been cancelled.
+     *
+     * @param <ReqT> The type of the request.
+     */
+    private static final class LimitedServerCallListener<ReqT> extends SimpleForwardingServerCallListener<ReqT> {
+
+        private final LimitedServerCall<ReqT, ?> call;
+
+        LimitedServerCallListener(final Listener<ReqT> delegate, final LimitedServerCall<ReqT, ?> call) {
+            super(delegate);
+            this.call = call;
+        }
+
+        @Override
+        public void onCancel() {
+            this.call.releaseWithoutSample();
+            super.onCancel();
+        }
+
+        @Override
+        public void onComplete() {
+            // In case the call has been closed by a later interceptor bypassing our call
+            this.call.releaseWithoutSample();
+            super.onComplete();
+        }
+
+    }
+
+}
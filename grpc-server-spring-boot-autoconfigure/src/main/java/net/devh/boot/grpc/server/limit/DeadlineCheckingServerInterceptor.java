@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.server.limit;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+
+import org.springframework.core.annotation.Order;
+
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCall.Listener;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.common.util.InterceptorOrder;
+import net.devh.boot.grpc.server.config.GrpcServerProperties;
+import net.devh.boot.grpc.server.interceptor.GrpcGlobalServerInterceptor;
+
+/**
+ * A server interceptor that rejects calls whose deadline has already expired or will expire soon with
+ * {@link Status#DEADLINE_EXCEEDED DEADLINE_EXCEEDED}. The client will give up on these calls anyway, so any work done
+ * for them, such as the authentication or the service method itself, would be wasted. This interceptor runs before all
+ * other interceptors except for the global exception handling, so expired calls are shed as cheaply as possible.
+ *
+ * @see GrpcServerProperties#getDeadlineCheck()
+ */
+@Slf4j
+@GrpcGlobalServerInterceptor
+@Order(InterceptorOrder.ORDER_DEADLINE_CHECK)
+public class DeadlineCheckingServerInterceptor implements ServerInterceptor {
+
+    private final GrpcServerProperties.DeadlineCheck config;
+    private final Map<String, MethodDeadlineCheck> methods = new ConcurrentHashMap<>();
+    private final List<BiConsumer<MethodDescriptor<?, ?>, LongSupplier>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates a new deadline checking server interceptor.
+     *
+     * @param config The configuration of the deadline check.
+     */
+    public DeadlineCheckingServerInterceptor(final GrpcServerProperties.DeadlineCheck config) {
+        this.config = requireNonNull(config, "config");
+    }
+
+    /**
+     * Adds a listener that will be notified about all methods that have been and will be called, together with the
+     * number of calls that have been rejected for them, e.g. to monitor them.
+     *
+     * @param listener The listener to add.
+     */
+    public void addCreationListener(final BiConsumer<MethodDescriptor<?, ?>, LongSupplier> listener) {
+        requireNonNull(listener, "listener");
+        this.listeners.add(listener);
+        for (final MethodDeadlineCheck check : this.methods.values()) {
+            listener.accept(check.method, check.rejected::sum);
+        }
+    }
+
+    @Override
+    public <ReqT, RespT> Listener<ReqT> interceptCall(final ServerCall<ReqT, RespT> call, final Metadata headers,
+            final ServerCallHandler<ReqT, RespT> next) {
+        final Deadline deadline = Context.current().getDeadline();
+        if (deadline == null) {
+            return next.startCall(call, headers);
+        }
+        final MethodDeadlineCheck check = checkFor(call.getMethodDescriptor());
+        final long remainingNanos = deadline.timeRemaining(TimeUnit.NANOSECONDS);
+        if (remainingNanos <= check.minRemainingNanos) {
+            check.rejected.increment();
+            log.debug("Rejecting call to {}: Only {}ns left until the deadline", check.method.getFullMethodName(),
+                    remainingNanos);
+            call.close(Status.DEADLINE_EXCEEDED.withDescription("Deadline expired before the call was started"),
+                    new Metadata());
+            return new Listener<ReqT>() {};
+        }
+        return next.startCall(call, headers);
+    }
+
+    private MethodDeadlineCheck checkFor(final MethodDescriptor<?, ?> method) {
+        final MethodDeadlineCheck check = this.methods.get(method.getFullMethodName());
+        if (check != null) {
+            return check;
+        }
+        return this.methods.computeIfAbsent(method.getFullMethodName(), key -> {
+            final MethodDeadlineCheck created = new MethodDeadlineCheck(method, minRemainingFor(method));
+            for (final BiConsumer<MethodDescriptor<?, ?>, LongSupplier> listener : this.listeners) {
+                listener.accept(method, created.rejected::sum);
+            }
+            return created;
+        });
+    }
+
+    /**
+     * Gets the minimum time that has to remain until the deadline of a call to the given method expires.
+     *
+     * @param method The method to get the minimum remaining time for.
+     * @return The minimum remaining time.
+     */
+    protected Duration minRemainingFor(final MethodDescriptor<?, ?> method) {
+        final Map<String, Duration> methodConfigs = this.config.getMethods();
+        Duration minRemaining = methodConfigs.get(method.getFullMethodName());
+        if (minRemaining == null && method.getServiceName() != null) {
+            minRemaining = methodConfigs.get(method.getServiceName());
+        }
+        return minRemaining == null ? this.config.getMinRemaining() : minRemaining;
+    }
+
+    @Override
+    public String toString() {
+        return "DeadlineCheckingServerInterceptor [minRemaining=" + this.config.getMinRemaining() + ", methods="
+                + this.config.getMethods() + "]";
+    }
+
+    /**
+     * The deadline check state of a single method.
+     */
+    private static final class MethodDeadlineCheck {
+
+        private final MethodDescriptor<?, ?> method;
+        private final long minRemainingNanos;
+        private final LongAdder rejected = new LongAdder();
+
+        MethodDeadlineCheck(final MethodDescriptor<?, ?> method, final Duration minRemaining) {
+            this.method = method;
+            this.minRemainingNanos = minRemaining.toNanos();
+        }
+
+    }
+
+}
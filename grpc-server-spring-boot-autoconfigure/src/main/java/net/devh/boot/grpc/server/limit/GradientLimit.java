@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.server.limit;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.devh.boot.grpc.server.config.ConcurrencyLimitAlgorithm;
+
+/**
+ * A concurrency limit that adapts to the ratio between the long term and the current latency. If calls take longer than
+ * usual, they are most likely queuing up somewhere and the limit will be decreased, even before they fail. Otherwise
+ * the limit is increased by the square root of the current limit, which allows for some queuing.
+ *
+ * <p>
+ * The samples are collected without locking. Only one thread at a time applies them to the limit, while the samples of
+ * concurrently completing calls are left for the next update. So under contention, the limit is updated with the
+ * average of multiple samples instead of each one individually.
+ * </p>
+ *
+ * @see ConcurrencyLimitAlgorithm#GRADIENT
+ */
+public class GradientLimit extends ConcurrencyLimit {
+
+    /**
+     * The number of samples the long term latency is averaged over.
+     */
+    private static final int LONG_WINDOW = 600;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    // The samples that haven't been applied to the limit yet
+    private final LongAdder pendingSamples = new LongAdder();
+    private final LongAdder pendingRttNanos = new LongAdder();
+    private final LongAccumulator pendingInFlight = new LongAccumulator(Math::max, 0);
+    private final AtomicBoolean pendingOverload = new AtomicBoolean();
+    private final AtomicBoolean updating = new AtomicBoolean();
+    // Only accessed while updating
+    private double estimatedLimit;
+    private double longRttNanos;
+    private volatile int limit;
+
+    /**
+     * Creates a new gradient limit.
+     *
+     * @param initialLimit The limit to start with.
+     * @param minLimit The lower bound of the limit.
+     * @param maxLimit The upper bound of the limit.
+     * @param tolerance The factor by which the current latency may exceed the long term latency, before the limit will
+     *        be decreased.
+     * @param smoothing The weight of each new limit estimate in the range {@code (0, 1]}.
+     */
+    public GradientLimit(final int initialLimit, final int minLimit, final int maxLimit, final double tolerance,
+            final double smoothing) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid limit bounds: " + minLimit + " - " + maxLimit);
+        }
+        if (tolerance < 1) {
+            throw new IllegalArgumentException("tolerance must be at least 1: " + tolerance);
+        }
+        if (!(smoothing > 0 && smoothing <= 1)) {
+            throw new IllegalArgumentException("smoothing must be in the range (0, 1]: " + smoothing);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.limit = (int) this.estimatedLimit;
+    }
+
+    @Override
+    public int getLimit() {
+        return this.limit;
+    }
+
+    @Override
+    public void onSample(final long rttNanos, final int inFlight, final boolean overloaded) {
+        if (rttNanos <= 0) {
+            return;
+        }
+        this.pendingRttNanos.add(rttNanos);
+        this.pendingInFlight.accumulate(inFlight);
+        if (overloaded) {
+            this.pendingOverload.set(true);
+        }
+        this.pendingSamples.increment();
+        if (!this.updating.get() && this.updating.compareAndSet(false, true)) {
+            try {
+                applyPendingSamples();
+            } finally {
+                this.updating.set(false);
+            }
+        }
+    }
+
+    private void applyPendingSamples() {
+        final long samples = this.pendingSamples.sumThenReset();
+        if (samples == 0) {
+            return;
+        }
+        final double rttNanos = (double) this.pendingRttNanos.sumThenReset() / samples;
+        final int inFlight = (int) this.pendingInFlight.getThenReset();
+        final boolean overloaded = this.pendingOverload.get() && this.pendingOverload.getAndSet(false);
+        if (this.longRttNanos == 0) {
+            this.longRttNanos = rttNanos;
+        } else {
+            this.longRttNanos += (rttNanos - this.longRttNanos) * Math.min(samples, LONG_WINDOW) / LONG_WINDOW;
+        }
+
+        final double gradient;
+        if (overloaded) {
+            gradient = 0.5;
+        } else {
+            gradient = Math.max(0.5, Math.min(1.0, this.tolerance * this.longRttNanos / rttNanos));
+        }
+        double newLimit = this.estimatedLimit * gradient + Math.sqrt(this.estimatedLimit);
+        if (inFlight * 2 < this.estimatedLimit && newLimit > this.estimatedLimit) {
+            // The limit isn't in use, so we can't tell whether a higher limit would be fine
+            return;
+        }
+        newLimit = this.estimatedLimit * (1 - this.smoothing) + newLimit * this.smoothing;
+        this.estimatedLimit = Math.max(this.minLimit, Math.min(this.maxLimit, newLimit));
+        this.limit = (int) this.estimatedLimit;
+    }
+
+    @Override
+    public String toString() {
+        return "GradientLimit [limit=" + this.limit + "]";
+    }
+
+}
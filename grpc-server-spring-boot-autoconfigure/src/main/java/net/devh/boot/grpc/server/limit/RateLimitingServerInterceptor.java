@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.server.limit;
+
+import static java.util.Objects.requireNonNull;
+
+import java.security.Principal;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.core.annotation.Order;
+
+import com.google.common.base.Ticker;
+
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCall.Listener;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.common.util.InterceptorOrder;
+import net.devh.boot.grpc.server.config.GrpcServerProperties;
+import net.devh.boot.grpc.server.config.GrpcServerProperties.RateLimit.Bucket;
+import net.devh.boot.grpc.server.interceptor.GrpcGlobalServerInterceptor;
+import net.devh.boot.grpc.server.security.interceptors.AuthenticatingServerInterceptor;
+
+/**
+ * A server interceptor that limits the rate of calls per method or service and optionally per authenticated principal,
+ * so that a single noisy client cannot starve all others. Calls that exceed the rate limit are rejected with
+ * {@link Status#RESOURCE_EXHAUSTED RESOURCE_EXHAUSTED} before their request messages are read or deserialized.
+ *
+ * <p>
+ * The rate limits are implemented using lock-free {@link TokenBucket token buckets}. Buckets that have been refilled
+ * completely are evicted regularly, and the number of buckets is bounded by
+ * {@link GrpcServerProperties.RateLimit#getMaxKeys() maxKeys}. If that bound is reached, new principals share the
+ * bucket of the method until buckets have been evicted.
+ * </p>
+ *
+ * <p>
+ * <b>Note:</b> This interceptor is executed after the {@link AuthenticatingServerInterceptor}, because it reads the
+ * principal from the {@link AuthenticatingServerInterceptor#AUTHENTICATION_CONTEXT_KEY AUTHENTICATION_CONTEXT_KEY}.
+ * </p>
+ *
+ * @see GrpcServerProperties#getRateLimit()
+ */
+@Slf4j
+@GrpcGlobalServerInterceptor
+@Order(InterceptorOrder.ORDER_RATE_LIMIT)
+public class RateLimitingServerInterceptor implements ServerInterceptor {
+
+    private static final String SHARED = "";
+
+    private final GrpcServerProperties.RateLimit config;
+    private final Ticker ticker;
+    private final long evictionIntervalNanos;
+    // Full method name -> config key; Bounded by the number of methods
+    private final Map<String, Optional<String>> configKeys = new ConcurrentHashMap<>();
+    private final Map<BucketKey, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong nextEviction;
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Creates a new rate limiting server interceptor.
+     *
+     * @param config The configuration of the rate limits.
+     */
+    public RateLimitingServerInterceptor(final GrpcServerProperties.RateLimit config) {
+        this(config, Ticker.systemTicker());
+    }
+
+    /**
+     * Creates a new rate limiting server interceptor.
+     *
+     * @param config The configuration of the rate limits.
+     * @param ticker The ticker used to measure the time.
+     */
+    public RateLimitingServerInterceptor(final GrpcServerProperties.RateLimit config, final Ticker ticker) {
+        this.config = requireNonNull(config, "config");
+        this.ticker = requireNonNull(ticker, "ticker");
+        this.evictionIntervalNanos = config.getEvictionInterval().toNanos();
+        this.nextEviction = new AtomicLong(ticker.read() + this.evictionIntervalNanos);
+        for (final Map.Entry<String, Bucket> entry : config.getMethods().entrySet()) {
+            // Fail fast
+            newBucket(entry.getValue(), 0);
+        }
+    }
+
+    /**
+     * Gets the number of token buckets that are currently tracked.
+     *
+     * @return The number of token buckets.
+     */
+    public int getBucketCount() {
+        return this.buckets.size();
+    }
+
+    /**
+     * Gets the total number of calls that have been rejected.
+     *
+     * @return The number of rejected calls.
+     */
+    public long getRejected() {
+        return this.rejected.sum();
+    }
+
+    @Override
+    public <ReqT, RespT> Listener<ReqT> interceptCall(final ServerCall<ReqT, RespT> call, final Metadata headers,
+            final ServerCallHandler<ReqT, RespT> next) {
+        final Optional<String> configKey = configKeyFor(call.getMethodDescriptor());
+        if (!configKey.isPresent()) {
+            return next.startCall(call, headers);
+        }
+        final long now = this.ticker.read();
+        evictIdleBuckets(now);
+        final String principal = this.config.isPerPrincipal() ? currentPrincipal() : SHARED;
+        if (!bucketFor(configKey.get(), principal, now).tryAcquire(now)) {
+            this.rejected.increment();
+            // Closing the call before starting it, discards the request messages without deserializing them
+            call.close(Status.RESOURCE_EXHAUSTED.withDescription("Rate limit exceeded"), new Metadata());
+            return new Listener<ReqT>() {};
+        }
+        return next.startCall(call, headers);
+    }
+
+    /**
+     * Gets the key of the rate limit configuration that applies to the given method.
+     *
+     * @param method The method to get the config key for.
+     * @return The config key or empty, if the method isn't limited.
+     */
+    protected Optional<String> configKeyFor(final MethodDescriptor<?, ?> method) {
+        final String fullMethodName = method.getFullMethodName();
+        final Optional<String> configKey = this.configKeys.get(fullMethodName);
+        if (configKey != null) {
+            return configKey;
+        }
+        return this.configKeys.computeIfAbsent(fullMethodName, key -> {
+            final Map<String, Bucket> methods = this.config.getMethods();
+            if (methods.containsKey(key)) {
+                return Optional.of(key);
+            }
+            final String serviceName = method.getServiceName();
+            if (serviceName != null && methods.containsKey(serviceName)) {
+                return Optional.of(serviceName);
+            }
+            return Optional.empty();
+        });
+    }
+
+    private TokenBucket bucketFor(final String configKey, final String principal, final long now) {
+        final BucketKey key = new BucketKey(configKey, principal);
+        final TokenBucket bucket = this.buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (this.buckets.size() >= this.config.getMaxKeys() && !SHARED.equals(principal)) {
+            log.debug("Too many rate limits: Using shared rate limit for {} of {}", configKey, principal);
+            return bucketFor(configKey, SHARED, now);
+        }
+        return this.buckets.computeIfAbsent(key, k -> newBucket(this.config.getMethods().get(configKey), now));
+    }
+
+    private void evictIdleBuckets(final long now) {
+        final long next = this.nextEviction.get();
+        if (now - next < 0 || !this.nextEviction.compareAndSet(next, now + this.evictionIntervalNanos)) {
+            return;
+        }
+        if (this.evicting.compareAndSet(false, true)) {
+            try {
+                // A concurrent call might still consume a token from an evicted bucket, but it was full anyway
+                this.buckets.values().removeIf(bucket -> bucket.isFull(now));
+            } finally {
+                this.evicting.set(false);
+            }
+        }
+    }
+
+    private static TokenBucket newBucket(final Bucket bucket, final long now) {
+        final double permitsPerSecond = bucket.getPermitsPerSecond();
+        final int burst = bucket.getBurst() > 0 ? bucket.getBurst() : Math.max(1, (int) Math.ceil(permitsPerSecond));
+        return new TokenBucket(permitsPerSecond, burst, now);
+    }
+
+    /**
+     * Gets the name of the principal that is associated with the current call.
+     *
+     * @return The name of the authenticated principal or an empty string, if the call isn't authenticated.
+     */
+    protected static String currentPrincipal() {
+        // Don't use the Authentication type directly, because spring-security is optional
+        final Object authentication = AuthenticatingServerInterceptor.AUTHENTICATION_CONTEXT_KEY.get();
+        if (authentication instanceof Principal) {
+            final String name = ((Principal) authentication).getName();
+            return name == null ? SHARED : name;
+        }
+        return SHARED;
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimitingServerInterceptor [methods=" + this.config.getMethods().keySet() + ", perPrincipal="
+                + this.config.isPerPrincipal() + ", buckets=" + this.buckets.size() + "]";
+    }
+
+    /**
+     * The key of a single token bucket.
+     */
+    private static final class BucketKey {
+
+        private final String configKey;
+        private final String principal;
+
+        BucketKey(final String configKey, final String principal) {
+            this.configKey = configKey;
+            this.principal = principal;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.configKey.hashCode() + this.principal.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof BucketKey)) {
+                return false;
+            }
+            final BucketKey other = (BucketKey) obj;
+            return this.configKey.equals(other.configKey) && this.principal.equals(other.principal);
+        }
+
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.server.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free token bucket using the generic cell rate algorithm. Instead of the number of available tokens, the bucket
+ * only stores the theoretical arrival time of the next call, so that it can be updated using a single atomic operation.
+ * A bucket that has been idle long enough to be full again is indistinguishable from a new bucket and can therefore be
+ * discarded at any time.
+ */
+public class TokenBucket {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrivalTime;
+
+    /**
+     * Creates a new full token bucket.
+     *
+     * @param permitsPerSecond The number of calls per second that are permitted on average.
+     * @param burst The number of calls that may be processed in a single burst.
+     * @param nowNanos The current time in nanoseconds.
+     */
+    public TokenBucket(final double permitsPerSecond, final int burst, final long nowNanos) {
+        if (!(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive: " + permitsPerSecond);
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst must be at least 1: " + burst);
+        }
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.toleranceNanos = (burst - 1) * this.intervalNanos;
+        this.theoreticalArrivalTime = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Tries to take a token from this bucket.
+     *
+     * @param nowNanos The current time in nanoseconds.
+     * @return True, if a token was available. False otherwise.
+     */
+    public boolean tryAcquire(final long nowNanos) {
+        long tat;
+        long start;
+        do {
+            tat = this.theoreticalArrivalTime.get();
+            // Compare the difference to stay correct if the nano time overflows
+            start = tat - nowNanos > 0 ? tat : nowNanos;
+            if (start - nowNanos > this.toleranceNanos) {
+                return false;
+            }
+        } while (!this.theoreticalArrivalTime.compareAndSet(tat, start + this.intervalNanos));
+        return true;
+    }
+
+    /**
+     * Checks whether this bucket has been refilled completely and thus could be replaced with a new bucket.
+     *
+     * @param nowNanos The current time in nanoseconds.
+     * @return True, if this bucket is full. False otherwise.
+     */
+    public boolean isFull(final long nowNanos) {
+        return this.theoreticalArrivalTime.get() - nowNanos <= 0;
+    }
+
+}
@@ -0,0 +1,6 @@
+/**
+ * Classes related to limiting the number of concurrent calls and the call rates to protect the gRPC services from
+ * overload.
+ */
+
+package net.devh.boot.grpc.server.limit;
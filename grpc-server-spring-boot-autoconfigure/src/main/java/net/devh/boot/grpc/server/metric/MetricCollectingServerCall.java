@@ -17,16 +17,14 @@
 
 package net.devh.boot.grpc.server.metric;
 
-import java.util.function.Function;
-
 import io.grpc.ForwardingServerCall.SimpleForwardingServerCall;
 import io.grpc.Metadata;
 import io.grpc.ServerCall;
 import io.grpc.Status;
-import io.grpc.Status.Code;
+import io.micrometer.core.instrument.Clock;
 import io.micrometer.core.instrument.Counter;
-import io.micrometer.core.instrument.MeterRegistry;
-import io.micrometer.core.instrument.Timer;
+import net.devh.boot.grpc.common.metric.AbstractMetricCollectingInterceptor.MetricSet;
+import net.devh.boot.grpc.common.metric.AbstractMetricCollectingInterceptor.StreamTimer;
 
 /**
  * A simple forwarding server call that collects metrics for micrometer.
@@ -37,36 +35,50 @@
  */
 class MetricCollectingServerCall<Q, A> extends SimpleForwardingServerCall<Q, A> {
 
+    private final MetricSet metrics;
     private final Counter responseCounter;
-    private final Function<Code, Timer> timerFunction;
-    private final Timer.Sample timerSample;
+    private final Clock clock;
+    private final long startTime;
+    private final StreamTimer streamTimer;
+    private final double weight;
 
     /**
-     * Creates a new delegating ServerCall that will wrap the given server call to collect metrics.
+     * Creates a new delegating ServerCall that will wrap the given server call to collect metrics. Calls that aren't
+     * sampled are only recorded if they fail.
      *
      * @param delegate The original call to wrap.
-     * @param registry The registry to save the metrics to.
+     * @param clock The clock used to measure the duration of the call.
+     * @param metrics The metrics used to record the result of the call.
      * @param responseCounter The counter for incoming responses.
-     * @param timerFunction A function that will return a timer for a given status code.
+     * @param streamTimer The timer for the stream specific timings or null, if the method does not stream.
+     * @param weight The number of calls this call represents or 0, if the call is not sampled.
      */
-    public MetricCollectingServerCall(final ServerCall<Q, A> delegate, final MeterRegistry registry,
-            final Counter responseCounter,
-            final Function<Code, Timer> timerFunction) {
+    public MetricCollectingServerCall(final ServerCall<Q, A> delegate, final Clock clock,
+            final MetricSet metrics, final Counter responseCounter, final StreamTimer streamTimer,
+            final double weight) {
         super(delegate);
+        this.metrics = metrics;
         this.responseCounter = responseCounter;
-        this.timerFunction = timerFunction;
-        this.timerSample = Timer.start(registry);
+        this.clock = clock;
+        this.startTime = clock.monotonicTime();
+        this.streamTimer = streamTimer;
+        this.weight = weight;
     }
 
     @Override
     public void close(final Status status, final Metadata responseHeaders) {
-        this.timerSample.stop(this.timerFunction.apply(status.getCode()));
+        this.metrics.recordCall(status.getCode(), this.clock.monotonicTime() - this.startTime, this.weight);
         super.close(status, responseHeaders);
     }
 
     @Override
     public void sendMessage(final A responseMessage) {
-        this.responseCounter.increment();
+        if (this.weight != 0) {
+            this.responseCounter.increment(this.weight);
+        }
+        if (this.streamTimer != null) {
+            this.streamTimer.onResponse();
+        }
         super.sendMessage(responseMessage);
     }
 
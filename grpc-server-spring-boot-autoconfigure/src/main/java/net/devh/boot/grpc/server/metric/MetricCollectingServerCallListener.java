@@ -17,9 +17,12 @@
 
 package net.devh.boot.grpc.server.metric;
 
+import java.util.concurrent.atomic.LongAdder;
+
 import io.grpc.ForwardingServerCallListener.SimpleForwardingServerCallListener;
 import io.grpc.ServerCall;
 import io.micrometer.core.instrument.Counter;
+import net.devh.boot.grpc.common.metric.AbstractMetricCollectingInterceptor.StreamTimer;
 
 /**
  * A simple forwarding server call listener that collects metrics for micrometer.
@@ -30,22 +33,63 @@
 class MetricCollectingServerCallListener<Q> extends SimpleForwardingServerCallListener<Q> {
 
     private final Counter requestCounter;
+    private final LongAdder activeCalls;
+    private final StreamTimer streamTimer;
+    private final double weight;
+    // Only accessed from the serialized listener callbacks
+    private boolean done;
 
     /**
      * Creates a new delegating ServerCallListener that will wrap the given server call listener to collect metrics.
      *
      * @param delegate The original listener to wrap.
      * @param requestCounter The counter for incoming requests.
+     * @param activeCalls The number of active calls, that will be decremented once the call is completed or
+     *        cancelled.
+     * @param streamTimer The timer for the stream specific timings or null, if the method does not stream.
+     * @param weight The number of calls this call represents or 0, if the call is not sampled.
      */
-    public MetricCollectingServerCallListener(final ServerCall.Listener<Q> delegate, final Counter requestCounter) {
+    public MetricCollectingServerCallListener(final ServerCall.Listener<Q> delegate, final Counter requestCounter,
+            final LongAdder activeCalls, final StreamTimer streamTimer, final double weight) {
         super(delegate);
         this.requestCounter = requestCounter;
+        this.activeCalls = activeCalls;
+        this.streamTimer = streamTimer;
+        this.weight = weight;
     }
 
     @Override
     public void onMessage(final Q requestMessage) {
-        this.requestCounter.increment();
+        if (this.weight != 0) {
+            this.requestCounter.increment(this.weight);
+        }
+        if (this.streamTimer != null) {
+            this.streamTimer.onRequest();
+        }
         super.onMessage(requestMessage);
     }
 
+    @Override
+    public void onCancel() {
+        finish();
+        super.onCancel();
+    }
+
+    @Override
+    public void onComplete() {
+        finish();
+        super.onComplete();
+    }
+
+    private void finish() {
+        if (!this.done) {
+            this.done = true;
+            this.activeCalls.decrement();
+            if (this.streamTimer != null) {
+                // Also record cancelled streams, that have never been closed by the server
+                this.streamTimer.onClose();
+            }
+        }
+    }
+
 }
@@ -17,12 +17,22 @@
 
 package net.devh.boot.grpc.server.metric;
 
+import static net.devh.boot.grpc.common.metric.MessageSizeMetrics.INBOUND;
+import static net.devh.boot.grpc.common.metric.MessageSizeMetrics.OUTBOUND;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_CALLS_ACTIVE;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_CALLS_COMPLETED;
 import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_PROCESSING_DURATION;
 import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_REQUESTS_RECEIVED;
 import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_RESPONSES_SENT;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_STREAM_DURATION;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_STREAM_FIRST_RESPONSE;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_STREAM_MESSAGE_INTERVAL;
+import static net.devh.boot.grpc.common.metric.MetricConstants.TAG_DIRECTION;
 import static net.devh.boot.grpc.common.metric.MetricUtils.prepareCounterFor;
+import static net.devh.boot.grpc.common.metric.MetricUtils.prepareGaugeFor;
 import static net.devh.boot.grpc.common.metric.MetricUtils.prepareTimerFor;
 
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 import java.util.function.UnaryOperator;
 
@@ -31,6 +41,7 @@
 import io.grpc.BindableService;
 import io.grpc.Metadata;
 import io.grpc.MethodDescriptor;
+import io.grpc.MethodDescriptor.MethodType;
 import io.grpc.ServerCall;
 import io.grpc.ServerCallHandler;
 import io.grpc.ServerInterceptor;
@@ -120,22 +131,83 @@ protected Counter newResponseCounterFor(final MethodDescriptor<?, ?> method) {
 
     @Override
     protected Function<Code, Timer> newTimerFunction(final MethodDescriptor<?, ?> method) {
-        return asTimerFunction(() -> this.timerCustomizer.apply(
+        return asTimerFunction(() -> customizeTimer(method,
                 prepareTimerFor(method,
                         METRIC_NAME_SERVER_PROCESSING_DURATION,
                         "The total time taken for the server to complete the call")));
     }
 
+    @Override
+    protected Function<Code, Counter> newCallCounterFunction(final MethodDescriptor<?, ?> method) {
+        return asCounterFunction(() -> this.counterCustomizer.apply(
+                prepareCounterFor(method,
+                        METRIC_NAME_SERVER_CALLS_COMPLETED,
+                        "The estimated total number of calls completed by the server")
+                                .baseUnit("calls")));
+    }
+
+    @Override
+    protected StreamMetricSet newStreamMetricsFor(final MethodDescriptor<?, ?> method) {
+        final MethodType type = method.getType();
+        if (type == MethodType.UNARY) {
+            return null;
+        }
+        final boolean clientStreaming = !type.clientSendsOneMessage();
+        final boolean serverStreaming = !type.serverSendsOneMessage();
+        return new StreamMetricSet(
+                serverStreaming ? newStreamTimer(method, METRIC_NAME_SERVER_STREAM_FIRST_RESPONSE,
+                        "The time from the start of the stream until the server sent the first response", null)
+                        : null,
+                clientStreaming ? newStreamTimer(method, METRIC_NAME_SERVER_STREAM_MESSAGE_INTERVAL,
+                        "The time between two consecutive messages of the stream", INBOUND) : null,
+                serverStreaming ? newStreamTimer(method, METRIC_NAME_SERVER_STREAM_MESSAGE_INTERVAL,
+                        "The time between two consecutive messages of the stream", OUTBOUND) : null,
+                newStreamTimer(method, METRIC_NAME_SERVER_STREAM_DURATION,
+                        "The total lifetime of the stream on the server", null));
+    }
+
+    private Timer newStreamTimer(final MethodDescriptor<?, ?> method, final String name, final String description,
+            final String direction) {
+        final Timer.Builder builder = prepareTimerFor(method, name, description);
+        if (direction != null) {
+            builder.tag(TAG_DIRECTION, direction);
+        }
+        return customizeTimer(method, builder).register(this.registry);
+    }
+
+    @Override
+    protected void newActiveCallsGaugeFor(final MethodDescriptor<?, ?> method, final LongAdder activeCalls) {
+        prepareGaugeFor(method,
+                METRIC_NAME_SERVER_CALLS_ACTIVE,
+                "The number of calls that are currently being processed by the server",
+                activeCalls)
+                        .register(this.registry);
+    }
+
     @Override
     public <Q, A> ServerCall.Listener<Q> interceptCall(
             final ServerCall<Q, A> call,
             final Metadata requestHeaders,
             final ServerCallHandler<Q, A> next) {
         final MetricSet metrics = metricsFor(call.getMethodDescriptor());
-        final ServerCall<Q, A> monitoringCall = new MetricCollectingServerCall<>(call, this.registry,
-                metrics.getResponseCounter(), metrics.getTimerFunction());
-        return new MetricCollectingServerCallListener<>(
-                next.startCall(monitoringCall, requestHeaders), metrics.getRequestCounter());
+        final double weight = metrics.getSampler().sample();
+        final StreamMetricSet streamMetrics = metrics.getStreamMetrics();
+        final StreamTimer streamTimer =
+                streamMetrics == null || weight == 0 ? null : streamMetrics.start(getClock());
+        final ServerCall<Q, A> monitoringCall = new MetricCollectingServerCall<>(call, getClock(),
+                metrics, metrics.getResponseCounter(), streamTimer, weight);
+        final LongAdder activeCalls = metrics.getActiveCalls();
+        activeCalls.increment();
+        final ServerCall.Listener<Q> listener;
+        try {
+            listener = next.startCall(monitoringCall, requestHeaders);
+        } catch (final RuntimeException e) {
+            // The call won't be completed or cancelled via our listener
+            activeCalls.decrement();
+            throw e;
+        }
+        return new MetricCollectingServerCallListener<>(listener, metrics.getRequestCounter(), activeCalls,
+                streamTimer, weight);
     }
 
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.server.metric;
+
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_MESSAGE_COMPRESSION_RATIO;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_MESSAGE_UNCOMPRESSED_SIZE;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_MESSAGE_WIRE_SIZE;
+
+import io.grpc.Metadata;
+import io.grpc.ServerStreamTracer;
+import io.grpc.Status;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.devh.boot.grpc.common.metric.AbstractMetricCollectingInterceptor;
+import net.devh.boot.grpc.common.metric.MessageSizeMetrics;
+import net.devh.boot.grpc.common.metric.MessageSizeMetrics.StreamRecorder;
+
+/**
+ * A server stream tracer factory that records the wire and uncompressed sizes of the received and sent messages per
+ * method. Unlike interceptors, stream tracers are notified about the actual number of bytes transmitted over the wire.
+ *
+ * <p>
+ * The tracers are created before the server has looked up the method that the client requested. So the sizes are only
+ * recorded for the method once the server has
+ * {@link ServerStreamTracer#serverCallStarted(ServerStreamTracer.ServerCallInfo) started} the call. Calls to methods
+ * that aren't served and messages received before the call has been started are recorded for
+ * {@link AbstractMetricCollectingInterceptor#OVERFLOW_NAME}, so that clients can't create meters for arbitrary method
+ * names.
+ * </p>
+ */
+public class MetricCollectingServerStreamTracerFactory extends ServerStreamTracer.Factory {
+
+    private final MessageSizeMetrics metrics;
+
+    /**
+     * Creates a new server stream tracer factory that will record the message sizes into the given registry.
+     *
+     * @param registry The registry to use.
+     */
+    public MetricCollectingServerStreamTracerFactory(final MeterRegistry registry) {
+        this.metrics = new MessageSizeMetrics(registry,
+                METRIC_NAME_SERVER_MESSAGE_WIRE_SIZE,
+                METRIC_NAME_SERVER_MESSAGE_UNCOMPRESSED_SIZE,
+                METRIC_NAME_SERVER_MESSAGE_COMPRESSION_RATIO);
+    }
+
+    @Override
+    public ServerStreamTracer newServerStreamTracer(final String fullMethodName, final Metadata headers) {
+        // The method name has been sent by the client and might not exist
+        return new MetricCollectingServerStreamTracer(this.metrics.newUnresolvedStreamRecorder());
+    }
+
+    private static final class MetricCollectingServerStreamTracer extends ServerStreamTracer {
+
+        private final StreamRecorder recorder;
+
+        MetricCollectingServerStreamTracer(final StreamRecorder recorder) {
+            this.recorder = recorder;
+        }
+
+        @Override
+        public void serverCallStarted(final ServerCallInfo<?, ?> callInfo) {
+            this.recorder.resolveMethod(callInfo.getMethodDescriptor().getFullMethodName());
+        }
+
+        @Override
+        public void outboundMessageSent(final int seqNo, final long optionalWireSize,
+                final long optionalUncompressedSize) {
+            this.recorder.outboundMessageSent(optionalWireSize, optionalUncompressedSize);
+        }
+
+        @Override
+        public void inboundMessageRead(final int seqNo, final long optionalWireSize,
+                final long optionalUncompressedSize) {
+            this.recorder.inboundMessageRead(optionalWireSize);
+        }
+
+        @Override
+        public void inboundUncompressedSize(final long bytes) {
+            this.recorder.inboundUncompressedSize(bytes);
+        }
+
+        @Override
+        public void streamClosed(final Status status) {
+            this.recorder.streamClosed();
+        }
+
+    }
+
+}
@@ -69,10 +69,21 @@ public void postProcessBeanFactory(ConfigurableListableBeanFactory factory) thro
     @Override
     public <ReqT, RespT> Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
             ServerCallHandler<ReqT, RespT> next) {
-        ScopedBeansContainer container = new ScopedBeansContainer();
-        Context context = Context.current().withValue(GRPC_REQUEST_KEY, container);
+        return Contexts.interceptCall(newRequestContext(Context.current()), call, headers, next);
+    }
+
+    /**
+     * Creates a new context based on the given one, that contains a new request scope. The scope will be destroyed once
+     * the context is cancelled (when the call completes).
+     *
+     * @param parent The parent context of the call.
+     * @return The newly created context containing the request scope.
+     */
+    public Context newRequestContext(final Context parent) {
+        final ScopedBeansContainer container = new ScopedBeansContainer();
+        final Context context = parent.withValue(GRPC_REQUEST_KEY, container);
         context.addListener(this, MoreExecutors.directExecutor());
-        return Contexts.interceptCall(context, call, headers, next);
+        return context;
     }
 
     @Override
@@ -59,15 +59,32 @@ public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(final ServerCall<Re
         try {
             // Streaming calls error out here
             return new ExceptionTranslatorServerCallListener<>(next.startCall(call, headers), call);
-        } catch (final AuthenticationException aex) {
-            closeCallUnauthenticated(call, aex);
-            return noOpCallListener();
-        } catch (final AccessDeniedException aex) {
-            closeCallAccessDenied(call, aex);
+        } catch (final RuntimeException e) {
+            if (!translateException(call, e)) {
+                throw e;
+            }
             return noOpCallListener();
         }
     }
 
+    /**
+     * Closes the given call with a status matching the given exception, if it is a security exception.
+     *
+     * @param call The call to close.
+     * @param e The exception that was thrown during the call.
+     * @return True, if the exception was handled and the call closed. False, if the exception should be rethrown.
+     */
+    public boolean translateException(final ServerCall<?, ?> call, final RuntimeException e) {
+        if (e instanceof AuthenticationException) {
+            closeCallUnauthenticated(call, (AuthenticationException) e);
+            return true;
+        } else if (e instanceof AccessDeniedException) {
+            closeCallAccessDenied(call, (AccessDeniedException) e);
+            return true;
+        }
+        return false;
+    }
+
     /**
      * Creates a new no-op call listener because you can neither return null nor throw an exception in
      * {@link #interceptCall(ServerCall, Metadata, ServerCallHandler)}.
@@ -122,10 +139,10 @@ protected ExceptionTranslatorServerCallListener(final Listener<ReqT> delegate,
         public void onHalfClose() {
             try {
                 super.onHalfClose();
-            } catch (final AuthenticationException aex) {
-                closeCallUnauthenticated(this.call, aex);
-            } catch (final AccessDeniedException aex) {
-                closeCallAccessDenied(this.call, aex);
+            } catch (final RuntimeException e) {
+                if (!translateException(this.call, e)) {
+                    throw e;
+                }
             }
         }
 
@@ -19,7 +19,9 @@
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.util.unit.DataSize;
@@ -28,12 +30,16 @@
 
 import io.grpc.Server;
 import io.grpc.ServerBuilder;
+import io.grpc.ServerServiceDefinition;
 import io.grpc.health.v1.HealthCheckResponse;
 import io.grpc.protobuf.services.ProtoReflectionService;
 import io.grpc.services.HealthStatusManager;
 import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.server.config.ExecutorType;
 import net.devh.boot.grpc.server.config.GrpcServerProperties;
+import net.devh.boot.grpc.server.executor.GrpcServerExecutorRegistry;
 import net.devh.boot.grpc.server.service.GrpcServiceDefinition;
+import net.devh.boot.grpc.server.service.GrpcServiceRegistry;
 
 /**
  * Abstract factory for grpc servers.
@@ -54,6 +60,16 @@
     @Autowired
     private HealthStatusManager healthStatusManager;
 
+    @Autowired(required = false)
+    private GrpcServerExecutorRegistry executorRegistry;
+
+    @Autowired(required = false)
+    private GrpcServiceRegistry serviceRegistry;
+
+    private String listenerName;
+    private GrpcServerProperties.Listener listener;
+    private boolean mutableServicesRegistered = false;
+
     /**
      * Creates a new server factory with the given properties.
      *
@@ -66,6 +82,27 @@ public AbstractGrpcServerFactory(final GrpcServerProperties properties,
         this.serverConfigurers = requireNonNull(serverConfigurers, "serverConfigurers");
     }
 
+    /**
+     * Configures this factory to create the server for the given additional listener instead of the default server.
+     * The listener's options take precedence over the ones of the default server.
+     *
+     * @param name The name of the listener.
+     * @param listener The options of the listener.
+     */
+    public void setListener(final String name, final GrpcServerProperties.Listener listener) {
+        this.listenerName = requireNonNull(name, "name");
+        this.listener = requireNonNull(listener, "listener");
+    }
+
+    /**
+     * Gets the name of the additional listener this factory creates the server for.
+     *
+     * @return The name of the listener or null, if this factory creates the default server.
+     */
+    public String getListenerName() {
+        return this.listenerName;
+    }
+
     @Override
     public Server createServer() {
         final T builder = newServerBuilder();
@@ -87,6 +124,8 @@ public Server createServer() {
      * @param builder The server builder to configure.
      */
     protected void configure(final T builder) {
+        configureExecutor(builder);
+        configureTransport(builder);
         configureServices(builder);
         configureKeepAlive(builder);
         configureSecurity(builder);
@@ -96,6 +135,38 @@ protected void configure(final T builder) {
         }
     }
 
+    /**
+     * Configures the executor that should be used to execute the services.
+     *
+     * @param builder The server builder to configure.
+     */
+    protected void configureExecutor(final T builder) {
+        if (this.executorRegistry != null) {
+            Executor executor = null;
+            if (this.listenerName != null) {
+                executor = this.executorRegistry.getListenerExecutor(this.listenerName);
+            }
+            if (executor == null) {
+                executor = this.executorRegistry.getServerExecutor();
+            }
+            if (executor != null) {
+                builder.executor(executor);
+            }
+        } else if (this.properties.getExecutor().getType() != ExecutorType.DEFAULT) {
+            throw new IllegalStateException("An executor is configured but there is no GrpcServerExecutorRegistry!");
+        }
+    }
+
+    /**
+     * Configures the transport specific options such as the event loops and channel types used by the server. By
+     * default this does nothing.
+     *
+     * @param builder The server builder to configure.
+     */
+    protected void configureTransport(final T builder) {
+        // Nothing to do here
+    }
+
     /**
      * Configures the services that should be served by the server.
      *
@@ -110,6 +181,11 @@ protected void configureServices(final T builder) {
             builder.addService(ProtoReflectionService.newInstance());
         }
 
+        if (this.properties.isMutableServices() && this.listener == null) {
+            configureMutableServices(builder);
+            return;
+        }
+
         for (final GrpcServiceDefinition service : this.serviceList) {
             final String serviceName = service.getDefinition().getServiceDescriptor().getName();
             log.info("Registered gRPC service: " + serviceName + ", bean: " + service.getBeanName() + ", class: "
@@ -119,6 +195,30 @@ protected void configureServices(final T builder) {
         }
     }
 
+    /**
+     * Configures the server to serve the services from the {@link GrpcServiceRegistry}, so that they can be changed
+     * while the server is running. The registry is only populated with the discovered services when the first server is
+     * created, so that restarting the server keeps the changes made at runtime.
+     *
+     * @param builder The server builder to configure.
+     */
+    protected void configureMutableServices(final T builder) {
+        if (this.serviceRegistry == null) {
+            throw new IllegalStateException("Mutable services are enabled but there is no GrpcServiceRegistry!");
+        }
+        if (!this.mutableServicesRegistered) {
+            final List<ServerServiceDefinition> services = new ArrayList<>(this.serviceList.size());
+            for (final GrpcServiceDefinition service : this.serviceList) {
+                log.info("Registered mutable gRPC service: " + service.getDefinition().getServiceDescriptor().getName()
+                        + ", bean: " + service.getBeanName() + ", class: " + service.getBeanClazz().getName());
+                services.add(service.getDefinition());
+            }
+            this.serviceRegistry.setServices(services);
+            this.mutableServicesRegistered = true;
+        }
+        builder.fallbackHandlerRegistry(this.serviceRegistry);
+    }
+
     /**
      * Configures the keep alive options that should be used by the server.
      *
@@ -136,7 +236,7 @@ protected void configureKeepAlive(final T builder) {
      * @param builder The server builder to configure.
      */
     protected void configureSecurity(final T builder) {
-        if (this.properties.getSecurity().isEnabled()) {
+        if (getSecurity().isEnabled()) {
             throw new IllegalStateException("Security is enabled but this implementation does not support security!");
         }
     }
@@ -147,20 +247,35 @@ protected void configureSecurity(final T builder) {
      * @param builder The server builder to configure.
      */
     protected void configureLimits(final T builder) {
-        final DataSize maxInboundMessageSize = this.properties.getMaxInboundMessageSize();
+        DataSize maxInboundMessageSize = this.properties.getMaxInboundMessageSize();
+        if (this.listener != null && this.listener.getMaxInboundMessageSize() != null) {
+            maxInboundMessageSize = this.listener.getMaxInboundMessageSize();
+        }
         if (maxInboundMessageSize != null) {
             builder.maxInboundMessageSize((int) maxInboundMessageSize.toBytes());
         }
     }
 
+    /**
+     * Gets the security options that should be used by the server.
+     *
+     * @return The security options of the listener or the default server.
+     */
+    protected GrpcServerProperties.Security getSecurity() {
+        return this.listener != null ? this.listener.getSecurity() : this.properties.getSecurity();
+    }
+
     @Override
     public String getAddress() {
+        if (this.listener != null && this.listener.getAddress() != null) {
+            return this.listener.getAddress();
+        }
         return this.properties.getAddress();
     }
 
     @Override
     public int getPort() {
-        return this.properties.getPort();
+        return this.listener != null ? this.listener.getPort() : this.properties.getPort();
     }
 
     @Override
@@ -170,6 +285,10 @@ public void addService(final GrpcServiceDefinition service) {
 
     @Override
     public void destroy() {
+        if (this.serviceRegistry != null && this.properties.isMutableServices() && this.listener == null) {
+            this.serviceRegistry.clear();
+            return;
+        }
         for (final GrpcServiceDefinition grpcServiceDefinition : this.serviceList) {
             final String serviceName = grpcServiceDefinition.getDefinition().getServiceDescriptor().getName();
             this.healthStatusManager.clearStatus(serviceName);
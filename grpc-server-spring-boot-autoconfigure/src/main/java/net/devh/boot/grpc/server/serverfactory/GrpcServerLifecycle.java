@@ -17,17 +17,39 @@
 
 package net.devh.boot.grpc.server.serverfactory;
 
+import static java.util.Objects.requireNonNull;
+
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.springframework.context.SmartLifecycle;
 
 import io.grpc.Server;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.health.v1.HealthCheckResponse.ServingStatus;
+import io.grpc.health.v1.HealthGrpc;
+import io.grpc.services.HealthStatusManager;
 import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.server.config.GrpcServerProperties;
 
 /**
  * Lifecycle bean that automatically starts and stops the grpc server.
  *
+ * <p>
+ * If {@link GrpcServerProperties.Shutdown#isGraceful() graceful shutdown} is enabled, then the server will be drained
+ * before it is stopped: First all services will be marked as {@code NOT_SERVING}, then the server waits for the health
+ * status to propagate, stops accepting new calls and finally waits for the in-flight calls to complete. When stopped by
+ * spring, the server is drained asynchronously, so that other lifecycle beans in the same phase can be stopped in
+ * parallel. If the server is started again afterwards, then the services it still provides will be marked as
+ * {@code SERVING} again and the health status of the others will be cleared.
+ * </p>
+ *
  * @author Michael (yidongnan@gmail.com)
  * @since 5/17/16
  */
@@ -37,10 +59,34 @@ public class GrpcServerLifecycle implements SmartLifecycle {
 
     private volatile Server server;
     private volatile int phase = Integer.MAX_VALUE;
+    private volatile boolean drained = false;
+    private final Set<String> drainedServices = ConcurrentHashMap.newKeySet();
     private final GrpcServerFactory factory;
+    private final GrpcServerProperties.Shutdown shutdown;
+    private final HealthStatusManager healthStatusManager;
 
+    /**
+     * Creates a new server lifecycle that stops the server without draining it.
+     *
+     * @param factory The factory used to create the server.
+     */
     public GrpcServerLifecycle(final GrpcServerFactory factory) {
+        this(factory, new GrpcServerProperties.Shutdown(), null);
+    }
+
+    /**
+     * Creates a new server lifecycle that stops the server as configured.
+     *
+     * @param factory The factory used to create the server.
+     * @param shutdown The options used to stop the server.
+     * @param healthStatusManager The health status manager used to mark the services as {@code NOT_SERVING} before
+     *        stopping the server gracefully. May be null.
+     */
+    public GrpcServerLifecycle(final GrpcServerFactory factory, final GrpcServerProperties.Shutdown shutdown,
+            final HealthStatusManager healthStatusManager) {
         this.factory = factory;
+        this.shutdown = requireNonNull(shutdown, "shutdown");
+        this.healthStatusManager = healthStatusManager;
     }
 
     @Override
@@ -59,8 +105,22 @@ public void stop() {
 
     @Override
     public void stop(final Runnable callback) {
-        stop();
-        callback.run();
+        final Server localServer = this.server;
+        if (localServer == null || !this.shutdown.isGraceful()) {
+            stop();
+            callback.run();
+            return;
+        }
+        this.server = null;
+        markNotServing(localServer);
+        final Thread drainThread = new Thread(() -> {
+            try {
+                drainAndStop(localServer);
+            } finally {
+                callback.run();
+            }
+        }, "grpc-server-shutdown");
+        drainThread.start();
     }
 
     @Override
@@ -88,6 +148,10 @@ protected void createAndStartGrpcServer() throws IOException {
         if (localServer == null) {
             this.server = this.factory.createServer();
             this.server.start();
+            if (this.drained && this.healthStatusManager != null) {
+                // Restarted after draining
+                markServing(this.server);
+            }
             log.info("gRPC Server started, listening on address: " + this.factory.getAddress() + ", port: "
                     + this.factory.getPort());
 
@@ -106,15 +170,99 @@ protected void createAndStartGrpcServer() throws IOException {
 
     /**
      * Initiates an orderly shutdown of the grpc server and releases the references to the server. This call does not
-     * wait for the server to be completely shut down.
+     * wait for the server to be completely shut down, unless graceful shutdown is enabled.
      */
     protected void stopAndReleaseGrpcServer() {
         final Server localServer = this.server;
         if (localServer != null) {
-            localServer.shutdown();
             this.server = null;
+            if (this.shutdown.isGraceful()) {
+                markNotServing(localServer);
+                drainAndStop(localServer);
+            } else {
+                localServer.shutdown();
+                log.info("gRPC server shutdown.");
+            }
+        }
+    }
+
+    /**
+     * Drains and stops the given server, whose services have already been marked as {@code NOT_SERVING}. This method
+     * blocks until the server has been terminated or the shutdown timeout has been reached.
+     *
+     * @param localServer The server to stop.
+     */
+    protected void drainAndStop(final Server localServer) {
+        try {
+            final long propagationDelay = this.shutdown.getPropagationDelay().toMillis();
+            if (propagationDelay > 0) {
+                log.info("gRPC server draining: Waiting {}ms for the health status to propagate", propagationDelay);
+                Thread.sleep(propagationDelay);
+            }
+            // Sends GOAWAY to the clients and rejects new calls
+            localServer.shutdown();
+            final long timeout = this.shutdown.getTimeout().toMillis();
+            log.info("gRPC server draining: Waiting up to {}ms for the in-flight calls to complete", timeout);
+            if (!localServer.awaitTermination(timeout, TimeUnit.MILLISECONDS)) {
+                log.warn("gRPC server draining: Timed out, cancelling the remaining calls");
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("gRPC server draining: Interrupted, cancelling the remaining calls");
+        } finally {
+            localServer.shutdownNow();
             log.info("gRPC server shutdown.");
         }
     }
 
+    /**
+     * Marks all services of the given server as {@code NOT_SERVING}, so that the clients and load balancers stop
+     * sending new calls to it.
+     *
+     * @param localServer The server whose services should be marked.
+     */
+    protected void markNotServing(final Server localServer) {
+        if (this.healthStatusManager == null) {
+            return;
+        }
+        this.drained = true;
+        this.healthStatusManager.setStatus(HealthStatusManager.SERVICE_NAME_ALL_SERVICES, ServingStatus.NOT_SERVING);
+        for (final ServerServiceDefinition service : getAllServices(localServer)) {
+            final String serviceName = service.getServiceDescriptor().getName();
+            if (!HealthGrpc.SERVICE_NAME.equals(serviceName)) {
+                this.drainedServices.add(serviceName);
+                this.healthStatusManager.setStatus(serviceName, ServingStatus.NOT_SERVING);
+            }
+        }
+    }
+
+    /**
+     * Reverts {@link #markNotServing(Server)} after the server has been restarted. The services that are provided by
+     * the given server are marked as {@code SERVING} again, the health status of the other drained services is cleared.
+     *
+     * @param localServer The restarted server.
+     */
+    protected void markServing(final Server localServer) {
+        final Set<String> serviceNames = new HashSet<>();
+        for (final ServerServiceDefinition service : getAllServices(localServer)) {
+            serviceNames.add(service.getServiceDescriptor().getName());
+        }
+        for (final String serviceName : this.drainedServices) {
+            if (serviceNames.contains(serviceName)) {
+                this.healthStatusManager.setStatus(serviceName, ServingStatus.SERVING);
+            } else {
+                this.healthStatusManager.clearStatus(serviceName);
+            }
+        }
+        this.drainedServices.clear();
+        this.healthStatusManager.setStatus(HealthStatusManager.SERVICE_NAME_ALL_SERVICES, ServingStatus.SERVING);
+        this.drained = false;
+    }
+
+    private static List<ServerServiceDefinition> getAllServices(final Server localServer) {
+        final List<ServerServiceDefinition> services = new ArrayList<>(localServer.getServices());
+        services.addAll(localServer.getMutableServices());
+        return services;
+    }
+
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.server.serverfactory;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.SmartLifecycle;
+
+import io.grpc.services.HealthStatusManager;
+import net.devh.boot.grpc.server.config.GrpcServerProperties;
+
+/**
+ * Lifecycle bean that starts and stops the servers of the additional
+ * {@link GrpcServerProperties#getListeners() listeners}. Every listener has its own {@link GrpcServerFactory} and
+ * {@link GrpcServerLifecycle}, so that they can be configured and monitored independently. The servers are started
+ * and stopped together with the default server.
+ */
+public class GrpcServerListenersLifecycle implements SmartLifecycle, DisposableBean {
+
+    private final Map<String, GrpcServerFactory> factories;
+    private final Map<String, GrpcServerLifecycle> lifecycles = new LinkedHashMap<>();
+
+    /**
+     * Creates a new lifecycle for the servers created by the given factories.
+     *
+     * @param factories The factories used to create the servers of the listeners by the name of the listeners.
+     * @param shutdown The options used to stop the servers.
+     * @param healthStatusManager The health status manager used to mark the services as {@code NOT_SERVING} before
+     *        stopping the servers gracefully. May be null.
+     */
+    public GrpcServerListenersLifecycle(final Map<String, GrpcServerFactory> factories,
+            final GrpcServerProperties.Shutdown shutdown, final HealthStatusManager healthStatusManager) {
+        this.factories = new LinkedHashMap<>(requireNonNull(factories, "factories"));
+        for (final Entry<String, GrpcServerFactory> entry : this.factories.entrySet()) {
+            this.lifecycles.put(entry.getKey(),
+                    new GrpcServerLifecycle(entry.getValue(), shutdown, healthStatusManager));
+        }
+    }
+
+    /**
+     * Gets the lifecycles of the listeners.
+     *
+     * @return An unmodifiable map containing the names of the listeners and their lifecycles.
+     */
+    public Map<String, GrpcServerLifecycle> getLifecycles() {
+        return Collections.unmodifiableMap(this.lifecycles);
+    }
+
+    /**
+     * Gets the factories of the listeners.
+     *
+     * @return An unmodifiable map containing the names of the listeners and their server factories.
+     */
+    public Map<String, GrpcServerFactory> getFactories() {
+        return Collections.unmodifiableMap(this.factories);
+    }
+
+    @Override
+    public void start() {
+        for (final GrpcServerLifecycle lifecycle : this.lifecycles.values()) {
+            lifecycle.start();
+        }
+    }
+
+    @Override
+    public void stop() {
+        for (final GrpcServerLifecycle lifecycle : this.lifecycles.values()) {
+            lifecycle.stop();
+        }
+    }
+
+    @Override
+    public void stop(final Runnable callback) {
+        if (this.lifecycles.isEmpty()) {
+            callback.run();
+            return;
+        }
+        final AtomicInteger remaining = new AtomicInteger(this.lifecycles.size());
+        for (final GrpcServerLifecycle lifecycle : this.lifecycles.values()) {
+            lifecycle.stop(() -> {
+                if (remaining.decrementAndGet() == 0) {
+                    callback.run();
+                }
+            });
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        for (final GrpcServerLifecycle lifecycle : this.lifecycles.values()) {
+            if (lifecycle.isRunning()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return true;
+    }
+
+    @Override
+    public void destroy() {
+        for (final GrpcServerFactory factory : this.factories.values()) {
+            factory.destroy();
+        }
+    }
+
+}
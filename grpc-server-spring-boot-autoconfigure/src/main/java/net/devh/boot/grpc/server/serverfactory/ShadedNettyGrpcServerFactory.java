@@ -21,21 +21,35 @@
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.net.ssl.SSLException;
 
 import org.springframework.core.io.Resource;
+import org.springframework.util.unit.DataSize;
 
 import com.google.common.net.InetAddresses;
 
 import io.grpc.netty.shaded.io.grpc.netty.GrpcSslContexts;
+import io.grpc.netty.shaded.io.grpc.netty.InternalHandlerSettings;
 import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.netty.shaded.io.netty.channel.ChannelOption;
+import io.grpc.netty.shaded.io.netty.channel.EventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.ReflectiveChannelFactory;
+import io.grpc.netty.shaded.io.netty.channel.ServerChannel;
 import io.grpc.netty.shaded.io.netty.handler.ssl.SslContextBuilder;
+import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.common.netty.NettyTransport;
+import net.devh.boot.grpc.common.netty.NettyTransportType;
 import net.devh.boot.grpc.server.config.ClientAuth;
 import net.devh.boot.grpc.server.config.GrpcServerProperties;
+import net.devh.boot.grpc.server.config.GrpcServerProperties.Netty;
 import net.devh.boot.grpc.server.config.GrpcServerProperties.Security;
 
 /**
@@ -44,9 +58,17 @@
  * @author Michael (yidongnan@gmail.com)
  * @since 5/17/16
  */
+@Slf4j
 public class ShadedNettyGrpcServerFactory
         extends AbstractGrpcServerFactory<io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder> {
 
+    /**
+     * Whether the flow control auto-tuning has been enabled. This is a JVM wide setting that can't be reverted.
+     */
+    private static final AtomicBoolean FLOW_CONTROL_AUTO_TUNING = new AtomicBoolean();
+
+    private final List<EventLoopGroup> eventLoopGroups = new ArrayList<>();
+
     /**
      * Creates a new shaded netty server factory with the given properties.
      *
@@ -61,6 +83,9 @@ public ShadedNettyGrpcServerFactory(final GrpcServerProperties properties,
     @Override
     protected NettyServerBuilder newServerBuilder() {
         final String address = getAddress();
+        if (NettyTransport.isDomainSocketAddress(address)) {
+            return NettyServerBuilder.forAddress(newListenAddress());
+        }
         final int port = getPort();
         if (GrpcServerProperties.ANY_IP_ADDRESS.equals(address)) {
             return NettyServerBuilder.forPort(port);
@@ -69,6 +94,85 @@ protected NettyServerBuilder newServerBuilder() {
         }
     }
 
+    /**
+     * Creates the socket address the server will listen on.
+     *
+     * @return The newly created socket address.
+     */
+    protected SocketAddress newListenAddress() {
+        final String address = getAddress();
+        if (NettyTransport.isDomainSocketAddress(address)) {
+            return NettyTransport.resolveForDomainSockets(NettyTransport.SHADED_NETTY_PACKAGE_PREFIX)
+                    .newDomainSocketAddress(NettyTransport.extractDomainSocketPath(address));
+        }
+        final int port = getPort();
+        if (GrpcServerProperties.ANY_IP_ADDRESS.equals(address)) {
+            return new InetSocketAddress(port);
+        } else {
+            return new InetSocketAddress(InetAddresses.forString(address), port);
+        }
+    }
+
+    @Override
+    // Keep this in sync with NettyGrpcServerFactory#configureTransport
+    protected void configureTransport(final NettyServerBuilder builder) {
+        final Netty netty = this.properties.getNetty();
+        final boolean domainSocket = NettyTransport.isDomainSocketAddress(getAddress());
+        if (!domainSocket && !netty.requiresCustomEventLoops()) {
+            return;
+        }
+        final NettyTransportType type = netty.getTransport() == null ? NettyTransportType.AUTO : netty.getTransport();
+        final NettyTransport transport = domainSocket
+                ? NettyTransport.resolveForDomainSockets(NettyTransport.SHADED_NETTY_PACKAGE_PREFIX)
+                : NettyTransport.resolve(type, NettyTransport.SHADED_NETTY_PACKAGE_PREFIX);
+        final int listeners = Math.max(1, netty.getListeners());
+
+        final EventLoopGroup bossGroup = transport.newEventLoopGroup(EventLoopGroup.class,
+                Math.max(netty.getBossThreads(), listeners), "grpc-server-boss");
+        this.eventLoopGroups.add(bossGroup);
+        final EventLoopGroup workerGroup =
+                transport.newEventLoopGroup(EventLoopGroup.class, netty.getWorkerThreads(), "grpc-server-worker");
+        this.eventLoopGroups.add(workerGroup);
+        builder.bossEventLoopGroup(bossGroup)
+                .workerEventLoopGroup(workerGroup);
+
+        if (domainSocket) {
+            // SO_REUSEPORT and multiple listeners don't apply to unix domain sockets
+            builder.channelType(transport.getServerDomainSocketChannelType(ServerChannel.class));
+            return;
+        }
+
+        final Class<? extends ServerChannel> channelType = transport.getServerChannelType(ServerChannel.class);
+        @SuppressWarnings("unchecked")
+        final ChannelOption<Boolean> reusePortOption =
+                netty.isReusePort() ? transport.getReusePortOption(ChannelOption.class) : null;
+        if (reusePortOption != null) {
+            final ReflectiveChannelFactory<? extends ServerChannel> channelFactory =
+                    new ReflectiveChannelFactory<>(channelType);
+            builder.channelFactory(() -> {
+                final ServerChannel channel = channelFactory.newChannel();
+                channel.config().setOption(reusePortOption, true);
+                return channel;
+            });
+        } else {
+            if (netty.isReusePort()) {
+                log.warn("SO_REUSEPORT is not supported by the {} transport", transport.getType());
+            }
+            builder.channelType(channelType);
+        }
+
+        if (listeners > 1) {
+            if (reusePortOption == null) {
+                throw new IllegalStateException(
+                        "Multiple listeners require SO_REUSEPORT and the EPOLL or IO_URING transport");
+            }
+            final SocketAddress listenAddress = newListenAddress();
+            for (int i = 1; i < listeners; i++) {
+                builder.addListenAddress(listenAddress);
+            }
+        }
+    }
+
     @Override
     // Keep this in sync with NettyGrpcServerFactory#configureKeepAlive
     protected void configureKeepAlive(final NettyServerBuilder builder) {
@@ -80,10 +184,46 @@ protected void configureKeepAlive(final NettyServerBuilder builder) {
                 .permitKeepAliveWithoutCalls(this.properties.isPermitKeepAliveWithoutCalls());
     }
 
+    @Override
+    // Keep this in sync with NettyGrpcServerFactory#configureLimits
+    protected void configureLimits(final NettyServerBuilder builder) {
+        super.configureLimits(builder);
+        final DataSize maxHeaderListSize = this.properties.getMaxHeaderListSize();
+        if (maxHeaderListSize != null) {
+            builder.maxInboundMetadataSize((int) maxHeaderListSize.toBytes());
+        }
+        final Integer maxConcurrentCallsPerConnection = this.properties.getMaxConcurrentCallsPerConnection();
+        if (maxConcurrentCallsPerConnection != null) {
+            builder.maxConcurrentCallsPerConnection(maxConcurrentCallsPerConnection);
+        }
+        final DataSize flowControlWindow = this.properties.getFlowControlWindow();
+        if (flowControlWindow != null) {
+            builder.flowControlWindow((int) flowControlWindow.toBytes());
+        }
+        if (this.properties.isFlowControlAutoTuning() && FLOW_CONTROL_AUTO_TUNING.compareAndSet(false, true)) {
+            // grpc-java does not yet support enabling this per server, so this also affects all shaded netty clients
+            log.warn("Enabling flow control auto-tuning for all shaded netty servers and clients until the JVM exits");
+            InternalHandlerSettings.enable(true);
+            InternalHandlerSettings.autoWindowOn(true);
+        }
+        final Duration maxConnectionIdle = this.properties.getMaxConnectionIdle();
+        if (maxConnectionIdle != null) {
+            builder.maxConnectionIdle(maxConnectionIdle.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        final Duration maxConnectionAge = this.properties.getMaxConnectionAge();
+        if (maxConnectionAge != null) {
+            builder.maxConnectionAge(maxConnectionAge.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        final Duration maxConnectionAgeGrace = this.properties.getMaxConnectionAgeGrace();
+        if (maxConnectionAgeGrace != null) {
+            builder.maxConnectionAgeGrace(maxConnectionAgeGrace.toNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
     @Override
     // Keep this in sync with NettyGrpcServerFactory#configureSecurity
     protected void configureSecurity(final NettyServerBuilder builder) {
-        final Security security = this.properties.getSecurity();
+        final Security security = getSecurity();
         if (security.isEnabled()) {
             final Resource certificateChain =
                     requireNonNull(security.getCertificateChain(), "certificateChain not configured");
@@ -126,6 +266,15 @@ protected void configureSecurity(final NettyServerBuilder builder) {
         }
     }
 
+    @Override
+    public void destroy() {
+        super.destroy();
+        for (final EventLoopGroup eventLoopGroup : this.eventLoopGroups) {
+            eventLoopGroup.shutdownGracefully();
+        }
+        this.eventLoopGroups.clear();
+    }
+
     /**
      * Converts the given client auth option to netty's client auth.
      *
@@ -17,26 +17,58 @@
 
 package net.devh.boot.grpc.server.service;
 
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
+import org.springframework.core.annotation.AnnotationUtils;
 
 import com.google.common.collect.Lists;
 
 import io.grpc.BindableService;
+import io.grpc.MethodDescriptor;
 import io.grpc.ServerInterceptor;
 import io.grpc.ServerInterceptors;
+import io.grpc.ServerMethodDefinition;
 import io.grpc.ServerServiceDefinition;
+import io.grpc.ServiceDescriptor;
 import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.common.protobuf.ZeroCopyProtoMarshaller;
+import net.devh.boot.grpc.server.config.GrpcServerProperties;
+import net.devh.boot.grpc.server.executor.ExecutorSwitchingServerCallHandler;
+import net.devh.boot.grpc.server.executor.GrpcServerExecutorRegistry;
+import net.devh.boot.grpc.server.interceptor.FusedServerInterceptor;
 import net.devh.boot.grpc.server.interceptor.GlobalServerInterceptorRegistry;
 
 /**
  * A {@link GrpcServiceDiscoverer} that searches for beans with the {@link GrpcService} annotations.
  *
+ * <p>
+ * The services are discovered and bound only once and the result is cached, so that multiple server factories and
+ * other consumers can share it. The beans and interceptors are resolved sequentially, because spring's bean creation
+ * isn't meant to be used concurrently, but the services themselves are bound in parallel.
+ * </p>
+ *
+ * <p>
+ * Services whose beans are lazy, e.g. because they are annotated with
+ * {@link org.springframework.context.annotation.Lazy Lazy}, are bound using their generated service descriptor without
+ * creating the bean. The bean will be created on the first call to any of its methods instead.
+ * </p>
+ *
  * @author Michael (yidongnan@gmail.com)
  * @since 5/17/16
  */
@@ -44,6 +76,8 @@
 public class AnnotationGrpcServiceDiscoverer implements ApplicationContextAware, GrpcServiceDiscoverer {
 
     private ApplicationContext applicationContext;
+    private volatile List<GrpcServiceDefinition> definitions;
+    private final List<BiConsumer<String, Duration>> lazyInitializationListeners = new CopyOnWriteArrayList<>();
 
     @Override
     public void setApplicationContext(final ApplicationContext applicationContext) {
@@ -52,27 +86,161 @@ public void setApplicationContext(final ApplicationContext applicationContext) {
 
     @Override
     public Collection<GrpcServiceDefinition> findGrpcServices() {
+        List<GrpcServiceDefinition> result = this.definitions;
+        if (result == null) {
+            synchronized (this) {
+                result = this.definitions;
+                if (result == null) {
+                    result = Collections.unmodifiableList(discoverGrpcServices());
+                    this.definitions = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds a listener that is notified with the name of a lazy service and the time taken to create and bind it, once
+     * it has been initialized during its first call.
+     *
+     * @param listener The listener to add.
+     */
+    public void addLazyInitializationListener(final BiConsumer<String, Duration> listener) {
+        this.lazyInitializationListeners.add(listener);
+    }
+
+    /**
+     * Binds the given service with the global interceptors. If its class is annotated with {@link GrpcService}, then
+     * the interceptors, executor and marshallers configured by the annotation will be used as well.
+     *
+     * @param service The service to bind.
+     * @return The bound service definition.
+     */
+    @Override
+    public ServerServiceDefinition bindService(final BindableService service) {
+        requireNonNull(service, "service");
+        final GlobalServerInterceptorRegistry globalServerInterceptorRegistry =
+                this.applicationContext.getBean(GlobalServerInterceptorRegistry.class);
+        final boolean fuseInterceptors = isFuseInterceptors();
+        final GrpcService grpcServiceAnnotation = AnnotationUtils.findAnnotation(service.getClass(), GrpcService.class);
+        if (grpcServiceAnnotation == null) {
+            return bindDefinition(service,
+                    fuse(globalServerInterceptorRegistry.getServerInterceptors(), fuseInterceptors), null,
+                    isZeroCopyMarshaller());
+        }
+        final List<ServerInterceptor> interceptors = hasCustomInterceptors(grpcServiceAnnotation)
+                ? resolveInterceptors(grpcServiceAnnotation, globalServerInterceptorRegistry, fuseInterceptors)
+                : fuse(globalServerInterceptorRegistry.getServerInterceptors(), fuseInterceptors);
+        return bindDefinition(service, interceptors, resolveExecutor(grpcServiceAnnotation),
+                isZeroCopyMarshaller() || grpcServiceAnnotation.zeroCopyMarshaller());
+    }
+
+    /**
+     * Discovers and binds all grpc services.
+     *
+     * @return The newly created list of the grpc services.
+     */
+    protected List<GrpcServiceDefinition> discoverGrpcServices() {
+        final long start = System.nanoTime();
         Collection<String> beanNames =
                 Arrays.asList(this.applicationContext.getBeanNamesForAnnotation(GrpcService.class));
-        List<GrpcServiceDefinition> definitions = Lists.newArrayListWithCapacity(beanNames.size());
         GlobalServerInterceptorRegistry globalServerInterceptorRegistry =
                 applicationContext.getBean(GlobalServerInterceptorRegistry.class);
+        final boolean fuseInterceptors = isFuseInterceptors();
+        final boolean zeroCopyMarshaller = isZeroCopyMarshaller();
+        // Shared by all services without custom interceptors
+        final List<ServerInterceptor> globalInterceptors =
+                fuse(globalServerInterceptorRegistry.getServerInterceptors(), fuseInterceptors);
+        final List<PendingService> pendingServices = Lists.newArrayListWithCapacity(beanNames.size());
         for (String beanName : beanNames) {
-            BindableService bindableService = this.applicationContext.getBean(beanName, BindableService.class);
-            ServerServiceDefinition serviceDefinition = bindableService.bindService();
+            final long serviceStart = System.nanoTime();
+            final Class<?> beanClazz = this.applicationContext.getType(beanName);
+            final ServiceDescriptor lazyServiceDescriptor =
+                    isLazy(beanName) ? LazyGrpcService.findServiceDescriptor(beanClazz) : null;
+            final BindableService bindableService;
+            if (lazyServiceDescriptor != null) {
+                bindableService = new LazyGrpcService(beanName, lazyServiceDescriptor,
+                        () -> this.applicationContext.getBean(beanName, BindableService.class),
+                        this::onLazyServiceInitialized);
+            } else {
+                bindableService = this.applicationContext.getBean(beanName, BindableService.class);
+            }
             GrpcService grpcServiceAnnotation = applicationContext.findAnnotationOnBean(beanName, GrpcService.class);
-            serviceDefinition =
-                    bindInterceptors(serviceDefinition, grpcServiceAnnotation, globalServerInterceptorRegistry);
-            definitions.add(new GrpcServiceDefinition(beanName, bindableService.getClass(), serviceDefinition));
-            log.debug("Found gRPC service: " + serviceDefinition.getServiceDescriptor().getName() + ", bean: "
-                    + beanName + ", class: " + bindableService.getClass().getName());
+            final List<ServerInterceptor> interceptors = hasCustomInterceptors(grpcServiceAnnotation)
+                    ? resolveInterceptors(grpcServiceAnnotation, globalServerInterceptorRegistry, fuseInterceptors)
+                    : globalInterceptors;
+            final Executor executor = resolveExecutor(grpcServiceAnnotation);
+            pendingServices.add(new PendingService(beanName,
+                    lazyServiceDescriptor != null ? beanClazz : bindableService.getClass(), bindableService,
+                    interceptors, executor, zeroCopyMarshaller || grpcServiceAnnotation.zeroCopyMarshaller(),
+                    System.nanoTime() - serviceStart));
         }
+        final List<GrpcServiceDefinition> definitions = pendingServices.parallelStream()
+                .map(this::bind)
+                .collect(Collectors.toList());
+        log.debug("Discovered {} gRPC services in {}ms", definitions.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
         return definitions;
     }
 
-    private ServerServiceDefinition bindInterceptors(final ServerServiceDefinition serviceDefinition,
-            final GrpcService grpcServiceAnnotation,
-            final GlobalServerInterceptorRegistry globalServerInterceptorRegistry) {
+    private GrpcServiceDefinition bind(final PendingService service) {
+        final long start = System.nanoTime();
+        final ServerServiceDefinition serviceDefinition = bindDefinition(service.bindableService,
+                service.interceptors, service.executor, service.zeroCopyMarshaller);
+        final Duration startupTime = Duration.ofNanos(service.resolveNanos + System.nanoTime() - start);
+        final Class<?> beanClazz = service.beanClazz;
+        log.debug("Found gRPC service: " + serviceDefinition.getServiceDescriptor().getName() + ", bean: "
+                + service.beanName + ", class: " + beanClazz.getName() + ", startup time: "
+                + startupTime.toMillis() + "ms");
+        return new GrpcServiceDefinition(service.beanName, beanClazz, serviceDefinition, startupTime);
+    }
+
+    private ServerServiceDefinition bindDefinition(final BindableService bindableService,
+            final List<ServerInterceptor> interceptors, final Executor executor, final boolean zeroCopyMarshaller) {
+        ServerServiceDefinition serviceDefinition = bindableService.bindService();
+        if (zeroCopyMarshaller) {
+            final GrpcServerProperties properties =
+                    this.applicationContext.getBeanProvider(GrpcServerProperties.class).getIfAvailable();
+            serviceDefinition = properties == null
+                    ? bindZeroCopyMarshallers(serviceDefinition, ZeroCopyProtoMarshaller.DEFAULT_ALIASING_THRESHOLD,
+                            ZeroCopyProtoMarshaller.DEFAULT_MAX_POOLED_SIZE)
+                    : bindZeroCopyMarshallers(serviceDefinition,
+                            (int) properties.getZeroCopyAliasingThreshold().toBytes(),
+                            (int) properties.getZeroCopyMaxPooledSize().toBytes());
+        }
+        serviceDefinition = bindInterceptors(serviceDefinition, interceptors);
+        return bindExecutor(serviceDefinition, executor);
+    }
+
+    /**
+     * Checks whether the bean with the given name is lazy and hasn't been created yet.
+     *
+     * @param beanName The name of the bean to check.
+     * @return True, if the bean should be created lazily. False otherwise.
+     */
+    private boolean isLazy(final String beanName) {
+        final AutowireCapableBeanFactory factory = this.applicationContext.getAutowireCapableBeanFactory();
+        if (!(factory instanceof ConfigurableListableBeanFactory)) {
+            return false;
+        }
+        final ConfigurableListableBeanFactory beanFactory = (ConfigurableListableBeanFactory) factory;
+        return beanFactory.containsBeanDefinition(beanName)
+                && !beanFactory.containsSingleton(beanName)
+                && beanFactory.getBeanDefinition(beanName).isLazyInit();
+    }
+
+    private void onLazyServiceInitialized(final String serviceName, final Duration duration) {
+        for (final BiConsumer<String, Duration> listener : this.lazyInitializationListeners) {
+            listener.accept(serviceName, duration);
+        }
+    }
+
+    private static boolean hasCustomInterceptors(final GrpcService grpcServiceAnnotation) {
+        return grpcServiceAnnotation.interceptors().length > 0 || grpcServiceAnnotation.interceptorNames().length > 0;
+    }
+
+    private List<ServerInterceptor> resolveInterceptors(final GrpcService grpcServiceAnnotation,
+            final GlobalServerInterceptorRegistry globalServerInterceptorRegistry, final boolean fuseInterceptors) {
         final List<ServerInterceptor> interceptors = Lists.newArrayList();
         interceptors.addAll(globalServerInterceptorRegistry.getServerInterceptors());
         for (final Class<? extends ServerInterceptor> interceptorClass : grpcServiceAnnotation.interceptors()) {
@@ -94,7 +262,122 @@ private ServerServiceDefinition bindInterceptors(final ServerServiceDefinition s
         if (grpcServiceAnnotation.sortInterceptors()) {
             globalServerInterceptorRegistry.sortInterceptors(interceptors);
         }
+        return fuse(interceptors, fuseInterceptors);
+    }
+
+    private static List<ServerInterceptor> fuse(final List<ServerInterceptor> interceptors,
+            final boolean fuseInterceptors) {
+        return fuseInterceptors ? FusedServerInterceptor.fuse(interceptors) : interceptors;
+    }
+
+    private ServerServiceDefinition bindInterceptors(final ServerServiceDefinition serviceDefinition,
+            final List<ServerInterceptor> interceptors) {
         return ServerInterceptors.interceptForward(serviceDefinition, interceptors);
     }
 
+    private boolean isFuseInterceptors() {
+        final GrpcServerProperties properties =
+                this.applicationContext.getBeanProvider(GrpcServerProperties.class).getIfAvailable();
+        return properties != null && properties.isFuseInterceptors();
+    }
+
+    private boolean isZeroCopyMarshaller() {
+        final GrpcServerProperties properties =
+                this.applicationContext.getBeanProvider(GrpcServerProperties.class).getIfAvailable();
+        return properties != null && properties.isZeroCopyMarshaller();
+    }
+
+    /**
+     * Creates a copy of the given service definition, where all protobuf marshallers are replaced with
+     * {@link ZeroCopyProtoMarshaller}s. The service descriptor has to be recreated as well, because the server requires
+     * the bound methods to be the same instances as the ones in the service descriptor.
+     *
+     * @param serviceDefinition The service definition to rebind.
+     * @param aliasingThreshold The size in bytes above which messages are parsed with aliasing.
+     * @param maxPooledSize The size in bytes of the largest message that is parsed using a pooled buffer.
+     * @return The newly created service definition or the given one, if it doesn't use protobuf marshallers.
+     */
+    private static ServerServiceDefinition bindZeroCopyMarshallers(final ServerServiceDefinition serviceDefinition,
+            final int aliasingThreshold, final int maxPooledSize) {
+        final ServiceDescriptor serviceDescriptor = serviceDefinition.getServiceDescriptor();
+        final List<ServerMethodDefinition<?, ?>> methods = Lists.newArrayList();
+        boolean changed = false;
+        for (final ServerMethodDefinition<?, ?> method : serviceDefinition.getMethods()) {
+            final ServerMethodDefinition<?, ?> rebound =
+                    bindZeroCopyMarshallers(method, aliasingThreshold, maxPooledSize);
+            changed |= rebound != method;
+            methods.add(rebound);
+        }
+        if (!changed) {
+            return serviceDefinition;
+        }
+        final ServiceDescriptor.Builder descriptorBuilder = ServiceDescriptor.newBuilder(serviceDescriptor.getName())
+                .setSchemaDescriptor(serviceDescriptor.getSchemaDescriptor());
+        for (final ServerMethodDefinition<?, ?> method : methods) {
+            descriptorBuilder.addMethod(method.getMethodDescriptor());
+        }
+        final ServerServiceDefinition.Builder builder = ServerServiceDefinition.builder(descriptorBuilder.build());
+        for (final ServerMethodDefinition<?, ?> method : methods) {
+            builder.addMethod(method);
+        }
+        return builder.build();
+    }
+
+    private static <ReqT, RespT> ServerMethodDefinition<ReqT, RespT> bindZeroCopyMarshallers(
+            final ServerMethodDefinition<ReqT, RespT> method, final int aliasingThreshold, final int maxPooledSize) {
+        final MethodDescriptor<ReqT, RespT> descriptor =
+                ZeroCopyProtoMarshaller.wrap(method.getMethodDescriptor(), aliasingThreshold, maxPooledSize);
+        if (descriptor == method.getMethodDescriptor()) {
+            return method;
+        }
+        return ServerMethodDefinition.create(descriptor, method.getServerCallHandler());
+    }
+
+    private Executor resolveExecutor(final GrpcService grpcServiceAnnotation) {
+        final String executorName = grpcServiceAnnotation.executor();
+        if (executorName.isEmpty()) {
+            return null;
+        }
+        try {
+            return this.applicationContext.getBean(GrpcServerExecutorRegistry.class).getExecutor(executorName);
+        } catch (final RuntimeException e) {
+            throw new BeanCreationException("Failed to resolve executor for service", e);
+        }
+    }
+
+    private ServerServiceDefinition bindExecutor(final ServerServiceDefinition serviceDefinition,
+            final Executor executor) {
+        if (executor == null) {
+            return serviceDefinition;
+        }
+        return ExecutorSwitchingServerCallHandler.bindExecutor(serviceDefinition, executor);
+    }
+
+    /**
+     * A service whose bean and interceptors have been resolved, but that hasn't been bound yet.
+     */
+    private static final class PendingService {
+
+        private final String beanName;
+        private final Class<?> beanClazz;
+        private final BindableService bindableService;
+        private final List<ServerInterceptor> interceptors;
+        private final Executor executor;
+        private final boolean zeroCopyMarshaller;
+        private final long resolveNanos;
+
+        PendingService(final String beanName, final Class<?> beanClazz, final BindableService bindableService,
+                final List<ServerInterceptor> interceptors, final Executor executor, final boolean zeroCopyMarshaller,
+                final long resolveNanos) {
+            this.beanName = beanName;
+            this.beanClazz = beanClazz;
+            this.bindableService = bindableService;
+            this.interceptors = interceptors;
+            this.executor = executor;
+            this.zeroCopyMarshaller = zeroCopyMarshaller;
+            this.resolveNanos = resolveNanos;
+        }
+
+    }
+
 }
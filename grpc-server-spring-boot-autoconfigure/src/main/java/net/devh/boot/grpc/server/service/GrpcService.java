@@ -28,6 +28,7 @@
 import io.grpc.BindableService;
 import io.grpc.ServerInterceptor;
 import io.grpc.ServerInterceptors;
+import net.devh.boot.grpc.common.protobuf.ZeroCopyProtoMarshaller;
 
 /**
  * Annotation that marks gRPC services that should be registered with a gRPC server. If spring-boot's auto configuration
@@ -39,6 +40,12 @@
  * interceptors and applied using {@link ServerInterceptors#interceptForward(BindableService, ServerInterceptor...)}.
  * </p>
  *
+ * <p>
+ * <b>Note:</b> If the service is annotated with {@link org.springframework.context.annotation.Lazy Lazy}, then the bean
+ * will only be created on the first call to any of its methods. This requires the service to extend the generated
+ * {@code ImplBase} class.
+ * </p>
+ *
  * @author Michael (yidongnan@gmail.com)
  * @since 5/17/16
  */
@@ -80,4 +87,21 @@
      */
     boolean sortInterceptors() default false;
 
+    /**
+     * The name of the executor that should be used to execute the calls of this service. The executor has to be
+     * configured using {@code grpc.server.executors.<name>}. If empty, then the server's executor will be used.
+     *
+     * @return The name of the executor to use or an empty string for the server's executor.
+     */
+    String executor() default "";
+
+    /**
+     * Whether this service should parse its protobuf requests using a {@link ZeroCopyProtoMarshaller}, which avoids
+     * copying the received data more than once and reduces the allocations for large messages. All services will use
+     * it, if {@code grpc.server.zero-copy-marshaller} is enabled.
+     *
+     * @return True, if the zero copy marshaller should be used. False to use the global setting.
+     */
+    boolean zeroCopyMarshaller() default false;
+
 }
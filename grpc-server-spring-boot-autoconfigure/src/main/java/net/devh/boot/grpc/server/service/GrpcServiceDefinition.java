@@ -17,6 +17,8 @@
 
 package net.devh.boot.grpc.server.service;
 
+import java.time.Duration;
+
 import io.grpc.ServerServiceDefinition;
 
 /**
@@ -31,6 +33,7 @@ public class GrpcServiceDefinition {
     private final String beanName;
     private final Class<?> beanClazz;
     private final ServerServiceDefinition definition;
+    private final Duration startupTime;
 
     /**
      * Creates a new GrpcServiceDefinition.
@@ -41,9 +44,23 @@ public class GrpcServiceDefinition {
      */
     public GrpcServiceDefinition(final String beanName, final Class<?> beanClazz,
             final ServerServiceDefinition definition) {
+        this(beanName, beanClazz, definition, Duration.ZERO);
+    }
+
+    /**
+     * Creates a new GrpcServiceDefinition.
+     *
+     * @param beanName The name of the grpc service bean in the spring context.
+     * @param beanClazz The class of the grpc service bean.
+     * @param definition The grpc service definition.
+     * @param startupTime The time it took to create the bean and to bind the service.
+     */
+    public GrpcServiceDefinition(final String beanName, final Class<?> beanClazz,
+            final ServerServiceDefinition definition, final Duration startupTime) {
         this.beanName = beanName;
         this.beanClazz = beanClazz;
         this.definition = definition;
+        this.startupTime = startupTime;
     }
 
     /**
@@ -73,4 +90,13 @@ public ServerServiceDefinition getDefinition() {
         return this.definition;
     }
 
+    /**
+     * Gets the time it took to create the grpc service bean and to bind the service including its interceptors.
+     *
+     * @return The startup time of the service or {@link Duration#ZERO}, if unknown.
+     */
+    public Duration getStartupTime() {
+        return this.startupTime;
+    }
+
 }
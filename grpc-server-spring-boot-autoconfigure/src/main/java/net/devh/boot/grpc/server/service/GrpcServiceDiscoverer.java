@@ -19,6 +19,8 @@
 
 import java.util.Collection;
 
+import io.grpc.BindableService;
+import io.grpc.ServerServiceDefinition;
 import net.devh.boot.grpc.server.serverfactory.GrpcServerFactory;
 
 /**
@@ -32,10 +34,23 @@
 public interface GrpcServiceDiscoverer {
 
     /**
-     * Find the grpc services that should provided by the server.
+     * Find the grpc services that should provided by the server. This method might be called multiple times, e.g. once
+     * for each server factory, so implementations should cache the result if the discovery is expensive.
      *
      * @return The grpc services that should be provided. Never null.
      */
     Collection<GrpcServiceDefinition> findGrpcServices();
 
+    /**
+     * Binds the given service the same way as the discovered services, e.g. with the global interceptors, so that it
+     * can be added to a running server using the {@link GrpcServiceRegistry}.
+     *
+     * @param service The service to bind.
+     * @return The bound service definition.
+     * @throws UnsupportedOperationException If this discoverer doesn't support binding additional services.
+     */
+    default ServerServiceDefinition bindService(final BindableService service) {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support binding services");
+    }
+
 }
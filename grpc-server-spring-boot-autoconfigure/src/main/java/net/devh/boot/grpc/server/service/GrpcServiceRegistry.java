@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.server.service;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import io.grpc.BindableService;
+import io.grpc.HandlerRegistry;
+import io.grpc.ServerMethodDefinition;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.health.v1.HealthCheckResponse.ServingStatus;
+import io.grpc.services.HealthStatusManager;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A handler registry whose services can be added, replaced and removed while the server is running. Lookups are
+ * lock-free and only require a single hash lookup using the full method name. Modifications are serialized and
+ * published as a new immutable snapshot, so a call will always see either the old or the new version of a service but
+ * never a partially registered one.
+ *
+ * <p>
+ * The health status of the affected services is updated together with the registry. Added services are marked as
+ * serving after they became available; removed services are marked as not serving before they are removed and their
+ * status is cleared afterwards.
+ * </p>
+ *
+ * <p>
+ * The registry doesn't follow context refreshes on its own. Use {@link #setServices(Collection)} to apply the services
+ * of a refreshed context.
+ * </p>
+ *
+ * @see net.devh.boot.grpc.server.config.GrpcServerProperties#isMutableServices()
+ */
+@Slf4j
+public class GrpcServiceRegistry extends HandlerRegistry {
+
+    private final HealthStatusManager healthStatusManager;
+    private final GrpcServiceDiscoverer serviceDiscoverer;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    /**
+     * Creates a new empty service registry.
+     *
+     * @param healthStatusManager The health status manager that should be updated with the registered services. May be
+     *        null, if the health status should not be managed by this registry.
+     */
+    public GrpcServiceRegistry(@Nullable final HealthStatusManager healthStatusManager) {
+        this(healthStatusManager, null);
+    }
+
+    /**
+     * Creates a new empty service registry.
+     *
+     * @param healthStatusManager The health status manager that should be updated with the registered services. May be
+     *        null, if the health status should not be managed by this registry.
+     * @param serviceDiscoverer The discoverer used to bind the services added via {@link #addService(BindableService)}.
+     *        May be null, if only already bound services should be added.
+     */
+    public GrpcServiceRegistry(@Nullable final HealthStatusManager healthStatusManager,
+            @Nullable final GrpcServiceDiscoverer serviceDiscoverer) {
+        this.healthStatusManager = healthStatusManager;
+        this.serviceDiscoverer = serviceDiscoverer;
+    }
+
+    @Override
+    @Nullable
+    public ServerMethodDefinition<?, ?> lookupMethod(final String methodName, @Nullable final String authority) {
+        return this.snapshot.methods.get(methodName);
+    }
+
+    @Override
+    public List<ServerServiceDefinition> getServices() {
+        return this.snapshot.services.values().asList();
+    }
+
+    /**
+     * Gets the registered service with the given name.
+     *
+     * @param serviceName The name of the service.
+     * @return The registered service or null, if there is no service with that name.
+     */
+    @Nullable
+    public ServerServiceDefinition getService(final String serviceName) {
+        return this.snapshot.services.get(serviceName);
+    }
+
+    /**
+     * Binds the given service the same way as the discovered services, i.e. with the global interceptors and the
+     * executor configured by its {@link GrpcService} annotation, and adds it to this registry. If there is already a
+     * service with the same name, then it will be replaced.
+     *
+     * @param service The service to bind and add.
+     * @return The service that has been replaced or null, if there was no such service.
+     * @throws IllegalStateException If this registry has no service discoverer to bind the service with.
+     * @see GrpcServiceDiscoverer#bindService(BindableService)
+     */
+    @Nullable
+    public ServerServiceDefinition addService(final BindableService service) {
+        requireNonNull(service, "service");
+        if (this.serviceDiscoverer == null) {
+            throw new IllegalStateException("Cannot bind " + service.getClass().getName()
+                    + " without a GrpcServiceDiscoverer, add the bound ServerServiceDefinition instead");
+        }
+        return addService(this.serviceDiscoverer.bindService(service));
+    }
+
+    /**
+     * Adds the given service to this registry as is. If there is already a service with the same name, then it will be
+     * replaced.
+     *
+     * <p>
+     * <b>Note:</b> The service won't be intercepted by the global interceptors, e.g. for security, metrics or limits,
+     * and won't use a custom executor. Use {@link #addService(BindableService)} to bind it like the discovered
+     * services.
+     * </p>
+     *
+     * @param service The service to add.
+     * @return The service that has been replaced or null, if there was no such service.
+     */
+    @Nullable
+    public synchronized ServerServiceDefinition addService(final ServerServiceDefinition service) {
+        requireNonNull(service, "service");
+        final String serviceName = service.getServiceDescriptor().getName();
+        final Map<String, ServerServiceDefinition> services = new LinkedHashMap<>(this.snapshot.services);
+        final ServerServiceDefinition previous = services.put(serviceName, service);
+        publish(services);
+        setStatus(serviceName, ServingStatus.SERVING);
+        log.debug("{} gRPC service: {}", previous == null ? "Added" : "Replaced", serviceName);
+        return previous;
+    }
+
+    /**
+     * Removes the service with the given name from this registry.
+     *
+     * @param serviceName The name of the service to remove.
+     * @return The service that has been removed or null, if there was no such service.
+     */
+    @Nullable
+    public synchronized ServerServiceDefinition removeService(final String serviceName) {
+        requireNonNull(serviceName, "serviceName");
+        if (!this.snapshot.services.containsKey(serviceName)) {
+            return null;
+        }
+        setStatus(serviceName, ServingStatus.NOT_SERVING);
+        final Map<String, ServerServiceDefinition> services = new LinkedHashMap<>(this.snapshot.services);
+        final ServerServiceDefinition removed = services.remove(serviceName);
+        publish(services);
+        clearStatus(serviceName);
+        log.debug("Removed gRPC service: {}", serviceName);
+        return removed;
+    }
+
+    /**
+     * Replaces all services in this registry with the given ones in a single step. Services that are not contained in
+     * the given collection will be removed, all others will be added or replaced. This is useful to apply the services
+     * of a refreshed application context.
+     *
+     * @param newServices The services that should be served from now on.
+     */
+    public synchronized void setServices(final Collection<ServerServiceDefinition> newServices) {
+        requireNonNull(newServices, "newServices");
+        final Map<String, ServerServiceDefinition> services = new LinkedHashMap<>();
+        for (final ServerServiceDefinition service : newServices) {
+            services.put(service.getServiceDescriptor().getName(), service);
+        }
+        final List<String> removed = new ArrayList<>();
+        for (final String serviceName : this.snapshot.services.keySet()) {
+            if (!services.containsKey(serviceName)) {
+                removed.add(serviceName);
+            }
+        }
+        for (final String serviceName : removed) {
+            setStatus(serviceName, ServingStatus.NOT_SERVING);
+        }
+        publish(services);
+        for (final String serviceName : removed) {
+            clearStatus(serviceName);
+        }
+        for (final String serviceName : services.keySet()) {
+            setStatus(serviceName, ServingStatus.SERVING);
+        }
+        log.debug("Updated gRPC services: {} registered, {} removed", services.size(), removed.size());
+    }
+
+    /**
+     * Removes all services from this registry.
+     */
+    public void clear() {
+        setServices(ImmutableList.of());
+    }
+
+    private void publish(final Map<String, ServerServiceDefinition> services) {
+        this.snapshot = new Snapshot(services);
+    }
+
+    private void setStatus(final String serviceName, final ServingStatus status) {
+        if (this.healthStatusManager != null) {
+            this.healthStatusManager.setStatus(serviceName, status);
+        }
+    }
+
+    private void clearStatus(final String serviceName) {
+        if (this.healthStatusManager != null) {
+            this.healthStatusManager.clearStatus(serviceName);
+        }
+    }
+
+    /**
+     * An immutable view of the registered services and their methods.
+     */
+    private static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(ImmutableMap.of());
+
+        final ImmutableMap<String, ServerServiceDefinition> services;
+        final ImmutableMap<String, ServerMethodDefinition<?, ?>> methods;
+
+        Snapshot(final Map<String, ServerServiceDefinition> services) {
+            this.services = ImmutableMap.copyOf(services);
+            final ImmutableMap.Builder<String, ServerMethodDefinition<?, ?>> methods = ImmutableMap.builder();
+            for (final ServerServiceDefinition service : services.values()) {
+                for (final ServerMethodDefinition<?, ?> method : service.getMethods()) {
+                    methods.put(method.getMethodDescriptor().getFullMethodName(), method);
+                }
+            }
+            this.methods = methods.build();
+        }
+
+    }
+
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.server.service;
+
+import static java.util.Objects.requireNonNull;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.time.Duration;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import io.grpc.BindableService;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCall.Listener;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerMethodDefinition;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.ServiceDescriptor;
+import io.grpc.Status;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A service that is bound using its generated {@link ServiceDescriptor} and only creates the actual service
+ * implementation on the first call to any of its methods. If the creation fails, the call will be closed with
+ * {@link Status#UNAVAILABLE} and the creation will be retried on the next call.
+ */
+@Slf4j
+final class LazyGrpcService implements BindableService {
+
+    private final String beanName;
+    private final ServiceDescriptor serviceDescriptor;
+    private final Supplier<BindableService> serviceFactory;
+    private final BiConsumer<String, Duration> initializationListener;
+
+    private volatile ServerServiceDefinition delegate;
+
+    /**
+     * Creates a new lazy service.
+     *
+     * @param beanName The name of the bean implementing the service.
+     * @param serviceDescriptor The descriptor of the service.
+     * @param serviceFactory The factory used to create the actual service implementation.
+     * @param initializationListener The listener that is notified with the name of the service and the time taken to
+     *        create and bind it, once it has been initialized.
+     */
+    LazyGrpcService(final String beanName, final ServiceDescriptor serviceDescriptor,
+            final Supplier<BindableService> serviceFactory, final BiConsumer<String, Duration> initializationListener) {
+        this.beanName = requireNonNull(beanName, "beanName");
+        this.serviceDescriptor = requireNonNull(serviceDescriptor, "serviceDescriptor");
+        this.serviceFactory = requireNonNull(serviceFactory, "serviceFactory");
+        this.initializationListener = requireNonNull(initializationListener, "initializationListener");
+    }
+
+    /**
+     * Tries to find the descriptor of the generated service the given class extends.
+     *
+     * @param type The class of the service implementation.
+     * @return The service descriptor or null, if the class does not extend a generated service.
+     */
+    static ServiceDescriptor findServiceDescriptor(final Class<?> type) {
+        for (Class<?> clazz = type; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            final Class<?> enclosingClass = clazz.getEnclosingClass();
+            if (enclosingClass == null || !BindableService.class.isAssignableFrom(clazz)) {
+                continue;
+            }
+            try {
+                final Method method = enclosingClass.getMethod("getServiceDescriptor");
+                if (Modifier.isStatic(method.getModifiers())
+                        && ServiceDescriptor.class.isAssignableFrom(method.getReturnType())) {
+                    return (ServiceDescriptor) method.invoke(null);
+                }
+            } catch (final ReflectiveOperationException e) {
+                log.trace("No service descriptor found for: {}", clazz.getName(), e);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public ServerServiceDefinition bindService() {
+        final ServerServiceDefinition.Builder builder = ServerServiceDefinition.builder(this.serviceDescriptor);
+        for (final MethodDescriptor<?, ?> method : this.serviceDescriptor.getMethods()) {
+            builder.addMethod(lazyMethod(method));
+        }
+        return builder.build();
+    }
+
+    private <ReqT, RespT> ServerMethodDefinition<ReqT, RespT> lazyMethod(final MethodDescriptor<ReqT, RespT> method) {
+        return ServerMethodDefinition.create(method, new LazyServerCallHandler<>(method));
+    }
+
+    /**
+     * Gets the definition of the actual service implementation, creating it if necessary.
+     *
+     * @return The definition of the actual service implementation.
+     */
+    private ServerServiceDefinition getDelegate() {
+        ServerServiceDefinition result = this.delegate;
+        if (result == null) {
+            synchronized (this) {
+                result = this.delegate;
+                if (result == null) {
+                    final long start = System.nanoTime();
+                    result = this.serviceFactory.get().bindService();
+                    final Duration duration = Duration.ofNanos(System.nanoTime() - start);
+                    this.delegate = result;
+                    log.info("Initialized lazy gRPC service: {}, bean: {}, in {}ms", this.serviceDescriptor.getName(),
+                            this.beanName, duration.toMillis());
+                    this.initializationListener.accept(this.serviceDescriptor.getName(), duration);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A call handler that delegates to the handler of the actual service implementation.
+     *
+     * @param <ReqT> The type of the request.
+     * @param <RespT> The type of the response.
+     */
+    private final class LazyServerCallHandler<ReqT, RespT> implements ServerCallHandler<ReqT, RespT> {
+
+        private final MethodDescriptor<ReqT, RespT> method;
+        private volatile ServerCallHandler<ReqT, RespT> handler;
+
+        LazyServerCallHandler(final MethodDescriptor<ReqT, RespT> method) {
+            this.method = method;
+        }
+
+        @Override
+        public Listener<ReqT> startCall(final ServerCall<ReqT, RespT> call, final Metadata headers) {
+            ServerCallHandler<ReqT, RespT> target = this.handler;
+            if (target == null) {
+                try {
+                    target = resolveHandler();
+                } catch (final RuntimeException e) {
+                    log.warn("Failed to initialize lazy gRPC service: {}, bean: {}",
+                            LazyGrpcService.this.serviceDescriptor.getName(), LazyGrpcService.this.beanName, e);
+                    call.close(Status.UNAVAILABLE.withDescription("Failed to initialize the service").withCause(e),
+                            new Metadata());
+                    return new Listener<ReqT>() {};
+                }
+                this.handler = target;
+            }
+            return target.startCall(call, headers);
+        }
+
+        @SuppressWarnings("unchecked")
+        private ServerCallHandler<ReqT, RespT> resolveHandler() {
+            final ServerMethodDefinition<?, ?> target = getDelegate().getMethod(this.method.getFullMethodName());
+            if (target == null) {
+                throw new IllegalStateException("The service implementation does not provide the method: "
+                        + this.method.getFullMethodName());
+            }
+            return (ServerCallHandler<ReqT, RespT>) target.getServerCallHandler();
+        }
+
+    }
+
+}
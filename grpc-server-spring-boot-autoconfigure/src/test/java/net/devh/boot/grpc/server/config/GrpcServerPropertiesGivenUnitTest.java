@@ -34,7 +34,9 @@
 @ExtendWith(SpringExtension.class)
 @SpringBootTest(properties = {
         "grpc.server.keepAliveTime=42m",
-        "grpc.server.maxInboundMessageSize=5MB"
+        "grpc.server.maxInboundMessageSize=5MB",
+        "grpc.server.flowControlWindow=2MB",
+        "grpc.server.maxConnectionAge=30m"
 })
 class GrpcServerPropertiesGivenUnitTest {
 
@@ -45,6 +47,8 @@ class GrpcServerPropertiesGivenUnitTest {
     void test() {
         assertEquals(Duration.ofMinutes(42), this.grpcServerProperties.getKeepAliveTime());
         assertEquals(DataSize.ofMegabytes(5), this.grpcServerProperties.getMaxInboundMessageSize());
+        assertEquals(DataSize.ofMegabytes(2), this.grpcServerProperties.getFlowControlWindow());
+        assertEquals(Duration.ofMinutes(30), this.grpcServerProperties.getMaxConnectionAge());
     }
 
 }
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.server.config;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import net.devh.boot.grpc.common.netty.NettyTransportType;
+import net.devh.boot.grpc.server.config.GrpcServerProperties.Netty;
+
+/**
+ * Tests whether the netty options correctly detect when dedicated event loop groups are required.
+ */
+class GrpcServerPropertiesNettyTest {
+
+    @Test
+    void testDefaultsUseSharedEventLoops() {
+        assertFalse(new Netty().requiresCustomEventLoops());
+    }
+
+    @Test
+    void testEachOptionRequiresCustomEventLoops() {
+        final Netty transport = new Netty();
+        transport.setTransport(NettyTransportType.NIO);
+        assertTrue(transport.requiresCustomEventLoops());
+
+        final Netty bossThreads = new Netty();
+        bossThreads.setBossThreads(2);
+        assertTrue(bossThreads.requiresCustomEventLoops());
+
+        final Netty workerThreads = new Netty();
+        workerThreads.setWorkerThreads(4);
+        assertTrue(workerThreads.requiresCustomEventLoops());
+
+        final Netty reusePort = new Netty();
+        reusePort.setReusePort(true);
+        assertTrue(reusePort.requiresCustomEventLoops());
+
+        final Netty listeners = new Netty();
+        listeners.setListeners(2);
+        assertTrue(listeners.requiresCustomEventLoops());
+    }
+
+}
@@ -34,7 +34,9 @@
 @ExtendWith(SpringExtension.class)
 @SpringBootTest(properties = {
         "grpc.server.keepAliveTime=42",
-        "grpc.server.maxInboundMessageSize=5242880"
+        "grpc.server.maxInboundMessageSize=5242880",
+        "grpc.server.flowControlWindow=2097152",
+        "grpc.server.maxConnectionAge=1800"
 })
 class GrpcServerPropertiesNoUnitTest {
 
@@ -45,6 +47,8 @@ class GrpcServerPropertiesNoUnitTest {
     void test() {
         assertEquals(Duration.ofSeconds(42), this.grpcServerProperties.getKeepAliveTime());
         assertEquals(DataSize.ofMegabytes(5), this.grpcServerProperties.getMaxInboundMessageSize());
+        assertEquals(DataSize.ofMegabytes(2), this.grpcServerProperties.getFlowControlWindow());
+        assertEquals(Duration.ofMinutes(30), this.grpcServerProperties.getMaxConnectionAge());
     }
 
 }
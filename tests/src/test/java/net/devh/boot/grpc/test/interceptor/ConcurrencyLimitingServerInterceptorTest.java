@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.test.interceptor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.protobuf.Empty;
+
+import io.grpc.Attributes;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.MethodDescriptor.MethodType;
+import io.grpc.ServerCall;
+import io.grpc.ServerCall.Listener;
+import io.grpc.ServerCallHandler;
+import io.grpc.Status;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.devh.boot.grpc.server.limit.AimdLimit;
+import net.devh.boot.grpc.server.limit.ConcurrencyLimit;
+import net.devh.boot.grpc.server.limit.ConcurrencyLimiter;
+import net.devh.boot.grpc.server.limit.ConcurrencyLimitingServerInterceptor;
+import net.devh.boot.grpc.server.limit.GradientLimit;
+import net.devh.boot.grpc.test.proto.SomeType;
+import net.devh.boot.grpc.test.proto.TestServiceGrpc;
+
+/**
+ * Tests the {@link ConcurrencyLimitingServerInterceptor} and the concurrency limit algorithms.
+ */
+class ConcurrencyLimitingServerInterceptorTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private ServerCall<Empty, SomeType> startedCall;
+    private final ServerCallHandler<Empty, SomeType> handler = (call, headers) -> {
+        this.startedCall = call;
+        return new Listener<Empty>() {};
+    };
+
+    @Test
+    void testRejectExcessCalls() {
+        final ConcurrencyLimitingServerInterceptor interceptor = new ConcurrencyLimitingServerInterceptor(
+                () -> new AimdLimit(2, 1, 10, 0.5, Duration.ofSeconds(5)), false);
+
+        final TestServerCall first = new TestServerCall(TestServiceGrpc.getNormalMethod());
+        final TestServerCall second = new TestServerCall(TestServiceGrpc.getUnimplementedMethod());
+        final TestServerCall third = new TestServerCall(TestServiceGrpc.getNormalMethod());
+        interceptor.interceptCall(first, new Metadata(), this.handler);
+        final ServerCall<Empty, SomeType> firstStarted = this.startedCall;
+        interceptor.interceptCall(second, new Metadata(), this.handler);
+        interceptor.interceptCall(third, new Metadata(), this.handler);
+
+        assertNull(first.status);
+        assertNull(second.status);
+        assertEquals(Status.Code.RESOURCE_EXHAUSTED, third.status.getCode());
+
+        final ConcurrencyLimiter limiter = interceptor.getLimiters().get("TestService");
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(1, limiter.getRejected());
+
+        // Releasing a permit allows new calls
+        firstStarted.close(Status.OK, new Metadata());
+        assertEquals(Status.Code.OK, first.status.getCode());
+        assertEquals(1, limiter.getInFlight());
+        final TestServerCall fourth = new TestServerCall(TestServiceGrpc.getNormalMethod());
+        interceptor.interceptCall(fourth, new Metadata(), this.handler);
+        assertNull(fourth.status);
+        assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    void testCancelReleasesPermit() {
+        final ConcurrencyLimitingServerInterceptor interceptor = new ConcurrencyLimitingServerInterceptor(
+                () -> new AimdLimit(1, 1, 10, 0.5, Duration.ofSeconds(5)), true);
+
+        final TestServerCall call = new TestServerCall(TestServiceGrpc.getNormalMethod());
+        final Listener<Empty> listener = interceptor.interceptCall(call, new Metadata(), this.handler);
+        final ConcurrencyLimiter limiter = interceptor.getLimiters().get("TestService/normal");
+        assertEquals(1, limiter.getInFlight());
+
+        listener.onCancel();
+        assertEquals(0, limiter.getInFlight());
+        // Cancellation doesn't affect the limit and the permit is released only once
+        listener.onComplete();
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(1, limiter.getLimit());
+    }
+
+    @Test
+    void testLongStreamDoesNotReduceLimit() throws InterruptedException {
+        final ConcurrencyLimitingServerInterceptor interceptor = new ConcurrencyLimitingServerInterceptor(
+                () -> new AimdLimit(4, 1, 10, 0.5, Duration.ofMillis(1)), false);
+        final MethodDescriptor<Empty, SomeType> streamingMethod = TestServiceGrpc.getNormalMethod().toBuilder()
+                .setType(MethodType.BIDI_STREAMING)
+                .build();
+
+        interceptor.interceptCall(new TestServerCall(streamingMethod), new Metadata(), this.handler);
+        final ServerCall<Empty, SomeType> stream = this.startedCall;
+        interceptor.interceptCall(new TestServerCall(TestServiceGrpc.getNormalMethod()), new Metadata(),
+                this.handler);
+        final ServerCall<Empty, SomeType> unary = this.startedCall;
+        final ConcurrencyLimiter limiter = interceptor.getLimiters().get("TestService");
+        assertEquals(2, limiter.getInFlight());
+
+        // Both calls take longer than the timeout
+        Thread.sleep(10);
+        stream.close(Status.OK, new Metadata());
+        assertEquals(1, limiter.getInFlight());
+        assertEquals(4, limiter.getLimit());
+        unary.close(Status.OK, new Metadata());
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void testCreationListener() {
+        final ConcurrencyLimitingServerInterceptor interceptor = new ConcurrencyLimitingServerInterceptor(
+                () -> new AimdLimit(1, 1, 10, 0.5, Duration.ofSeconds(5)), true);
+        interceptor.interceptCall(new TestServerCall(TestServiceGrpc.getNormalMethod()), new Metadata(),
+                this.handler);
+
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        interceptor.addCreationListener((name, limiter) -> registry.gauge(name, limiter, ConcurrencyLimiter::getLimit));
+        interceptor.interceptCall(new TestServerCall(TestServiceGrpc.getUnimplementedMethod()), new Metadata(),
+                this.handler);
+
+        assertEquals(2, registry.getMeters().size());
+    }
+
+    @Test
+    void testAimdLimit() {
+        final AimdLimit limit = new AimdLimit(10, 2, 12, 0.5, Duration.ofSeconds(1));
+        // Not in use
+        limit.onSample(MILLIS, 1, false);
+        assertEquals(10, limit.getLimit());
+        // Additive increase
+        limit.onSample(MILLIS, 10, false);
+        limit.onSample(MILLIS, 10, false);
+        limit.onSample(MILLIS, 10, false);
+        assertEquals(12, limit.getLimit());
+        // Multiplicative decrease
+        limit.onSample(MILLIS, 10, true);
+        assertEquals(6, limit.getLimit());
+        limit.onSample(2000 * MILLIS, 6, false);
+        assertEquals(3, limit.getLimit());
+        limit.onSample(MILLIS, 3, true);
+        assertEquals(2, limit.getLimit());
+    }
+
+    @Test
+    void testGradientLimit() {
+        final GradientLimit limit = new GradientLimit(20, 1, 100, 1.5, 1.0);
+        // Stable latencies increase the limit
+        limit.onSample(10 * MILLIS, 20, false);
+        final int increased = limit.getLimit();
+        assertTrue(increased > 20, "Expected limit > 20, but was " + increased);
+        // Rising latencies decrease the limit
+        for (int i = 0; i < 5; i++) {
+            limit.onSample(100 * MILLIS, limit.getLimit(), false);
+        }
+        assertTrue(limit.getLimit() < increased, "Expected limit < " + increased + ", but was " + limit.getLimit());
+        // Overloads decrease the limit down to the minimum
+        for (int i = 0; i < 20; i++) {
+            limit.onSample(10 * MILLIS, limit.getLimit(), true);
+        }
+        assertTrue(limit.getLimit() <= 5, "Expected limit <= 5, but was " + limit.getLimit());
+    }
+
+    @Test
+    void testConcurrentSamples() throws Exception {
+        // No increase is lost
+        final AimdLimit aimd = new AimdLimit(1, 1, 100000, 0.5, Duration.ofSeconds(1));
+        sampleConcurrently(aimd, 4, 1000, false);
+        assertEquals(4001, aimd.getLimit());
+
+        final GradientLimit gradient = new GradientLimit(50, 2, 100, 1.5, 1.0);
+        sampleConcurrently(gradient, 4, 1000, true);
+        final int decreased = gradient.getLimit();
+        assertTrue(decreased <= 5, "Expected limit <= 5, but was " + decreased);
+        // Later samples are still applied
+        for (int i = 0; i < 20; i++) {
+            gradient.onSample(10 * MILLIS, gradient.getLimit(), false);
+        }
+        assertTrue(gradient.getLimit() > decreased, "Expected limit > " + decreased + ", but was "
+                + gradient.getLimit());
+    }
+
+    private static void sampleConcurrently(final ConcurrencyLimit limit, final int threads, final int samples,
+            final boolean overloaded) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < samples; i++) {
+                        limit.onSample(10 * MILLIS, 1000000, overloaded);
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static final class TestServerCall extends ServerCall<Empty, SomeType> {
+
+        private final MethodDescriptor<Empty, SomeType> method;
+        private Status status;
+
+        TestServerCall(final MethodDescriptor<Empty, SomeType> method) {
+            this.method = method;
+        }
+
+        @Override
+        public void request(final int numMessages) {}
+
+        @Override
+        public void sendHeaders(final Metadata headers) {}
+
+        @Override
+        public void sendMessage(final SomeType message) {}
+
+        @Override
+        public void close(final Status status, final Metadata trailers) {
+            this.status = status;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public Attributes getAttributes() {
+            return Attributes.EMPTY;
+        }
+
+        @Override
+        public MethodDescriptor<Empty, SomeType> getMethodDescriptor() {
+            return this.method;
+        }
+
+    }
+
+}
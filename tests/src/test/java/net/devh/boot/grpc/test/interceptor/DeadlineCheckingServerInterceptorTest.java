@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.test.interceptor;
+
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_DEADLINE_REJECTED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.protobuf.Empty;
+
+import io.grpc.Attributes;
+import io.grpc.Context;
+import io.grpc.Context.CancellableContext;
+import io.grpc.Deadline;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCall.Listener;
+import io.grpc.ServerCallHandler;
+import io.grpc.Status;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.devh.boot.grpc.server.config.GrpcServerProperties;
+import net.devh.boot.grpc.server.limit.DeadlineCheckingServerInterceptor;
+import net.devh.boot.grpc.test.proto.SomeType;
+import net.devh.boot.grpc.test.proto.TestServiceGrpc;
+
+/**
+ * Tests whether the {@link DeadlineCheckingServerInterceptor} rejects calls whose deadline has (almost) expired.
+ */
+class DeadlineCheckingServerInterceptorTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final FixedTicker ticker = new FixedTicker();
+    private final ServerCallHandler<Empty, SomeType> handler = (call, headers) -> new Listener<Empty>() {};
+
+    @AfterEach
+    void shutdown() {
+        this.scheduler.shutdownNow();
+    }
+
+    @Test
+    void testRejectExpiredDeadlines() {
+        final DeadlineCheckingServerInterceptor interceptor =
+                new DeadlineCheckingServerInterceptor(new GrpcServerProperties.DeadlineCheck());
+
+        assertEquals(Status.Code.OK, call(interceptor, TestServiceGrpc.getNormalMethod(), null));
+        assertEquals(Status.Code.OK, call(interceptor, TestServiceGrpc.getNormalMethod(), Duration.ofMillis(1)));
+        assertEquals(Status.Code.DEADLINE_EXCEEDED,
+                call(interceptor, TestServiceGrpc.getNormalMethod(), Duration.ofMillis(-1)));
+    }
+
+    @Test
+    void testMinRemainingPerMethod() {
+        final GrpcServerProperties.DeadlineCheck config = new GrpcServerProperties.DeadlineCheck();
+        config.setMinRemaining(Duration.ofMillis(10));
+        config.getMethods().put("TestService", Duration.ofMillis(50));
+        config.getMethods().put("TestService/normal", Duration.ofMillis(100));
+        final DeadlineCheckingServerInterceptor interceptor = new DeadlineCheckingServerInterceptor(config);
+
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        interceptor.addCreationListener((method, rejected) -> FunctionCounter
+                .builder(METRIC_NAME_SERVER_DEADLINE_REJECTED, rejected, LongSupplier::getAsLong)
+                .tag("method", method.getFullMethodName())
+                .register(registry));
+
+        final MethodDescriptor<Empty, SomeType> normal = TestServiceGrpc.getNormalMethod();
+        final MethodDescriptor<Empty, SomeType> unimplemented = TestServiceGrpc.getUnimplementedMethod();
+        assertEquals(Status.Code.DEADLINE_EXCEEDED, call(interceptor, normal, Duration.ofMillis(100)));
+        assertEquals(Status.Code.OK, call(interceptor, normal, Duration.ofMillis(101)));
+        assertEquals(Status.Code.DEADLINE_EXCEEDED, call(interceptor, unimplemented, Duration.ofMillis(50)));
+        assertEquals(Status.Code.DEADLINE_EXCEEDED, call(interceptor, unimplemented, Duration.ofMillis(20)));
+        assertEquals(Status.Code.OK, call(interceptor, unimplemented, Duration.ofMillis(51)));
+
+        assertEquals(1, counter(registry, normal));
+        assertEquals(2, counter(registry, unimplemented));
+    }
+
+    private static double counter(final SimpleMeterRegistry registry, final MethodDescriptor<?, ?> method) {
+        return registry.get(METRIC_NAME_SERVER_DEADLINE_REJECTED)
+                .tag("method", method.getFullMethodName())
+                .functionCounter()
+                .count();
+    }
+
+    private Status.Code call(final DeadlineCheckingServerInterceptor interceptor,
+            final MethodDescriptor<Empty, SomeType> method, final Duration remaining) {
+        final TestServerCall call = new TestServerCall(method);
+        if (remaining == null) {
+            interceptor.interceptCall(call, new Metadata(), this.handler);
+        } else {
+            final Deadline deadline = Deadline.after(remaining.toNanos(), TimeUnit.NANOSECONDS, this.ticker);
+            final CancellableContext context = Context.current().withDeadline(deadline, this.scheduler);
+            final Context previous = context.attach();
+            try {
+                interceptor.interceptCall(call, new Metadata(), this.handler);
+            } finally {
+                context.detach(previous);
+                context.cancel(null);
+            }
+        }
+        return call.status == null ? Status.Code.OK : call.status.getCode();
+    }
+
+    private static final class FixedTicker extends Deadline.Ticker {
+
+        @Override
+        public long nanoTime() {
+            return 0;
+        }
+
+    }
+
+    private static final class TestServerCall extends ServerCall<Empty, SomeType> {
+
+        private final MethodDescriptor<Empty, SomeType> method;
+        private Status status;
+
+        TestServerCall(final MethodDescriptor<Empty, SomeType> method) {
+            this.method = method;
+        }
+
+        @Override
+        public void request(final int numMessages) {}
+
+        @Override
+        public void sendHeaders(final Metadata headers) {}
+
+        @Override
+        public void sendMessage(final SomeType message) {}
+
+        @Override
+        public void close(final Status status, final Metadata trailers) {
+            this.status = status;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public Attributes getAttributes() {
+            return Attributes.EMPTY;
+        }
+
+        @Override
+        public MethodDescriptor<Empty, SomeType> getMethodDescriptor() {
+            return this.method;
+        }
+
+    }
+
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.test.interceptor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCall.Listener;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.grpc.Status.Code;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.devh.boot.grpc.server.config.GrpcServerProperties;
+import net.devh.boot.grpc.server.interceptor.FusedServerInterceptor;
+import net.devh.boot.grpc.server.limit.ConcurrencyLimit;
+import net.devh.boot.grpc.server.limit.ConcurrencyLimitingServerInterceptor;
+import net.devh.boot.grpc.server.limit.DeadlineCheckingServerInterceptor;
+import net.devh.boot.grpc.server.metric.MetricCollectingServerInterceptor;
+import net.devh.boot.grpc.server.scope.GrpcRequestScope;
+import net.devh.boot.grpc.server.security.interceptors.ExceptionTranslatingServerInterceptor;
+
+/**
+ * Tests whether {@link FusedServerInterceptor#fuse(List)} only fuses adjacent built-in interceptors.
+ */
+class FusedServerInterceptorTest {
+
+    private final GrpcRequestScope scope = new GrpcRequestScope();
+    private final MetricCollectingServerInterceptor metrics =
+            new MetricCollectingServerInterceptor(new SimpleMeterRegistry());
+    private final ExceptionTranslatingServerInterceptor translator = new ExceptionTranslatingServerInterceptor();
+    private final ServerInterceptor custom = new ServerInterceptor() {
+
+        @Override
+        public <ReqT, RespT> Listener<ReqT> interceptCall(final ServerCall<ReqT, RespT> call, final Metadata headers,
+                final ServerCallHandler<ReqT, RespT> next) {
+            return next.startCall(call, headers);
+        }
+
+    };
+
+    @Test
+    void testFuseAll() {
+        final List<ServerInterceptor> fused =
+                FusedServerInterceptor.fuse(Arrays.asList(this.scope, this.metrics, this.translator, this.custom));
+        assertEquals(2, fused.size());
+        assertTrue(fused.get(0) instanceof FusedServerInterceptor);
+        assertSame(this.custom, fused.get(1));
+    }
+
+    @Test
+    void testFuseOnlyAdjacent() {
+        final List<ServerInterceptor> fused =
+                FusedServerInterceptor.fuse(Arrays.asList(this.scope, this.custom, this.metrics, this.translator));
+        assertEquals(3, fused.size());
+        assertSame(this.scope, fused.get(0));
+        assertSame(this.custom, fused.get(1));
+        assertTrue(fused.get(2) instanceof FusedServerInterceptor);
+    }
+
+    @Test
+    void testFuseRequestScopeAcrossLimits() {
+        final ServerInterceptor deadlineCheck =
+                new DeadlineCheckingServerInterceptor(new GrpcServerProperties.DeadlineCheck());
+        final ServerInterceptor concurrencyLimit =
+                new ConcurrencyLimitingServerInterceptor(() -> ConcurrencyLimit.create(
+                        new GrpcServerProperties.ConcurrencyLimit()), false);
+        final List<ServerInterceptor> fused = FusedServerInterceptor
+                .fuse(Arrays.asList(this.scope, deadlineCheck, concurrencyLimit, this.metrics, this.translator));
+        assertEquals(3, fused.size());
+        assertSame(deadlineCheck, fused.get(0));
+        assertSame(concurrencyLimit, fused.get(1));
+        assertEquals("FusedServerInterceptor [requestScope=true, metricCollector=true, exceptionTranslator=true]",
+                fused.get(2).toString());
+    }
+
+    @Test
+    void testKeepRequestScopeBeforeUnrelatedInterceptors() {
+        final ServerInterceptor deadlineCheck =
+                new DeadlineCheckingServerInterceptor(new GrpcServerProperties.DeadlineCheck());
+        final List<ServerInterceptor> fused = FusedServerInterceptor
+                .fuse(Arrays.asList(this.scope, deadlineCheck, this.custom, this.metrics, this.translator));
+        assertEquals(4, fused.size());
+        assertSame(this.scope, fused.get(0));
+        assertSame(deadlineCheck, fused.get(1));
+        assertSame(this.custom, fused.get(2));
+        assertTrue(fused.get(3) instanceof FusedServerInterceptor);
+    }
+
+    @Test
+    void testTranslatorUsesTranslateException() {
+        final AtomicInteger translated = new AtomicInteger();
+        final ExceptionTranslatingServerInterceptor translator = new ExceptionTranslatingServerInterceptor() {
+
+            @Override
+            public boolean translateException(final ServerCall<?, ?> call, final RuntimeException e) {
+                translated.incrementAndGet();
+                return super.translateException(call, e);
+            }
+
+        };
+        final AtomicReference<Status> status = new AtomicReference<>();
+        final ServerCall<Object, Object> call = new ServerCall<Object, Object>() {
+
+            @Override
+            public void request(final int numMessages) {}
+
+            @Override
+            public void sendHeaders(final Metadata headers) {}
+
+            @Override
+            public void sendMessage(final Object message) {}
+
+            @Override
+            public void close(final Status closeStatus, final Metadata trailers) {
+                status.set(closeStatus);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return false;
+            }
+
+            @Override
+            public MethodDescriptor<Object, Object> getMethodDescriptor() {
+                return null;
+            }
+
+        };
+
+        translator.interceptCall(call, new Metadata(), (c, h) -> {
+            throw new AccessDeniedException("denied");
+        });
+        assertEquals(1, translated.get());
+        assertEquals(Code.PERMISSION_DENIED, status.get().getCode());
+
+        final Listener<Object> failingListener = new Listener<Object>() {
+
+            @Override
+            public void onHalfClose() {
+                throw new BadCredentialsException("unauthenticated");
+            }
+
+        };
+        final Listener<Object> listener = translator.interceptCall(call, new Metadata(), (c, h) -> failingListener);
+        listener.onHalfClose();
+        assertEquals(2, translated.get());
+        assertEquals(Code.UNAUTHENTICATED, status.get().getCode());
+
+        assertThrows(IllegalStateException.class, () -> translator.interceptCall(call, new Metadata(), (c, h) -> {
+            throw new IllegalStateException("other");
+        }));
+        assertEquals(3, translated.get());
+    }
+
+    @Test
+    void testKeepOrder() {
+        final List<ServerInterceptor> fused =
+                FusedServerInterceptor.fuse(Arrays.asList(this.translator, this.metrics, this.scope));
+        assertEquals(Arrays.asList(this.translator, this.metrics, this.scope), fused);
+    }
+
+}
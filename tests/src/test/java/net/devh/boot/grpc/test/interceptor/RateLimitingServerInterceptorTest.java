@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.test.interceptor;
+
+import static net.devh.boot.grpc.server.security.interceptors.AuthenticatingServerInterceptor.AUTHENTICATION_CONTEXT_KEY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import com.google.common.base.Ticker;
+import com.google.protobuf.Empty;
+
+import io.grpc.Attributes;
+import io.grpc.Context;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCall.Listener;
+import io.grpc.ServerCallHandler;
+import io.grpc.Status;
+import net.devh.boot.grpc.server.config.GrpcServerProperties;
+import net.devh.boot.grpc.server.limit.RateLimitingServerInterceptor;
+import net.devh.boot.grpc.server.limit.TokenBucket;
+import net.devh.boot.grpc.test.proto.SomeType;
+import net.devh.boot.grpc.test.proto.TestServiceGrpc;
+
+/**
+ * Tests the {@link RateLimitingServerInterceptor} and the {@link TokenBucket}.
+ */
+class RateLimitingServerInterceptorTest {
+
+    private final MockTicker ticker = new MockTicker();
+    private final ServerCallHandler<Empty, SomeType> handler = (call, headers) -> new Listener<Empty>() {};
+
+    @Test
+    void testTokenBucket() {
+        final TokenBucket bucket = new TokenBucket(10, 2, 0);
+        assertTrue(bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(0));
+        assertFalse(bucket.tryAcquire(0));
+        assertFalse(bucket.isFull(0));
+        // One token every 100ms
+        assertFalse(bucket.tryAcquire(TimeUnit.MILLISECONDS.toNanos(99)));
+        assertTrue(bucket.tryAcquire(TimeUnit.MILLISECONDS.toNanos(100)));
+        assertFalse(bucket.tryAcquire(TimeUnit.MILLISECONDS.toNanos(100)));
+        assertTrue(bucket.isFull(TimeUnit.MILLISECONDS.toNanos(300)));
+    }
+
+    @Test
+    void testLimitPerMethodAndService() {
+        final GrpcServerProperties.RateLimit config = new GrpcServerProperties.RateLimit();
+        config.getMethods().put("TestService", bucket(1, 1));
+        config.getMethods().put("TestService/normal", bucket(1, 2));
+        final RateLimitingServerInterceptor interceptor = new RateLimitingServerInterceptor(config, this.ticker);
+
+        assertEquals(Status.Code.OK, call(interceptor, TestServiceGrpc.getNormalMethod()));
+        assertEquals(Status.Code.OK, call(interceptor, TestServiceGrpc.getNormalMethod()));
+        assertEquals(Status.Code.RESOURCE_EXHAUSTED, call(interceptor, TestServiceGrpc.getNormalMethod()));
+        // The service limit applies to the other methods
+        assertEquals(Status.Code.OK, call(interceptor, TestServiceGrpc.getUnimplementedMethod()));
+        assertEquals(Status.Code.RESOURCE_EXHAUSTED, call(interceptor, TestServiceGrpc.getUnimplementedMethod()));
+        assertEquals(2, interceptor.getRejected());
+
+        this.ticker.advance(1, TimeUnit.SECONDS);
+        assertEquals(Status.Code.OK, call(interceptor, TestServiceGrpc.getNormalMethod()));
+        assertEquals(Status.Code.OK, call(interceptor, TestServiceGrpc.getUnimplementedMethod()));
+    }
+
+    @Test
+    void testUnlimitedMethod() {
+        final GrpcServerProperties.RateLimit config = new GrpcServerProperties.RateLimit();
+        config.getMethods().put("TestService/secure", bucket(1, 1));
+        final RateLimitingServerInterceptor interceptor = new RateLimitingServerInterceptor(config, this.ticker);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(Status.Code.OK, call(interceptor, TestServiceGrpc.getNormalMethod()));
+        }
+        assertEquals(0, interceptor.getBucketCount());
+    }
+
+    @Test
+    void testLimitPerPrincipal() {
+        final GrpcServerProperties.RateLimit config = new GrpcServerProperties.RateLimit();
+        config.setPerPrincipal(true);
+        config.setMaxKeys(3);
+        config.setEvictionInterval(Duration.ofSeconds(10));
+        config.getMethods().put("TestService", bucket(1, 1));
+        final RateLimitingServerInterceptor interceptor = new RateLimitingServerInterceptor(config, this.ticker);
+
+        assertEquals(Status.Code.OK, callAs(interceptor, "noisy"));
+        assertEquals(Status.Code.RESOURCE_EXHAUSTED, callAs(interceptor, "noisy"));
+        assertEquals(Status.Code.OK, callAs(interceptor, "quiet"));
+        // Unauthenticated
+        assertEquals(Status.Code.OK, call(interceptor, TestServiceGrpc.getNormalMethod()));
+        assertEquals(3, interceptor.getBucketCount());
+
+        // Too many buckets: Fall back to the shared bucket
+        assertEquals(Status.Code.RESOURCE_EXHAUSTED, callAs(interceptor, "other"));
+        assertEquals(3, interceptor.getBucketCount());
+
+        // Idle buckets are evicted
+        this.ticker.advance(10, TimeUnit.SECONDS);
+        assertEquals(Status.Code.OK, callAs(interceptor, "other"));
+        assertEquals(1, interceptor.getBucketCount());
+    }
+
+    private static GrpcServerProperties.RateLimit.Bucket bucket(final double permitsPerSecond, final int burst) {
+        final GrpcServerProperties.RateLimit.Bucket bucket = new GrpcServerProperties.RateLimit.Bucket();
+        bucket.setPermitsPerSecond(permitsPerSecond);
+        bucket.setBurst(burst);
+        return bucket;
+    }
+
+    private Status.Code callAs(final RateLimitingServerInterceptor interceptor, final String principal) {
+        final Context context = Context.current()
+                .withValue(AUTHENTICATION_CONTEXT_KEY, new UsernamePasswordAuthenticationToken(principal, "secret"));
+        final Context previous = context.attach();
+        try {
+            return call(interceptor, TestServiceGrpc.getNormalMethod());
+        } finally {
+            context.detach(previous);
+        }
+    }
+
+    private Status.Code call(final RateLimitingServerInterceptor interceptor,
+            final MethodDescriptor<Empty, SomeType> method) {
+        final TestServerCall call = new TestServerCall(method);
+        interceptor.interceptCall(call, new Metadata(), this.handler);
+        return call.status == null ? Status.Code.OK : call.status.getCode();
+    }
+
+    private static final class MockTicker extends Ticker {
+
+        private long nanos = 0;
+
+        void advance(final long amount, final TimeUnit unit) {
+            this.nanos += unit.toNanos(amount);
+        }
+
+        @Override
+        public long read() {
+            return this.nanos;
+        }
+
+    }
+
+    private static final class TestServerCall extends ServerCall<Empty, SomeType> {
+
+        private final MethodDescriptor<Empty, SomeType> method;
+        private Status status;
+
+        TestServerCall(final MethodDescriptor<Empty, SomeType> method) {
+            this.method = method;
+        }
+
+        @Override
+        public void request(final int numMessages) {}
+
+        @Override
+        public void sendHeaders(final Metadata headers) {}
+
+        @Override
+        public void sendMessage(final SomeType message) {}
+
+        @Override
+        public void close(final Status status, final Metadata trailers) {
+            this.status = status;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public Attributes getAttributes() {
+            return Attributes.EMPTY;
+        }
+
+        @Override
+        public MethodDescriptor<Empty, SomeType> getMethodDescriptor() {
+            return this.method;
+        }
+
+    }
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.test.metric;
+
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_CLIENT_BACKEND_DURATION;
+import static net.devh.boot.grpc.common.metric.MetricConstants.TAG_ADDRESS;
+import static net.devh.boot.grpc.common.metric.MetricConstants.TAG_CLIENT_NAME;
+import static net.devh.boot.grpc.common.metric.MetricConstants.TAG_STATUS_CODE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.protobuf.Empty;
+
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.Status.Code;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.devh.boot.grpc.client.metric.BackendMetricsChannelConfigurer;
+import net.devh.boot.grpc.test.proto.SomeType;
+import net.devh.boot.grpc.test.proto.TestServiceGrpc;
+import net.devh.boot.grpc.test.server.TestServiceImpl;
+
+/**
+ * Tests that the {@link BackendMetricsChannelConfigurer} records the calls per client and address and removes the
+ * meters of stale addresses.
+ */
+class BackendMetricsChannelConfigurerTest {
+
+    private final MockClock clock = new MockClock();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry(SimpleConfig.DEFAULT, this.clock);
+    private final Map<String, Server> servers = new HashMap<>();
+    private final List<ManagedChannel> channels = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        for (final ManagedChannel channel : this.channels) {
+            channel.shutdownNow().awaitTermination(1, TimeUnit.SECONDS);
+        }
+        for (final Server server : this.servers.values()) {
+            server.shutdownNow().awaitTermination(1, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void testRecordsPerAddress() throws IOException {
+        final BackendMetricsChannelConfigurer configurer = new BackendMetricsChannelConfigurer(this.meterRegistry,
+                UnaryOperator.identity(), 10, Duration.ofMinutes(1));
+        call(configurer, "test", "backend-1");
+        call(configurer, "test", "backend-1");
+        call(configurer, "test", "backend-2");
+
+        assertEquals(2, timer("test", "backend-1").count());
+        assertEquals(1, timer("test", "backend-2").count());
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedAddress() throws IOException {
+        final BackendMetricsChannelConfigurer configurer = new BackendMetricsChannelConfigurer(this.meterRegistry,
+                UnaryOperator.identity(), 2, Duration.ofMinutes(1));
+        call(configurer, "test", "backend-1");
+        this.clock.add(Duration.ofSeconds(1));
+        call(configurer, "test", "backend-2");
+        this.clock.add(Duration.ofSeconds(1));
+        call(configurer, "test", "backend-3");
+
+        assertNull(findTimer("test", "backend-1"));
+        assertEquals(1, timer("test", "backend-2").count());
+        assertEquals(1, timer("test", "backend-3").count());
+    }
+
+    @Test
+    void testEvictsIdleAddresses() throws IOException {
+        final BackendMetricsChannelConfigurer configurer = new BackendMetricsChannelConfigurer(this.meterRegistry,
+                UnaryOperator.identity(), 10, Duration.ofMinutes(1));
+        call(configurer, "test", "backend-1");
+        call(configurer, "test", "backend-2");
+        this.clock.add(Duration.ofSeconds(50));
+        call(configurer, "test", "backend-2");
+        this.clock.add(Duration.ofSeconds(20));
+        // The resolver replaced backend-1 with backend-3
+        call(configurer, "test", "backend-3");
+
+        assertNull(findTimer("test", "backend-1"));
+        assertEquals(2, timer("test", "backend-2").count());
+        assertEquals(1, timer("test", "backend-3").count());
+    }
+
+    @Test
+    void testRecordsActiveCallsOfEvictedAddresses() throws IOException {
+        final BackendMetricsChannelConfigurer configurer = new BackendMetricsChannelConfigurer(this.meterRegistry,
+                UnaryOperator.identity(), 2, Duration.ofMinutes(1));
+        final ManagedChannel channel = channel(configurer, "test", "backend-1");
+        TestServiceGrpc.newBlockingStub(channel).normal(Empty.getDefaultInstance());
+        // Never sends the request, so the call stays active until it is cancelled
+        final ClientCall<Empty, SomeType> activeCall =
+                channel.newCall(TestServiceGrpc.getNormalMethod(), CallOptions.DEFAULT);
+        activeCall.start(new ClientCall.Listener<SomeType>() {}, new Metadata());
+        this.clock.add(Duration.ofSeconds(1));
+        call(configurer, "test", "backend-2");
+        this.clock.add(Duration.ofSeconds(1));
+        call(configurer, "test", "backend-3");
+        assertNull(findTimer("test", "backend-1"));
+
+        this.clock.add(Duration.ofSeconds(1));
+        activeCall.cancel("test", null);
+
+        // Recorded using new meters, that are tracked and thus evict the least recently used address again
+        assertEquals(1, timer("test", "backend-1", Code.CANCELLED).count());
+        assertNull(findTimer("test", "backend-2"));
+        assertEquals(1, timer("test", "backend-3").count());
+        assertEquals(2, this.meterRegistry.find(METRIC_NAME_CLIENT_BACKEND_DURATION).timers().size());
+    }
+
+    private void call(final BackendMetricsChannelConfigurer configurer, final String clientName,
+            final String serverName) throws IOException {
+        TestServiceGrpc.newBlockingStub(channel(configurer, clientName, serverName)).normal(Empty.getDefaultInstance());
+    }
+
+    private ManagedChannel channel(final BackendMetricsChannelConfigurer configurer, final String clientName,
+            final String serverName) throws IOException {
+        if (!this.servers.containsKey(serverName)) {
+            this.servers.put(serverName, InProcessServerBuilder.forName(serverName)
+                    .addService(new TestServiceImpl())
+                    .directExecutor()
+                    .build()
+                    .start());
+        }
+        final InProcessChannelBuilder builder = InProcessChannelBuilder.forName(serverName).directExecutor();
+        configurer.accept(builder, clientName);
+        final ManagedChannel channel = builder.build();
+        this.channels.add(channel);
+        return channel;
+    }
+
+    private Timer findTimer(final String clientName, final String address) {
+        return this.meterRegistry.find(METRIC_NAME_CLIENT_BACKEND_DURATION)
+                .tag(TAG_CLIENT_NAME, clientName)
+                .tag(TAG_ADDRESS, address)
+                .timer();
+    }
+
+    private Timer timer(final String clientName, final String address) {
+        return timer(clientName, address, Code.OK);
+    }
+
+    private Timer timer(final String clientName, final String address, final Code code) {
+        return this.meterRegistry.get(METRIC_NAME_CLIENT_BACKEND_DURATION)
+                .tag(TAG_CLIENT_NAME, clientName)
+                .tag(TAG_ADDRESS, address)
+                .tag(TAG_STATUS_CODE, code.name())
+                .timer();
+    }
+
+}
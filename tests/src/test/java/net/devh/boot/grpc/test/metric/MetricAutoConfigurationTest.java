@@ -18,6 +18,7 @@
 package net.devh.boot.grpc.test.metric;
 
 import static net.devh.boot.grpc.test.server.TestServiceImpl.METHOD_COUNT;
+import static net.devh.boot.grpc.test.server.TestServiceImpl.STREAM_TIMER_COUNT;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import org.junit.jupiter.api.Test;
@@ -61,7 +62,7 @@ public void testAutoDiscovery() {
         }
         assertEquals(METHOD_COUNT * 2,
                 this.meterRegistry.getMeters().stream().filter(Counter.class::isInstance).count());
-        assertEquals(METHOD_COUNT, this.meterRegistry.getMeters().stream().filter(Timer.class::isInstance).count());
+        assertEquals(METHOD_COUNT + STREAM_TIMER_COUNT, this.meterRegistry.getMeters().stream().filter(Timer.class::isInstance).count());
         log.info("--- Test completed ---");
     }
 
@@ -22,6 +22,7 @@
 import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_CLIENT_PROCESSING_DURATION;
 import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_CLIENT_REQUESTS_SENT;
 import static net.devh.boot.grpc.test.server.TestServiceImpl.METHOD_COUNT;
+import static net.devh.boot.grpc.test.server.TestServiceImpl.STREAM_TIMER_COUNT;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
@@ -47,7 +48,7 @@ public void testClientPreRegistration() {
         mcci.preregisterService(TestServiceGrpc.getServiceDescriptor());
 
         MetricTestHelper.logMeters(meterRegistry.getMeters());
-        assertEquals(METHOD_COUNT * 3, meterRegistry.getMeters().size());
+        assertEquals(METHOD_COUNT * 4 + STREAM_TIMER_COUNT, meterRegistry.getMeters().size());
         log.info("--- Test completed ---");
     }
 
@@ -63,7 +64,7 @@ public void testClientCustomization() {
         mcci.preregisterService(TestServiceGrpc.getServiceDescriptor());
 
         MetricTestHelper.logMeters(meterRegistry.getMeters());
-        assertEquals(METHOD_COUNT * 10, meterRegistry.getMeters().size());
+        assertEquals(METHOD_COUNT * 11 + STREAM_TIMER_COUNT * 4, meterRegistry.getMeters().size());
 
         final Counter counter = meterRegistry.find(METRIC_NAME_CLIENT_REQUESTS_SENT).counter();
         assertNotNull(counter);
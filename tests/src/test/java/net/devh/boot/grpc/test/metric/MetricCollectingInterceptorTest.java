@@ -18,6 +18,7 @@
 package net.devh.boot.grpc.test.metric;
 
 import static io.grpc.Status.Code.UNIMPLEMENTED;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_CLIENT_CALLS_ACTIVE;
 import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_CLIENT_PROCESSING_DURATION;
 import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_CLIENT_REQUESTS_SENT;
 import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_CLIENT_RESPONSES_RECEIVED;
@@ -31,9 +32,11 @@
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ListableBeanFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -44,12 +47,14 @@
 
 import io.grpc.StatusRuntimeException;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import net.devh.boot.grpc.client.autoconfigure.GrpcClientMetricAutoConfiguration;
 import net.devh.boot.grpc.client.inject.GrpcClient;
+import net.devh.boot.grpc.common.metric.GrpcActiveCallsEndpoint;
 import net.devh.boot.grpc.common.metric.MetricConstants;
 import net.devh.boot.grpc.server.autoconfigure.GrpcServerMetricAutoConfiguration;
 import net.devh.boot.grpc.test.config.BaseAutoConfiguration;
@@ -75,6 +80,9 @@ public class MetricCollectingInterceptorTest {
     @Autowired
     private MeterRegistry meterRegistry;
 
+    @Autowired
+    private ListableBeanFactory beanFactory;
+
     @GrpcClient("test")
     private TestServiceBlockingStub testService;
 
@@ -134,6 +142,16 @@ public void testMetricsSuccessfulCall() {
         // Client has network overhead so it has to be slower
         assertTrue(serverTimer.max(TimeUnit.SECONDS) <= clientTimer.max(TimeUnit.SECONDS));
 
+        // Active calls
+        final Gauge clientActiveCalls = this.meterRegistry
+                .find(METRIC_NAME_CLIENT_CALLS_ACTIVE)
+                .tag(TAG_METHOD_NAME, "normal")
+                .gauge();
+        assertNotNull(clientActiveCalls);
+        assertEquals(0, clientActiveCalls.value());
+        final Map<String, Object> activeCalls = new GrpcActiveCallsEndpoint(this.beanFactory).activeCalls();
+        assertEquals(0L, ((Map<?, ?>) activeCalls.get("metricCollectingClientInterceptor")).get("unary"));
+
         // --------------------------------------------------------------------
 
         // Invoke 2
@@ -21,9 +21,13 @@
 import static io.grpc.Status.Code.UNKNOWN;
 import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_PROCESSING_DURATION;
 import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_REQUESTS_RECEIVED;
+import static net.devh.boot.grpc.common.metric.MetricConstants.TAG_METHOD_NAME;
 import static net.devh.boot.grpc.test.server.TestServiceImpl.METHOD_COUNT;
+import static net.devh.boot.grpc.test.server.TestServiceImpl.STREAM_TIMER_COUNT;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import org.junit.jupiter.api.Test;
 
@@ -32,6 +36,8 @@
 import io.micrometer.core.instrument.Timer;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.common.metric.AbstractMetricCollectingInterceptor;
+import net.devh.boot.grpc.common.metric.AbstractMetricCollectingInterceptor.MetricSet;
 import net.devh.boot.grpc.server.metric.MetricCollectingServerInterceptor;
 import net.devh.boot.grpc.test.proto.TestServiceGrpc;
 import net.devh.boot.grpc.test.server.TestServiceImpl;
@@ -48,7 +54,7 @@ public void testServerPreRegistration() {
         mcsi.preregisterService(TestServiceGrpc.getServiceDescriptor());
 
         MetricTestHelper.logMeters(meterRegistry.getMeters());
-        assertEquals(METHOD_COUNT * 3, meterRegistry.getMeters().size());
+        assertEquals(METHOD_COUNT * 4 + STREAM_TIMER_COUNT, meterRegistry.getMeters().size());
         log.info("--- Test completed ---");
     }
 
@@ -64,7 +70,7 @@ public void testServerCustomization() {
         mcsi.preregisterService(new TestServiceImpl());
 
         MetricTestHelper.logMeters(meterRegistry.getMeters());
-        assertEquals(METHOD_COUNT * 10, meterRegistry.getMeters().size());
+        assertEquals(METHOD_COUNT * 11 + STREAM_TIMER_COUNT * 4, meterRegistry.getMeters().size());
 
         final Counter counter = meterRegistry.find(METRIC_NAME_SERVER_REQUESTS_RECEIVED).counter();
         assertNotNull(counter);
@@ -76,4 +82,32 @@ public void testServerCustomization() {
         log.info("--- Test completed ---");
     }
 
+    @Test
+    public void testServerMethodLimit() {
+        log.info("--- Starting tests with server method limit ---");
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final MetricCollectingServerInterceptor mcsi = new MetricCollectingServerInterceptor(meterRegistry);
+        mcsi.setMaxMethods(1);
+
+        final MetricSet first = mcsi.metricsFor(TestServiceGrpc.getNormalMethod());
+        assertSame(first, mcsi.metricsFor(TestServiceGrpc.getNormalMethod()));
+        // Same timer instance for each code
+        assertSame(first.getTimerFunction().apply(OK), first.getTimerFunction().apply(OK));
+        assertSame(first.getTimerFunction().apply(UNKNOWN), first.getTimerFunction().apply(UNKNOWN));
+
+        // All following methods share the overflow metrics
+        final MetricSet overflow = mcsi.metricsFor(TestServiceGrpc.getUnimplementedMethod());
+        assertNotSame(first, overflow);
+        assertSame(overflow, mcsi.metricsFor(TestServiceGrpc.getSecureMethod()));
+        assertEquals(AbstractMetricCollectingInterceptor.OVERFLOW_NAME,
+                meterRegistry.get(METRIC_NAME_SERVER_REQUESTS_RECEIVED)
+                        .tag(TAG_METHOD_NAME, AbstractMetricCollectingInterceptor.OVERFLOW_NAME)
+                        .counter().getId().getTag(TAG_METHOD_NAME));
+
+        // Pre-registered methods are not affected by the limit
+        mcsi.preregisterMethod(TestServiceGrpc.getSecureMethod());
+        assertNotSame(overflow, mcsi.metricsFor(TestServiceGrpc.getSecureMethod()));
+        log.info("--- Test completed ---");
+    }
+
 }
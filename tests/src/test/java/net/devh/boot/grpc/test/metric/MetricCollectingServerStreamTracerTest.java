@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.test.metric;
+
+import static net.devh.boot.grpc.common.metric.AbstractMetricCollectingInterceptor.OVERFLOW_NAME;
+import static net.devh.boot.grpc.common.metric.MessageSizeMetrics.INBOUND;
+import static net.devh.boot.grpc.common.metric.MessageSizeMetrics.OUTBOUND;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_MESSAGE_COMPRESSION_RATIO;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_MESSAGE_UNCOMPRESSED_SIZE;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_MESSAGE_WIRE_SIZE;
+import static net.devh.boot.grpc.common.metric.MetricConstants.TAG_DIRECTION;
+import static net.devh.boot.grpc.common.metric.MetricConstants.TAG_METHOD_NAME;
+import static net.devh.boot.grpc.common.metric.MetricConstants.TAG_SERVICE_NAME;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.protobuf.Empty;
+
+import io.grpc.Attributes;
+import io.grpc.CallOptions;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.MethodDescriptor.MethodType;
+import io.grpc.Server;
+import io.grpc.ServerStreamTracer;
+import io.grpc.ServerStreamTracer.ServerCallInfo;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.protobuf.ProtoUtils;
+import io.grpc.stub.ClientCalls;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.devh.boot.grpc.server.metric.MetricCollectingServerStreamTracerFactory;
+import net.devh.boot.grpc.test.proto.TestServiceGrpc;
+import net.devh.boot.grpc.test.server.TestServiceImpl;
+
+/**
+ * Tests that the {@link MetricCollectingServerStreamTracerFactory} records the message sizes.
+ */
+class MetricCollectingServerStreamTracerTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MetricCollectingServerStreamTracerFactory factory =
+            new MetricCollectingServerStreamTracerFactory(this.meterRegistry);
+
+    @Test
+    void testMessageSizes() {
+        final ServerStreamTracer tracer = this.factory.newServerStreamTracer(
+                TestServiceGrpc.getNormalMethod().getFullMethodName(), new Metadata());
+        tracer.serverCallStarted(new TestServerCallInfo<>(TestServiceGrpc.getNormalMethod()));
+        // Compressed request, reported in chunks while parsing
+        tracer.inboundMessageRead(0, 10, -1);
+        tracer.inboundUncompressedSize(15);
+        tracer.inboundUncompressedSize(25);
+        // Uncompressed response
+        tracer.outboundMessageSent(0, 20, 20);
+        tracer.outboundMessageSent(1, 30, 30);
+        tracer.streamClosed(Status.OK);
+
+        final DistributionSummary inboundWire = summary(METRIC_NAME_SERVER_MESSAGE_WIRE_SIZE, INBOUND);
+        assertEquals(1, inboundWire.count());
+        assertEquals(10, inboundWire.totalAmount());
+        assertEquals(40, summary(METRIC_NAME_SERVER_MESSAGE_UNCOMPRESSED_SIZE, INBOUND).totalAmount());
+        assertEquals(4, summary(METRIC_NAME_SERVER_MESSAGE_COMPRESSION_RATIO, INBOUND).totalAmount());
+
+        final DistributionSummary outboundWire = summary(METRIC_NAME_SERVER_MESSAGE_WIRE_SIZE, OUTBOUND);
+        assertEquals(2, outboundWire.count());
+        assertEquals(50, outboundWire.totalAmount());
+        assertNull(this.meterRegistry.find(METRIC_NAME_SERVER_MESSAGE_COMPRESSION_RATIO)
+                .tag(TAG_DIRECTION, OUTBOUND)
+                .summary());
+    }
+
+    @Test
+    void testUnknownSizes() {
+        // The in-process transport does not report any sizes
+        final ServerStreamTracer tracer = this.factory.newServerStreamTracer(
+                TestServiceGrpc.getNormalMethod().getFullMethodName(), new Metadata());
+        tracer.serverCallStarted(new TestServerCallInfo<>(TestServiceGrpc.getNormalMethod()));
+        tracer.inboundMessageRead(0, -1, -1);
+        tracer.outboundMessageSent(0, -1, -1);
+        tracer.streamClosed(Status.OK);
+
+        assertEquals(0, summary(METRIC_NAME_SERVER_MESSAGE_WIRE_SIZE, INBOUND).count());
+        assertEquals(0, summary(METRIC_NAME_SERVER_MESSAGE_WIRE_SIZE, OUTBOUND).count());
+    }
+
+    @Test
+    void testUnknownMethods() throws Exception {
+        final String serverName = "unknown-methods";
+        final Server server = InProcessServerBuilder.forName(serverName)
+                .addService(new TestServiceImpl())
+                .addStreamTracerFactory(this.factory)
+                .directExecutor()
+                .build()
+                .start();
+        final ManagedChannel channel = InProcessChannelBuilder.forName(serverName).directExecutor().build();
+        try {
+            // A method of an unknown service and a path without a service name
+            for (final String fullMethodName : new String[] {"bogus.Service/method", "foo"}) {
+                final MethodDescriptor<Empty, Empty> method = MethodDescriptor.<Empty, Empty>newBuilder()
+                        .setType(MethodType.UNARY)
+                        .setFullMethodName(fullMethodName)
+                        .setRequestMarshaller(ProtoUtils.marshaller(Empty.getDefaultInstance()))
+                        .setResponseMarshaller(ProtoUtils.marshaller(Empty.getDefaultInstance()))
+                        .build();
+                final StatusRuntimeException error = assertThrows(StatusRuntimeException.class,
+                        () -> ClientCalls.blockingUnaryCall(channel, method, CallOptions.DEFAULT,
+                                Empty.getDefaultInstance()));
+                assertEquals(Status.Code.UNIMPLEMENTED, error.getStatus().getCode());
+            }
+            assertEquals("1.2.3",
+                    TestServiceGrpc.newBlockingStub(channel).normal(Empty.getDefaultInstance()).getVersion());
+        } finally {
+            channel.shutdownNow();
+            server.shutdownNow();
+        }
+
+        // Only the served method has its own meters
+        final Set<String> serviceNames = new HashSet<>();
+        for (final DistributionSummary summary : this.meterRegistry.find(METRIC_NAME_SERVER_MESSAGE_WIRE_SIZE)
+                .summaries()) {
+            serviceNames.add(summary.getId().getTag(TAG_SERVICE_NAME));
+        }
+        serviceNames.remove(OVERFLOW_NAME);
+        assertEquals(Collections.singleton(TestServiceGrpc.SERVICE_NAME), serviceNames);
+    }
+
+    @Test
+    void testUnresolvedMethod() {
+        // The server didn't find the method, so it never started the call
+        final ServerStreamTracer tracer = this.factory.newServerStreamTracer("bogus.Service/method", new Metadata());
+        tracer.inboundMessageRead(0, 10, -1);
+        tracer.streamClosed(Status.UNIMPLEMENTED);
+
+        assertNull(this.meterRegistry.find(METRIC_NAME_SERVER_MESSAGE_WIRE_SIZE)
+                .tag(TAG_SERVICE_NAME, "bogus.Service")
+                .summary());
+        assertEquals(10, this.meterRegistry.get(METRIC_NAME_SERVER_MESSAGE_WIRE_SIZE)
+                .tag(TAG_SERVICE_NAME, OVERFLOW_NAME)
+                .tag(TAG_METHOD_NAME, OVERFLOW_NAME)
+                .tag(TAG_DIRECTION, INBOUND)
+                .summary()
+                .totalAmount());
+    }
+
+    private DistributionSummary summary(final String name, final String direction) {
+        return this.meterRegistry.get(name)
+                .tag(TAG_SERVICE_NAME, TestServiceGrpc.SERVICE_NAME)
+                .tag(TAG_METHOD_NAME, "normal")
+                .tag(TAG_DIRECTION, direction)
+                .summary();
+    }
+
+    private static final class TestServerCallInfo<Q, A> extends ServerCallInfo<Q, A> {
+
+        private final MethodDescriptor<Q, A> method;
+
+        TestServerCallInfo(final MethodDescriptor<Q, A> method) {
+            this.method = method;
+        }
+
+        @Override
+        public MethodDescriptor<Q, A> getMethodDescriptor() {
+            return this.method;
+        }
+
+        @Override
+        public Attributes getAttributes() {
+            return Attributes.EMPTY;
+        }
+
+        @Override
+        public String getAuthority() {
+            return null;
+        }
+
+    }
+
+}
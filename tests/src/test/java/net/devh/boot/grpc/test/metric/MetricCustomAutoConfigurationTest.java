@@ -20,6 +20,7 @@
 import static io.grpc.Status.Code.OK;
 import static io.grpc.Status.Code.UNKNOWN;
 import static net.devh.boot.grpc.test.server.TestServiceImpl.METHOD_COUNT;
+import static net.devh.boot.grpc.test.server.TestServiceImpl.STREAM_TIMER_COUNT;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import java.util.Collection;
@@ -67,7 +68,7 @@ public void testAutoDiscovery() {
         log.info("--- Starting tests with custom auto discovery ---");
         assertEquals(METHOD_COUNT * 2,
                 this.meterRegistry.getMeters().stream().filter(Counter.class::isInstance).count());
-        assertEquals(METHOD_COUNT * 2,
+        assertEquals(METHOD_COUNT * 2 + STREAM_TIMER_COUNT,
                 this.meterRegistry.getMeters().stream().filter(Timer.class::isInstance).count());
         log.info("--- Test completed ---");
     }
@@ -18,6 +18,7 @@
 package net.devh.boot.grpc.test.metric;
 
 import static net.devh.boot.grpc.test.server.TestServiceImpl.METHOD_COUNT;
+import static net.devh.boot.grpc.test.server.TestServiceImpl.STREAM_TIMER_COUNT;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import org.junit.jupiter.api.Test;
@@ -56,7 +57,7 @@ public void testAutoDiscovery() {
                 .filter(Counter.class::isInstance)
                 .filter(m -> m.getId().getName().startsWith("grpc.")) // Only count grpc metrics
                 .count());
-        assertEquals(METHOD_COUNT, this.meterRegistry.getMeters().stream()
+        assertEquals(METHOD_COUNT + STREAM_TIMER_COUNT, this.meterRegistry.getMeters().stream()
                 .filter(Timer.class::isInstance)
                 .filter(m -> m.getId().getName().startsWith("grpc.")) // Only count grpc metrics
                 .count());
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.test.metric;
+
+import static io.grpc.Status.Code.OK;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_PROCESSING_DURATION;
+import static net.devh.boot.grpc.common.metric.MetricConstants.TAG_METHOD_NAME;
+import static net.devh.boot.grpc.common.metric.MetricConstants.TAG_STATUS_CODE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.test.config.BaseAutoConfiguration;
+import net.devh.boot.grpc.test.config.MetricConfiguration;
+import net.devh.boot.grpc.test.config.ServiceConfiguration;
+
+/**
+ * A test to verify that the timer histograms and percentiles can be configured per service and method.
+ */
+@Slf4j
+@SpringBootTest(properties = {
+        "grpc.metrics.timer.percentiles=0.5",
+        "grpc.metrics.timers[TestService].serviceLevelObjectives=10ms,100ms",
+        "grpc.metrics.timers[TestService/normal].percentiles=0.5,0.9,0.99",
+})
+@SpringJUnitConfig(classes = {MetricConfiguration.class, ServiceConfiguration.class, BaseAutoConfiguration.class})
+@DirtiesContext
+class MetricHistogramConfigurationTest {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void testTimerConfiguration() {
+        log.info("--- Starting tests with timer configuration ---");
+        final HistogramSnapshot normal = snapshotFor("normal");
+        assertEquals(3, normal.percentileValues().length);
+        assertEquals(2, normal.histogramCounts().length);
+
+        final HistogramSnapshot unimplemented = snapshotFor("unimplemented");
+        assertEquals(1, unimplemented.percentileValues().length);
+        assertEquals(2, unimplemented.histogramCounts().length);
+        log.info("--- Test completed ---");
+    }
+
+    private HistogramSnapshot snapshotFor(final String method) {
+        final Timer timer = this.meterRegistry.get(METRIC_NAME_SERVER_PROCESSING_DURATION)
+                .tag(TAG_METHOD_NAME, method)
+                .tag(TAG_STATUS_CODE, OK.name())
+                .timer();
+        timer.record(5, TimeUnit.MILLISECONDS);
+        return timer.takeSnapshot();
+    }
+
+}
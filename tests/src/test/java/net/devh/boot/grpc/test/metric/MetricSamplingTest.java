@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.test.metric;
+
+import static io.grpc.Status.Code.OK;
+import static io.grpc.Status.Code.UNIMPLEMENTED;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_CLIENT_CALLS_COMPLETED;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_CLIENT_PROCESSING_DURATION;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_CLIENT_REQUESTS_SENT;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_CALLS_COMPLETED;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_PROCESSING_DURATION;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_REQUESTS_RECEIVED;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_RESPONSES_SENT;
+import static net.devh.boot.grpc.common.metric.MetricConstants.TAG_METHOD_NAME;
+import static net.devh.boot.grpc.common.metric.MetricConstants.TAG_STATUS_CODE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.google.protobuf.Empty;
+
+import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.client.autoconfigure.GrpcClientMetricAutoConfiguration;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import net.devh.boot.grpc.server.autoconfigure.GrpcServerMetricAutoConfiguration;
+import net.devh.boot.grpc.test.config.BaseAutoConfiguration;
+import net.devh.boot.grpc.test.config.MetricConfiguration;
+import net.devh.boot.grpc.test.config.ServiceConfiguration;
+import net.devh.boot.grpc.test.proto.TestServiceGrpc.TestServiceBlockingStub;
+
+/**
+ * Tests that sampled calls are counted with their weight, while failed calls are always recorded.
+ */
+@Slf4j
+@SpringBootTest(properties = {
+        "grpc.client.GLOBAL.address=localhost:9090",
+        "grpc.client.GLOBAL.negotiationType=PLAINTEXT",
+        "grpc.metrics.sampling.mode=EVERY_NTH",
+        "grpc.metrics.sampling.rate=0.5",
+        "grpc.metrics.sampling.rates[TestService/normal]=0.25"
+})
+@SpringJUnitConfig(classes = {MetricConfiguration.class, ServiceConfiguration.class, BaseAutoConfiguration.class})
+@ImportAutoConfiguration({GrpcClientMetricAutoConfiguration.class, GrpcServerMetricAutoConfiguration.class})
+@DirtiesContext
+class MetricSamplingTest {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @GrpcClient("test")
+    private TestServiceBlockingStub testService;
+
+    @Test
+    void testSampling() {
+        log.info("--- Starting tests with sampling ---");
+        for (int i = 0; i < 8; i++) {
+            assertEquals("1.2.3", this.testService.normal(Empty.getDefaultInstance()).getVersion());
+        }
+        for (int i = 0; i < 3; i++) {
+            assertThrows(StatusRuntimeException.class,
+                    () -> this.testService.unimplemented(Empty.getDefaultInstance()));
+        }
+
+        // Every 4th successful call is timed and counted 4 times
+        assertEquals(8, counter(METRIC_NAME_CLIENT_REQUESTS_SENT, "normal"));
+        assertEquals(8, counter(METRIC_NAME_SERVER_REQUESTS_RECEIVED, "normal"));
+        assertEquals(8, counter(METRIC_NAME_SERVER_RESPONSES_SENT, "normal"));
+        assertEquals(2, timerCount(METRIC_NAME_CLIENT_PROCESSING_DURATION, "normal", OK.name()));
+        assertEquals(2, timerCount(METRIC_NAME_SERVER_PROCESSING_DURATION, "normal", OK.name()));
+
+        // Failed calls are always timed, but only sampled calls are counted
+        assertEquals(4, counter(METRIC_NAME_SERVER_REQUESTS_RECEIVED, "unimplemented"));
+        assertEquals(3, timerCount(METRIC_NAME_CLIENT_PROCESSING_DURATION, "unimplemented", UNIMPLEMENTED.name()));
+        assertEquals(3, timerCount(METRIC_NAME_SERVER_PROCESSING_DURATION, "unimplemented", UNIMPLEMENTED.name()));
+
+        // The weighted call counters estimate the total number of calls per status code
+        assertEquals(8, callCount(METRIC_NAME_CLIENT_CALLS_COMPLETED, "normal", OK.name()));
+        assertEquals(8, callCount(METRIC_NAME_SERVER_CALLS_COMPLETED, "normal", OK.name()));
+        assertEquals(3, callCount(METRIC_NAME_CLIENT_CALLS_COMPLETED, "unimplemented", UNIMPLEMENTED.name()));
+        assertEquals(3, callCount(METRIC_NAME_SERVER_CALLS_COMPLETED, "unimplemented", UNIMPLEMENTED.name()));
+        log.info("--- Test completed ---");
+    }
+
+    private double counter(final String name, final String method) {
+        return this.meterRegistry.get(name)
+                .tag(TAG_METHOD_NAME, method)
+                .counter()
+                .count();
+    }
+
+    private double callCount(final String name, final String method, final String code) {
+        return this.meterRegistry.get(name)
+                .tag(TAG_METHOD_NAME, method)
+                .tag(TAG_STATUS_CODE, code)
+                .counter()
+                .count();
+    }
+
+    private long timerCount(final String name, final String method, final String code) {
+        return this.meterRegistry.get(name)
+                .tag(TAG_METHOD_NAME, method)
+                .tag(TAG_STATUS_CODE, code)
+                .timer()
+                .count();
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.test.metric;
+
+import static net.devh.boot.grpc.common.metric.MessageSizeMetrics.INBOUND;
+import static net.devh.boot.grpc.common.metric.MessageSizeMetrics.OUTBOUND;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_STREAM_DURATION;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_STREAM_FIRST_RESPONSE;
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_STREAM_MESSAGE_INTERVAL;
+import static net.devh.boot.grpc.common.metric.MetricConstants.TAG_DIRECTION;
+import static net.devh.boot.grpc.common.metric.MetricConstants.TAG_METHOD_NAME;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.devh.boot.grpc.common.metric.AbstractMetricCollectingInterceptor.StreamMetricSet;
+import net.devh.boot.grpc.common.metric.AbstractMetricCollectingInterceptor.StreamTimer;
+import net.devh.boot.grpc.server.metric.MetricCollectingServerInterceptor;
+import net.devh.boot.grpc.test.proto.TestServiceGrpc;
+
+/**
+ * Tests that the stream timers record the time to the first response, the message intervals and the stream's lifetime.
+ */
+class MetricStreamTimerTest {
+
+    private final MockClock clock = new MockClock();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry(SimpleConfig.DEFAULT, this.clock);
+    private final MetricCollectingServerInterceptor interceptor =
+            new MetricCollectingServerInterceptor(this.meterRegistry);
+
+    @Test
+    void testBidiStream() {
+        this.interceptor.preregisterService(TestServiceGrpc.getServiceDescriptor());
+        final StreamMetricSet metrics = this.interceptor.getMethodMetrics()
+                .get(TestServiceGrpc.getSecureBidiMethod().getFullMethodName())
+                .getStreamMetrics();
+
+        final StreamTimer timer = metrics.start(this.clock);
+        timer.onRequest();
+        this.clock.add(Duration.ofMillis(10));
+        timer.onResponse();
+        this.clock.add(Duration.ofMillis(20));
+        timer.onRequest();
+        timer.onResponse();
+        this.clock.add(Duration.ofMillis(30));
+        timer.onResponse();
+        timer.onClose();
+
+        final Timer firstResponse = timer(METRIC_NAME_SERVER_STREAM_FIRST_RESPONSE, "secureBidi");
+        assertEquals(1, firstResponse.count());
+        assertEquals(10, firstResponse.totalTime(TimeUnit.MILLISECONDS));
+
+        final Timer requestInterval = timer(METRIC_NAME_SERVER_STREAM_MESSAGE_INTERVAL, "secureBidi", INBOUND);
+        assertEquals(1, requestInterval.count());
+        assertEquals(30, requestInterval.totalTime(TimeUnit.MILLISECONDS));
+
+        final Timer responseInterval = timer(METRIC_NAME_SERVER_STREAM_MESSAGE_INTERVAL, "secureBidi", OUTBOUND);
+        assertEquals(2, responseInterval.count());
+        assertEquals(50, responseInterval.totalTime(TimeUnit.MILLISECONDS));
+
+        final Timer duration = timer(METRIC_NAME_SERVER_STREAM_DURATION, "secureBidi");
+        assertEquals(1, duration.count());
+        assertEquals(60, duration.totalTime(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testOnlyStreamingMethodsHaveStreamTimers() {
+        this.interceptor.preregisterService(TestServiceGrpc.getServiceDescriptor());
+
+        assertNull(this.interceptor.getMethodMetrics()
+                .get(TestServiceGrpc.getNormalMethod().getFullMethodName())
+                .getStreamMetrics());
+        final StreamMetricSet drain = this.interceptor.getMethodMetrics()
+                .get(TestServiceGrpc.getSecureDrainMethod().getFullMethodName())
+                .getStreamMetrics();
+        assertNull(drain.getFirstResponseTimer());
+        assertNull(drain.getResponseIntervalTimer());
+        assertNull(this.meterRegistry.find(METRIC_NAME_SERVER_STREAM_DURATION)
+                .tag(TAG_METHOD_NAME, "normal")
+                .timer());
+    }
+
+    private Timer timer(final String name, final String method) {
+        return this.meterRegistry.get(name)
+                .tag(TAG_METHOD_NAME, method)
+                .timer();
+    }
+
+    private Timer timer(final String name, final String method, final String direction) {
+        return this.meterRegistry.get(name)
+                .tag(TAG_METHOD_NAME, method)
+                .tag(TAG_DIRECTION, direction)
+                .timer();
+    }
+
+}
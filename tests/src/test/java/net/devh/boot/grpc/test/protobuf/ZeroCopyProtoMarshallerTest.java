@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.test.protobuf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.protobuf.ByteOutput;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.BytesValue;
+import com.google.protobuf.Empty;
+import com.google.protobuf.UnsafeByteOperations;
+
+import io.grpc.KnownLength;
+import io.grpc.MethodDescriptor;
+import io.grpc.MethodDescriptor.Marshaller;
+import io.grpc.MethodDescriptor.PrototypeMarshaller;
+import io.grpc.protobuf.ProtoUtils;
+import net.devh.boot.grpc.common.protobuf.ZeroCopyProtoMarshaller;
+import net.devh.boot.grpc.test.proto.TestServiceGrpc;
+
+/**
+ * Tests for the {@link ZeroCopyProtoMarshaller}.
+ */
+class ZeroCopyProtoMarshallerTest {
+
+    private static final Marshaller<BytesValue> DEFAULT_MARSHALLER =
+            ProtoUtils.marshaller(BytesValue.getDefaultInstance());
+    private static final PrototypeMarshaller<BytesValue> PROTOTYPE_MARSHALLER =
+            (PrototypeMarshaller<BytesValue>) DEFAULT_MARSHALLER;
+
+    @Test
+    void testWrap() {
+        final Marshaller<BytesValue> wrapped = ZeroCopyProtoMarshaller.wrap(DEFAULT_MARSHALLER);
+        assertTrue(wrapped instanceof ZeroCopyProtoMarshaller);
+        assertSame(wrapped, ZeroCopyProtoMarshaller.wrap(wrapped));
+
+        final MethodDescriptor<Empty, ?> method = TestServiceGrpc.getNormalMethod();
+        final MethodDescriptor<Empty, ?> wrappedMethod = ZeroCopyProtoMarshaller.wrap(method);
+        assertNotSame(method, wrappedMethod);
+        assertEquals(method.getFullMethodName(), wrappedMethod.getFullMethodName());
+        assertTrue(wrappedMethod.getRequestMarshaller() instanceof ZeroCopyProtoMarshaller);
+        assertTrue(wrappedMethod.getResponseMarshaller() instanceof ZeroCopyProtoMarshaller);
+        assertSame(wrappedMethod, ZeroCopyProtoMarshaller.wrap(wrappedMethod));
+    }
+
+    @Test
+    void testDefaultThresholds() {
+        final ZeroCopyProtoMarshaller<BytesValue> marshaller =
+                (ZeroCopyProtoMarshaller<BytesValue>) ZeroCopyProtoMarshaller.wrap(DEFAULT_MARSHALLER);
+        assertEquals(4 * 1024 * 1024, marshaller.getAliasingThreshold());
+        assertEquals(0, marshaller.getMaxPooledSize());
+        assertThrows(IllegalArgumentException.class, () -> new ZeroCopyProtoMarshaller<>(PROTOTYPE_MARSHALLER, -1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new ZeroCopyProtoMarshaller<>(PROTOTYPE_MARSHALLER, 0, -1));
+    }
+
+    @Test
+    void testSmallMessagesUseDefaultParse() throws IOException {
+        final BytesValue message = newMessage(1000);
+        final BytesValue parsed = ZeroCopyProtoMarshaller.wrap(DEFAULT_MARSHALLER).parse(received(message));
+        assertEquals(message, parsed);
+        // Parsed by gRPC's marshaller from its reused buffer, so the value has been copied
+        assertEquals(message.getValue().size(), backingArray(parsed.getValue()).length);
+    }
+
+    @Test
+    void testAliasedParse() throws IOException {
+        final BytesValue message = newMessage(1000);
+        final BytesValue parsed =
+                new ZeroCopyProtoMarshaller<>(PROTOTYPE_MARSHALLER, 100, 0).parse(received(message));
+        assertEquals(message, parsed);
+        // The value shares the array that contains the whole message
+        final byte[] backingArray = backingArray(parsed.getValue());
+        assertEquals(message.getSerializedSize(), backingArray.length);
+    }
+
+    @Test
+    void testPooledParse() throws IOException {
+        final ZeroCopyProtoMarshaller<BytesValue> marshaller =
+                new ZeroCopyProtoMarshaller<>(PROTOTYPE_MARSHALLER, 100, 10_000);
+        final BytesValue first = newMessage(1000);
+        final BytesValue second = newMessage(2000);
+        final BytesValue parsedFirst = marshaller.parse(received(first));
+        final BytesValue parsedSecond = marshaller.parse(received(second));
+        assertEquals(first, parsedFirst);
+        assertEquals(second, parsedSecond);
+        // The value must be copied, because the buffer is reused for the next message
+        assertEquals(first.getValue().size(), backingArray(parsedFirst.getValue()).length);
+    }
+
+    @Test
+    void testDefaultParseWithoutKnownLength() {
+        final BytesValue message = newMessage(10);
+        final BytesValue parsed = ZeroCopyProtoMarshaller.wrap(DEFAULT_MARSHALLER)
+                .parse(new ByteArrayInputStream(message.toByteArray()) {});
+        assertEquals(message, parsed);
+    }
+
+    private static BytesValue newMessage(final int size) {
+        final byte[] value = new byte[size];
+        for (int i = 0; i < size; i++) {
+            value[i] = (byte) i;
+        }
+        return BytesValue.newBuilder().setValue(ByteString.copyFrom(value)).build();
+    }
+
+    private static InputStream received(final BytesValue message) {
+        return new KnownLengthInputStream(message.toByteArray());
+    }
+
+    private static byte[] backingArray(final ByteString value) throws IOException {
+        final byte[][] result = new byte[1][];
+        UnsafeByteOperations.unsafeWriteTo(value, new ByteOutput() {
+
+            @Override
+            public void write(final byte value) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void write(final byte[] value, final int offset, final int length) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void writeLazy(final byte[] value, final int offset, final int length) {
+                result[0] = value;
+            }
+
+            @Override
+            public void write(final ByteBuffer value) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void writeLazy(final ByteBuffer value) {
+                throw new UnsupportedOperationException();
+            }
+
+        });
+        return result[0];
+    }
+
+    /**
+     * An input stream that behaves like the ones passed to the marshaller by the transports.
+     */
+    private static final class KnownLengthInputStream extends ByteArrayInputStream implements KnownLength {
+
+        KnownLengthInputStream(final byte[] data) {
+            super(data);
+        }
+
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.test.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import io.grpc.health.v1.HealthGrpc;
+import io.grpc.health.v1.HealthGrpc.HealthImplBase;
+import net.devh.boot.grpc.server.service.AnnotationGrpcServiceDiscoverer;
+import net.devh.boot.grpc.server.service.GrpcServiceDefinition;
+import net.devh.boot.grpc.server.service.GrpcService;
+import net.devh.boot.grpc.server.service.GrpcServiceDiscoverer;
+import net.devh.boot.grpc.test.config.BaseAutoConfiguration;
+import net.devh.boot.grpc.test.config.ServiceConfiguration;
+import net.devh.boot.grpc.test.proto.TestServiceGrpc;
+
+/**
+ * Tests whether the {@link AnnotationGrpcServiceDiscoverer} binds the services in parallel only once and shares the
+ * result.
+ */
+@SpringBootTest(properties = {
+        "grpc.server.port=0",
+        // The second service replaces the built-in health service
+        "grpc.server.health-service-enabled=false"
+})
+@SpringJUnitConfig(classes = {ServiceConfiguration.class,
+        AnnotationGrpcServiceDiscovererTest.HealthServiceConfiguration.class, BaseAutoConfiguration.class})
+@DirtiesContext
+class AnnotationGrpcServiceDiscovererTest {
+
+    @Autowired
+    private GrpcServiceDiscoverer serviceDiscoverer;
+
+    @Test
+    void testCachedDiscovery() {
+        final Collection<GrpcServiceDefinition> services = this.serviceDiscoverer.findGrpcServices();
+        assertSame(services, this.serviceDiscoverer.findGrpcServices());
+        assertThrows(UnsupportedOperationException.class, () -> services.clear());
+
+        assertEquals(2, services.size());
+        final Map<String, String> serviceNames = new HashMap<>();
+        for (final GrpcServiceDefinition service : services) {
+            serviceNames.put(service.getBeanName(), service.getDefinition().getServiceDescriptor().getName());
+            assertFalse(service.getStartupTime().isNegative());
+            assertFalse(Duration.ZERO.equals(service.getStartupTime()));
+        }
+        assertEquals(TestServiceGrpc.SERVICE_NAME, serviceNames.get("testService"));
+        assertEquals(HealthGrpc.SERVICE_NAME, serviceNames.get("healthService"));
+    }
+
+    @Configuration
+    static class HealthServiceConfiguration {
+
+        @Bean
+        HealthServiceImpl healthService() {
+            return new HealthServiceImpl();
+        }
+
+    }
+
+    @GrpcService
+    static class HealthServiceImpl extends HealthImplBase {
+    }
+
+}
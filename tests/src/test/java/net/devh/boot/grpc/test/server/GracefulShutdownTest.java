@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.test.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.protobuf.Empty;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.health.v1.HealthCheckRequest;
+import io.grpc.health.v1.HealthCheckResponse.ServingStatus;
+import io.grpc.health.v1.HealthGrpc;
+import io.grpc.health.v1.HealthGrpc.HealthBlockingStub;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.services.HealthStatusManager;
+import io.grpc.stub.StreamObserver;
+import net.devh.boot.grpc.server.config.GrpcServerProperties;
+import net.devh.boot.grpc.server.serverfactory.GrpcServerFactory;
+import net.devh.boot.grpc.server.serverfactory.GrpcServerLifecycle;
+import net.devh.boot.grpc.server.service.GrpcServiceDefinition;
+import net.devh.boot.grpc.test.proto.SomeType;
+import net.devh.boot.grpc.test.proto.TestServiceGrpc;
+import net.devh.boot.grpc.test.proto.TestServiceGrpc.TestServiceImplBase;
+
+/**
+ * Tests whether the {@link GrpcServerLifecycle} drains the server before stopping it, if graceful shutdown is enabled.
+ */
+class GracefulShutdownTest {
+
+    private static final AtomicInteger SERVER_COUNTER = new AtomicInteger();
+
+    private final String serverName = "graceful-shutdown-" + SERVER_COUNTER.incrementAndGet();
+    private final HealthStatusManager healthStatusManager = new HealthStatusManager();
+    private final CountDownLatch callStarted = new CountDownLatch(1);
+    private final CountDownLatch completeCall = new CountDownLatch(1);
+    private final ManagedChannel channel = InProcessChannelBuilder.forName(this.serverName).build();
+
+    @AfterEach
+    void cleanup() {
+        this.completeCall.countDown();
+        this.channel.shutdownNow();
+    }
+
+    @Test
+    void testDrainInFlightCalls() throws Exception {
+        final GrpcServerLifecycle lifecycle = newLifecycle(Duration.ofMillis(500), Duration.ofSeconds(10));
+        lifecycle.start();
+        final HealthBlockingStub health = HealthGrpc.newBlockingStub(this.channel);
+        assertEquals(ServingStatus.SERVING, health.check(healthRequest("")).getStatus());
+
+        final ListenableFuture<SomeType> call =
+                TestServiceGrpc.newFutureStub(this.channel).normal(Empty.getDefaultInstance());
+        assertTrue(this.callStarted.await(5, TimeUnit.SECONDS));
+
+        final CountDownLatch stopped = new CountDownLatch(1);
+        lifecycle.stop(stopped::countDown);
+        assertFalse(lifecycle.isRunning());
+
+        // The services are marked as not serving during the propagation delay
+        assertEquals(ServingStatus.NOT_SERVING, health.check(healthRequest("")).getStatus());
+        assertEquals(ServingStatus.NOT_SERVING,
+                health.check(healthRequest(TestServiceGrpc.SERVICE_NAME)).getStatus());
+        assertFalse(stopped.await(100, TimeUnit.MILLISECONDS));
+
+        // The in-flight call is completed before the server stops
+        this.completeCall.countDown();
+        assertEquals("1.2.3", call.get(5, TimeUnit.SECONDS).getVersion());
+        assertTrue(stopped.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testCancelCallsAfterTimeout() throws Exception {
+        final GrpcServerLifecycle lifecycle = newLifecycle(Duration.ZERO, Duration.ofMillis(200));
+        lifecycle.start();
+
+        final ListenableFuture<SomeType> call =
+                TestServiceGrpc.newFutureStub(this.channel).normal(Empty.getDefaultInstance());
+        assertTrue(this.callStarted.await(5, TimeUnit.SECONDS));
+
+        final CountDownLatch stopped = new CountDownLatch(1);
+        lifecycle.stop(stopped::countDown);
+        assertTrue(stopped.await(5, TimeUnit.SECONDS));
+
+        final ExecutionException error = assertThrows(ExecutionException.class, () -> call.get(5, TimeUnit.SECONDS));
+        assertEquals(Status.Code.UNAVAILABLE, ((StatusRuntimeException) error.getCause()).getStatus().getCode());
+    }
+
+    @Test
+    void testRestartAfterDraining() throws Exception {
+        final BlockingServerFactory factory = new BlockingServerFactory();
+        final GrpcServerLifecycle lifecycle = newLifecycle(factory, Duration.ZERO, Duration.ofSeconds(1));
+        final HealthBlockingStub health = HealthGrpc.newBlockingStub(this.channel);
+
+        lifecycle.start();
+        stopAndAwait(lifecycle);
+        lifecycle.start();
+        // The drained services are serving again, even though they are only registered once
+        assertEquals(ServingStatus.SERVING, health.check(healthRequest("")).getStatus());
+        assertEquals(ServingStatus.SERVING, health.check(healthRequest(TestServiceGrpc.SERVICE_NAME)).getStatus());
+
+        stopAndAwait(lifecycle);
+        factory.withTestService = false;
+        lifecycle.start();
+        // The status of services that are no longer provided is cleared
+        assertEquals(ServingStatus.SERVING, health.check(healthRequest("")).getStatus());
+        final StatusRuntimeException error = assertThrows(StatusRuntimeException.class,
+                () -> health.check(healthRequest(TestServiceGrpc.SERVICE_NAME)));
+        assertEquals(Status.Code.NOT_FOUND, error.getStatus().getCode());
+
+        stopAndAwait(lifecycle);
+    }
+
+    private static void stopAndAwait(final GrpcServerLifecycle lifecycle) throws InterruptedException {
+        final CountDownLatch stopped = new CountDownLatch(1);
+        lifecycle.stop(stopped::countDown);
+        assertTrue(stopped.await(5, TimeUnit.SECONDS));
+    }
+
+    private static HealthCheckRequest healthRequest(final String service) {
+        return HealthCheckRequest.newBuilder().setService(service).build();
+    }
+
+    private GrpcServerLifecycle newLifecycle(final Duration propagationDelay, final Duration timeout) {
+        return newLifecycle(new BlockingServerFactory(), propagationDelay, timeout);
+    }
+
+    private GrpcServerLifecycle newLifecycle(final GrpcServerFactory factory, final Duration propagationDelay,
+            final Duration timeout) {
+        final GrpcServerProperties.Shutdown shutdown = new GrpcServerProperties.Shutdown();
+        shutdown.setGraceful(true);
+        shutdown.setPropagationDelay(propagationDelay);
+        shutdown.setTimeout(timeout);
+        return new GrpcServerLifecycle(factory, shutdown, this.healthStatusManager);
+    }
+
+    /**
+     * A server factory for a server, whose normal method blocks until the test completes it. Like the service
+     * registry, it only sets the health status when the service is registered for the first time.
+     */
+    private final class BlockingServerFactory implements GrpcServerFactory {
+
+        private volatile boolean withTestService = true;
+        private boolean registered = false;
+
+        @Override
+        public Server createServer() {
+            final InProcessServerBuilder builder = InProcessServerBuilder.forName(GracefulShutdownTest.this.serverName)
+                    .addService(GracefulShutdownTest.this.healthStatusManager.getHealthService());
+            if (!this.withTestService) {
+                return builder.build();
+            }
+            if (!this.registered) {
+                GracefulShutdownTest.this.healthStatusManager.setStatus(TestServiceGrpc.SERVICE_NAME,
+                        ServingStatus.SERVING);
+                this.registered = true;
+            }
+            return builder.addService(new TestServiceImplBase() {
+
+                @Override
+                public void normal(final Empty request, final StreamObserver<SomeType> responseObserver) {
+                    GracefulShutdownTest.this.callStarted.countDown();
+                    try {
+                        GracefulShutdownTest.this.completeCall.await();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    responseObserver.onNext(SomeType.newBuilder().setVersion("1.2.3").build());
+                    responseObserver.onCompleted();
+                }
+
+            }).build();
+        }
+
+        @Override
+        public String getAddress() {
+            return "in-process:" + GracefulShutdownTest.this.serverName;
+        }
+
+        @Override
+        public int getPort() {
+            return -1;
+        }
+
+        @Override
+        public void addService(final GrpcServiceDefinition service) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void destroy() {
+            // Nothing to do here
+        }
+
+    }
+
+}
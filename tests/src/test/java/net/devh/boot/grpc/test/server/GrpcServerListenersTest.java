@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.test.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.BytesValue;
+import com.google.protobuf.Empty;
+
+import io.grpc.CallOptions;
+import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.stub.ClientCalls;
+import net.devh.boot.grpc.server.executor.GrpcServerExecutorRegistry;
+import net.devh.boot.grpc.server.serverfactory.GrpcServerFactory;
+import net.devh.boot.grpc.server.serverfactory.GrpcServerListenersLifecycle;
+import net.devh.boot.grpc.test.config.BaseAutoConfiguration;
+import net.devh.boot.grpc.test.config.ServiceConfiguration;
+import net.devh.boot.grpc.test.proto.SomeType;
+import net.devh.boot.grpc.test.proto.TestServiceGrpc;
+import net.devh.boot.grpc.test.proto.TestServiceGrpc.TestServiceBlockingStub;
+
+/**
+ * Tests whether the services assigned to an additional listener are only served by that listener.
+ */
+@SpringBootTest(properties = {
+        "grpc.server.port=0",
+        "grpc.server.listeners.admin.port=0",
+        "grpc.server.listeners.admin.services=TestService",
+        "grpc.server.listeners.admin.max-inbound-message-size=1KB",
+        "grpc.server.listeners.admin.executor.type=fixed",
+        "grpc.server.listeners.admin.executor.threads=2"})
+@SpringJUnitConfig(classes = {ServiceConfiguration.class, BaseAutoConfiguration.class})
+@DirtiesContext
+class GrpcServerListenersTest {
+
+    @Autowired
+    private GrpcServerFactory defaultFactory;
+
+    @Autowired
+    private GrpcServerListenersLifecycle listenersLifecycle;
+
+    @Autowired
+    private GrpcServerExecutorRegistry executorRegistry;
+
+    @Test
+    void testServicesAreServedByTheirListener() {
+        assertTrue(this.listenersLifecycle.isRunning());
+        final GrpcServerFactory adminFactory = this.listenersLifecycle.getFactories().get("admin");
+        assertNotNull(adminFactory);
+        assertNotEquals(this.defaultFactory.getPort(), adminFactory.getPort());
+        assertNotNull(this.executorRegistry.getListenerExecutor("admin"));
+
+        final ManagedChannel defaultChannel = newChannel(this.defaultFactory.getPort());
+        final ManagedChannel adminChannel = newChannel(adminFactory.getPort());
+        try {
+            final TestServiceBlockingStub defaultStub = TestServiceGrpc.newBlockingStub(defaultChannel);
+            final StatusRuntimeException error = assertThrows(StatusRuntimeException.class,
+                    () -> defaultStub.normal(Empty.getDefaultInstance()));
+            assertEquals(Status.Code.UNIMPLEMENTED, error.getStatus().getCode());
+
+            final TestServiceBlockingStub adminStub = TestServiceGrpc.newBlockingStub(adminChannel);
+            assertEquals("1.2.3", adminStub.normal(Empty.getDefaultInstance()).getVersion());
+        } finally {
+            defaultChannel.shutdownNow();
+            adminChannel.shutdownNow();
+        }
+    }
+
+    @Test
+    void testListenerMaxInboundMessageSize() {
+        final ManagedChannel adminChannel = newChannel(this.listenersLifecycle.getFactories().get("admin").getPort());
+        try {
+            // Send the request as raw bytes, so that its size can be chosen freely
+            final MethodDescriptor<byte[], SomeType> method = TestServiceGrpc.getNormalMethod().toBuilder(
+                    new ByteArrayMarshaller(), TestServiceGrpc.getNormalMethod().getResponseMarshaller()).build();
+            final byte[] smallRequest = emptyWithUnknownField(512);
+            assertEquals("1.2.3", ClientCalls.blockingUnaryCall(adminChannel, method, CallOptions.DEFAULT, smallRequest)
+                    .getVersion());
+
+            // Larger than the listener's 1KB, but smaller than the default server's 4MB
+            // The server resets the stream, so the client doesn't reliably receive the RESOURCE_EXHAUSTED status
+            final byte[] largeRequest = emptyWithUnknownField(2 * 1024);
+            assertThrows(StatusRuntimeException.class,
+                    () -> ClientCalls.blockingUnaryCall(adminChannel, method, CallOptions.DEFAULT, largeRequest));
+        } finally {
+            adminChannel.shutdownNow();
+        }
+    }
+
+    /**
+     * Creates a serialized {@link Empty} message of about the given size, whose data is stored in an unknown field.
+     *
+     * @param size The size of the unknown field's data.
+     * @return The serialized message.
+     */
+    private static byte[] emptyWithUnknownField(final int size) {
+        return BytesValue.newBuilder().setValue(ByteString.copyFrom(new byte[size])).build().toByteArray();
+    }
+
+    private static ManagedChannel newChannel(final int port) {
+        return NettyChannelBuilder.forAddress("localhost", port).usePlaintext().build();
+    }
+
+    private static final class ByteArrayMarshaller implements MethodDescriptor.Marshaller<byte[]> {
+
+        @Override
+        public InputStream stream(final byte[] value) {
+            return new ByteArrayInputStream(value);
+        }
+
+        @Override
+        public byte[] parse(final InputStream stream) {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+}
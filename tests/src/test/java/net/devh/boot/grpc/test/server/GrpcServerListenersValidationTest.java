@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.devh.boot.grpc.test.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.core.NestedExceptionUtils;
+
+import net.devh.boot.grpc.test.config.BaseAutoConfiguration;
+import net.devh.boot.grpc.test.config.ServiceConfiguration;
+
+/**
+ * Tests whether the application fails to start if the services of the additional listeners are misconfigured.
+ */
+class GrpcServerListenersValidationTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(ServiceConfiguration.class, BaseAutoConfiguration.class)
+            .withPropertyValues(
+                    "grpc.server.port=0",
+                    "grpc.server.listeners.admin.port=0",
+                    "grpc.server.listeners.internal.port=0");
+
+    @Test
+    void testUnknownService() {
+        this.contextRunner
+                .withPropertyValues("grpc.server.listeners.admin.services=UnknownService")
+                .run(context -> {
+                    final Throwable cause = NestedExceptionUtils.getRootCause(context.getStartupFailure());
+                    assertNotNull(cause);
+                    assertEquals(IllegalStateException.class, cause.getClass());
+                    assertEquals("The listener 'admin' contains the unknown service 'UnknownService', "
+                            + "known services: [TestService]", cause.getMessage());
+                });
+    }
+
+    @Test
+    void testServiceAssignedToMultipleListeners() {
+        this.contextRunner
+                .withPropertyValues(
+                        "grpc.server.listeners.admin.services=TestService",
+                        "grpc.server.listeners.internal.services=TestService")
+                .run(context -> {
+                    final Throwable cause = NestedExceptionUtils.getRootCause(context.getStartupFailure());
+                    assertNotNull(cause);
+                    assertEquals(IllegalStateException.class, cause.getClass());
+                    assertEquals("The service 'TestService' is assigned to multiple listeners: 'admin' and 'internal'",
+                            cause.getMessage());
+                });
+    }
+
+}
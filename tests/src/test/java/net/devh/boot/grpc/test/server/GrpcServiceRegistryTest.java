@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.test.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.protobuf.Empty;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.health.v1.HealthCheckRequest;
+import io.grpc.health.v1.HealthCheckResponse.ServingStatus;
+import io.grpc.health.v1.HealthGrpc;
+import io.grpc.health.v1.HealthGrpc.HealthBlockingStub;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.services.HealthStatusManager;
+import io.grpc.stub.StreamObserver;
+import net.devh.boot.grpc.server.service.GrpcServiceRegistry;
+import net.devh.boot.grpc.test.proto.SomeType;
+import net.devh.boot.grpc.test.proto.TestServiceGrpc;
+import net.devh.boot.grpc.test.proto.TestServiceGrpc.TestServiceBlockingStub;
+import net.devh.boot.grpc.test.proto.TestServiceGrpc.TestServiceImplBase;
+
+/**
+ * Tests whether the {@link GrpcServiceRegistry} allows changing the services of a running server.
+ */
+class GrpcServiceRegistryTest {
+
+    private static final AtomicInteger SERVER_COUNTER = new AtomicInteger();
+
+    private final String serverName = "service-registry-" + SERVER_COUNTER.incrementAndGet();
+    private final HealthStatusManager healthStatusManager = new HealthStatusManager();
+    private final GrpcServiceRegistry registry = new GrpcServiceRegistry(this.healthStatusManager);
+    private final ManagedChannel channel = InProcessChannelBuilder.forName(this.serverName).build();
+    private final TestServiceBlockingStub stub = TestServiceGrpc.newBlockingStub(this.channel);
+    private final HealthBlockingStub health = HealthGrpc.newBlockingStub(this.channel);
+    private Server server;
+
+    @BeforeEach
+    void setup() throws Exception {
+        this.server = InProcessServerBuilder.forName(this.serverName)
+                .addService(this.healthStatusManager.getHealthService())
+                .fallbackHandlerRegistry(this.registry)
+                .build()
+                .start();
+    }
+
+    @AfterEach
+    void cleanup() {
+        this.channel.shutdownNow();
+        this.server.shutdownNow();
+    }
+
+    @Test
+    void testAddReplaceAndRemoveService() {
+        assertCallFails(Status.Code.UNIMPLEMENTED);
+
+        final ServerServiceDefinition v1 = newService("1");
+        assertNull(this.registry.addService(v1));
+        assertEquals("1", this.stub.normal(Empty.getDefaultInstance()).getVersion());
+        assertEquals(ServingStatus.SERVING, checkHealth());
+        assertTrue(this.server.getServices().contains(v1));
+
+        final ServerServiceDefinition v2 = newService("2");
+        assertSame(v1, this.registry.addService(v2));
+        assertEquals("2", this.stub.normal(Empty.getDefaultInstance()).getVersion());
+        assertEquals(ServingStatus.SERVING, checkHealth());
+
+        assertSame(v2, this.registry.removeService(TestServiceGrpc.SERVICE_NAME));
+        assertNull(this.registry.getService(TestServiceGrpc.SERVICE_NAME));
+        assertCallFails(Status.Code.UNIMPLEMENTED);
+        assertHealthUnknown();
+        assertNull(this.registry.removeService(TestServiceGrpc.SERVICE_NAME));
+    }
+
+    @Test
+    void testSetServices() {
+        this.registry.setServices(Arrays.asList(newService("1"), newService("2")));
+        assertEquals(1, this.registry.getServices().size());
+        assertEquals("2", this.stub.normal(Empty.getDefaultInstance()).getVersion());
+        assertEquals(ServingStatus.SERVING, checkHealth());
+
+        this.registry.clear();
+        assertEquals(0, this.registry.getServices().size());
+        assertCallFails(Status.Code.UNIMPLEMENTED);
+        assertHealthUnknown();
+    }
+
+    @Test
+    void testAddBindableServiceRequiresDiscoverer() {
+        assertThrows(IllegalStateException.class, () -> this.registry.addService(new TestServiceImplBase() {}));
+        assertNull(this.registry.getService(TestServiceGrpc.SERVICE_NAME));
+    }
+
+    private void assertCallFails(final Status.Code code) {
+        final StatusRuntimeException error =
+                assertThrows(StatusRuntimeException.class, () -> this.stub.normal(Empty.getDefaultInstance()));
+        assertEquals(code, error.getStatus().getCode());
+    }
+
+    private ServingStatus checkHealth() {
+        return this.health.check(HealthCheckRequest.newBuilder().setService(TestServiceGrpc.SERVICE_NAME).build())
+                .getStatus();
+    }
+
+    private void assertHealthUnknown() {
+        final StatusRuntimeException error = assertThrows(StatusRuntimeException.class, this::checkHealth);
+        assertEquals(Status.Code.NOT_FOUND, error.getStatus().getCode());
+    }
+
+    private static ServerServiceDefinition newService(final String version) {
+        return new TestServiceImplBase() {
+
+            @Override
+            public void normal(final Empty request, final StreamObserver<SomeType> responseObserver) {
+                responseObserver.onNext(SomeType.newBuilder().setVersion(version).build());
+                responseObserver.onCompleted();
+            }
+
+        }.bindService();
+    }
+
+}
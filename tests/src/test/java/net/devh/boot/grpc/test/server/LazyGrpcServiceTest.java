@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.test.server;
+
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_LAZY_INITIALIZATION;
+import static net.devh.boot.grpc.common.metric.MetricConstants.TAG_SERVICE_NAME;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.google.protobuf.Empty;
+
+import io.grpc.health.v1.HealthCheckRequest;
+import io.grpc.health.v1.HealthCheckResponse.ServingStatus;
+import io.grpc.health.v1.HealthGrpc.HealthBlockingStub;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import net.devh.boot.grpc.server.service.AnnotationGrpcServiceDiscoverer;
+import net.devh.boot.grpc.server.service.GrpcServiceDefinition;
+import net.devh.boot.grpc.server.service.GrpcServiceDiscoverer;
+import net.devh.boot.grpc.test.config.BaseAutoConfiguration;
+import net.devh.boot.grpc.test.config.InProcessConfiguration;
+import net.devh.boot.grpc.test.config.MetricConfiguration;
+import net.devh.boot.grpc.test.proto.TestServiceGrpc;
+import net.devh.boot.grpc.test.proto.TestServiceGrpc.TestServiceBlockingStub;
+
+/**
+ * Tests whether lazy services are bound without creating the bean and created on their first call, which is recorded
+ * in the metrics.
+ */
+@SpringBootTest
+@SpringJUnitConfig(classes = {LazyGrpcServiceTest.LazyServiceConfiguration.class, InProcessConfiguration.class,
+        MetricConfiguration.class, BaseAutoConfiguration.class})
+// Binds the MeterBinders to the registry
+@ImportAutoConfiguration(MetricsAutoConfiguration.class)
+@DirtiesContext
+class LazyGrpcServiceTest {
+
+    private static final AtomicInteger CREATED = new AtomicInteger();
+
+    @Autowired
+    private GrpcServiceDiscoverer serviceDiscoverer;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @GrpcClient("test")
+    private TestServiceBlockingStub testService;
+
+    @GrpcClient("test")
+    private HealthBlockingStub healthService;
+
+    @Test
+    void testLazyInitialization() {
+        final List<String> initialized = new ArrayList<>();
+        ((AnnotationGrpcServiceDiscoverer) this.serviceDiscoverer)
+                .addLazyInitializationListener((serviceName, duration) -> {
+                    assertFalse(duration.isNegative());
+                    initialized.add(serviceName);
+                });
+
+        final GrpcServiceDefinition service = this.serviceDiscoverer.findGrpcServices().iterator().next();
+        assertEquals(TestServiceImpl.class, service.getBeanClazz());
+        assertEquals(TestServiceGrpc.SERVICE_NAME, service.getDefinition().getServiceDescriptor().getName());
+        assertTrue(service.getStartupTime().compareTo(Duration.ZERO) >= 0);
+        assertEquals(0, CREATED.get());
+        assertEquals(ServingStatus.SERVING, this.healthService
+                .check(HealthCheckRequest.newBuilder().setService(TestServiceGrpc.SERVICE_NAME).build())
+                .getStatus());
+        assertEquals(0, CREATED.get());
+        assertNull(this.meterRegistry.find(METRIC_NAME_SERVER_LAZY_INITIALIZATION).timer());
+
+        assertEquals("1.2.3", this.testService.normal(Empty.getDefaultInstance()).getVersion());
+        assertEquals(1, CREATED.get());
+        assertEquals("1.2.3", this.testService.normal(Empty.getDefaultInstance()).getVersion());
+        assertEquals(1, CREATED.get());
+        assertEquals(1, initialized.size());
+        assertEquals(TestServiceGrpc.SERVICE_NAME, initialized.get(0));
+        assertEquals(1, this.meterRegistry.get(METRIC_NAME_SERVER_LAZY_INITIALIZATION)
+                .tag(TAG_SERVICE_NAME, TestServiceGrpc.SERVICE_NAME)
+                .timer()
+                .count());
+    }
+
+    @Configuration
+    static class LazyServiceConfiguration {
+
+        @Bean
+        @Lazy
+        TestServiceImpl testService() {
+            CREATED.incrementAndGet();
+            return new TestServiceImpl();
+        }
+
+    }
+
+}
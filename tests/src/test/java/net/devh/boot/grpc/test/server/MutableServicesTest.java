@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.devh.boot.grpc.test.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.google.protobuf.Empty;
+
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCall.Listener;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.health.v1.HealthCheckRequest;
+import io.grpc.health.v1.HealthCheckResponse.ServingStatus;
+import io.grpc.health.v1.HealthGrpc.HealthBlockingStub;
+import io.grpc.stub.StreamObserver;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import net.devh.boot.grpc.server.interceptor.GrpcGlobalServerInterceptor;
+import net.devh.boot.grpc.server.serverfactory.GrpcServerLifecycle;
+import net.devh.boot.grpc.server.service.GrpcServiceRegistry;
+import net.devh.boot.grpc.test.config.BaseAutoConfiguration;
+import net.devh.boot.grpc.test.config.InProcessConfiguration;
+import net.devh.boot.grpc.test.config.ServiceConfiguration;
+import net.devh.boot.grpc.test.proto.SomeType;
+import net.devh.boot.grpc.test.proto.TestServiceGrpc;
+import net.devh.boot.grpc.test.proto.TestServiceGrpc.TestServiceBlockingStub;
+import net.devh.boot.grpc.test.proto.TestServiceGrpc.TestServiceImplBase;
+
+/**
+ * Tests whether the services can be changed at runtime if {@code grpc.server.mutable-services} is enabled and that the
+ * services added at runtime are bound with the global interceptors.
+ */
+@SpringBootTest(properties = "grpc.server.mutable-services=true")
+@SpringJUnitConfig(classes = {MutableServicesTest.CountingInterceptor.class, ServiceConfiguration.class,
+        InProcessConfiguration.class, BaseAutoConfiguration.class})
+@DirtiesContext
+class MutableServicesTest {
+
+    private static final AtomicInteger INTERCEPTED = new AtomicInteger();
+
+    @Autowired
+    private GrpcServiceRegistry serviceRegistry;
+
+    @Autowired
+    private GrpcServerLifecycle serverLifecycle;
+
+    @GrpcClient("test")
+    private TestServiceBlockingStub testService;
+
+    @GrpcClient("test")
+    private HealthBlockingStub healthService;
+
+    @Test
+    void testMutableServices() {
+        // The discovered services are served from the registry
+        assertNotNull(this.serviceRegistry.getService(TestServiceGrpc.SERVICE_NAME));
+        assertEquals("1.2.3", this.testService.normal(Empty.getDefaultInstance()).getVersion());
+        assertEquals(1, INTERCEPTED.get());
+        assertEquals(ServingStatus.SERVING, checkHealth());
+
+        // Services added at runtime are bound with the global interceptors
+        this.serviceRegistry.addService(new TestServiceImplBase() {
+
+            @Override
+            public void normal(final Empty request, final StreamObserver<SomeType> responseObserver) {
+                responseObserver.onNext(SomeType.newBuilder().setVersion("2").build());
+                responseObserver.onCompleted();
+            }
+
+        });
+        assertEquals("2", this.testService.normal(Empty.getDefaultInstance()).getVersion());
+        assertEquals(2, INTERCEPTED.get());
+        assertEquals(ServingStatus.SERVING, checkHealth());
+
+        // Restarting the server keeps the services added at runtime
+        this.serverLifecycle.stop();
+        this.serverLifecycle.start();
+        assertEquals("2", this.testService.withWaitForReady().normal(Empty.getDefaultInstance()).getVersion());
+        assertEquals(ServingStatus.SERVING, checkHealth());
+
+        this.serviceRegistry.removeService(TestServiceGrpc.SERVICE_NAME);
+        final StatusRuntimeException error = assertThrows(StatusRuntimeException.class,
+                () -> this.testService.normal(Empty.getDefaultInstance()));
+        assertEquals(Status.Code.UNIMPLEMENTED, error.getStatus().getCode());
+    }
+
+    private ServingStatus checkHealth() {
+        return this.healthService
+                .check(HealthCheckRequest.newBuilder().setService(TestServiceGrpc.SERVICE_NAME).build())
+                .getStatus();
+    }
+
+    @GrpcGlobalServerInterceptor
+    static class CountingInterceptor implements ServerInterceptor {
+
+        @Override
+        public <ReqT, RespT> Listener<ReqT> interceptCall(final ServerCall<ReqT, RespT> call, final Metadata headers,
+                final ServerCallHandler<ReqT, RespT> next) {
+            INTERCEPTED.incrementAndGet();
+            return next.startCall(call, headers);
+        }
+
+    }
+
+}
@@ -42,6 +42,10 @@
 public class TestServiceImpl extends TestServiceImplBase {
 
     public static final int METHOD_COUNT = 6;
+    /**
+     * The number of additional timers for the streaming methods: secureDrain (2), secureSupply (3), secureBidi (4).
+     */
+    public static final int STREAM_TIMER_COUNT = 9;
 
     public TestServiceImpl() {
         log.info("Created TestServiceImpl");
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.devh.boot.grpc.test.server.executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.protobuf.Empty;
+
+import io.grpc.ForwardingServerCallListener.SimpleForwardingServerCallListener;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import net.devh.boot.grpc.server.executor.ExecutorSwitchingServerCallHandler;
+import net.devh.boot.grpc.test.proto.TestServiceGrpc;
+import net.devh.boot.grpc.test.server.TestServiceImpl;
+
+/**
+ * Tests whether the {@link ExecutorSwitchingServerCallHandler} closes rejected calls with
+ * {@link Status.Code#RESOURCE_EXHAUSTED RESOURCE_EXHAUSTED} and always delivers the terminal events.
+ */
+class ExecutorSwitchingServerCallHandlerTest {
+
+    private final AtomicInteger started = new AtomicInteger();
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    private Server server;
+    private ManagedChannel channel;
+
+    @AfterEach
+    void tearDown() {
+        if (this.channel != null) {
+            this.channel.shutdownNow();
+        }
+        if (this.server != null) {
+            this.server.shutdownNow();
+        }
+    }
+
+    @Test
+    void testRejectedCall() throws Exception {
+        start(command -> {
+            throw new RejectedExecutionException("Test");
+        });
+
+        final StatusRuntimeException exception = assertThrows(StatusRuntimeException.class,
+                () -> TestServiceGrpc.newBlockingStub(this.channel).normal(Empty.getDefaultInstance()));
+        assertEquals(Status.Code.RESOURCE_EXHAUSTED, exception.getStatus().getCode());
+        assertEquals(0, this.started.get());
+        assertFalse(this.terminated.await(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testRejectedEventsDeliverTerminalEvents() throws Exception {
+        // Only accepts the start of the call
+        final AtomicBoolean accepted = new AtomicBoolean();
+        start(command -> {
+            if (accepted.compareAndSet(false, true)) {
+                command.run();
+            } else {
+                throw new RejectedExecutionException("Test");
+            }
+        });
+
+        final StatusRuntimeException exception = assertThrows(StatusRuntimeException.class,
+                () -> TestServiceGrpc.newBlockingStub(this.channel).normal(Empty.getDefaultInstance()));
+        assertEquals(Status.Code.RESOURCE_EXHAUSTED, exception.getStatus().getCode());
+        assertEquals(1, this.started.get());
+        assertTrue(this.terminated.await(5, TimeUnit.SECONDS));
+    }
+
+    private void start(final Executor executor) throws Exception {
+        final String name = UUID.randomUUID().toString();
+        final ServerServiceDefinition service =
+                ServerInterceptors.intercept(new TestServiceImpl(), new TerminalEventInterceptor());
+        this.server = InProcessServerBuilder.forName(name)
+                .addService(ExecutorSwitchingServerCallHandler.bindExecutor(service, executor))
+                .build()
+                .start();
+        this.channel = InProcessChannelBuilder.forName(name).build();
+    }
+
+    /**
+     * Counts the started calls and records their termination, like interceptors that track active calls.
+     */
+    private final class TerminalEventInterceptor implements ServerInterceptor {
+
+        @Override
+        public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(final ServerCall<ReqT, RespT> call,
+                final Metadata headers, final ServerCallHandler<ReqT, RespT> next) {
+            ExecutorSwitchingServerCallHandlerTest.this.started.incrementAndGet();
+            return new SimpleForwardingServerCallListener<ReqT>(next.startCall(call, headers)) {
+
+                @Override
+                public void onCancel() {
+                    ExecutorSwitchingServerCallHandlerTest.this.terminated.countDown();
+                    super.onCancel();
+                }
+
+                @Override
+                public void onComplete() {
+                    ExecutorSwitchingServerCallHandlerTest.this.terminated.countDown();
+                    super.onComplete();
+                }
+
+            };
+        }
+
+    }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.devh.boot.grpc.test.server.executor;
+
+import static java.util.Collections.singleton;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.util.concurrent.MoreExecutors;
+
+import net.devh.boot.grpc.server.config.ExecutorType;
+import net.devh.boot.grpc.server.config.GrpcServerProperties;
+import net.devh.boot.grpc.server.executor.GrpcServerExecutorRegistry;
+
+/**
+ * Tests whether the {@link GrpcServerExecutorRegistry} creates, exposes and shuts down the configured executors.
+ */
+class GrpcServerExecutorRegistryTest {
+
+    @Test
+    void testExecutors() throws Exception {
+        final GrpcServerProperties properties = new GrpcServerProperties();
+        properties.getExecutors().put("fixed", executor(ExecutorType.FIXED, 1, -1));
+        properties.getExecutors().put("direct", executor(ExecutorType.DIRECT, 1, -1));
+        properties.getExecutors().put("default", executor(ExecutorType.DEFAULT, 1, -1));
+
+        final GrpcServerExecutorRegistry registry = new GrpcServerExecutorRegistry(properties);
+        final ExecutorService fixed;
+        try {
+            assertNull(registry.getServerExecutor());
+            assertSame(MoreExecutors.directExecutor(), registry.getExecutor("direct"));
+            assertNull(registry.getExecutor("default"));
+            assertThrows(IllegalArgumentException.class, () -> registry.getExecutor("unknown"));
+            assertEquals(singleton("grpc-server-fixed"), registry.getManagedExecutors().keySet());
+
+            fixed = registry.getManagedExecutors().get("grpc-server-fixed");
+            assertSame(fixed, registry.getExecutor("fixed"));
+            final CompletableFuture<String> threadName = new CompletableFuture<>();
+            fixed.execute(() -> threadName.complete(Thread.currentThread().getName()));
+            assertEquals("grpc-server-fixed-0", threadName.get(5, TimeUnit.SECONDS));
+        } finally {
+            registry.destroy();
+        }
+        assertTrue(fixed.isShutdown());
+        assertTrue(registry.getManagedExecutors().isEmpty());
+    }
+
+    @Test
+    void testBoundedQueue() throws Exception {
+        final GrpcServerProperties properties = new GrpcServerProperties();
+        properties.getExecutors().put("bounded", executor(ExecutorType.FIXED, 1, 1));
+
+        final GrpcServerExecutorRegistry registry = new GrpcServerExecutorRegistry(properties);
+        try {
+            final Executor executor = registry.getExecutor("bounded");
+            final CountDownLatch blocked = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            executor.execute(() -> {
+                blocked.countDown();
+                awaitUninterruptibly(release);
+            });
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+            executor.execute(() -> {
+                // Waits in the queue
+            });
+            assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {
+                // The queue is full
+            }));
+            release.countDown();
+        } finally {
+            registry.destroy();
+        }
+    }
+
+    static GrpcServerProperties.Executor executor(final ExecutorType type, final int threads,
+            final int queueCapacity) {
+        final GrpcServerProperties.Executor executor = new GrpcServerProperties.Executor();
+        executor.setType(type);
+        executor.setThreads(threads);
+        executor.setQueueCapacity(queueCapacity);
+        return executor;
+    }
+
+    static void awaitUninterruptibly(final CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.devh.boot.grpc.test.server.executor;
+
+import static net.devh.boot.grpc.common.metric.MetricConstants.METRIC_NAME_SERVER_CALLS_ACTIVE;
+import static net.devh.boot.grpc.common.metric.MetricConstants.TAG_METHOD_NAME;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.protobuf.Empty;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import net.devh.boot.grpc.server.service.GrpcService;
+import net.devh.boot.grpc.test.config.BaseAutoConfiguration;
+import net.devh.boot.grpc.test.config.InProcessConfiguration;
+import net.devh.boot.grpc.test.config.MetricConfiguration;
+import net.devh.boot.grpc.test.proto.SomeType;
+import net.devh.boot.grpc.test.proto.TestServiceGrpc.TestServiceBlockingStub;
+import net.devh.boot.grpc.test.proto.TestServiceGrpc.TestServiceFutureStub;
+import net.devh.boot.grpc.test.proto.TestServiceGrpc.TestServiceImplBase;
+
+/**
+ * Tests whether services annotated with {@link GrpcService#executor()} are executed using the named executor, whether
+ * calls exceeding its bounded queue are rejected without leaking resources and whether the executor is monitored.
+ */
+@SpringBootTest(properties = {
+        "grpc.server.executors.limited.type=fixed",
+        "grpc.server.executors.limited.threads=1",
+        "grpc.server.executors.limited.queue-capacity=1"})
+@SpringJUnitConfig(classes = {GrpcServiceExecutorTest.ExecutorServiceConfiguration.class,
+        InProcessConfiguration.class, MetricConfiguration.class, BaseAutoConfiguration.class})
+// Binds the MeterBinders to the registry
+@ImportAutoConfiguration(MetricsAutoConfiguration.class)
+@DirtiesContext
+class GrpcServiceExecutorTest {
+
+    private static final String EXECUTOR_NAME = "grpc-server-limited";
+
+    private static volatile CountDownLatch entered = new CountDownLatch(0);
+    private static volatile CountDownLatch release = new CountDownLatch(0);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @GrpcClient("test")
+    private TestServiceBlockingStub blockingStub;
+
+    @GrpcClient("test")
+    private TestServiceFutureStub futureStub;
+
+    @Test
+    void testExecutor() {
+        final String threadName = this.blockingStub.normal(Empty.getDefaultInstance()).getVersion();
+        assertTrue(threadName.startsWith(EXECUTOR_NAME + "-"), threadName);
+        assertTrue(this.meterRegistry.get("executor.completed").tag("name", EXECUTOR_NAME)
+                .functionCounter().count() >= 1);
+    }
+
+    @Test
+    void testBoundedQueue() throws Exception {
+        entered = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+        try {
+            // Occupies the only thread
+            final ListenableFuture<SomeType> running = this.futureStub.normal(Empty.getDefaultInstance());
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            // Fills the queue
+            final ListenableFuture<SomeType> queued = this.futureStub.normal(Empty.getDefaultInstance());
+            awaitQueued(1);
+
+            final StatusRuntimeException exception = assertThrows(StatusRuntimeException.class,
+                    () -> this.blockingStub.normal(Empty.getDefaultInstance()));
+            assertEquals(Status.Code.RESOURCE_EXHAUSTED, exception.getStatus().getCode());
+
+            release.countDown();
+            assertTrue(running.get(5, TimeUnit.SECONDS).getVersion().startsWith(EXECUTOR_NAME));
+            assertTrue(queued.get(5, TimeUnit.SECONDS).getVersion().startsWith(EXECUTOR_NAME));
+        } finally {
+            release.countDown();
+        }
+        awaitActiveCalls(0);
+    }
+
+    private void awaitQueued(final double expected) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (this.meterRegistry.get("executor.queued").tag("name", EXECUTOR_NAME).gauge().value() != expected) {
+            assertTrue(System.nanoTime() < deadline, "Timeout while waiting for the queued call");
+            Thread.sleep(10);
+        }
+    }
+
+    private void awaitActiveCalls(final double expected) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (this.meterRegistry.get(METRIC_NAME_SERVER_CALLS_ACTIVE).tag(TAG_METHOD_NAME, "normal")
+                .gauge().value() != expected) {
+            assertTrue(System.nanoTime() < deadline, "Timeout while waiting for the calls to complete");
+            Thread.sleep(10);
+        }
+    }
+
+    @Configuration
+    static class ExecutorServiceConfiguration {
+
+        @GrpcService(executor = "limited")
+        static class ExecutorServiceImpl extends TestServiceImplBase {
+
+            @Override
+            public void normal(final Empty request, final StreamObserver<SomeType> responseObserver) {
+                final CountDownLatch entered = GrpcServiceExecutorTest.entered;
+                final CountDownLatch release = GrpcServiceExecutorTest.release;
+                entered.countDown();
+                GrpcServerExecutorRegistryTest.awaitUninterruptibly(release);
+                responseObserver.onNext(SomeType.newBuilder().setVersion(Thread.currentThread().getName()).build());
+                responseObserver.onCompleted();
+            }
+
+        }
+
+    }
+
+}
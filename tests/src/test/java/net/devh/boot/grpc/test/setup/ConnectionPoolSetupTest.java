@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.test.setup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.google.protobuf.Empty;
+
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.Metadata;
+import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.client.channelfactory.GrpcChannelFactory;
+import net.devh.boot.grpc.test.config.BaseAutoConfiguration;
+import net.devh.boot.grpc.test.config.ServiceConfiguration;
+import net.devh.boot.grpc.test.proto.SomeType;
+import net.devh.boot.grpc.test.proto.TestServiceGrpc;
+
+/**
+ * A test checking that the server and client can start and connect to each other using a pool of client channels.
+ */
+@Slf4j
+@SpringBootTest(properties = {
+        "grpc.client.GLOBAL.address=localhost:9090",
+        "grpc.client.GLOBAL.negotiationType=PLAINTEXT",
+        "grpc.client.test.connection-pool-size=3",
+        "grpc.client.test.connection-pool-strategy=LEAST_ACTIVE_CALLS"
+})
+@SpringJUnitConfig(classes = {ServiceConfiguration.class, BaseAutoConfiguration.class})
+@DirtiesContext
+public class ConnectionPoolSetupTest extends AbstractSimpleServerClientTest {
+
+    @Autowired
+    private GrpcChannelFactory channelFactory;
+
+    public ConnectionPoolSetupTest() {
+        log.info("--- ConnectionPoolSetupTest ---");
+    }
+
+    /**
+     * Test that the calls are distributed across the pooled channels and that all of them are completed.
+     */
+    @Test
+    @DirtiesContext
+    public void testPooledCalls() {
+        // Keep the calls open, so that each of them has to use a different stripe
+        final List<ClientCall<Empty, SomeType>> openCalls = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final ClientCall<Empty, SomeType> call =
+                    this.channel.newCall(TestServiceGrpc.getNormalMethod(), CallOptions.DEFAULT);
+            call.start(new ClientCall.Listener<SomeType>() {}, new Metadata());
+            openCalls.add(call);
+        }
+        final Map<String, Integer> openActiveCalls = this.channelFactory.getActiveCalls();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(1, openActiveCalls.get("test#" + i), "test#" + i);
+        }
+        for (final ClientCall<Empty, SomeType> call : openCalls) {
+            call.cancel("Test completed", null);
+        }
+
+        for (int i = 0; i < 6; i++) {
+            assertEquals("1.2.3", this.testServiceBlockingStub.normal(Empty.getDefaultInstance()).getVersion());
+        }
+        final Map<String, Integer> activeCalls = this.channelFactory.getActiveCalls();
+        assertEquals(3, activeCalls.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, activeCalls.get("test#" + i));
+            assertTrue(this.channelFactory.getConnectivityState().containsKey("test#" + i));
+        }
+    }
+
+}
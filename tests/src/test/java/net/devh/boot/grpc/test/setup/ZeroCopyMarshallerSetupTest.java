@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2016-2020 Michael Zhang <yidongnan@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.devh.boot.grpc.test.setup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import io.grpc.MethodDescriptor.Marshaller;
+import io.grpc.ServerMethodDefinition;
+import io.grpc.ServerServiceDefinition;
+import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.common.protobuf.ZeroCopyProtoMarshaller;
+import net.devh.boot.grpc.server.service.GrpcServiceDefinition;
+import net.devh.boot.grpc.server.service.GrpcServiceDiscoverer;
+import net.devh.boot.grpc.test.config.BaseAutoConfiguration;
+import net.devh.boot.grpc.test.config.ServiceConfiguration;
+
+/**
+ * A test checking that the server and client can start and connect to each other using the zero copy marshaller.
+ */
+@Slf4j
+@SpringBootTest(properties = {
+        "grpc.server.zero-copy-marshaller=true",
+        // Exercise the aliasing on the server and the pooling on the client
+        "grpc.server.zero-copy-aliasing-threshold=0",
+        "grpc.client.GLOBAL.address=localhost:9090",
+        "grpc.client.GLOBAL.negotiationType=PLAINTEXT",
+        "grpc.client.GLOBAL.zero-copy-marshaller=true",
+        "grpc.client.GLOBAL.zero-copy-aliasing-threshold=0",
+        "grpc.client.GLOBAL.zero-copy-max-pooled-size=1KB"
+})
+@SpringJUnitConfig(classes = {ServiceConfiguration.class, BaseAutoConfiguration.class})
+@DirtiesContext
+public class ZeroCopyMarshallerSetupTest extends AbstractSimpleServerClientTest {
+
+    public ZeroCopyMarshallerSetupTest() {
+        log.info("--- ZeroCopyMarshallerSetupTest ---");
+    }
+
+    @Autowired
+    private GrpcServiceDiscoverer serviceDiscoverer;
+
+    @Test
+    void testServicesUseZeroCopyMarshaller() {
+        for (final GrpcServiceDefinition service : this.serviceDiscoverer.findGrpcServices()) {
+            final ServerServiceDefinition definition = service.getDefinition();
+            for (final ServerMethodDefinition<?, ?> method : definition.getMethods()) {
+                final Marshaller<?> marshaller = method.getMethodDescriptor().getRequestMarshaller();
+                assertTrue(marshaller instanceof ZeroCopyProtoMarshaller,
+                        method.getMethodDescriptor().getFullMethodName());
+                assertEquals(0, ((ZeroCopyProtoMarshaller<?>) marshaller).getAliasingThreshold());
+            }
+        }
+    }
+
+}